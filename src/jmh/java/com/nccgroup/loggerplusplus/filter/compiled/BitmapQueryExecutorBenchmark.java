@@ -0,0 +1,78 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryStore;
+import com.nccgroup.loggerplusplus.logentry.SyntheticLogEntries;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares testing every entry of a synthetic log against a compiled filter
+ * with executing the filter against the indexes by the {@link BitmapQueryExecutor}.
+ *
+ * {@code plan} measures the bitmap operations alone, {@code execute} includes testing the rows the indexes can't decide.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class BitmapQueryExecutorBenchmark {
+
+    @Param({"1000000"})
+    public int entries;
+
+    @Param({
+            "Response.Status == 404 && Request.Method == \"POST\"",
+            "Request.Hostname == \"www1.example.com\" || Request.Extension IN [\"js\", \"css\"]",
+            "Response.Length > 100000 && !(Response.Status == 200)",
+            "Request.Time > \"2020/01/01 12:00:00\" && Response.RTT > 1000",
+            "Request.Method == \"GET\" ^ Response.MimeType == \"JSON\"",
+            "Response.Status >= 500 && Response.Title CONTAINS \"error\"",
+            "Request.Path CONTAINS \"orders\" && Request.Query CONTAINS \"id=1\""
+    })
+    public String filter;
+
+    private LogEntryStore store;
+    private LogEntryIndex index;
+    private CompiledNode compiled;
+    private BitmapQueryExecutor executor;
+
+    @Setup
+    public void setup() throws Exception {
+        store = new LogEntryStore();
+        index = new LogEntryIndex();
+        for (LogEntry entry : SyntheticLogEntries.generate(entries, 42)) {
+            store.add(entry);
+            index.add(entry);
+        }
+        compiled = new LogFilter(filter).getCompiled();
+        executor = new BitmapQueryExecutor(index);
+    }
+
+    @Benchmark
+    public int scan() {
+        int matches = 0;
+        for (LogEntry entry : store.snapshot()) {
+            if (compiled.test(entry)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public RowBounds plan() {
+        return executor.plan(compiled);
+    }
+
+    @Benchmark
+    public int execute() {
+        CompressedBitmap matches = executor.execute(compiled, store.snapshot());
+        return matches.getCardinality();
+    }
+}
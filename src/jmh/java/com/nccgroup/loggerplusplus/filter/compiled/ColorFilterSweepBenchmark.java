@@ -0,0 +1,104 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.filter.parser.ASTExpression;
+import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.SyntheticLogEntries;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests a synthetic log against every colour filter, as each entry is processed, by walking each parsed filter
+ * with the {@link FilterEvaluationVisitor}, by testing each compiled filter in turn, and with a {@link CompiledFilterSet}.
+ *
+ * The colour filters overlap as a typical set does, several testing the same fields and repeating comparisons.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorFilterSweepBenchmark {
+
+    private static final String[] COLOR_FILTERS = {
+            "Response.Status >= 500",
+            "Response.Status >= 400 && Response.Status < 500",
+            "Response.Status == 404",
+            "Request.Method == \"POST\"",
+            "Request.Method IN [\"PUT\", \"DELETE\"]",
+            "Request.Extension IN [\"js\", \"css\", \"png\"]",
+            "Response.MimeType == \"JSON\" && Response.Status == 200",
+            "Response.RTT > 1000",
+            "Request.Hostname CONTAINS \"api\" && Request.Method == \"POST\"",
+            "Request.Path CONTAINS \"orders\"",
+            "Request.Query CONTAINS \"id=\"",
+            "Response.Title CONTAINS \"error\" || Response.Status >= 500",
+            "!(Request.IsSSL)",
+            "Request.Header[\"Authorization\"] && Response.Status == 401",
+            "Response.Length > 100000",
+            "Request.Hostname == \"www1.example.com\" || Request.Hostname == \"api3.example.com\""
+    };
+
+    @Param({"10000"})
+    public int entries;
+
+    @Param({"4", "16"})
+    public int colorFilters;
+
+    private List<LogEntry> log;
+    private List<ASTExpression> asts;
+    private List<CompiledNode> compiled;
+    private CompiledFilterSet<Integer> filterSet;
+    private FilterEvaluationVisitor visitor;
+
+    @Setup
+    public void setup() throws Exception {
+        log = SyntheticLogEntries.generate(entries, 42);
+        asts = new ArrayList<>();
+        compiled = new ArrayList<>();
+        Map<Integer, CompiledNode> filters = new LinkedHashMap<>();
+        for (int i = 0; i < colorFilters; i++) {
+            LogFilter filter = new LogFilter(COLOR_FILTERS[i % COLOR_FILTERS.length]);
+            asts.add(filter.getAST());
+            compiled.add(filter.getCompiled());
+            filters.put(i, filter.getCompiled());
+        }
+        filterSet = new CompiledFilterSet<>(filters);
+        visitor = new FilterEvaluationVisitor(null);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            for (ASTExpression ast : asts) {
+                if (visitor.visit(ast, entry)) matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            for (CompiledNode filter : compiled) {
+                if (filter.test(entry)) matches++;
+            }
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int filterSet() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            matches += filterSet.getMatches(entry).size();
+        }
+        return matches;
+    }
+}
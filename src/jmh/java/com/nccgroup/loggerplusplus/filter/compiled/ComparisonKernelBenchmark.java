@@ -0,0 +1,82 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Compares the interpreted comparison in {@link FilterEvaluationVisitor#compare}
+ * against the specialised kernel chosen for the same comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComparisonKernelBenchmark {
+
+    private static final int VALUES = 10_000;
+
+    @Param({"STATUS_GT", "LENGTH_EQ", "HOST_EQ", "HOST_CONTAINS", "PATH_CONTAINS", "METHOD_IN", "TIME_GT"})
+    public String comparison;
+
+    private BooleanOperator op;
+    private Object constant;
+    private Object[] values;
+    private Predicate<Object> kernel;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        values = new Object[VALUES];
+        String[] hosts = {"www.example.com", "api.Example.com", "cdn.test.org", "login.portswigger.net"};
+        String[] methods = {"GET", "POST", "PUT", "OPTIONS"};
+
+        for (int i = 0; i < VALUES; i++) {
+            switch (comparison) {
+                case "STATUS_GT": values[i] = (short) (100 + random.nextInt(500)); break;
+                case "LENGTH_EQ": values[i] = random.nextInt(2048); break;
+                case "HOST_EQ":
+                case "HOST_CONTAINS": values[i] = hosts[random.nextInt(hosts.length)]; break;
+                case "PATH_CONTAINS": values[i] = "/api/v" + random.nextInt(3) + "/users/" + random.nextInt(100000) + "/Profile"; break;
+                case "METHOD_IN": values[i] = methods[random.nextInt(methods.length)]; break;
+                case "TIME_GT": values[i] = new Date(1577836800000L + random.nextInt(86_400_000)); break;
+            }
+        }
+
+        switch (comparison) {
+            case "STATUS_GT": op = BooleanOperator.GREATER_THAN; constant = new BigDecimal(399); break;
+            case "LENGTH_EQ": op = BooleanOperator.EQUAL; constant = new BigDecimal(1024); break;
+            case "HOST_EQ": op = BooleanOperator.EQUAL; constant = "api.example.com"; break;
+            case "HOST_CONTAINS": op = BooleanOperator.CONTAINS; constant = "EXAMPLE"; break;
+            case "PATH_CONTAINS": op = BooleanOperator.CONTAINS; constant = "profile"; break;
+            case "METHOD_IN": op = BooleanOperator.IN; constant = new LinkedHashSet<>(Arrays.asList("post", "put", "patch", "delete")); break;
+            case "TIME_GT": op = BooleanOperator.GREATER_THAN; constant = new Date(1577880000000L); break;
+        }
+        kernel = ComparisonKernels.forConstant(op, constant);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matches = 0;
+        for (Object value : values) {
+            if (FilterEvaluationVisitor.compare(op, value, constant)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int kernel() {
+        int matches = 0;
+        for (Object value : values) {
+            if (kernel.test(value)) matches++;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,76 @@
+package com.nccgroup.loggerplusplus.filter.parser;
+
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.SyntheticLogEntries;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests a synthetic log against a single comparison, for each operator and type of field,
+ * with the {@link FilterEvaluationVisitor} walking the parsed filter and with the compiled filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterEvaluationVisitorBenchmark {
+
+    @Param({"10000"})
+    public int entries;
+
+    @Param({
+            "Response.Status == 404",
+            "Response.Status != 200",
+            "Response.Status >= 400",
+            "Response.Length < 1024",
+            "Response.RTT > 500",
+            "Request.Time > \"2020/01/01 00:05:00\"",
+            "Request.IsSSL",
+            "Request.Method == \"post\"",
+            "Request.Hostname CONTAINS \"api\"",
+            "Request.Path MATCHES \"/api/v1/orders/.*\"",
+            "Request.Method IN [\"POST\", \"PUT\", \"DELETE\"]",
+            "Response.Status IN [301, 302, 304]",
+            "Request.Header[\"User-Agent\"] CONTAINS \"Firefox\"",
+            "Request.Header[\"Authorization\"]"
+    })
+    public String filter;
+
+    private List<LogEntry> log;
+    private ASTExpression ast;
+    private CompiledNode compiled;
+    private FilterEvaluationVisitor visitor;
+
+    @Setup
+    public void setup() throws ParseException {
+        log = SyntheticLogEntries.generate(entries, 42);
+        LogFilter logFilter = new LogFilter(filter);
+        ast = logFilter.getAST();
+        compiled = logFilter.getCompiled();
+        visitor = new FilterEvaluationVisitor(null);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            if (visitor.visit(ast, entry)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            if (compiled.test(entry)) matches++;
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,38 @@
+package com.nccgroup.loggerplusplus.filter.parser;
+
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures parsing filters of increasing size, and parsing them together with the sanity checks
+ * and compilation done whenever a filter is entered or loaded from preferences.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterParserBenchmark {
+
+    @Param({
+            "Response.Status == 200",
+            "Request.Hostname CONTAINS \"example\" && Request.Method IN [\"POST\", \"PUT\", \"DELETE\"]",
+            "Request.Path MATCHES \"/api/v[0-9]+/users/.*\" || Request.Header[\"Authorization\"] CONTAINS \"Bearer\"",
+            "(Response.Status >= 400 && Response.Status < 500 && !(Response.Status == 404)) || (Response.Status >= 500 && Response.Title CONTAINS \"error\")"
+                    + " || (Request.Time > \"2020/01/01 12:00:00\" && Response.RTT > 1000 && Request.Extension IN [\"js\", \"css\", \"html\"])"
+    })
+    public String filter;
+
+    @Benchmark
+    public ASTExpression parse() throws ParseException {
+        return FilterParser.parseFilter(filter);
+    }
+
+    @Benchmark
+    public LogFilter parseAndCompile() throws ParseException {
+        return new LogFilter(filter);
+    }
+}
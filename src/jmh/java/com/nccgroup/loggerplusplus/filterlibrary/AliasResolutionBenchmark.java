@@ -0,0 +1,87 @@
+package com.nccgroup.loggerplusplus.filterlibrary;
+
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.filter.parser.ASTExpression;
+import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import com.nccgroup.loggerplusplus.filter.parser.ParseException;
+import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.SyntheticLogEntries;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures filters referencing saved filters through a chain of aliases, in a library holding other saved filters
+ * ahead of them. The {@link FilterEvaluationVisitor} looks each alias up as it is reached, the compiled filter has
+ * them inlined when it is compiled, and {@code recompile} is the cost paid when a saved filter it references changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AliasResolutionBenchmark {
+
+    @Param({"10000"})
+    public int entries;
+
+    //The number of unrelated saved filters in the library.
+    @Param({"10", "100"})
+    public int savedFilters;
+
+    //The number of aliases followed to reach the comparisons.
+    @Param({"1", "4"})
+    public int depth;
+
+    private List<LogEntry> log;
+    private ASTExpression ast;
+    private CompiledNode compiled;
+    private LogFilter logFilter;
+    private FilterEvaluationVisitor visitor;
+
+    @Setup
+    public void setup() throws ParseException {
+        log = SyntheticLogEntries.generate(entries, 42);
+        FilterLibraryController library = new FilterLibraryController(null, new BenchmarkPreferences());
+        for (int i = 0; i < savedFilters; i++) {
+            library.addFilter(new SavedFilter(library, "unrelated" + i, "Response.Status == " + (100 + i)));
+        }
+        library.addFilter(new SavedFilter(library, "level0", "Response.Status >= 400 && Request.Method != \"OPTIONS\""));
+        for (int i = 1; i < depth; i++) {
+            library.addFilter(new SavedFilter(library, "level" + i, "#level" + (i - 1) + " || Request.Hostname CONTAINS \"api" + i + "\""));
+        }
+
+        logFilter = new LogFilter(library, "#level" + (depth - 1));
+        ast = logFilter.getAST();
+        compiled = logFilter.getCompiled();
+        visitor = new FilterEvaluationVisitor(library);
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            if (visitor.visit(ast, entry)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matches = 0;
+        for (LogEntry entry : log) {
+            if (compiled.test(entry)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public CompiledNode recompile() {
+        logFilter.recompile();
+        return logFilter.getCompiled();
+    }
+}
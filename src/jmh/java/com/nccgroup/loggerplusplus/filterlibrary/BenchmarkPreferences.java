@@ -0,0 +1,40 @@
+package com.nccgroup.loggerplusplus.filterlibrary;
+
+import com.coreyd97.BurpExtenderUtilities.DefaultGsonProvider;
+import com.coreyd97.BurpExtenderUtilities.Preferences;
+import com.nccgroup.loggerplusplus.util.Globals;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Preferences held in memory rather than by Burp, starting with an empty filter library,
+ * so a {@link FilterLibraryController} can be built outside of Burp.
+ */
+class BenchmarkPreferences extends Preferences {
+
+    private final Map<String, Object> settings = new HashMap<>();
+
+    BenchmarkPreferences(){
+        super("LoggerPlusPlus-Benchmark", new DefaultGsonProvider(), null);
+        settings.put(Globals.PREF_SAVED_FILTERS, new ArrayList<>());
+        settings.put(Globals.PREF_COLOR_FILTERS, new HashMap<>());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T getSetting(String settingName) {
+        return (T) settings.get(settingName);
+    }
+
+    @Override
+    public void setSetting(String settingName, Object value) {
+        settings.put(settingName, value);
+    }
+
+    @Override
+    public void setSetting(String settingName, Object value, Object eventSource) {
+        settings.put(settingName, value);
+    }
+}
@@ -0,0 +1,77 @@
+package com.nccgroup.loggerplusplus.logentry;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates processed log entries with realistic looking metadata, without needing Burp.
+ * Entries arrive in request time order, as they do in the table.
+ */
+public final class SyntheticLogEntries {
+
+    private static final String[] METHODS = {"GET", "GET", "GET", "GET", "POST", "POST", "PUT", "DELETE", "OPTIONS"};
+    private static final String[] EXTENSIONS = {"", "", "", "js", "css", "html", "png", "json", "php"};
+    private static final short[] STATUSES = {200, 200, 200, 200, 200, 204, 301, 302, 304, 400, 401, 403, 404, 404, 500, 503};
+    private static final String[] MIME_TYPES = {"HTML", "JSON", "script", "CSS", "PNG", "text", ""};
+    private static final String[] TITLES = {"", "", "Home", "Login", "Dashboard", "Not Found", "Internal Server Error"};
+    private static final String[] USER_AGENTS = {"User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:72.0) Gecko/20100101 Firefox/72.0",
+            "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/79.0.3945.88 Safari/537.36",
+            "User-Agent: curl/7.68.0"};
+    private static final int HOSTS = 200;
+
+    private SyntheticLogEntries(){}
+
+    public static List<LogEntry> generate(int count, long seed){
+        Random random = new Random(seed);
+        List<LogEntry> entries = new ArrayList<>(count);
+        long time = 1577836800000L;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(250);
+            entries.add(create(random, time));
+        }
+        return entries;
+    }
+
+    public static LogEntry create(Random random, long requestTime){
+        LogEntry entry = new LogEntry();
+        //Skew towards a handful of busy hosts.
+        int host = (int) (HOSTS * Math.pow(random.nextDouble(), 3));
+        entry.hostname = (host % 3 == 0 ? "api" : "www") + host + ".example" + (host % 7 == 0 ? ".org" : ".com");
+        entry.isSSL = random.nextInt(5) != 0;
+        entry.protocol = entry.isSSL ? "https" : "http";
+        entry.targetPort = entry.isSSL ? 443 : 80;
+        entry.host = entry.protocol + "://" + entry.hostname;
+        entry.method = METHODS[random.nextInt(METHODS.length)];
+        entry.urlExtension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+        String path = "/api/v" + random.nextInt(3) + "/" + (random.nextBoolean() ? "users" : "orders") + "/" + random.nextInt(100000)
+                + (entry.urlExtension.isEmpty() ? "" : "." + entry.urlExtension);
+        try {
+            entry.url = new URL(entry.host + path + (random.nextBoolean() ? "?id=" + random.nextInt(1000) : ""));
+        } catch (MalformedURLException e) {
+            throw new IllegalStateException(e);
+        }
+        entry.requestLength = entry.method.equals("GET") ? 0 : random.nextInt(4096);
+        entry.requestHeaders = new ArrayList<>(Arrays.asList(entry.method + " " + path + " HTTP/1.1", "Host: " + entry.hostname,
+                USER_AGENTS[random.nextInt(USER_AGENTS.length)], "Accept: */*"));
+        if (random.nextInt(3) == 0) entry.requestHeaders.add("Authorization: Bearer " + Integer.toHexString(random.nextInt()));
+
+        entry.responseStatus = STATUSES[random.nextInt(STATUSES.length)];
+        entry.responseStatusText = entry.responseStatus == 200 ? "OK" : entry.responseStatus == 404 ? "Not Found" : "Other";
+        entry.responseMimeType = MIME_TYPES[random.nextInt(MIME_TYPES.length)];
+        entry.responseInferredMimeType = entry.responseMimeType;
+        entry.responseLength = (int) Math.min(Integer.MAX_VALUE, Math.exp(random.nextGaussian() * 2 + 8));
+        entry.title = TITLES[random.nextInt(TITLES.length)];
+        entry.responseHeaders = Arrays.asList("HTTP/1.1 " + entry.responseStatus + " " + entry.responseStatusText,
+                "Content-Length: " + entry.responseLength, "X-Frame-Options: DENY");
+        entry.requestResponseDelay = (int) Math.abs(random.nextGaussian() * 400) + 20;
+        entry.requestDateTime = new Date(requestTime);
+        entry.responseDateTime = new Date(requestTime + entry.requestResponseDelay);
+        entry.complete = true;
+        return entry;
+    }
+}
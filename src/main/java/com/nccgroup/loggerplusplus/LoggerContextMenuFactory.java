@@ -12,11 +12,7 @@ import com.nccgroup.loggerplusplus.util.userinterface.dialog.ColorFilterDialog;
 import javax.swing.*;
 import java.awt.event.ActionEvent;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.UUID;
-
-import static com.nccgroup.loggerplusplus.util.Globals.PREF_COLOR_FILTERS;
 
 public class LoggerContextMenuFactory implements IContextMenuFactory {
 
@@ -111,8 +107,7 @@ public class LoggerContextMenuFactory implements IContextMenuFactory {
                     ColorFilter colorFilter = new ColorFilter();
                     colorFilter.setFilter(new LogFilter(loggerPlusPlus.getLibraryController(),
                             context.getFullLabel() + " CONTAINS \"" + selectedText + "\""));
-                    HashMap<UUID,ColorFilter> colorFilters = loggerPlusPlus.getPreferencesController().getPreferences().getSetting(PREF_COLOR_FILTERS);
-                    colorFilters.put(colorFilter.getUUID(), colorFilter);
+                    loggerPlusPlus.getLibraryController().addColorFilter(colorFilter);
                     new ColorFilterDialog(loggerPlusPlus.getLibraryController()).setVisible(true);
                 } catch (ParseException e) {
                     return;
@@ -80,7 +80,7 @@ public class LoggerPlusPlus implements IBurpExtender, IExtensionStateListener {
         preferencesController = new PreferencesController(this, loggingController);
         reflectionController = new ReflectionController(preferencesController.getPreferences());
         exportController = new ExportController(this, preferencesController.getPreferences());
-        libraryController = new FilterLibraryController(this, preferencesController);
+        libraryController = new FilterLibraryController(this, preferencesController.getPreferences());
         logViewController = new LogViewController(this, libraryController);
         logProcessor = new LogProcessor(this, logViewController.getLogTableController(), exportController);
         grepperController = new GrepperController(this, logViewController.getLogTableController(), preferencesController);
@@ -126,6 +126,7 @@ public class LoggerPlusPlus implements IBurpExtender, IExtensionStateListener {
 
         //Stop log processor executors and pending tasks.
         logProcessor.shutdown();
+        logViewController.getLogTableController().shutdown();
 
         //Null out static variables so not leftover.
         LoggerPlusPlus.instance = null;
@@ -0,0 +1,244 @@
+package com.nccgroup.loggerplusplus.filter.aggregate;
+
+import com.nccgroup.loggerplusplus.filter.parser.ParseException;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.util.HyperLogLog;
+import com.nccgroup.loggerplusplus.util.TDigest;
+
+/**
+ * An aggregate computed over the entries of each group of an {@link AggregateQuery}, such as {@code count()}
+ * or {@code p95(Response.RTT)}.
+ *
+ * Each aggregate is summarised by an {@link Accumulator} which can be merged with another,
+ * so a query can be run over parts of the log in parallel and kept up to date as entries arrive.
+ * Distinct counts and percentiles are estimated with sketches, so their memory use doesn't grow with the log.
+ */
+public class Aggregate {
+
+    public enum Function {
+        COUNT, SUM, AVG, MIN, MAX, DISTINCT, PERCENTILE
+    }
+
+    /**
+     * Passed to accumulators of aggregates without a field, so count() can tell them from empty values.
+     */
+    static final Object NO_FIELD = new Object();
+
+    private final Function function;
+    private final LogEntryField field;
+    private final double quantile;
+    private final String label;
+
+    private Aggregate(Function function, LogEntryField field, double quantile, String label){
+        this.function = function;
+        this.field = field;
+        this.quantile = quantile;
+        this.label = label;
+    }
+
+    /**
+     * @param name The name of the function, e.g. count, avg or p95
+     * @param field The field the function is applied to, or null if none was given
+     */
+    public static Aggregate create(String name, LogEntryField field) throws ParseException {
+        String lowerName = name.toLowerCase();
+        String label = lowerName + "(" + (field != null ? field.getFullLabel() : "") + ")";
+        switch (lowerName){
+            case "count": return new Aggregate(Function.COUNT, field, 0, label);
+            case "distinct": return new Aggregate(Function.DISTINCT, requireField(lowerName, field), 0, label);
+            case "sum": return new Aggregate(Function.SUM, requireNumericField(lowerName, field), 0, label);
+            case "avg": return new Aggregate(Function.AVG, requireNumericField(lowerName, field), 0, label);
+            case "min": return new Aggregate(Function.MIN, requireNumericField(lowerName, field), 0, label);
+            case "max": return new Aggregate(Function.MAX, requireNumericField(lowerName, field), 0, label);
+        }
+
+        //Percentiles are written as the digits after the decimal point of the quantile, e.g. p50, p95 or p999.
+        //Read that way p100 would be the 10th percentile, but is surely meant as the maximum, so is refused.
+        if(lowerName.matches("p10{2,}")){
+            throw new ParseException(String.format("The aggregate %s() would be read as the quantile 0.%s. " +
+                    "Use max(field) for the largest value.", lowerName, lowerName.substring(1)));
+        }
+        if(lowerName.matches("p[0-9]{2,}")){
+            double quantile = Double.parseDouble("0." + lowerName.substring(1));
+            return new Aggregate(Function.PERCENTILE, requireNumericField(lowerName, field), quantile, label);
+        }
+        throw new ParseException(String.format("Unknown aggregate \"%s\". Valid aggregates are count(), count(field), " +
+                "distinct(field), sum(field), avg(field), min(field), max(field) and percentiles such as p50(field), p95(field) or p999(field).", name));
+    }
+
+    private static LogEntryField requireField(String name, LogEntryField field) throws ParseException {
+        if(field == null) throw new ParseException(String.format("The aggregate %s() must be given a field, e.g. %s(Request.Host).", name, name));
+        return field;
+    }
+
+    private static LogEntryField requireNumericField(String name, LogEntryField field) throws ParseException {
+        if(field == null) throw new ParseException(String.format("The aggregate %s() must be given a numeric field, e.g. %s(Response.RTT).", name, name));
+        if(!Number.class.isAssignableFrom(field.getType())){
+            throw new ParseException(String.format("The aggregate %s() requires a numeric field, but %s is a %s.",
+                    name, field.getFullLabel(), field.getType().getSimpleName()));
+        }
+        return field;
+    }
+
+    public Function getFunction() {
+        return function;
+    }
+
+    /**
+     * @return The field the aggregate is applied to, or null if it counts entries.
+     */
+    public LogEntryField getField() {
+        return field;
+    }
+
+    /**
+     * @return The class of the results of the aggregate.
+     */
+    public Class<?> getResultType(){
+        return function == Function.COUNT || function == Function.DISTINCT ? Long.class : Double.class;
+    }
+
+    public Accumulator newAccumulator(){
+        switch (function){
+            case COUNT: return new CountAccumulator();
+            case DISTINCT: return new DistinctAccumulator();
+            case PERCENTILE: return new PercentileAccumulator(quantile);
+            default: return new NumericAccumulator(function);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+
+    /**
+     * Summarises the values of a field over a group of entries.
+     * Accumulators are not thread safe.
+     */
+    public interface Accumulator {
+        /**
+         * @param value The value of the aggregate's field for an entry, which may be null or empty.
+         */
+        void add(Object value);
+
+        /**
+         * Add the values summarised by another accumulator of the same aggregate.
+         */
+        void merge(Accumulator other);
+
+        /**
+         * @return The value of the aggregate, or null if it has no values.
+         */
+        Object getResult();
+    }
+
+    private static boolean isEmpty(Object value){
+        return value == null || (value instanceof CharSequence && ((CharSequence) value).length() == 0);
+    }
+
+    private static class CountAccumulator implements Accumulator {
+        private long count;
+
+        @Override
+        public void add(Object value) {
+            //count() counts every entry, count(field) only those with a value.
+            if(value == NO_FIELD || !isEmpty(value)) count++;
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            count += ((CountAccumulator) other).count;
+        }
+
+        @Override
+        public Object getResult() {
+            return count;
+        }
+    }
+
+    private static class DistinctAccumulator implements Accumulator {
+        private final HyperLogLog sketch = new HyperLogLog();
+
+        @Override
+        public void add(Object value) {
+            if(!isEmpty(value)) sketch.add(value);
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            sketch.merge(((DistinctAccumulator) other).sketch);
+        }
+
+        @Override
+        public Object getResult() {
+            return sketch.cardinality();
+        }
+    }
+
+    private static class PercentileAccumulator implements Accumulator {
+        private final double quantile;
+        private final TDigest digest = new TDigest();
+
+        private PercentileAccumulator(double quantile){
+            this.quantile = quantile;
+        }
+
+        @Override
+        public void add(Object value) {
+            if(value instanceof Number) digest.add(((Number) value).doubleValue());
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            digest.merge(((PercentileAccumulator) other).digest);
+        }
+
+        @Override
+        public Object getResult() {
+            return digest.size() == 0 ? null : digest.quantile(quantile);
+        }
+    }
+
+    private static class NumericAccumulator implements Accumulator {
+        private final Function function;
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        private NumericAccumulator(Function function){
+            this.function = function;
+        }
+
+        @Override
+        public void add(Object value) {
+            if(!(value instanceof Number)) return;
+            double number = ((Number) value).doubleValue();
+            count++;
+            sum += number;
+            min = Math.min(min, number);
+            max = Math.max(max, number);
+        }
+
+        @Override
+        public void merge(Accumulator other) {
+            NumericAccumulator numeric = (NumericAccumulator) other;
+            count += numeric.count;
+            sum += numeric.sum;
+            min = Math.min(min, numeric.min);
+            max = Math.max(max, numeric.max);
+        }
+
+        @Override
+        public Object getResult() {
+            if(count == 0) return function == Function.SUM ? 0.0 : null;
+            switch (function){
+                case SUM: return sum;
+                case AVG: return sum / count;
+                case MIN: return min;
+                default: return max;
+            }
+        }
+    }
+}
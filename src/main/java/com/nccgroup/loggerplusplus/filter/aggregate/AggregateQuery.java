@@ -0,0 +1,70 @@
+package com.nccgroup.loggerplusplus.filter.aggregate;
+
+import com.nccgroup.loggerplusplus.filter.parser.ASTExpression;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A query grouping the entries matching a filter and computing aggregates for each group,
+ * e.g. {@code Response.Status >= 500 GROUP BY Request.Host AGG count(), p95(Response.RTT)}.
+ * See {@link com.nccgroup.loggerplusplus.filter.parser.FilterParser#parseAggregateQuery(String)}.
+ */
+public class AggregateQuery {
+
+    private final ASTExpression filter;
+    private final List<LogEntryField> groupBy;
+    private final List<Aggregate> aggregates;
+
+    public AggregateQuery(ASTExpression filter, List<LogEntryField> groupBy, List<Aggregate> aggregates){
+        this.filter = filter;
+        this.groupBy = Collections.unmodifiableList(new ArrayList<>(groupBy));
+        this.aggregates = Collections.unmodifiableList(new ArrayList<>(aggregates));
+    }
+
+    /**
+     * @return The filter entries must match to be aggregated, or null to aggregate every entry.
+     */
+    public ASTExpression getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return The fields entries are grouped by, empty if every entry is in a single group.
+     */
+    public List<LogEntryField> getGroupBy() {
+        return groupBy;
+    }
+
+    public List<Aggregate> getAggregates() {
+        return aggregates;
+    }
+
+    /**
+     * @return The names of the columns of the results, the fields grouped by followed by the aggregates.
+     */
+    public List<String> getColumnNames(){
+        List<String> columns = new ArrayList<>();
+        for (LogEntryField field : groupBy) {
+            columns.add(field.getFullLabel());
+        }
+        for (Aggregate aggregate : aggregates) {
+            columns.add(aggregate.toString());
+        }
+        return columns;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        if(filter != null) sb.append(filter.getFilterString()).append(" ");
+        if(!groupBy.isEmpty()){
+            sb.append("GROUP BY ").append(groupBy.stream().map(LogEntryField::getFullLabel).collect(Collectors.joining(", "))).append(" ");
+        }
+        sb.append("AGG ").append(aggregates.stream().map(Aggregate::toString).collect(Collectors.joining(", ")));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,192 @@
+package com.nccgroup.loggerplusplus.filter.aggregate;
+
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.Status;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The results of an {@link AggregateQuery}, built up incrementally as entries are added.
+ *
+ * Only entries which have received their response are aggregated, so a group's response times don't include
+ * requests still in flight. Those are held as pending until an update shows their response has arrived.
+ * Results over different entries can be merged, so the log can be aggregated in parallel chunks and then kept
+ * up to date with the entries added since. Sketches can't forget values, so entries removed from the log remain
+ * in the results until they are run again. Results are not thread safe.
+ */
+public class AggregateResults {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final AggregateQuery query;
+    private final LogFilter filter;
+    private final Map<List<Object>, Aggregate.Accumulator[]> groups;
+    private final Set<Integer> pending;
+    private int lastRowId;
+    private long matched;
+    private long timedOut;
+
+    /**
+     * @param filter The compiled filter of the query, or null to aggregate every entry
+     */
+    public AggregateResults(AggregateQuery query, LogFilter filter){
+        this.query = query;
+        this.filter = filter;
+        this.groups = new LinkedHashMap<>();
+        this.pending = new HashSet<>();
+        this.lastRowId = -1;
+    }
+
+    /**
+     * Aggregate the entries of the log in parallel.
+     * @param entries The entries of the log, oldest first
+     * @param budget Limits the time spent testing entries against the filter, or null for no limit
+     */
+    public static AggregateResults execute(AggregateQuery query, LogFilter filter, List<LogEntry> entries, EvaluationBudget budget){
+        int chunks = (entries.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            AggregateResults partial = new AggregateResults(query, filter);
+            int end = Math.min(entries.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                partial.add(entries.get(i), budget);
+            }
+            return partial;
+        }).reduce((first, second) -> {
+            first.merge(second);
+            return first;
+        }).orElseGet(() -> new AggregateResults(query, filter));
+    }
+
+    /**
+     * Add an entry new to the log. Entries already added are ignored.
+     */
+    public void add(LogEntry entry, EvaluationBudget budget){
+        int rowId = entry.getRowId();
+        //Row ids only increase, so anything at or below the last seen has been added already.
+        if(rowId <= lastRowId) return;
+        lastRowId = rowId;
+        if(entry.getStatus() == Status.PROCESSED){
+            aggregate(entry, budget);
+        }else{
+            pending.add(rowId);
+        }
+    }
+
+    /**
+     * Aggregate an updated entry if it was waiting for its response and has now received it.
+     */
+    public void update(LogEntry entry, EvaluationBudget budget){
+        if(entry.getStatus() == Status.PROCESSED && pending.remove(entry.getRowId())){
+            aggregate(entry, budget);
+        }
+    }
+
+    /**
+     * Stop waiting for entries which have been removed from the log before receiving their response.
+     * @param rowId The row id of the oldest entry remaining in the log
+     */
+    public void removePendingBelow(int rowId){
+        pending.removeIf(pendingRowId -> pendingRowId < rowId);
+    }
+
+    private void aggregate(LogEntry entry, EvaluationBudget budget){
+        if(filter != null){
+            Boolean result = budget == null ? filter.matches(entry) : budget.test(filter.getCompiled(), entry);
+            if(result == null) timedOut++;
+            if(!Boolean.TRUE.equals(result)) return;
+        }
+        matched++;
+
+        List<LogEntryField> groupBy = query.getGroupBy();
+        List<Object> key = new ArrayList<>(groupBy.size());
+        for (LogEntryField field : groupBy) {
+            key.add(normalise(entry.getValueByKey(field)));
+        }
+        List<Aggregate> aggregates = query.getAggregates();
+        Aggregate.Accumulator[] accumulators = groups.get(key);
+        if(accumulators == null){
+            accumulators = new Aggregate.Accumulator[aggregates.size()];
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = aggregates.get(i).newAccumulator();
+            }
+            groups.put(key, accumulators);
+        }
+        for (int i = 0; i < accumulators.length; i++) {
+            LogEntryField field = aggregates.get(i).getField();
+            accumulators[i].add(field == null ? Aggregate.NO_FIELD : entry.getValueByKey(field));
+        }
+    }
+
+    //Views of message content can't be compared, so group by their text instead.
+    private static Object normalise(Object value){
+        return value instanceof CharSequence && !(value instanceof String) ? value.toString() : value;
+    }
+
+    /**
+     * Add the results for other entries of the same query to these.
+     */
+    public void merge(AggregateResults other){
+        for (Map.Entry<List<Object>, Aggregate.Accumulator[]> group : other.groups.entrySet()) {
+            Aggregate.Accumulator[] accumulators = groups.get(group.getKey());
+            if(accumulators == null){
+                groups.put(group.getKey(), group.getValue());
+            }else{
+                for (int i = 0; i < accumulators.length; i++) {
+                    accumulators[i].merge(group.getValue()[i]);
+                }
+            }
+        }
+        pending.addAll(other.pending);
+        lastRowId = Math.max(lastRowId, other.lastRowId);
+        matched += other.matched;
+        timedOut += other.timedOut;
+    }
+
+    public AggregateQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return A row for each group, the values of the fields grouped by followed by the values of the aggregates.
+     */
+    public List<Object[]> getRows(){
+        List<Object[]> rows = new ArrayList<>(groups.size());
+        int groupByCount = query.getGroupBy().size();
+        for (Map.Entry<List<Object>, Aggregate.Accumulator[]> group : groups.entrySet()) {
+            Object[] row = new Object[groupByCount + group.getValue().length];
+            for (int i = 0; i < groupByCount; i++) {
+                row[i] = group.getKey().get(i);
+            }
+            for (int i = 0; i < group.getValue().length; i++) {
+                row[groupByCount + i] = group.getValue()[i].getResult();
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @return The number of entries aggregated, i.e. those which received a response and matched the filter.
+     */
+    public long getMatchedCount() {
+        return matched;
+    }
+
+    /**
+     * @return The number of entries waiting for their response before they can be aggregated.
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return The number of entries left out because testing them against the filter took too long.
+     */
+    public long getTimedOutCount() {
+        return timedOut;
+    }
+}
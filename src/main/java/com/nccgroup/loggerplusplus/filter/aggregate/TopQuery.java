@@ -0,0 +1,54 @@
+package com.nccgroup.loggerplusplus.filter.aggregate;
+
+import com.nccgroup.loggerplusplus.filter.parser.ASTExpression;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+/**
+ * A query finding the first entries matching a filter in the order of a field,
+ * e.g. {@code Request.Method == "GET" ORDER BY Response.RTT DESC LIMIT 50}.
+ * See {@link com.nccgroup.loggerplusplus.filter.parser.FilterParser#parseTopQuery(String)}.
+ */
+public class TopQuery {
+
+    public static final int MAX_LIMIT = 10000;
+
+    private final ASTExpression filter;
+    private final LogEntryField orderBy;
+    private final boolean descending;
+    private final int limit;
+
+    public TopQuery(ASTExpression filter, LogEntryField orderBy, boolean descending, int limit){
+        this.filter = filter;
+        this.orderBy = orderBy;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    /**
+     * @return The filter entries must match to be included, or null to include every entry.
+     */
+    public ASTExpression getFilter() {
+        return filter;
+    }
+
+    public LogEntryField getOrderBy() {
+        return orderBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    /**
+     * @return The most entries the query returns.
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return (filter != null ? filter.getFilterString() + " " : "") + "ORDER BY " + orderBy.getFullLabel()
+                + (descending ? " DESC" : "") + " LIMIT " + limit;
+    }
+}
@@ -0,0 +1,144 @@
+package com.nccgroup.loggerplusplus.filter.aggregate;
+
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * The results of a {@link TopQuery}, found without sorting the log.
+ *
+ * The log is split into chunks which are searched in parallel, each keeping the best entries it has seen in a heap
+ * bounded by the limit of the query, with the worst of them at the top to be replaced. The heaps are then merged
+ * and only the entries kept are sorted, so finding the top k of n entries takes O(n log k).
+ * Entries without a value for the field are left out. Ties are broken by the order the entries were logged.
+ */
+public class TopResults {
+
+    private static final int CHUNK_SIZE = 4096;
+
+    private final TopQuery query;
+    private final Comparator<Candidate> order;
+    private final PriorityQueue<Candidate> heap;
+    private long matched;
+    private long timedOut;
+
+    private TopResults(TopQuery query){
+        this.query = query;
+        Comparator<Candidate> byValue = (first, second) -> compareValues(first.value, second.value);
+        if(query.isDescending()) byValue = byValue.reversed();
+        this.order = byValue.thenComparingInt(candidate -> candidate.entry.getRowId());
+        this.heap = new PriorityQueue<>(Math.min(query.getLimit(), CHUNK_SIZE) + 1, order.reversed());
+    }
+
+    /**
+     * Find the top entries of the log in parallel.
+     * @param filter The compiled filter of the query, or null to include every entry
+     * @param entries The entries of the log
+     * @param budget Limits the time spent testing entries against the filter, or null for no limit
+     */
+    public static TopResults execute(TopQuery query, LogFilter filter, List<LogEntry> entries, EvaluationBudget budget){
+        int chunks = (entries.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            TopResults partial = new TopResults(query);
+            int end = Math.min(entries.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                partial.add(entries.get(i), filter, budget);
+            }
+            return partial;
+        }).reduce((first, second) -> {
+            first.merge(second);
+            return first;
+        }).orElseGet(() -> new TopResults(query));
+    }
+
+    private void add(LogEntry entry, LogFilter filter, EvaluationBudget budget){
+        if(filter != null){
+            Boolean result = budget == null ? filter.matches(entry) : budget.test(filter.getCompiled(), entry);
+            if(result == null) timedOut++;
+            if(!Boolean.TRUE.equals(result)) return;
+        }
+        matched++;
+
+        Object value = entry.getValueByKey(query.getOrderBy());
+        if(value instanceof CharSequence){
+            if(((CharSequence) value).length() == 0) return;
+            value = value.toString();
+        }
+        if(value == null) return;
+        offer(new Candidate(entry, value));
+    }
+
+    private void offer(Candidate candidate){
+        if(heap.size() < query.getLimit()){
+            heap.add(candidate);
+        }else if(order.compare(candidate, heap.peek()) < 0){
+            //Better than the worst kept.
+            heap.poll();
+            heap.add(candidate);
+        }
+    }
+
+    private void merge(TopResults other){
+        for (Candidate candidate : other.heap) {
+            offer(candidate);
+        }
+        matched += other.matched;
+        timedOut += other.timedOut;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compareValues(Object first, Object second){
+        if(first instanceof String && second instanceof String){
+            return ((String) first).compareToIgnoreCase((String) second);
+        }
+        if(first instanceof Comparable && first.getClass() == second.getClass()){
+            return ((Comparable<Object>) first).compareTo(second);
+        }
+        return String.valueOf(first).compareToIgnoreCase(String.valueOf(second));
+    }
+
+    public TopQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * @return The entries found, in the order of the query.
+     */
+    public List<LogEntry> getEntries(){
+        List<Candidate> candidates = new ArrayList<>(heap);
+        candidates.sort(order);
+        List<LogEntry> entries = new ArrayList<>(candidates.size());
+        for (Candidate candidate : candidates) {
+            entries.add(candidate.entry);
+        }
+        return entries;
+    }
+
+    /**
+     * @return The number of entries which matched the filter, of which the top are kept.
+     */
+    public long getMatchedCount() {
+        return matched;
+    }
+
+    /**
+     * @return The number of entries left out because testing them against the filter took too long.
+     */
+    public long getTimedOutCount() {
+        return timedOut;
+    }
+
+    //An entry with the value it is ordered by, read once as the value may be computed.
+    private static class Candidate {
+        private final LogEntry entry;
+        private final Object value;
+
+        private Candidate(LogEntry entry, Object value){
+            this.entry = entry;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+/**
+ * Executes a compiled filter against the indexes of the table as bitmap operations.
+ *
+ * Comparisons the indexes can answer become bitmaps of the rows which match and may match them,
+ * which are combined by AND, OR, XOR and NOT as intersections, unions and differences.
+ * Only rows which the indexes can't decide, e.g. those left by a comparison on the response body,
+ * are tested against the compiled predicate.
+ */
+public class BitmapQueryExecutor {
+
+    private final LogEntryIndex index;
+
+    public BitmapQueryExecutor(LogEntryIndex index){
+        this.index = index;
+    }
+
+    /**
+     * Find the rows matching the filter as far as the indexes can tell, without testing any entries.
+     * Must be called while the indexes are consistent with the entries which will be tested.
+     */
+    public RowBounds plan(CompiledNode filter){
+        return filter.getBounds(index, index.getRows());
+    }
+
+    /**
+     * Find the rows matching the filter as far as the indexes can tell, within the entry limit of the budget.
+     * Looking up an index may run a comparison such as a regex against every value in it, so if that takes too long
+     * the indexes are given up on and every row is left to be tested.
+     */
+    public RowBounds plan(CompiledNode filter, EvaluationBudget budget){
+        RowBounds bounds = budget.run(() -> plan(filter));
+        return bounds != null ? bounds : RowBounds.unknown(index.getRows());
+    }
+
+    /**
+     * Find the rows matching the filter, testing only the entries the indexes can't decide.
+     * @param entries The entries in the table, in row id order
+     * @return The row ids of the matching entries
+     */
+    public CompressedBitmap execute(CompiledNode filter, Iterable<LogEntry> entries){
+        RowBounds bounds = plan(filter);
+        if(bounds.isExact()) return bounds.getMatches();
+
+        //Both are in row id order, so step through them together rather than looking up each entry.
+        int[] residual = bounds.getResidual().toArray();
+        CompressedBitmap matches = bounds.getMatches().copy();
+        int next = 0;
+        for (LogEntry entry : entries) {
+            if(next == residual.length) break;
+            int rowId = entry.getRowId();
+            while (next < residual.length && residual[next] < rowId) next++;
+            if(next < residual.length && residual[next] == rowId){
+                next++;
+                if(filter.test(entry)) matches.add(rowId);
+            }
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,253 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import com.nccgroup.loggerplusplus.util.Latin1CharSequence;
+import com.nccgroup.loggerplusplus.util.RegexPrefilter;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Comparison kernels specialised for a constant right hand value.
+ *
+ * Each kernel handles the value types it expects without boxing or conversion,
+ * and falls back to {@link FilterEvaluationVisitor#compare} for anything else.
+ *
+ * Results match the interpreted filter except for request and response bodies. Compiled filters read bodies
+ * as a {@link Latin1CharSequence}, one character per raw byte, whereas
+ * {@link com.nccgroup.loggerplusplus.logentry.LogEntry#getValueByKey} decodes them with the platform charset.
+ * A body containing non ASCII text, e.g. UTF-8, is therefore compared as its Latin-1 characters, and may
+ * match differently from the interpreted filter where the constant itself contains non ASCII characters.
+ */
+public final class ComparisonKernels {
+
+    private static final int SMALL_SET_SIZE = 8;
+
+    private ComparisonKernels(){}
+
+    /**
+     * Create a kernel testing a field value against a constant.
+     * @param op The operator of the comparison
+     * @param constant The right hand value of the comparison
+     * @return A predicate taking the value of the left hand field
+     */
+    public static Predicate<Object> forConstant(BooleanOperator op, Object constant){
+        Predicate<Object> generic = value -> FilterEvaluationVisitor.compare(op, value, constant);
+        if(constant instanceof Number) return numericKernel(op, (Number) constant, generic);
+        if(constant instanceof Date) return dateKernel(op, (Date) constant, generic);
+        if(constant instanceof Boolean) return booleanKernel(op, (Boolean) constant, generic);
+        if(constant instanceof String) return stringKernel(op, (String) constant, generic);
+        if(constant instanceof Set && op == BooleanOperator.IN) return inKernel((Set<?>) constant, generic);
+        if(constant instanceof Pattern) return patternKernel(op, (Pattern) constant, generic);
+        return generic;
+    }
+
+    private static Predicate<Object> numericKernel(BooleanOperator op, Number constant, Predicate<Object> generic){
+        BigDecimal decimal = new BigDecimal(String.valueOf(constant));
+        final long longConstant;
+        try {
+            longConstant = decimal.longValueExact();
+        }catch (ArithmeticException e){
+            //Fractional or out of range, not worth specialising.
+            return generic;
+        }
+
+        switch (op){
+            case EQUAL: return value -> isIntegral(value) ? ((Number) value).longValue() == longConstant : generic.test(value);
+            case NOT_EQUAL: return value -> isIntegral(value) ? ((Number) value).longValue() != longConstant : generic.test(value);
+            case GREATER_THAN: return value -> isIntegral(value) ? ((Number) value).longValue() > longConstant : generic.test(value);
+            case LESS_THAN: return value -> isIntegral(value) ? ((Number) value).longValue() < longConstant : generic.test(value);
+            case GREATER_THAN_EQUAL: return value -> isIntegral(value) ? ((Number) value).longValue() >= longConstant : generic.test(value);
+            case LESS_THAN_EQUAL: return value -> isIntegral(value) ? ((Number) value).longValue() <= longConstant : generic.test(value);
+            default: return generic;
+        }
+    }
+
+    private static boolean isIntegral(Object value){
+        return value instanceof Integer || value instanceof Short || value instanceof Long || value instanceof Byte;
+    }
+
+    private static Predicate<Object> dateKernel(BooleanOperator op, Date constant, Predicate<Object> generic){
+        final long seconds = Math.floorDiv(constant.getTime(), 1000L);
+        switch (op){
+            case EQUAL: return value -> value instanceof Date ? toSeconds((Date) value) == seconds : generic.test(value);
+            case NOT_EQUAL: return value -> value instanceof Date ? toSeconds((Date) value) != seconds : generic.test(value);
+            case GREATER_THAN: return value -> value instanceof Date ? toSeconds((Date) value) > seconds : generic.test(value);
+            case LESS_THAN: return value -> value instanceof Date ? toSeconds((Date) value) < seconds : generic.test(value);
+            case GREATER_THAN_EQUAL: return value -> value instanceof Date ? toSeconds((Date) value) >= seconds : generic.test(value);
+            case LESS_THAN_EQUAL: return value -> value instanceof Date ? toSeconds((Date) value) <= seconds : generic.test(value);
+            default: return generic;
+        }
+    }
+
+    /**
+     * Equivalent to comparing dates truncated to the second, without creating a calendar.
+     */
+    private static long toSeconds(Date date){
+        return Math.floorDiv(date.getTime(), 1000L);
+    }
+
+    private static Predicate<Object> booleanKernel(BooleanOperator op, boolean constant, Predicate<Object> generic){
+        switch (op){
+            case EQUAL: return value -> value instanceof Boolean ? (Boolean) value == constant : generic.test(value);
+            case NOT_EQUAL: return value -> value instanceof Boolean ? (Boolean) value != constant : generic.test(value);
+            default: return generic;
+        }
+    }
+
+    private static Predicate<Object> stringKernel(BooleanOperator op, String constant, Predicate<Object> generic){
+        switch (op){
+            case EQUAL: return value -> value instanceof CharSequence ? equalsIgnoreCase(constant, (CharSequence) value) : generic.test(value);
+            case NOT_EQUAL: return value -> value instanceof CharSequence ? !equalsIgnoreCase(constant, (CharSequence) value) : generic.test(value);
+            case CONTAINS: {
+                //toLowerCase depends on the locale, only scan ourselves where it lowercases each character on its own.
+                if(!"I".toLowerCase().equals("i") || "\u00CC".toLowerCase().length() != 1) return generic;
+                final String lowerConstant = constant.toLowerCase();
+                return value -> {
+                    if(value instanceof String) return containsIgnoreCase((String) value, lowerConstant);
+                    if(value instanceof Latin1CharSequence) return containsIgnoreCase((Latin1CharSequence) value, lowerConstant);
+                    return generic.test(value);
+                };
+            }
+            default: return generic;
+        }
+    }
+
+    /**
+     * Equivalent to {@code value.toLowerCase().contains(lowerNeedle)}, but scans the value in place.
+     * Values containing non ASCII characters are lowercased as normal, since their lowercase forms may differ in length.
+     */
+    static boolean containsIgnoreCase(String value, String lowerNeedle){
+        int length = value.length();
+        int needleLength = lowerNeedle.length();
+        if(needleLength == 0) return true;
+        char first = lowerNeedle.charAt(0);
+
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if(c >= 0x80) return value.toLowerCase().contains(lowerNeedle);
+            if(i <= length - needleLength && toLowerAscii(c) == first){
+                int j = 1;
+                while (j < needleLength){
+                    char other = value.charAt(i + j);
+                    if(other >= 0x80 || toLowerAscii(other) != lowerNeedle.charAt(j)) break;
+                    j++;
+                }
+                if(j == needleLength) return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Equivalent to {@code value.toString().toLowerCase().contains(lowerNeedle)}, but scans the view in place.
+     * Every character in the view is below 0x100, and so lowercases to a single character below 0x100.
+     */
+    static boolean containsIgnoreCase(Latin1CharSequence value, String lowerNeedle){
+        int length = value.length();
+        int needleLength = lowerNeedle.length();
+        if(needleLength == 0) return true;
+        char first = lowerNeedle.charAt(0);
+
+        for (int i = 0; i <= length - needleLength; i++) {
+            if(toLowerLatin1(value.charAt(i)) != first) continue;
+            int j = 1;
+            while (j < needleLength && toLowerLatin1(value.charAt(i + j)) == lowerNeedle.charAt(j)) j++;
+            if(j == needleLength) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Equivalent to {@link String#equalsIgnoreCase} for any character sequence, without copying it into a string.
+     */
+    static boolean equalsIgnoreCase(String constant, CharSequence value){
+        if(value instanceof String) return constant.equalsIgnoreCase((String) value);
+        int length = constant.length();
+        if(value.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            char c1 = constant.charAt(i);
+            char c2 = value.charAt(i);
+            if(c1 == c2) continue;
+            char u1 = Character.toUpperCase(c1);
+            char u2 = Character.toUpperCase(c2);
+            if(u1 != u2 && Character.toLowerCase(u1) != Character.toLowerCase(u2)) return false;
+        }
+        return true;
+    }
+
+    private static char toLowerLatin1(char c){
+        return c < 0x80 ? toLowerAscii(c) : Character.toLowerCase(c);
+    }
+
+    private static char toLowerAscii(char c){
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static Predicate<Object> patternKernel(BooleanOperator op, Pattern constant, Predicate<Object> generic){
+        final boolean unmatched = op == BooleanOperator.NOT_EQUAL;
+        //Character sequences, such as views of message bodies, are matched in place rather than copied into a string.
+        Predicate<Object> match = op == BooleanOperator.MATCHES
+                ? value -> value instanceof CharSequence ? constant.matcher(EvaluationBudget.guard((CharSequence) value)).matches() : generic.test(value)
+                : value -> value instanceof CharSequence ? constant.matcher(EvaluationBudget.guard((CharSequence) value)).find() ^ unmatched : generic.test(value);
+
+        RegexPrefilter prefilter = RegexPrefilter.forPattern(constant);
+        if(prefilter == null) return match;
+        //Values without the literals the pattern requires can't match, so don't run the regex over them.
+        return value -> {
+            CharSequence text = value instanceof CharSequence ? (CharSequence) value : value == null ? "" : String.valueOf(value);
+            return prefilter.mayMatch(text) ? match.test(value) : unmatched;
+        };
+    }
+
+    private static Predicate<Object> inKernel(Set<?> constant, Predicate<Object> generic){
+        if(constant.size() <= SMALL_SET_SIZE){
+            //Scanning a handful of items is cheaper than folding the value for a hash lookup.
+            final String[] items = constant.stream().map(String::valueOf).toArray(String[]::new);
+            return value -> {
+                if(value instanceof Date) return generic.test(value);
+                String string = value == null ? "" : String.valueOf(value);
+                for (String item : items) {
+                    if(string.equalsIgnoreCase(item)) return true;
+                }
+                return false;
+            };
+        }
+
+        final HashSet<String> foldedItems = new HashSet<>();
+        for (Object item : constant) {
+            foldedItems.add(foldCase(String.valueOf(item)));
+        }
+        return value -> {
+            if(value instanceof Date) return generic.test(value);
+            return foldedItems.contains(foldCase(value == null ? "" : String.valueOf(value)));
+        };
+    }
+
+    /**
+     * Fold the case of a string such that two strings are {@link String#equalsIgnoreCase equal ignoring case}
+     * if and only if their folded forms are equal.
+     */
+    static String foldCase(String value){
+        int i = 0;
+        //Avoid a copy if the string is already folded.
+        while (i < value.length() && foldCase(value.charAt(i)) == value.charAt(i)) i++;
+        if(i == value.length()) return value;
+
+        char[] chars = value.toCharArray();
+        for (; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static char foldCase(char c){
+        if(c < 0x80) return toLowerAscii(c);
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+}
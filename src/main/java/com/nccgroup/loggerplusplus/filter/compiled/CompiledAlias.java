@@ -0,0 +1,101 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
+import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * A reference to a saved filter, inlined as the compiled form of that filter.
+ *
+ * The saved filter is resolved when the alias is compiled. If the library is not yet available
+ * (e.g. while filters are loaded from preferences) it is instead resolved the first time it is tested.
+ * Filters using an alias are recompiled by the {@link FilterLibraryController} when the saved filter changes.
+ */
+public class CompiledAlias extends CompiledNode {
+
+    private final String identifier;
+    private final Supplier<FilterLibraryController> libraryControllerSupplier;
+    private volatile CompiledNode target;
+
+    public CompiledAlias(String identifier, Supplier<FilterLibraryController> libraryControllerSupplier){
+        this.identifier = identifier;
+        this.libraryControllerSupplier = libraryControllerSupplier;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return The compiled form of the saved filter, or null if the library is not available.
+     */
+    public CompiledNode getTarget() {
+        CompiledNode target = this.target;
+        return target != null ? target : resolve();
+    }
+
+    /**
+     * Look up the saved filter for this alias.
+     * @return The compiled form of the saved filter, or null if the library is not available.
+     */
+    public CompiledNode resolve(){
+        FilterLibraryController libraryController = libraryControllerSupplier.get();
+        if(libraryController == null) return null;
+
+        CompiledNode resolved = new CompiledConstant(false);
+        for (SavedFilter savedFilter : libraryController.getSavedFilters()) {
+            if(identifier.equalsIgnoreCase(savedFilter.getName())){
+                if(savedFilter.getFilter() != null) resolved = savedFilter.getFilter().getCompiled();
+                break;
+            }
+        }
+        this.target = resolved;
+        return resolved;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        CompiledNode target = this.target;
+        if(target == null){
+            target = resolve();
+            if(target == null) return false;
+        }
+        return target.test(entry);
+    }
+
+    @Override
+    public double getCost() {
+        CompiledNode target = this.target;
+        return target != null ? target.getCost() : FilterOptimizer.ALIAS_COST;
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+        CompiledNode target = this.target;
+        if(target != null){
+            target.collectReferencedFields(fields);
+        }else{
+            //Can't know what an unresolved alias will read.
+            Collections.addAll(fields, LogEntryField.values());
+        }
+    }
+
+    @Override
+    public RowBounds getBounds(LogEntryIndex index, CompressedBitmap rows) {
+        CompiledNode target = getTarget();
+        return target != null ? target.getBounds(index, rows) : RowBounds.unknown(rows);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledAlias[id=%s]", identifier);
+    }
+}
@@ -0,0 +1,79 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A comparison between a field and a constant, using a kernel chosen for the type of the constant.
+ */
+public class CompiledComparison extends CompiledNode {
+
+    private final LogEntryField field;
+    private final BooleanOperator op;
+    private final Object value;
+    private final Function<LogEntry, Object> accessor;
+    private final Predicate<Object> kernel;
+    private final double cost;
+
+    public CompiledComparison(LogEntryField field, BooleanOperator op, Object value){
+        this.field = field;
+        this.op = op;
+        this.value = value;
+        this.accessor = LogEntry.getFieldAccessor(field);
+        this.kernel = ComparisonKernels.forConstant(op, value);
+        this.cost = FilterOptimizer.getFieldCost(field) * FilterOptimizer.getOperatorCost(op, value);
+    }
+
+    public LogEntryField getField() {
+        return field;
+    }
+
+    public BooleanOperator getBooleanOperator() {
+        return op;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        return kernel.test(accessor.apply(entry));
+    }
+
+    /**
+     * Test a value already read from the field.
+     */
+    boolean testValue(Object fieldValue) {
+        return kernel.test(fieldValue);
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+        fields.add(field);
+    }
+
+    @Override
+    public RowBounds getBounds(LogEntryIndex index, CompressedBitmap rows) {
+        RowBounds bounds = index.lookup(field, op, value, kernel);
+        return bounds != null ? bounds : RowBounds.unknown(rows);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledComparison[field=%s, op=%s, value=%s]", field, op, value);
+    }
+}
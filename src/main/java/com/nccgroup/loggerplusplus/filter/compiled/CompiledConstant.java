@@ -0,0 +1,49 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Set;
+
+/**
+ * A node whose result does not depend on the entry, e.g. a comparison between two literals.
+ */
+public class CompiledConstant extends CompiledNode {
+
+    private final boolean value;
+
+    public CompiledConstant(boolean value){
+        this.value = value;
+    }
+
+    public boolean getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        return value;
+    }
+
+    @Override
+    public double getCost() {
+        return 0;
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+    }
+
+    @Override
+    public RowBounds getBounds(LogEntryIndex index, CompressedBitmap rows) {
+        return RowBounds.exact(value ? rows : new CompressedBitmap());
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(value);
+    }
+}
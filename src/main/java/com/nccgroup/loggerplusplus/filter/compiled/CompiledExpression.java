@@ -0,0 +1,175 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.LogicalOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
+
+/**
+ * A compiled expression.
+ *
+ * The operands of AND and OR expressions are evaluated cheapest first, according to the {@link FilterOptimizer}
+ * cost model. A sample of evaluations also records how often each operand short circuits the expression,
+ * and the operands are periodically reordered so those most likely to decide the result cheaply go first.
+ * XOR expressions must evaluate every operand, so are evaluated as written.
+ */
+public class CompiledExpression extends CompiledNode {
+
+    //Sample roughly one in every 16 evaluations, chosen at random so the samples aren't biased to particular entries,
+    //and by a thread local generator so the fast path writes no shared state.
+    private static final int SAMPLE_MASK = 0xF;
+    private static final int REORDER_INTERVAL = 256;
+
+    private final LogicalOperator op;
+    private final boolean inverse;
+    private final CompiledNode[] children;
+    private final double cost;
+
+    private volatile int[] order;
+    private final int[] evaluations;
+    private final int[] decisions;
+    private int samples;
+
+    public CompiledExpression(LogicalOperator op, boolean inverse, CompiledNode[] children){
+        this.op = op;
+        this.inverse = inverse;
+        this.children = children;
+        this.cost = Arrays.stream(children).mapToDouble(CompiledNode::getCost).sum();
+        this.evaluations = new int[children.length];
+        this.decisions = new int[children.length];
+        this.order = IntStream.range(0, children.length).toArray();
+        if(op == LogicalOperator.AND || op == LogicalOperator.OR) reorder();
+    }
+
+    public LogicalOperator getLogicalOperator() {
+        return op;
+    }
+
+    public boolean isInverse() {
+        return inverse;
+    }
+
+    /**
+     * @return The operands of the expression, as written.
+     */
+    public CompiledNode[] getChildren() {
+        return children;
+    }
+
+    /**
+     * @return The operands of the expression, in the order they are currently evaluated.
+     */
+    public CompiledNode[] getEvaluationOrder() {
+        return Arrays.stream(order).mapToObj(index -> children[index]).toArray(CompiledNode[]::new);
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        if(op == null) return children[0].test(entry) ^ inverse;
+
+        switch (op){
+            case AND: return evaluate(entry, false) ^ inverse;
+            case OR: return evaluate(entry, true) ^ inverse;
+            default: {
+                boolean result = false;
+                for (CompiledNode child : children) {
+                    result ^= child.test(entry);
+                }
+                return result ^ inverse;
+            }
+        }
+    }
+
+    /**
+     * Evaluate the operands until one returns the short circuit value.
+     * @param shortCircuit False for AND expressions, true for OR expressions.
+     * @return The short circuit value if any operand returned it, otherwise its inverse.
+     */
+    private boolean evaluate(LogEntry entry, boolean shortCircuit){
+        int[] order = this.order;
+        if((ThreadLocalRandom.current().nextInt() & SAMPLE_MASK) != 0){
+            for (int index : order) {
+                if(children[index].test(entry) == shortCircuit) return shortCircuit;
+            }
+            return !shortCircuit;
+        }
+
+        //Sampled entry, record which operand decided the result.
+        //Counts are not synchronized, they only need to be approximately right. See CompiledNode.
+        boolean result = !shortCircuit;
+        for (int index : order) {
+            evaluations[index]++;
+            if(children[index].test(entry) == shortCircuit){
+                decisions[index]++;
+                result = shortCircuit;
+                break;
+            }
+        }
+        if(++samples >= REORDER_INTERVAL) reorder();
+        return result;
+    }
+
+    private synchronized void reorder(){
+        samples = 0;
+        double[] ranks = new double[children.length];
+        for (int i = 0; i < children.length; i++) {
+            ranks[i] = FilterOptimizer.rank(children[i].getCost(), evaluations[i], decisions[i]);
+            //Decay older samples so the order can follow changes in the data.
+            evaluations[i] /= 2;
+            decisions[i] /= 2;
+        }
+        this.order = IntStream.range(0, children.length).boxed()
+                .sorted(Comparator.comparingDouble(index -> ranks[index]))
+                .mapToInt(Integer::intValue).toArray();
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+        for (CompiledNode child : children) {
+            child.collectReferencedFields(fields);
+        }
+    }
+
+    /**
+     * Combine the bounds of the operands with the bitmap form of the operator.
+     * Operands are combined cheapest first, so an AND which is already empty doesn't look up the rest.
+     */
+    @Override
+    public RowBounds getBounds(LogEntryIndex index, CompressedBitmap rows) {
+        RowBounds bounds;
+        if(op == null){
+            bounds = children[0].getBounds(index, rows);
+        }else{
+            CompiledNode[] operands = op == LogicalOperator.XOR ? children : getEvaluationOrder();
+            bounds = operands[0].getBounds(index, rows);
+            for (int i = 1; i < operands.length; i++) {
+                if(op == LogicalOperator.AND && bounds.getCandidates().isEmpty()) break;
+                RowBounds operand = operands[i].getBounds(index, rows);
+                switch (op){
+                    case AND: bounds = bounds.and(operand); break;
+                    case OR: bounds = bounds.or(operand); break;
+                    default: bounds = bounds.xor(operand); break;
+                }
+            }
+        }
+        return inverse ? bounds.not(rows) : bounds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledExpression[inverse=%s, op=%s, children=%d]", inverse, op, children.length);
+    }
+}
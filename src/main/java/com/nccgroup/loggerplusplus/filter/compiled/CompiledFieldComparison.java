@@ -0,0 +1,69 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A comparison between two fields of the same entry.
+ */
+public class CompiledFieldComparison extends CompiledNode {
+
+    private final LogEntryField left;
+    private final BooleanOperator op;
+    private final LogEntryField right;
+    private final Function<LogEntry, Object> leftAccessor;
+    private final Function<LogEntry, Object> rightAccessor;
+
+    public CompiledFieldComparison(LogEntryField left, BooleanOperator op, LogEntryField right){
+        this.left = left;
+        this.op = op;
+        this.right = right;
+        this.leftAccessor = LogEntry.getFieldAccessor(left);
+        this.rightAccessor = LogEntry.getFieldAccessor(right);
+    }
+
+    public LogEntryField getLeft() {
+        return left;
+    }
+
+    public BooleanOperator getBooleanOperator() {
+        return op;
+    }
+
+    public LogEntryField getRight() {
+        return right;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        return testValues(leftAccessor.apply(entry), rightAccessor.apply(entry));
+    }
+
+    /**
+     * Test values already read from the fields.
+     */
+    boolean testValues(Object leftValue, Object rightValue) {
+        return FilterEvaluationVisitor.compare(op, leftValue, rightValue);
+    }
+
+    @Override
+    public double getCost() {
+        return (FilterOptimizer.getFieldCost(left) + FilterOptimizer.getFieldCost(right)) * FilterOptimizer.getOperatorCost(op, null);
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+        fields.add(left);
+        fields.add(right);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledFieldComparison[left=%s, op=%s, right=%s]", left, op, right);
+    }
+}
@@ -0,0 +1,346 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.LogicalOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Several compiled filters merged into a single plan, so an entry can be tested against all of them in one pass.
+ *
+ * Subexpressions which appear in more than one filter (or more than once in the same filter) are shared,
+ * and both their results and the values of the fields they read are remembered for the entry being tested,
+ * so each field is read and each distinct comparison is run at most once per entry however many filters use it.
+ * A subexpression which runs out of time is remembered too, so every later filter sharing it is treated as timed out
+ * rather than running it again with a fresh allowance.
+ * The operands of each expression are evaluated in the order their filter had chosen when the plan was built.
+ *
+ * @param <K> The key each filter is identified by, e.g. the UUID of a colour filter.
+ */
+public class CompiledFilterSet<K> {
+
+    private static final Object UNREAD = new Object();
+    private static final byte UNKNOWN = 0, TRUE = 1, FALSE = 2, TIMED_OUT = 3;
+
+    private final Map<K, CompiledNode> filters;
+    private final List<K> keys;
+    private final Step[] roots;
+    private final List<Function<LogEntry, Object>> accessors;
+    private final int stepCount;
+
+    public CompiledFilterSet(Map<K, CompiledNode> filters){
+        Builder builder = new Builder();
+        this.filters = Collections.unmodifiableMap(new LinkedHashMap<>(filters));
+        this.keys = new ArrayList<>(filters.keySet());
+        this.roots = new Step[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            roots[i] = builder.build(filters.get(keys.get(i)));
+        }
+        this.accessors = builder.accessors;
+        this.stepCount = builder.stepCount;
+    }
+
+    /**
+     * @return The filters the set was built from.
+     */
+    public Map<K, CompiledNode> getFilters() {
+        return filters;
+    }
+
+    /**
+     * @return The keys of the filters in the set, in the order they were given.
+     */
+    public List<K> getKeys() {
+        return keys;
+    }
+
+    /**
+     * @return The number of distinct subexpressions in the plan, after merging those the filters share.
+     */
+    public int getStepCount() {
+        return stepCount;
+    }
+
+    /**
+     * Test an entry against every filter in the set.
+     * @return The keys of the filters which match the entry, in the order they were given.
+     */
+    public List<K> getMatches(LogEntry entry){
+        return getMatches(entry, null);
+    }
+
+    /**
+     * Test an entry against every filter in the set.
+     * @param budget Limits the time spent testing the entry against each filter, or null to test it however long it takes.
+     *               Filters which run out of time, or share a subexpression which did, are treated as not matching.
+     * @return The keys of the filters which match the entry, in the order they were given.
+     */
+    public List<K> getMatches(LogEntry entry, EvaluationBudget budget){
+        Evaluation evaluation = new Evaluation(entry);
+        List<K> matches = new ArrayList<>();
+        for (int i = 0; i < roots.length; i++) {
+            Step root = roots[i];
+            boolean match = budget == null ? root.evaluate(evaluation)
+                    : Boolean.TRUE.equals(budget.test(tested -> root.evaluate(evaluation), entry));
+            if(match) matches.add(keys.get(i));
+        }
+        return matches;
+    }
+
+    /**
+     * The state of testing a single entry, the fields read and results found so far.
+     */
+    private class Evaluation {
+        private final LogEntry entry;
+        private final Object[] values;
+        private final byte[] results;
+
+        private Evaluation(LogEntry entry){
+            this.entry = entry;
+            this.values = new Object[accessors.size()];
+            this.results = new byte[stepCount];
+            Arrays.fill(values, UNREAD);
+        }
+
+        private Object getValue(int fieldSlot){
+            Object value = values[fieldSlot];
+            if(value == UNREAD){
+                value = accessors.get(fieldSlot).apply(entry);
+                values[fieldSlot] = value;
+            }
+            return value;
+        }
+    }
+
+    private abstract static class Step {
+        private final int id;
+
+        Step(int id){
+            this.id = id;
+        }
+
+        final boolean evaluate(CompiledFilterSet<?>.Evaluation evaluation){
+            byte result = evaluation.results[id];
+            if(result == TIMED_OUT) throw new EvaluationBudget.TimeoutException();
+            if(result == UNKNOWN){
+                try {
+                    result = compute(evaluation) ? TRUE : FALSE;
+                }catch (EvaluationBudget.TimeoutException e){
+                    //Remembered for every step the timeout passes through, so no other filter runs them again.
+                    evaluation.results[id] = TIMED_OUT;
+                    throw e;
+                }
+                evaluation.results[id] = result;
+            }
+            return result == TRUE;
+        }
+
+        abstract boolean compute(CompiledFilterSet<?>.Evaluation evaluation);
+    }
+
+    private static class ComparisonStep extends Step {
+        private final int fieldSlot;
+        private final CompiledComparison comparison;
+
+        ComparisonStep(int id, int fieldSlot, CompiledComparison comparison){
+            super(id);
+            this.fieldSlot = fieldSlot;
+            this.comparison = comparison;
+        }
+
+        @Override
+        boolean compute(CompiledFilterSet<?>.Evaluation evaluation) {
+            return comparison.testValue(evaluation.getValue(fieldSlot));
+        }
+    }
+
+    private static class FieldComparisonStep extends Step {
+        private final int leftSlot, rightSlot;
+        private final CompiledFieldComparison comparison;
+
+        FieldComparisonStep(int id, int leftSlot, int rightSlot, CompiledFieldComparison comparison){
+            super(id);
+            this.leftSlot = leftSlot;
+            this.rightSlot = rightSlot;
+            this.comparison = comparison;
+        }
+
+        @Override
+        boolean compute(CompiledFilterSet<?>.Evaluation evaluation) {
+            return comparison.testValues(evaluation.getValue(leftSlot), evaluation.getValue(rightSlot));
+        }
+    }
+
+    private static class ExpressionStep extends Step {
+        private final LogicalOperator op;
+        private final boolean inverse;
+        private final Step[] operands;
+
+        ExpressionStep(int id, LogicalOperator op, boolean inverse, Step[] operands){
+            super(id);
+            this.op = op;
+            this.inverse = inverse;
+            this.operands = operands;
+        }
+
+        @Override
+        boolean compute(CompiledFilterSet<?>.Evaluation evaluation) {
+            if(op == null) return operands[0].evaluate(evaluation) ^ inverse;
+            boolean result;
+            switch (op){
+                case AND: {
+                    result = true;
+                    for (Step operand : operands) {
+                        if(!operand.evaluate(evaluation)){
+                            result = false;
+                            break;
+                        }
+                    }
+                    break;
+                }
+                case OR: {
+                    result = false;
+                    for (Step operand : operands) {
+                        if(operand.evaluate(evaluation)){
+                            result = true;
+                            break;
+                        }
+                    }
+                    break;
+                }
+                default: {
+                    result = false;
+                    for (Step operand : operands) {
+                        result ^= operand.evaluate(evaluation);
+                    }
+                }
+            }
+            return result ^ inverse;
+        }
+    }
+
+    //Nodes without a structure to share, e.g. constants and aliases which could not be resolved.
+    private static class NodeStep extends Step {
+        private final CompiledNode node;
+
+        NodeStep(int id, CompiledNode node){
+            super(id);
+            this.node = node;
+        }
+
+        @Override
+        boolean compute(CompiledFilterSet<?>.Evaluation evaluation) {
+            return node.test(evaluation.entry);
+        }
+    }
+
+    private static class Builder {
+        private final Map<CompiledNode, Step> stepsByNode = new IdentityHashMap<>();
+        private final Map<List<Object>, Step> stepsByKey = new HashMap<>();
+        private final Map<LogEntryField, Integer> fieldSlots = new EnumMap<>(LogEntryField.class);
+        private final List<Function<LogEntry, Object>> accessors = new ArrayList<>();
+        private int stepCount;
+
+        private Step build(CompiledNode node){
+            Step step = stepsByNode.get(node);
+            if(step == null){
+                step = buildStep(node);
+                stepsByNode.put(node, step);
+            }
+            return step;
+        }
+
+        private Step buildStep(CompiledNode node){
+            if(node instanceof CompiledAlias){
+                CompiledNode target = ((CompiledAlias) node).getTarget();
+                return target != null ? build(target) : new NodeStep(stepCount++, node);
+            }
+            if(node instanceof CompiledComparison){
+                CompiledComparison comparison = (CompiledComparison) node;
+                List<Object> key = Arrays.asList(comparison.getField(), comparison.getBooleanOperator(), getConstantKey(comparison.getValue()));
+                Step step = stepsByKey.get(key);
+                if(step == null){
+                    step = new ComparisonStep(stepCount++, getFieldSlot(comparison.getField()), comparison);
+                    stepsByKey.put(key, step);
+                }
+                return step;
+            }
+            if(node instanceof CompiledKeyedComparison){
+                //Share the lookup between filters testing the same header or parameter the same way.
+                CompiledKeyedComparison comparison = (CompiledKeyedComparison) node;
+                List<Object> key = Arrays.asList(comparison.getField(), comparison.getBooleanOperator(), getConstantKey(comparison.getValue()));
+                Step step = stepsByKey.get(key);
+                if(step == null){
+                    step = new NodeStep(stepCount++, comparison);
+                    stepsByKey.put(key, step);
+                }
+                return step;
+            }
+            if(node instanceof CompiledFieldComparison){
+                CompiledFieldComparison comparison = (CompiledFieldComparison) node;
+                List<Object> key = Arrays.asList(comparison.getLeft(), comparison.getBooleanOperator(), comparison.getRight());
+                Step step = stepsByKey.get(key);
+                if(step == null){
+                    step = new FieldComparisonStep(stepCount++, getFieldSlot(comparison.getLeft()),
+                            getFieldSlot(comparison.getRight()), comparison);
+                    stepsByKey.put(key, step);
+                }
+                return step;
+            }
+            if(node instanceof CompiledExpression){
+                CompiledExpression expression = (CompiledExpression) node;
+                CompiledNode[] children = expression.getLogicalOperator() == LogicalOperator.XOR
+                        ? expression.getChildren() : expression.getEvaluationOrder();
+                Step[] operands = new Step[children.length];
+                List<Object> key = new ArrayList<>();
+                key.add(expression.getLogicalOperator());
+                key.add(expression.isInverse());
+                for (int i = 0; i < children.length; i++) {
+                    operands[i] = build(children[i]);
+                    key.add(operands[i]);
+                }
+                if(expression.getLogicalOperator() != LogicalOperator.XOR){
+                    //Operand order doesn't change the result, so share expressions written in a different order.
+                    key.subList(2, key.size()).sort(Comparator.comparingInt(operand -> ((Step) operand).id));
+                }
+                Step step = stepsByKey.get(key);
+                if(step == null){
+                    step = new ExpressionStep(stepCount++, expression.getLogicalOperator(), expression.isInverse(), operands);
+                    stepsByKey.put(key, step);
+                }
+                return step;
+            }
+            return new NodeStep(stepCount++, node);
+        }
+
+        private int getFieldSlot(LogEntryField field){
+            return fieldSlots.computeIfAbsent(field, key -> {
+                accessors.add(LogEntry.getFieldAccessor(key));
+                return accessors.size() - 1;
+            });
+        }
+
+        /**
+         * @return A key which is equal for constants which compare the same.
+         */
+        private static Object getConstantKey(Object value){
+            if(value instanceof Pattern){
+                return Arrays.asList(Pattern.class, ((Pattern) value).pattern(), ((Pattern) value).flags());
+            }
+            if(value instanceof Date){
+                return Arrays.asList(Date.class, ((Date) value).getTime());
+            }
+            if(value instanceof Collection){
+                List<Object> keys = new ArrayList<>();
+                for (Object item : (Collection<?>) value) {
+                    keys.add(getConstantKey(item));
+                }
+                return Arrays.asList(value.getClass(), keys);
+            }
+            return value == null ? null : Arrays.asList(value.getClass(), value);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A comparison between a single header or parameter, looked up by name in the entry's index of them, and a constant.
+ */
+public class CompiledKeyedComparison extends CompiledNode {
+
+    private final KeyedField field;
+    private final BooleanOperator op;
+    private final Object value;
+    private final Predicate<Object> kernel;
+    private final double cost;
+
+    public CompiledKeyedComparison(KeyedField field, BooleanOperator op, Object value){
+        this.field = field;
+        this.op = op;
+        this.value = value;
+        this.kernel = ComparisonKernels.forConstant(op, value);
+        this.cost = FilterOptimizer.KEYED_LOOKUP_COST * FilterOptimizer.getOperatorCost(op, value);
+    }
+
+    public KeyedField getField() {
+        return field;
+    }
+
+    public BooleanOperator getBooleanOperator() {
+        return op;
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    @Override
+    public boolean test(LogEntry entry) {
+        return kernel.test(field.getValue(entry));
+    }
+
+    @Override
+    public double getCost() {
+        return cost;
+    }
+
+    @Override
+    public void collectReferencedFields(Set<LogEntryField> fields) {
+        fields.add(field.getField());
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CompiledKeyedComparison[field=%s, op=%s, value=%s]", field, op, value);
+    }
+}
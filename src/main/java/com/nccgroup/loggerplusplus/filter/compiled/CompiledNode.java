@@ -0,0 +1,45 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A node of a filter which has been compiled from its AST into a predicate.
+ * Compiled nodes hold no per evaluation state, so may be tested from many threads at once.
+ * Some keep statistics across evaluations, such as the samples {@link CompiledExpression} orders its operands by.
+ * These are updated without synchronization, so are racy by design: concurrent updates may be lost,
+ * which only makes them approximate, never changes the result of a test.
+ */
+public abstract class CompiledNode implements Predicate<LogEntry> {
+
+    @Override
+    public abstract boolean test(LogEntry entry);
+
+    /**
+     * @return The estimated relative cost of testing an entry against this node.
+     * @see FilterOptimizer
+     */
+    public abstract double getCost();
+
+    /**
+     * Add the fields this node reads to the given set.
+     */
+    public abstract void collectReferencedFields(Set<LogEntryField> fields);
+
+    /**
+     * Use the indexes over the table to find the rows which match this node, without testing them.
+     * @param rows Every row in the table
+     * @return The rows which match and may match. Nodes which can't use the indexes may match any row.
+     * @see BitmapQueryExecutor
+     */
+    public RowBounds getBounds(LogEntryIndex index, CompressedBitmap rows){
+        return RowBounds.unknown(rows);
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Time limits on testing entries against a filter, so a pathological regex such as {@code (a+)+b}
+ * can't hold up the thread testing them indefinitely.
+ *
+ * Each entry may take up to the entry limit, after which it is abandoned and counted as timed out.
+ * Time spent on entries which timed out is taken from the query limit, and once that has run out the remaining
+ * entries are counted as timed out without being tested. A regex can't be interrupted, so patterns are matched
+ * against a view of the text which checks the deadline as it is read, see {@link #guard(CharSequence)}.
+ * A budget may be shared by several threads.
+ */
+public final class EvaluationBudget {
+
+    //Characters read between checks of the clock.
+    private static final int CHECK_INTERVAL = 1024;
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+
+    private final long entryNanos;
+    private final AtomicLong remainingNanos;
+    private final AtomicInteger timedOut;
+    private volatile boolean cancelled;
+
+    /**
+     * @param entryMillis The longest a single entry may take
+     * @param queryMillis The total time entries may spend timing out before the rest are given up on
+     */
+    public EvaluationBudget(long entryMillis, long queryMillis){
+        this.entryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(entryMillis, 1));
+        this.remainingNanos = new AtomicLong(TimeUnit.MILLISECONDS.toNanos(Math.max(queryMillis, 1)));
+        this.timedOut = new AtomicInteger();
+    }
+
+    /**
+     * Test an entry within the budget.
+     * @return The result, or null if the entry timed out, the query limit has run out, or the budget was cancelled.
+     */
+    public Boolean test(Predicate<LogEntry> node, LogEntry entry){
+        if(cancelled) return null;
+        if(remainingNanos.get() <= 0){
+            timedOut.incrementAndGet();
+            return null;
+        }
+
+        Deadline previous = CURRENT.get();
+        long started = System.nanoTime();
+        CURRENT.set(new Deadline(this, started + entryNanos));
+        try {
+            return node.test(entry);
+        }catch (TimeoutException e){
+            if(!cancelled){
+                remainingNanos.addAndGet(started - System.nanoTime());
+                timedOut.incrementAndGet();
+            }
+            return null;
+        }finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Run work other than testing an entry, such as looking up the indexes, within the entry limit.
+     * Running out of time isn't counted as an entry timing out.
+     * @return The result, or null if the work timed out or the budget was cancelled.
+     */
+    public <T> T run(Supplier<T> task){
+        if(cancelled) return null;
+        Deadline previous = CURRENT.get();
+        CURRENT.set(new Deadline(this, System.nanoTime() + entryNanos));
+        try {
+            return task.get();
+        }catch (TimeoutException e){
+            return null;
+        }finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Abandon any entries being tested against the budget, and any tested later.
+     */
+    public void cancel(){
+        this.cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return The number of entries which timed out or weren't tested because the query limit ran out.
+     */
+    public int getTimedOutCount(){
+        return timedOut.get();
+    }
+
+    /**
+     * Wrap text about to be matched by a regex, so the match is abandoned if the entry being tested
+     * on this thread runs out of time.
+     * @return The text, checking the deadline as it is read, or the text itself if no budget applies to this thread.
+     */
+    public static CharSequence guard(CharSequence text){
+        Deadline deadline = CURRENT.get();
+        return deadline == null ? text : new GuardedCharSequence(text, deadline);
+    }
+
+    /**
+     * Thrown through the regex being run when an entry runs out of time.
+     * Anything catching exceptions while testing an entry must let this through.
+     */
+    public static class TimeoutException extends RuntimeException {
+        TimeoutException(){
+            super("Filter evaluation timed out", null, false, false);
+        }
+    }
+
+    private static class Deadline {
+        private final EvaluationBudget budget;
+        private final long deadline;
+        private int reads;
+
+        private Deadline(EvaluationBudget budget, long deadline){
+            this.budget = budget;
+            this.deadline = deadline;
+        }
+
+        private void check(){
+            if(++reads < CHECK_INTERVAL) return;
+            reads = 0;
+            if(budget.cancelled || System.nanoTime() - deadline > 0) throw new TimeoutException();
+        }
+    }
+
+    private static class GuardedCharSequence implements CharSequence {
+        private final CharSequence text;
+        private final Deadline deadline;
+
+        private GuardedCharSequence(CharSequence text, Deadline deadline){
+            this.text = text;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public char charAt(int index) {
+            deadline.check();
+            return text.charAt(index);
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new GuardedCharSequence(text.subSequence(start, end), deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.regex.Pattern;
+
+/**
+ * Cost model used to order the operands of AND and OR expressions.
+ *
+ * Costs are relative: reading a field already held on the entry costs 1,
+ * fields built from the stored request or response cost considerably more.
+ */
+public final class FilterOptimizer {
+
+    static final double ALIAS_COST = 10;
+    //Looking up a single header or parameter in the entry's index of them.
+    static final double KEYED_LOOKUP_COST = 1.5;
+
+    private FilterOptimizer(){}
+
+    public static double getFieldCost(LogEntryField field){
+        switch (field){
+            case URL:
+            case PATH:
+            case QUERY:
+            case HASGETPARAM:
+            case COMMENT:
+                return 2;
+            case PARAMETERS:
+            case REFLECTED_PARAMS:
+            case REQUEST_HEADERS:
+            case RESPONSE_HEADERS:
+                return 5;
+            case RESPONSE_HASH:
+                return 20;
+            case REQUEST_BODY:
+            case RESPONSE_BODY:
+                return 100;
+            case BASE64_REQUEST:
+            case BASE64_RESPONSE:
+                return 150;
+            default:
+                return 1;
+        }
+    }
+
+    public static double getOperatorCost(BooleanOperator op, Object value){
+        if(op == BooleanOperator.MATCHES || value instanceof Pattern) return 10;
+        switch (op){
+            case CONTAINS: return 2;
+            case IN: return 1.5;
+            default: return 1;
+        }
+    }
+
+    /**
+     * The expected cost of evaluating an operand before it decides the result of its expression.
+     * Operands are evaluated in ascending order of rank.
+     * @param cost The cost of the operand
+     * @param evaluations The number of sampled evaluations of the operand
+     * @param decisions The number of those evaluations which short circuited the expression
+     */
+    static double rank(double cost, int evaluations, int decisions){
+        //Laplace smoothing so unsampled operands are assumed to decide half of the time.
+        double probability = (decisions + 1d) / (evaluations + 2d);
+        return cost / probability;
+    }
+}
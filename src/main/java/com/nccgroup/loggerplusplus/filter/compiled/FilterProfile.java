@@ -0,0 +1,276 @@
+package com.nccgroup.loggerplusplus.filter.compiled;
+
+import com.nccgroup.loggerplusplus.filter.LogicalOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The plan of a compiled filter, explaining how it will be evaluated and profiling where its time goes.
+ *
+ * Each node of the plan holds its estimated cost, the rows the indexes decide for it and those left to test,
+ * unless looking them up ran out of time, and its operands in the order they are currently evaluated. Profiling tests entries against the plan the same
+ * way the compiled filter would, short circuiting in the same order, while counting the evaluations, matches and
+ * time taken by each node. A profile is not thread safe.
+ *
+ * Looking up the indexes may run a comparison against every value in them, so a plan should be made off the EDT.
+ */
+public class FilterProfile {
+
+    private final Node root;
+    private final List<Node> nodes;
+    private final int totalRows;
+    private int profiledEntries;
+
+    /**
+     * @param index The indexes over the table, used to show which rows each node would test
+     * @param budget Limits the time taken to look up the indexes for each node
+     */
+    public FilterProfile(CompiledNode filter, LogEntryIndex index, EvaluationBudget budget){
+        CompressedBitmap rows = index.getRows();
+        this.totalRows = rows.getCardinality();
+        this.nodes = new ArrayList<>();
+        this.root = build(filter, 0, index, rows, budget);
+    }
+
+    private Node build(CompiledNode compiled, int depth, LogEntryIndex index, CompressedBitmap rows, EvaluationBudget budget){
+        RowBounds bounds = budget.run(() -> compiled.getBounds(index, rows));
+        Node node = new Node(compiled, depth, describe(compiled), bounds);
+        nodes.add(node);
+
+        List<Node> children = new ArrayList<>();
+        if(compiled instanceof CompiledExpression){
+            CompiledExpression expression = (CompiledExpression) compiled;
+            CompiledNode[] operands = expression.getLogicalOperator() == LogicalOperator.XOR
+                    ? expression.getChildren() : expression.getEvaluationOrder();
+            for (CompiledNode operand : operands) {
+                children.add(build(operand, depth + 1, index, rows, budget));
+            }
+        }else if(compiled instanceof CompiledAlias && ((CompiledAlias) compiled).getTarget() != null){
+            children.add(build(((CompiledAlias) compiled).getTarget(), depth + 1, index, rows, budget));
+        }
+        node.children = children.toArray(new Node[0]);
+        return node;
+    }
+
+    private static String describe(CompiledNode node){
+        if(node instanceof CompiledExpression){
+            CompiledExpression expression = (CompiledExpression) node;
+            String operator = expression.getLogicalOperator() == null ? "( )" : expression.getLogicalOperator().name();
+            return expression.isInverse() ? "NOT " + operator : operator;
+        }
+        if(node instanceof CompiledComparison){
+            CompiledComparison comparison = (CompiledComparison) node;
+            return String.format("%s %s %s", comparison.getField(), comparison.getBooleanOperator(), describeValue(comparison.getValue()));
+        }
+        if(node instanceof CompiledKeyedComparison){
+            CompiledKeyedComparison comparison = (CompiledKeyedComparison) node;
+            return String.format("%s %s %s", comparison.getField(), comparison.getBooleanOperator(), describeValue(comparison.getValue()));
+        }
+        if(node instanceof CompiledFieldComparison){
+            CompiledFieldComparison comparison = (CompiledFieldComparison) node;
+            return String.format("%s %s %s", comparison.getLeft(), comparison.getBooleanOperator(), comparison.getRight());
+        }
+        if(node instanceof CompiledAlias){
+            CompiledAlias alias = (CompiledAlias) node;
+            return "#" + alias.getIdentifier() + (alias.getTarget() == null ? " (unresolved)" : "");
+        }
+        if(node instanceof CompiledConstant){
+            return String.valueOf(((CompiledConstant) node).getValue()).toUpperCase();
+        }
+        return node.toString();
+    }
+
+    private static String describeValue(Object value){
+        if(value instanceof String) return "\"" + value + "\"";
+        if(value instanceof Pattern) return "/" + ((Pattern) value).pattern() + "/";
+        if(value instanceof Collection){
+            return ((Collection<?>) value).stream().map(FilterProfile::describeValue).collect(Collectors.joining(", ", "[", "]"));
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * @return The nodes of the plan, each followed by its operands in the order they are evaluated.
+     */
+    public List<Node> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    /**
+     * @return The number of rows in the table when the plan was made.
+     */
+    public int getTotalRows() {
+        return totalRows;
+    }
+
+    public int getProfiledEntries() {
+        return profiledEntries;
+    }
+
+    /**
+     * Test an entry against the plan, recording the work done by each node.
+     * @param budget Limits the time taken by each comparison, or null for no limit
+     * @return Whether the entry matches. Comparisons which time out don't match.
+     */
+    public boolean profile(LogEntry entry, EvaluationBudget budget){
+        profiledEntries++;
+        return evaluate(root, entry, budget);
+    }
+
+    private boolean evaluate(Node node, LogEntry entry, EvaluationBudget budget){
+        long started = System.nanoTime();
+        boolean result;
+        if(node.compiled instanceof CompiledExpression){
+            CompiledExpression expression = (CompiledExpression) node.compiled;
+            LogicalOperator op = expression.getLogicalOperator();
+            if(op == null){
+                result = evaluate(node.children[0], entry, budget);
+            }else if(op == LogicalOperator.XOR){
+                result = false;
+                for (Node child : node.children) {
+                    result ^= evaluate(child, entry, budget);
+                }
+            }else{
+                boolean shortCircuit = op == LogicalOperator.OR;
+                result = !shortCircuit;
+                for (Node child : node.children) {
+                    if(evaluate(child, entry, budget) == shortCircuit){
+                        result = shortCircuit;
+                        break;
+                    }
+                }
+            }
+            result ^= expression.isInverse();
+        }else if(node.children.length == 1){
+            //A resolved alias.
+            result = evaluate(node.children[0], entry, budget);
+        }else if(budget == null){
+            result = node.compiled.test(entry);
+        }else{
+            Boolean tested = budget.test(node.compiled, entry);
+            if(tested == null) node.timeouts++;
+            result = Boolean.TRUE.equals(tested);
+        }
+
+        node.nanos += System.nanoTime() - started;
+        node.evaluations++;
+        if(result) node.matches++;
+        return result;
+    }
+
+    /**
+     * A node of the plan, with the work recorded for it by profiling.
+     */
+    public static class Node {
+        private final CompiledNode compiled;
+        private final int depth;
+        private final String description;
+        private final boolean bounded;
+        private final int indexMatches;
+        private final int indexCandidates;
+        private Node[] children;
+        private long evaluations;
+        private long matches;
+        private long nanos;
+        private long timeouts;
+
+        //Bounds are null if looking them up timed out.
+        private Node(CompiledNode compiled, int depth, String description, RowBounds bounds){
+            this.compiled = compiled;
+            this.depth = depth;
+            this.description = description;
+            this.bounded = bounds != null;
+            this.indexMatches = bounds == null ? 0 : bounds.getMatches().getCardinality();
+            this.indexCandidates = bounds == null ? 0 : bounds.getCandidates().getCardinality();
+        }
+
+        public CompiledNode getCompiled() {
+            return compiled;
+        }
+
+        /**
+         * @return The number of expressions this node is nested within.
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return The operands of the node, in the order they are evaluated.
+         */
+        public List<Node> getChildren() {
+            return Arrays.asList(children);
+        }
+
+        /**
+         * @return The estimated relative cost of testing an entry against the node.
+         */
+        public double getCost() {
+            return compiled.getCost();
+        }
+
+        /**
+         * @return False if looking up the indexes for the node ran out of time, in which case its index counts are meaningless.
+         */
+        public boolean isBounded() {
+            return bounded;
+        }
+
+        /**
+         * @return The number of rows the indexes find certainly match the node.
+         */
+        public int getIndexMatches() {
+            return indexMatches;
+        }
+
+        /**
+         * @return The number of rows the indexes find may match the node, and so must be tested.
+         */
+        public int getIndexResidual() {
+            return indexCandidates - indexMatches;
+        }
+
+        /**
+         * @return The number of rows the indexes find may match the node, including those which certainly match.
+         */
+        public int getIndexCandidates() {
+            return indexCandidates;
+        }
+
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        public long getMatches() {
+            return matches;
+        }
+
+        /**
+         * @return The time spent evaluating the node, including its operands.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return The number of evaluations which ran out of time.
+         */
+        public long getTimeouts() {
+            return timeouts;
+        }
+    }
+}
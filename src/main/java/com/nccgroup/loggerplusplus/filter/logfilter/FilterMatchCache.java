@@ -0,0 +1,269 @@
+package com.nccgroup.loggerplusplus.filter.logfilter;
+
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.Arrays;
+
+/**
+ * The results of a filter for the entries it has been tested against, keyed by {@link com.nccgroup.loggerplusplus.logentry.LogEntry#getRowId() row id}.
+ *
+ * A cache may be seeded from the cache of a broader filter. Entries the broader filter rejected
+ * are known not to match, and entries it accepted only need testing against the narrowing conditions.
+ *
+ * Each result is stored with the {@link com.nccgroup.loggerplusplus.logentry.LogEntry#getVersion() version} of the entry
+ * it was computed from, and is only used while the entry is still at that version. Entries which change are tested
+ * again when next needed, and results computed while an entry was changing are simply never used, so changes don't
+ * need to discard the results of other entries being tested at the same time.
+ *
+ * Entries which ran out of time while being tested are cached as not matching, and also recorded as timed out
+ * so the user can be told some entries may be missing. They are tested again if they change.
+ */
+public class FilterMatchCache {
+
+    public static final byte UNKNOWN = 0;
+    public static final byte MATCH = 1;
+    public static final byte NO_MATCH = 2;
+    public static final byte CANDIDATE = 3;
+
+    private final CompressedBitmap evaluated;
+    private final CompressedBitmap matches;
+    private final CompressedBitmap timedOut;
+    //Rows removed from the table, whose results are not stored even if they were being tested as they were removed.
+    private final CompressedBitmap removed;
+    private CompressedBitmap candidates;
+    private CompiledNode residual;
+    private long invalidations;
+    //Rows below this have been removed from the table, so results for them are not stored.
+    private int lowestRowId;
+    //The version of each evaluated or candidate row, indexed from versionBase.
+    private int[] versions;
+    private int versionBase;
+
+    public FilterMatchCache(){
+        this.evaluated = new CompressedBitmap();
+        this.matches = new CompressedBitmap();
+        this.timedOut = new CompressedBitmap();
+        this.removed = new CompressedBitmap();
+        this.versions = new int[0];
+    }
+
+    /**
+     * @param version The current version of the entry
+     * @return The cached result for the row, or null if the row must be tested.
+     */
+    public synchronized Boolean get(int rowId, int version){
+        if(!evaluated.contains(rowId) || getVersion(rowId) != version) return null;
+        return matches.contains(rowId);
+    }
+
+    /**
+     * @param version The current version of the entry
+     * @return The conditions left to test for a row already matched by a broader filter, or null if the row must be tested in full.
+     */
+    public synchronized CompiledNode getResidual(int rowId, int version){
+        return candidates != null && candidates.contains(rowId) && getVersion(rowId) == version ? residual : null;
+    }
+
+    /**
+     * @return A stamp which changes whenever cached results are discarded. Results computed
+     * after reading the stamp should only be stored if it has not changed in the meantime.
+     */
+    public synchronized long getStamp(){
+        return invalidations;
+    }
+
+    /**
+     * Look up the cached results for several rows at once.
+     * @param versions The current version of each entry
+     * @param states Receives {@link #MATCH}, {@link #NO_MATCH}, {@link #CANDIDATE} (test the residual) or {@link #UNKNOWN} for each row
+     * @return The conditions to test for candidate rows
+     */
+    public synchronized CompiledNode getAll(int[] rowIds, int[] versions, int count, byte[] states){
+        for (int i = 0; i < count; i++) {
+            int rowId = rowIds[i];
+            if(rowId < 0 || getVersion(rowId) != versions[i]) states[i] = UNKNOWN;
+            else if(evaluated.contains(rowId)) states[i] = matches.contains(rowId) ? MATCH : NO_MATCH;
+            else if(candidates != null && candidates.contains(rowId)) states[i] = CANDIDATE;
+            else states[i] = UNKNOWN;
+        }
+        return residual;
+    }
+
+    /**
+     * Store the results for rows which were not already cached, unless results have been discarded since the stamp was read.
+     * @param versions The version of each entry read before it was tested
+     * @param timedOut Whether each row timed out rather than being tested, or null if none did
+     */
+    public synchronized void putAll(int[] rowIds, int[] versions, byte[] states, boolean[] results, boolean[] timedOut, int count, long stamp){
+        if(stamp != invalidations) return;
+        for (int i = 0; i < count; i++) {
+            if(rowIds[i] >= 0 && (states[i] == UNKNOWN || states[i] == CANDIDATE)){
+                if(timedOut != null && timedOut[i]) putTimedOut(rowIds[i], versions[i]);
+                else put(rowIds[i], versions[i], results[i]);
+            }
+        }
+    }
+
+    /**
+     * @param version The version of the entry read before it was tested
+     */
+    public synchronized void put(int rowId, int version, boolean match, long stamp){
+        if(stamp == invalidations) put(rowId, version, match);
+    }
+
+    public synchronized void put(int rowId, int version, boolean match){
+        if(rowId < lowestRowId || removed.contains(rowId)) return;
+        evaluated.add(rowId);
+        if(match) matches.add(rowId);
+        else matches.remove(rowId);
+        timedOut.remove(rowId);
+        if(candidates != null) candidates.remove(rowId);
+        setVersion(rowId, version);
+    }
+
+    /**
+     * Record that a row ran out of time while being tested, unless results have been discarded since the stamp was read.
+     */
+    public synchronized void putTimedOut(int rowId, int version, long stamp){
+        if(stamp == invalidations) putTimedOut(rowId, version);
+    }
+
+    private void putTimedOut(int rowId, int version){
+        put(rowId, version, false);
+        timedOut.add(rowId);
+    }
+
+    /**
+     * Keep the result for a row whose entry has changed in ways which can't affect it.
+     * @param version The version of the entry after the change. The result is kept only if it was
+     *                computed from the version immediately before, otherwise the row is tested again.
+     */
+    public synchronized void revalidate(int rowId, int version){
+        boolean cached = evaluated.contains(rowId) || (candidates != null && candidates.contains(rowId));
+        if(cached && getVersion(rowId) == version - 1) setVersion(rowId, version);
+    }
+
+    /**
+     * @return The number of rows which ran out of time while being tested.
+     */
+    public synchronized int getTimedOutCount(){
+        return timedOut.getCardinality();
+    }
+
+    /**
+     * Forget the result for a row removed from the table, and store none for it from now on.
+     * Results for other rows being tested at the same time can still be stored, as row ids are never reused.
+     */
+    public synchronized void invalidate(int rowId){
+        if(rowId >= lowestRowId) removed.add(rowId);
+        evaluated.remove(rowId);
+        matches.remove(rowId);
+        timedOut.remove(rowId);
+        if(candidates != null) candidates.remove(rowId);
+    }
+
+    /**
+     * Forget the results for rows which have been removed from the table.
+     * Results for the remaining rows being tested at the same time can still be stored, those for the rows removed are dropped.
+     */
+    public synchronized void removeBelow(int rowId){
+        lowestRowId = Math.max(lowestRowId, rowId);
+        evaluated.removeBelow(rowId);
+        matches.removeBelow(rowId);
+        timedOut.removeBelow(rowId);
+        removed.removeBelow(rowId);
+        if(candidates != null) candidates.removeBelow(rowId);
+        //Versions below the row are no longer read, so only move them once they take up half the array.
+        if(rowId - versionBase > versions.length / 2){
+            int drop = Math.min(rowId - versionBase, versions.length);
+            System.arraycopy(versions, drop, versions, 0, versions.length - drop);
+            versionBase += drop;
+        }
+    }
+
+    public synchronized void clear(){
+        invalidations++;
+        evaluated.clear();
+        matches.clear();
+        timedOut.clear();
+        candidates = null;
+        residual = null;
+        versions = new int[0];
+        versionBase = 0;
+    }
+
+    /**
+     * Seed this cache from the results of a broader filter.
+     * @param broader The cache of a filter which matches every row this filter does
+     * @param residual The conditions which, combined with the broader filter, make up this filter,
+     *                 or null if the filters are equivalent.
+     */
+    synchronized void seed(FilterMatchCache broader, CompiledNode residual){
+        CompressedBitmap broaderEvaluated, broaderMatches, broaderTimedOut;
+        int[] broaderVersions;
+        int broaderVersionBase, broaderLowestRowId;
+        synchronized (broader){
+            broaderEvaluated = broader.evaluated.copy();
+            broaderMatches = broader.matches.copy();
+            broaderTimedOut = broader.timedOut.copy();
+            broaderVersions = broader.versions.clone();
+            broaderVersionBase = broader.versionBase;
+            broaderLowestRowId = broader.lowestRowId;
+        }
+        clear();
+        //Results are only valid for the versions of the entries they were computed from.
+        this.versions = broaderVersions;
+        this.versionBase = broaderVersionBase;
+        this.lowestRowId = Math.max(lowestRowId, broaderLowestRowId);
+        //Rows the broader filter couldn't decide in time can't be decided by this filter either.
+        broaderTimedOut.forEach(timedOut::add);
+        if(residual == null){
+            broaderEvaluated.forEach(evaluated::add);
+            broaderMatches.forEach(matches::add);
+            return;
+        }
+
+        //Rows the broader filter rejected can't match, the rest only need the residual conditions testing.
+        CompressedBitmap rejected = CompressedBitmap.andNot(broaderEvaluated, broaderMatches);
+        rejected.forEach(evaluated::add);
+        this.candidates = broaderMatches;
+        this.residual = residual;
+    }
+
+    private int getVersion(int rowId){
+        int index = rowId - versionBase;
+        return index >= 0 && index < versions.length ? versions[index] : -1;
+    }
+
+    private void setVersion(int rowId, int version){
+        if(versions.length == 0){
+            versions = new int[64];
+            versionBase = rowId;
+        }else if(rowId < versionBase){
+            //Leave as much room below the row as there was in use, so rows tested in descending order don't copy each time.
+            int newBase = Math.max(0, Math.min(rowId, versionBase - versions.length));
+            int[] grown = new int[versions.length + (versionBase - newBase)];
+            System.arraycopy(versions, 0, grown, versionBase - newBase, versions.length);
+            versions = grown;
+            versionBase = newBase;
+        }else if(rowId - versionBase >= versions.length){
+            versions = Arrays.copyOf(versions, Math.max(rowId - versionBase + 1, versions.length * 2));
+        }
+        versions[rowId - versionBase] = version;
+    }
+
+    /**
+     * @return The number of rows known to match.
+     */
+    public synchronized int getMatchCount(){
+        return matches.getCardinality();
+    }
+
+    /**
+     * @return A copy of the rows known to match.
+     */
+    public synchronized CompressedBitmap getMatches(){
+        return matches.copy();
+    }
+}
@@ -4,8 +4,11 @@ import com.google.gson.*;
 import com.nccgroup.loggerplusplus.LoggerPlusPlus;
 import com.nccgroup.loggerplusplus.filter.BooleanOperator;
 import com.nccgroup.loggerplusplus.filter.LogicalOperator;
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledExpression;
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
 import com.nccgroup.loggerplusplus.filter.parser.ASTExpression;
-import com.nccgroup.loggerplusplus.filter.parser.FilterEvaluationVisitor;
+import com.nccgroup.loggerplusplus.filter.parser.FilterCompiler;
 import com.nccgroup.loggerplusplus.filter.parser.FilterParser;
 import com.nccgroup.loggerplusplus.filter.parser.ParseException;
 import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
@@ -16,20 +19,67 @@ import com.nccgroup.loggerplusplus.logview.logtable.LogTableModel;
 import javax.swing.*;
 import javax.swing.table.TableModel;
 import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Supplier;
 
 public class LogFilter extends RowFilter<TableModel, Integer> {
 
     private final ASTExpression filter;
+    private final Supplier<FilterLibraryController> libraryControllerSupplier;
+    private final FilterMatchCache matchCache;
+    private volatile CompiledNode compiled;
+    private Set<String> aliases;
+    private Set<LogEntryField> referencedFields;
 
     public LogFilter(String filterString) throws ParseException {
-        filter = FilterParser.parseFilter(filterString);
+        this(() -> LoggerPlusPlus.instance != null ? LoggerPlusPlus.instance.getLibraryController() : null,
+                FilterParser.parseFilter(filterString));
     }
 
     public LogFilter(FilterLibraryController filterLibraryController, String filterString) throws ParseException {
-        this(filterString);
+        this(() -> filterLibraryController, FilterParser.parseFilter(filterString));
         FilterParser.checkAliasesForSanity(filterLibraryController, this.filter);
     }
 
+    /**
+     * @param filter A filter already parsed, such as the filter of an aggregate query.
+     */
+    public LogFilter(FilterLibraryController filterLibraryController, ASTExpression filter) throws ParseException {
+        this(() -> filterLibraryController, filter);
+        FilterParser.checkAliasesForSanity(filterLibraryController, this.filter);
+    }
+
+    private LogFilter(Supplier<FilterLibraryController> libraryControllerSupplier, ASTExpression filter){
+        this.filter = filter;
+        this.libraryControllerSupplier = libraryControllerSupplier;
+        this.matchCache = new FilterMatchCache();
+        compile();
+    }
+
+    /**
+     * Compile the filter again, picking up any changes to the saved filters it references.
+     */
+    public void recompile(){
+        compile();
+        matchCache.clear();
+    }
+
+    private void compile(){
+        FilterCompiler compiler = new FilterCompiler(libraryControllerSupplier);
+        this.compiled = compiler.compile(filter);
+        this.aliases = compiler.getAliases();
+        EnumSet<LogEntryField> fields = EnumSet.noneOf(LogEntryField.class);
+        this.compiled.collectReferencedFields(fields);
+        this.referencedFields = fields;
+
+        FilterLibraryController libraryController = libraryControllerSupplier.get();
+        if(libraryController != null && !aliases.isEmpty()){
+            libraryController.registerAliasDependencies(this);
+        }
+    }
+
     public String addConditionToFilter(LogicalOperator logicalOperator, LogEntryField field,
                                      BooleanOperator booleanOperator, String value) {
         //TODO Move functionality to LogFilter itself.
@@ -47,9 +97,169 @@ public class LogFilter extends RowFilter<TableModel, Integer> {
         return this.filter;
     }
 
+    public CompiledNode getCompiled(){
+        return this.compiled;
+    }
+
+    /**
+     * @return The lowercase identifiers of the saved filters this filter references directly.
+     */
+    public Set<String> getAliases(){
+        return this.aliases;
+    }
+
+    /**
+     * @return The fields this filter reads, including through aliases.
+     */
+    public Set<LogEntryField> getReferencedFields(){
+        return this.referencedFields;
+    }
+
+    public FilterMatchCache getMatchCache(){
+        return this.matchCache;
+    }
+
+    /**
+     * Called when fields of an entry have changed. The cached result for the entry no longer matches its version,
+     * so is kept only if it didn't depend on the changed fields.
+     */
+    public void onEntryUpdated(LogEntry entry, Set<LogEntryField> changedFields){
+        if(entry.getRowId() < 0) return;
+        for (LogEntryField field : changedFields) {
+            if(referencedFields.contains(field)) return;
+        }
+        matchCache.revalidate(entry.getRowId(), entry.getVersion());
+    }
+
+    /**
+     * Seed the results of this filter from those of a filter known to match exactly the same entries,
+     * such as the saved filter it refers to by alias.
+     */
+    public void seedFrom(LogFilter equivalent){
+        if(equivalent != null && equivalent != this) matchCache.seed(equivalent.getMatchCache(), null);
+    }
+
+    /**
+     * If this filter is the same as the given filter, or narrows it by AND-ing further conditions on to it,
+     * seed the results of this filter from those of the given filter.
+     * @return True if the results were seeded.
+     */
+    public boolean narrowFrom(LogFilter previous){
+        if(previous == null || previous == this) return false;
+        if(previous.toString().equals(this.toString())){
+            //The same filter applied again.
+            matchCache.seed(previous.getMatchCache(), null);
+            return true;
+        }
+        if(filter.isInverse() || filter.getLogicalOperator() != LogicalOperator.AND) return false;
+        if(!(compiled instanceof CompiledExpression)) return false;
+
+        int childCount = filter.jjtGetNumChildren();
+        int prefix = 0;
+        if(filter.jjtGetChild(0).getFilterString().equals(previous.toString())){
+            prefix = 1;
+        }else{
+            ASTExpression previousAST = previous.getAST();
+            if(!previousAST.isInverse() && previousAST.getLogicalOperator() == LogicalOperator.AND
+                    && previousAST.jjtGetNumChildren() < childCount){
+                prefix = previousAST.jjtGetNumChildren();
+                for (int i = 0; i < prefix; i++) {
+                    if(!previousAST.jjtGetChild(i).getFilterString().equals(filter.jjtGetChild(i).getFilterString())){
+                        return false;
+                    }
+                }
+            }
+        }
+        if(prefix == 0 || prefix >= childCount) return false;
+
+        CompiledNode[] children = ((CompiledExpression) compiled).getChildren();
+        CompiledNode residual = prefix == childCount - 1 ? children[prefix]
+                : new CompiledExpression(LogicalOperator.AND, false, Arrays.copyOfRange(children, prefix, childCount));
+        matchCache.seed(previous.getMatchCache(), residual);
+        return true;
+    }
+
     public boolean matches(LogEntry entry){
-        FilterEvaluationVisitor visitor = new FilterEvaluationVisitor(LoggerPlusPlus.instance.getLibraryController());
-        return visitor.visit(filter, entry);
+        return compiled.test(entry);
+    }
+
+    /**
+     * Test an entry, using and updating the cached result for the entry.
+     */
+    public boolean matchesCached(LogEntry entry){
+        return matchesCached(entry, null);
+    }
+
+    /**
+     * Test an entry, using and updating the cached result for the entry.
+     * @param budget Limits the time spent testing the entry, or null to test it however long it takes.
+     *               An entry which runs out of time is recorded as timed out, and treated as not matching.
+     */
+    public boolean matchesCached(LogEntry entry, EvaluationBudget budget){
+        int rowId = entry.getRowId();
+        if(rowId < 0) return budget == null ? matches(entry) : Boolean.TRUE.equals(budget.test(compiled, entry));
+
+        long stamp = matchCache.getStamp();
+        int version = entry.getVersion();
+        Boolean cached = matchCache.get(rowId, version);
+        if(cached != null) return cached;
+
+        CompiledNode residual = matchCache.getResidual(rowId, version);
+        CompiledNode node = residual != null ? residual : compiled;
+        if(budget == null){
+            boolean result = node.test(entry);
+            matchCache.put(rowId, version, result, stamp);
+            return result;
+        }
+        Boolean result = budget.test(node, entry);
+        if(result != null) matchCache.put(rowId, version, result, stamp);
+        else if(!budget.isCancelled()) matchCache.putTimedOut(rowId, version, stamp);
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * Test several entries, using and updating the cached results with a single lookup.
+     * Safe to call from several threads at once.
+     * @param results Receives whether each entry matches
+     * @param budget Limits the time spent testing each entry, or null to test them however long they take
+     */
+    public void matchesCached(LogEntry[] entries, int count, boolean[] results, EvaluationBudget budget){
+        int[] rowIds = new int[count];
+        int[] versions = new int[count];
+        byte[] states = new byte[count];
+        for (int i = 0; i < count; i++) {
+            rowIds[i] = entries[i].getRowId();
+            versions[i] = entries[i].getVersion();
+        }
+
+        long stamp = matchCache.getStamp();
+        CompiledNode residual = matchCache.getAll(rowIds, versions, count, states);
+        boolean[] timedOut = budget == null ? null : new boolean[count];
+        for (int i = 0; i < count; i++) {
+            switch (states[i]){
+                case FilterMatchCache.MATCH: results[i] = true; break;
+                case FilterMatchCache.NO_MATCH: results[i] = false; break;
+                case FilterMatchCache.CANDIDATE: results[i] = test(residual, entries[i], budget, timedOut, i); break;
+                default: results[i] = test(compiled, entries[i], budget, timedOut, i);
+            }
+        }
+        //Entries abandoned when the budget was cancelled weren't decided either way.
+        if(budget != null && budget.isCancelled()) return;
+        matchCache.putAll(rowIds, versions, states, results, timedOut, count, stamp);
+    }
+
+    private static boolean test(CompiledNode node, LogEntry entry, EvaluationBudget budget, boolean[] timedOut, int index){
+        if(budget == null) return node.test(entry);
+        Boolean result = budget.test(node, entry);
+        if(result == null) timedOut[index] = true;
+        return Boolean.TRUE.equals(result);
+    }
+
+    /**
+     * @return The number of entries which ran out of time while being tested against this filter.
+     */
+    public int getTimedOutCount(){
+        return matchCache.getTimedOutCount();
     }
 
     @Override
@@ -63,7 +273,7 @@ public class LogFilter extends RowFilter<TableModel, Integer> {
         TableModel tableModel = (TableModel) entry.getModel();
         if(tableModel instanceof LogTableModel){
             LogEntry logEntry = ((LogTableModel) tableModel).getRow(index);
-            return this.matches(logEntry);
+            return this.matchesCached(logEntry);
         }
         return false;
     }
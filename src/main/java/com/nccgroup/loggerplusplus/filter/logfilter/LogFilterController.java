@@ -4,12 +4,20 @@ import burp.BurpExtender;
 import com.coreyd97.BurpExtenderUtilities.HistoryField;
 import com.coreyd97.BurpExtenderUtilities.Preferences;
 import com.nccgroup.loggerplusplus.LoggerPlusPlus;
+import com.nccgroup.loggerplusplus.filter.aggregate.AggregateQuery;
+import com.nccgroup.loggerplusplus.filter.aggregate.TopQuery;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.parser.FilterParser;
 import com.nccgroup.loggerplusplus.filter.parser.ParseException;
 import com.nccgroup.loggerplusplus.logentry.FieldGroup;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
 import com.nccgroup.loggerplusplus.logview.LogViewController;
 import com.nccgroup.loggerplusplus.logview.logtable.LogTable;
+import com.nccgroup.loggerplusplus.logview.logtable.LogTableModel;
 import com.nccgroup.loggerplusplus.util.Globals;
+import com.nccgroup.loggerplusplus.util.userinterface.dialog.AggregateQueryDialog;
+import com.nccgroup.loggerplusplus.util.userinterface.dialog.FilterProfileDialog;
+import com.nccgroup.loggerplusplus.util.userinterface.dialog.TopQueryDialog;
 
 import javax.swing.*;
 import java.awt.*;
@@ -44,6 +52,14 @@ public class LogFilterController {
                     filterField.getRootPane().requestFocus(true);
                 }
             }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                //A new filter is being entered, so stop applying the previous one.
+                if (e.getKeyChar() != KeyEvent.VK_ENTER) {
+                    logTable.cancelFilterUpdate();
+                }
+            }
         });
 
         filterField.getEditor().getEditorComponent().addMouseListener(new MouseAdapter() {
@@ -98,29 +114,121 @@ public class LogFilterController {
     public void setFilter(final String filterString) {
         if (filterString == null || filterString.length() == 0 || filterString.matches(" +")) {
             setFilter((LogFilter) null);
+        } else if (FilterParser.isAggregateQuery(filterString)) {
+            runAggregateQuery(filterString);
+        } else if (FilterParser.isTopQuery(filterString)) {
+            runTopQuery(filterString);
         } else {
             try {
                 LogFilter filter = new LogFilter(LoggerPlusPlus.instance.getLibraryController(), filterString);
                 setFilter(filter);
             } catch (ParseException e) {
                 logTable.setFilter(null);
+                showParseError(e);
 
-                JLabel header = new JLabel("Could not parse filter:");
-                JTextArea errorArea = new JTextArea(e.getMessage());
-                errorArea.setEditable(false);
+                formatFilter(filterString, Color.WHITE, new Color(221, 70, 57));
+            }
+        }
+    }
 
-                JScrollPane errorScroller = new JScrollPane(errorArea);
-                errorScroller.setBorder(BorderFactory.createEmptyBorder());
-                JPanel wrapper = new JPanel(new BorderLayout());
-                wrapper.add(errorScroller, BorderLayout.CENTER);
-                wrapper.setPreferredSize(new Dimension(600, 300));
+    /**
+     * Show the plan of the filter being entered, which can be profiled against the logged entries.
+     */
+    public void explainFilter() {
+        String filterString = (String) filterField.getEditor().getItem();
+        if (filterString == null || filterString.trim().length() == 0) {
+            JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(logTable),
+                    "Enter a filter to explain.", "Explain Filter", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
 
-                JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(logTable),
-                        new Component[]{header, wrapper}, "Parse Error", JOptionPane.ERROR_MESSAGE);
+        LogFilter filter;
+        try {
+            filter = new LogFilter(LoggerPlusPlus.instance.getLibraryController(), filterString);
+        } catch (ParseException e) {
+            showParseError(e);
+            return;
+        }
 
-                formatFilter(filterString, Color.WHITE, new Color(221, 70, 57));
+        int entryTimeout = preferences.getSetting(Globals.PREF_FILTER_ENTRY_TIMEOUT);
+        int queryTimeout = preferences.getSetting(Globals.PREF_FILTER_QUERY_TIMEOUT);
+        LogTableModel model = logViewController.getLogTableController().getLogTableModel();
+        new FilterProfileDialog(JOptionPane.getFrameForComponent(logTable), filter.toString(),
+                filter.getCompiled(), model.getIndex(), model::getData,
+                () -> new EvaluationBudget(entryTimeout, queryTimeout)).setVisible(true);
+    }
+
+    /**
+     * Show the results of an aggregate query over the logged entries, kept up to date as entries arrive.
+     * The filter applied to the table is left as it was.
+     */
+    private void runAggregateQuery(String queryString) {
+        AggregateQuery query;
+        LogFilter filter = null;
+        try {
+            query = FilterParser.parseAggregateQuery(queryString);
+            if (query.getFilter() != null) {
+                filter = new LogFilter(LoggerPlusPlus.instance.getLibraryController(), query.getFilter());
             }
+        } catch (ParseException e) {
+            showParseError(e);
+            formatFilter(queryString, Color.WHITE, new Color(221, 70, 57));
+            return;
         }
+        formatFilter(queryString, null, null);
+
+        int entryTimeout = preferences.getSetting(Globals.PREF_FILTER_ENTRY_TIMEOUT);
+        int queryTimeout = preferences.getSetting(Globals.PREF_FILTER_QUERY_TIMEOUT);
+        LogTableModel model = logViewController.getLogTableController().getLogTableModel();
+        new AggregateQueryDialog(JOptionPane.getFrameForComponent(logTable), query, filter, model,
+                () -> new EvaluationBudget(entryTimeout, queryTimeout)).setVisible(true);
+    }
+
+    /**
+     * Show the first entries in the order given by a query, found without sorting the table.
+     * The filter applied to the table is left as it was.
+     */
+    private void runTopQuery(String queryString) {
+        TopQuery query;
+        LogFilter filter = null;
+        try {
+            query = FilterParser.parseTopQuery(queryString);
+            if (query.getFilter() != null) {
+                filter = new LogFilter(LoggerPlusPlus.instance.getLibraryController(), query.getFilter());
+            }
+        } catch (ParseException e) {
+            showParseError(e);
+            formatFilter(queryString, Color.WHITE, new Color(221, 70, 57));
+            return;
+        }
+        formatFilter(queryString, null, null);
+
+        int entryTimeout = preferences.getSetting(Globals.PREF_FILTER_ENTRY_TIMEOUT);
+        int queryTimeout = preferences.getSetting(Globals.PREF_FILTER_QUERY_TIMEOUT);
+        LogTableModel model = logViewController.getLogTableController().getLogTableModel();
+        new TopQueryDialog(JOptionPane.getFrameForComponent(logTable), query, filter, model::getData,
+                () -> new EvaluationBudget(entryTimeout, queryTimeout), entry -> {
+            if (!logTable.selectEntry(entry)) {
+                JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(logTable),
+                        "The entry has been removed from the log, or is hidden by the current filter.",
+                        "Top Query", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }).setVisible(true);
+    }
+
+    private void showParseError(ParseException e) {
+        JLabel header = new JLabel("Could not parse filter:");
+        JTextArea errorArea = new JTextArea(e.getMessage());
+        errorArea.setEditable(false);
+
+        JScrollPane errorScroller = new JScrollPane(errorArea);
+        errorScroller.setBorder(BorderFactory.createEmptyBorder());
+        JPanel wrapper = new JPanel(new BorderLayout());
+        wrapper.add(errorScroller, BorderLayout.CENTER);
+        wrapper.setPreferredSize(new Dimension(600, 300));
+
+        JOptionPane.showMessageDialog(JOptionPane.getFrameForComponent(logTable),
+                new Component[]{header, wrapper}, "Parse Error", JOptionPane.ERROR_MESSAGE);
     }
 
     public void clearFilter() {
@@ -67,6 +67,9 @@ public class AliasCheckVisitor implements FilterParserVisitor{
       data.addError("Could not find a filter in the library for alias: " + node.identifier);
     }
 
+    //Only aliases on the current path are recursive, the same alias may be used more than once.
+    recursionSet.remove(node.identifier);
+
     return data;
   }
 }
@@ -0,0 +1,77 @@
+package com.nccgroup.loggerplusplus.filter.parser;
+
+import com.nccgroup.loggerplusplus.filter.compiled.*;
+import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Compiles a parsed filter into a tree of {@link CompiledNode} predicates.
+ * Field accessors are resolved, comparison kernels chosen and aliases inlined once, here, rather than for every entry tested.
+ */
+public class FilterCompiler implements FilterParserVisitor {
+
+    private final Supplier<FilterLibraryController> libraryControllerSupplier;
+    private final Set<String> aliases;
+
+    public FilterCompiler(Supplier<FilterLibraryController> libraryControllerSupplier){
+        this.libraryControllerSupplier = libraryControllerSupplier;
+        this.aliases = new HashSet<>();
+    }
+
+    public static CompiledNode compile(ASTExpression filter, Supplier<FilterLibraryController> libraryControllerSupplier){
+        return new FilterCompiler(libraryControllerSupplier).compile(filter);
+    }
+
+    public CompiledNode compile(ASTExpression filter){
+        return visit(filter, new VisitorData());
+    }
+
+    /**
+     * @return The lowercase identifiers of the aliases directly referenced by the compiled filters.
+     */
+    public Set<String> getAliases() {
+        return aliases;
+    }
+
+    @Override
+    public CompiledNode visit(SimpleNode node, VisitorData data) {
+        return new CompiledConstant(false);
+    }
+
+    @Override
+    public CompiledNode visit(ASTExpression node, VisitorData data) {
+        CompiledNode[] children = new CompiledNode[node.jjtGetNumChildren()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = (CompiledNode) node.jjtGetChild(i).jjtAccept(this, data);
+        }
+        return new CompiledExpression(node.op, node.inverse, children);
+    }
+
+    @Override
+    public CompiledNode visit(ASTComparison node, VisitorData data) {
+        if(node.left instanceof KeyedField){
+            return new CompiledKeyedComparison((KeyedField) node.left, node.booleanOperator, node.right);
+        }
+        if(!(node.left instanceof LogEntryField)){
+            //The grammar requires a field on the left, but don't rely on it.
+            return new CompiledConstant(FilterEvaluationVisitor.compare(node.booleanOperator, node.left, node.right));
+        }
+        if(node.right instanceof LogEntryField){
+            return new CompiledFieldComparison((LogEntryField) node.left, node.booleanOperator, (LogEntryField) node.right);
+        }
+        return new CompiledComparison((LogEntryField) node.left, node.booleanOperator, node.right);
+    }
+
+    @Override
+    public CompiledNode visit(ASTAlias node, VisitorData data) {
+        aliases.add(node.identifier.toLowerCase());
+        CompiledAlias alias = new CompiledAlias(node.identifier, libraryControllerSupplier);
+        alias.resolve();
+        return alias;
+    }
+}
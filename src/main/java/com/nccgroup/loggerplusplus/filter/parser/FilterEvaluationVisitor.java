@@ -4,9 +4,11 @@ package com.nccgroup.loggerplusplus.filter.parser;
 import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
 import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
 import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
 import com.nccgroup.loggerplusplus.filter.LogicalOperator;
 import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
 import org.apache.commons.lang3.time.DateUtils;
 
 import java.math.BigDecimal;
@@ -76,7 +78,11 @@ public class FilterEvaluationVisitor implements FilterParserVisitor{
     Object left, right;
 
     //Must pull the value from the entry for fields, otherwise the node itself is the value.
-    left = node.left instanceof LogEntryField ? getValueForField(visitorData, (LogEntryField) node.left) : node.left;
+    if(node.left instanceof KeyedField){
+      left = ((KeyedField) node.left).getValue((LogEntry) visitorData.getData().get(LOG_ENTRY));
+    }else{
+      left = node.left instanceof LogEntryField ? getValueForField(visitorData, (LogEntryField) node.left) : node.left;
+    }
     right = node.right instanceof LogEntryField ? getValueForField(visitorData, (LogEntryField) node.right) : node.right;
 
     return compare(node.booleanOperator, left, right);
@@ -106,9 +112,12 @@ public class FilterEvaluationVisitor implements FilterParserVisitor{
     }
   }
 
-  private boolean compare(BooleanOperator op, Object left, Object right){
+  public static boolean compare(BooleanOperator op, Object left, Object right){
     if(left == null) left = "";
     if(right == null) right = "";
+    //Views of message content compare as their text, but patterns can be matched against them in place.
+    if(left instanceof CharSequence && !(left instanceof String) && !(right instanceof Pattern)) left = left.toString();
+    if(right instanceof CharSequence && !(right instanceof String)) right = right.toString();
     try{
       if(Number.class.isAssignableFrom(left.getClass()) && Number.class.isAssignableFrom(right.getClass())) {
         //Numerical Comparison
@@ -129,10 +138,10 @@ public class FilterEvaluationVisitor implements FilterParserVisitor{
             return leftBigDecimal.compareTo(rightBigDecimal) <= 0;
         }
       }else if(op == BooleanOperator.MATCHES){
-        Matcher m = ((Pattern) right).matcher(String.valueOf(left));
+        Matcher m = ((Pattern) right).matcher(EvaluationBudget.guard(left instanceof CharSequence ? (CharSequence) left : String.valueOf(left)));
         return m.matches();
       }else if(right instanceof Pattern) {
-        Matcher m = ((Pattern) right).matcher(String.valueOf(left));
+        Matcher m = ((Pattern) right).matcher(EvaluationBudget.guard(left instanceof CharSequence ? (CharSequence) left : String.valueOf(left)));
         return m.find() ^ op == BooleanOperator.NOT_EQUAL;
       }else if (left instanceof Date) {
         try {
@@ -168,6 +177,8 @@ public class FilterEvaluationVisitor implements FilterParserVisitor{
         }
       }
 
+    }catch (EvaluationBudget.TimeoutException e){
+      throw e;
     }catch (Exception e){
       e.printStackTrace();
       return false;
@@ -3,6 +3,9 @@
 package com.nccgroup.loggerplusplus.filter.parser;
 import com.nccgroup.loggerplusplus.filter.LogicalOperator;
 import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.aggregate.Aggregate;
+import com.nccgroup.loggerplusplus.filter.aggregate.AggregateQuery;
+import com.nccgroup.loggerplusplus.filter.aggregate.TopQuery;
 import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
 import java.io.StringReader;
 import java.math.BigDecimal;
@@ -11,9 +14,12 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.Date;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Pattern;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
-import com.nccgroup.loggerplusplus.logentry.FieldGroup;import com.nccgroup.loggerplusplus.logview.processor.LogProcessor;
+import com.nccgroup.loggerplusplus.logentry.FieldGroup;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
+import com.nccgroup.loggerplusplus.logview.processor.LogProcessor;
 import static com.nccgroup.loggerplusplus.logentry.LogEntryField.getFieldsInGroup;
 
 public class FilterParser/*@bgen(jjtree)*/implements FilterParserTreeConstants, FilterParserConstants {/*@bgen(jjtree)*/
@@ -27,11 +33,60 @@ public class FilterParser/*@bgen(jjtree)*/implements FilterParserTreeConstants,
         return node;
     }
 
+    public static AggregateQuery parseAggregateQuery(String string) throws ParseException {
+        FilterParser FilterParser = new FilterParser(new StringReader(string));
+        return FilterParser.AggregateQuery();
+    }
+
+    public static TopQuery parseTopQuery(String string) throws ParseException {
+        FilterParser FilterParser = new FilterParser(new StringReader(string));
+        return FilterParser.TopQuery();
+    }
+
+    /**
+     * @return True if the string is an aggregate query rather than a filter, i.e. it groups or aggregates entries.
+     */
+    public static boolean isAggregateQuery(String string) {
+        return containsKeyword(string, GROUP, AGG);
+    }
+
+    /**
+     * @return True if the string is a top query rather than a filter, i.e. it orders or limits entries.
+     */
+    public static boolean isTopQuery(String string) {
+        return containsKeyword(string, ORDER, LIMIT);
+    }
+
+    private static boolean containsKeyword(String string, int... keywords) {
+        FilterParserTokenManager tokenManager = new FilterParserTokenManager(new SimpleCharStream(new StringReader(string)));
+        try {
+            int previous = EOF;
+            for (Token token = tokenManager.getNextToken(); token.kind != EOF; token = tokenManager.getNextToken()) {
+                //Keywords following # are the names of saved filters.
+                if(previous != ALIAS_SYMBOL){
+                    for (int keyword : keywords) {
+                        if(token.kind == keyword) return true;
+                    }
+                }
+                previous = token.kind;
+            }
+        }catch (TokenMgrError e){
+            return false;
+        }
+        return false;
+    }
+
     public static void checkAliasesForSanity(FilterLibraryController libraryController, ASTExpression filter) throws ParseException {
         VisitorData result = new AliasCheckVisitor(libraryController).visit(filter);
         if(!result.isSuccess()) throw new ParseException(result.getErrorString());
     }
 
+    //The type of the left hand side of a comparison. Headers and parameters looked up by name are strings.
+    private static Class<?> typeOf(Object operand) {
+        if(operand instanceof KeyedField) return String.class;
+        return ((LogEntryField) operand).getType();
+    }
+
     private static void throwOperatorAmbiguityException(LogicalOperator op, LogicalOperator other) throws ParseException {
         throw new ParseException(String.format("Cannot mix operators %s, %s. Please use parenthesis to remove ambiguity.", op.getLabel(), other.getLabel()));
     }
@@ -43,6 +98,188 @@ public class FilterParser/*@bgen(jjtree)*/implements FilterParserTreeConstants,
     throw new Error("Missing return statement in function");
 }
 
+//An optional filter, followed by the fields to group by and the aggregates to compute for each group.
+//E.g. Response.Status == 200 GROUP BY Request.Host AGG count(), p95(Response.RTT)
+  final public AggregateQuery AggregateQuery() throws ParseException {ASTExpression filter = null;
+    List<LogEntryField> groupBy = new ArrayList<LogEntryField>();
+    List<Aggregate> aggregates = new ArrayList<Aggregate>();
+    LogEntryField field;
+    Aggregate aggregate;
+    if (getToken(1).kind == GROUP || getToken(1).kind == AGG) {
+
+    } else {
+      filter = Expression(false);
+    }
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case GROUP:{
+      jj_consume_token(GROUP);
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case BY:{
+        jj_consume_token(BY);
+        break;
+        }
+      default:
+        jj_la1[0] = jj_gen;
+{if (true) throw new ParseException("Expected BY after GROUP, e.g. \"GROUP BY Request.Host\".");}
+      }
+      field = Identifier();
+groupBy.add(field);
+      label_1:
+      while (true) {
+        switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+        case ARRAY_SEPARATOR:{
+          ;
+          break;
+          }
+        default:
+          jj_la1[1] = jj_gen;
+          break label_1;
+        }
+        jj_consume_token(ARRAY_SEPARATOR);
+        field = Identifier();
+groupBy.add(field);
+      }
+      break;
+      }
+    default:
+      jj_la1[2] = jj_gen;
+      ;
+    }
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case AGG:{
+      jj_consume_token(AGG);
+      break;
+      }
+    default:
+      jj_la1[3] = jj_gen;
+{if (true) throw new ParseException("Aggregate queries must list the aggregates to compute after AGG, e.g. \"AGG count(), p95(Response.RTT)\".");}
+    }
+    aggregate = Aggregate();
+aggregates.add(aggregate);
+    label_2:
+    while (true) {
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case ARRAY_SEPARATOR:{
+        ;
+        break;
+        }
+      default:
+        jj_la1[4] = jj_gen;
+        break label_2;
+      }
+      jj_consume_token(ARRAY_SEPARATOR);
+      aggregate = Aggregate();
+aggregates.add(aggregate);
+    }
+    jj_consume_token(0);
+{if ("" != null) return new AggregateQuery(filter, groupBy, aggregates);}
+    throw new Error("Missing return statement in function");
+}
+
+  final public Aggregate Aggregate() throws ParseException {Token function;
+    LogEntryField field = null;
+    function = jj_consume_token(IDENTIFIER);
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case LPAREN:{
+      jj_consume_token(LPAREN);
+      break;
+      }
+    default:
+      jj_la1[5] = jj_gen;
+{if (true) throw new ParseException("Aggregates must be called as functions, e.g. \"count()\" or \"avg(Response.Length)\".");}
+    }
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case IDENTIFIER:{
+      field = Identifier();
+      break;
+      }
+    default:
+      jj_la1[6] = jj_gen;
+      ;
+    }
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case RPAREN:{
+      jj_consume_token(RPAREN);
+      break;
+      }
+    default:
+      jj_la1[7] = jj_gen;
+{if (true) throw new ParseException("Unbalanced brackets.");}
+    }
+{if ("" != null) return Aggregate.create(function.image, field);}
+    throw new Error("Missing return statement in function");
+}
+
+//An optional filter, followed by the field to order the matching entries by and the number of entries to keep.
+//E.g. Request.Method == "GET" ORDER BY Response.RTT DESC LIMIT 50
+  final public TopQuery TopQuery() throws ParseException {ASTExpression filter = null;
+    LogEntryField field;
+    boolean descending = false;
+    Token limit;
+    if (getToken(1).kind == ORDER) {
+
+    } else {
+      filter = Expression(false);
+    }
+    jj_consume_token(ORDER);
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case BY:{
+      jj_consume_token(BY);
+      break;
+      }
+    default:
+      jj_la1[8] = jj_gen;
+{if (true) throw new ParseException("Expected BY after ORDER, e.g. \"ORDER BY Response.RTT\".");}
+    }
+    field = Identifier();
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case ASC:
+    case DESC:{
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case ASC:{
+        jj_consume_token(ASC);
+        break;
+        }
+      case DESC:{
+        jj_consume_token(DESC);
+descending = true;
+        break;
+        }
+      default:
+        jj_la1[9] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
+      break;
+      }
+    default:
+      jj_la1[10] = jj_gen;
+      ;
+    }
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case LIMIT:{
+      jj_consume_token(LIMIT);
+      break;
+      }
+    default:
+      jj_la1[11] = jj_gen;
+{if (true) throw new ParseException("Ordered queries must be limited, e.g. \"ORDER BY Response.RTT DESC LIMIT 50\".");}
+    }
+    limit = jj_consume_token(NUMBER);
+    jj_consume_token(0);
+int count;
+        try {
+            count = Integer.parseInt(limit.image);
+        }catch (NumberFormatException e){
+            {if (true) throw new ParseException("The limit must be a whole number, e.g. \"LIMIT 50\".");}
+        }
+        if(count < 1 || count > TopQuery.MAX_LIMIT){
+            {if (true) throw new ParseException("The limit must be between 1 and " + TopQuery.MAX_LIMIT + ".");}
+        }
+        {if ("" != null) return new TopQuery(filter, field, descending, count);}
+    throw new Error("Missing return statement in function");
+}
+
   final public ASTExpression Expression(boolean inverse) throws ParseException {/*@bgen(jjtree) Expression */
  ASTExpression jjtn000 = new ASTExpression(JJTEXPRESSION);
  boolean jjtc000 = true;
@@ -52,6 +289,7 @@ public class FilterParser/*@bgen(jjtree)*/implements FilterParserTreeConstants,
       if (jj_2_1(2)) {
         op = ExpressionCompounding();
       } else {
+        ;
       }
 jjtree.closeNodeScope(jjtn000, true);
       jjtc000 = false;
@@ -87,7 +325,8 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[0] = jj_gen;
+      jj_la1[12] = jj_gen;
+      ;
     }
     jj_consume_token(LPAREN);
     Expression(inverse);
@@ -97,7 +336,7 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[1] = jj_gen;
+      jj_la1[13] = jj_gen;
 {if (true) throw new ParseException("Unbalanced brackets.");}
     }
 }
@@ -110,7 +349,7 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[2] = jj_gen;
+      jj_la1[14] = jj_gen;
       Statement();
     }
 }
@@ -122,7 +361,7 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[3] = jj_gen;
+      jj_la1[15] = jj_gen;
       Comparison();
     }
 }
@@ -143,16 +382,17 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[4] = jj_gen;
+      jj_la1[16] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
     ExpressionInner();
-    label_1:
+    label_3:
     while (true) {
       if (jj_2_2(2)) {
+        ;
       } else {
-        break label_1;
+        break label_3;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case AND:{
@@ -168,7 +408,7 @@ if (jjtc000) {
         break;
         }
       default:
-        jj_la1[5] = jj_gen;
+        jj_la1[17] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -190,18 +430,18 @@ if (jjtc000) {
     try {
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case IDENTIFIER:{
-        left = Identifier();
+        left = FieldReference();
         break;
         }
       default:
-        jj_la1[6] = jj_gen;
+        jj_la1[18] = jj_gen;
 {if (true) throw new ParseException("The left side of a comparison must be a field identifier.");}
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case EQ:
       case NEQ:{
         op = EqualityOperator();
-if(((LogEntryField) left).getType().isAssignableFrom(Date.class)){
+if(typeOf(left).isAssignableFrom(Date.class)){
                 right = Date();
             }else{
                 try{
@@ -211,8 +451,8 @@ if(((LogEntryField) left).getType().isAssignableFrom(Date.class)){
                 }
             }
 
-            if(right instanceof Pattern && !String.class.isAssignableFrom(((LogEntryField) left).getType())){
-                {if (true) throw new ParseException(String.format("Regex patterns can only be used on fields which can be converted to a string. Field \"%s\" of type \"%s\" cannot be converted.", left, ((LogEntryField) left).getType()));}
+            if(right instanceof Pattern && !String.class.isAssignableFrom(typeOf(left))){
+                {if (true) throw new ParseException(String.format("Regex patterns can only be used on fields which can be converted to a string. Field \"%s\" of type \"%s\" cannot be converted.", left, typeOf(left)));}
             }
         break;
         }
@@ -221,8 +461,8 @@ if(((LogEntryField) left).getType().isAssignableFrom(Date.class)){
       case GEQ:
       case LEQ:{
         op = NumericOperator();
-if(!Number.class.isAssignableFrom(((LogEntryField) left).getType()) && !Date.class.isAssignableFrom(((LogEntryField) left).getType())){
-                {if (true) throw new ParseException(String.format("Numeric operators cannot be used for field \"%s\" of type \"%s\"", left, ((LogEntryField) left).getType()));}
+if(!Number.class.isAssignableFrom(typeOf(left)) && !Date.class.isAssignableFrom(typeOf(left))){
+                {if (true) throw new ParseException(String.format("Numeric operators cannot be used for field \"%s\" of type \"%s\"", left, typeOf(left)));}
             }
         switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
         case NUMBER:{
@@ -239,13 +479,13 @@ if(!Number.class.isAssignableFrom(((LogEntryField) right).getType())){
         case OPEN_SINGLE_QUOTE_STRING:
         case OPEN_DOUBLE_QUOTE_STRING:{
           right = Date();
-if(!Date.class.isAssignableFrom(((LogEntryField) left).getType())){
-                    {if (true) throw new ParseException(String.format("Value of type Date cannot be compared against field \"%s\" of type \"%s\"", left, ((LogEntryField)left).getType()));}
+if(!Date.class.isAssignableFrom(typeOf(left))){
+                    {if (true) throw new ParseException(String.format("Value of type Date cannot be compared against field \"%s\" of type \"%s\"", left, typeOf(left)));}
                 }
           break;
           }
         default:
-          jj_la1[7] = jj_gen;
+          jj_la1[19] = jj_gen;
 {if (true) throw new ParseException("Invalid right hand value for comparison \"" + op + "\"");}
         }
         break;
@@ -267,7 +507,7 @@ if(!Date.class.isAssignableFrom(((LogEntryField) left).getType())){
           break;
           }
         default:
-          jj_la1[8] = jj_gen;
+          jj_la1[20] = jj_gen;
 {if (true) throw new ParseException("The contains operator can only be used on string and numeric values and identifiers.");}
         }
         break;
@@ -280,7 +520,7 @@ if(!Date.class.isAssignableFrom(((LogEntryField) left).getType())){
           break;
           }
         default:
-          jj_la1[9] = jj_gen;
+          jj_la1[21] = jj_gen;
 {if (true) throw new ParseException("The in operator must be used on an array. E.g. \"Response.status IN [200, 302, 500]\"");}
         }
         break;
@@ -299,21 +539,28 @@ if(!Date.class.isAssignableFrom(((LogEntryField) left).getType())){
           break;
           }
         default:
-          jj_la1[10] = jj_gen;
+          jj_la1[22] = jj_gen;
 {if (true) throw new ParseException("The matches operator must have a pattern as its right hand value.");}
         }
         break;
         }
       default:
-        jj_la1[11] = jj_gen;
-if(!(left instanceof Boolean || (left instanceof LogEntryField && ((LogEntryField) left).getType().isAssignableFrom(Boolean.class)))){
+        jj_la1[23] = jj_gen;
+if(left instanceof KeyedField){
+                //A header or parameter on its own tests whether the entry has a value for it.
+                op = BooleanOperator.NOT_EQUAL;
+                right = "";
+            }else if(!(left instanceof Boolean || (left instanceof LogEntryField && typeOf(left).isAssignableFrom(Boolean.class)))){
                 //If left isn't a boolean value or field with boolean type
                 {if (true) throw new ParseException(left + " cannot be evaluated as a boolean.");}
             }
       }
 jjtree.closeNodeScope(jjtn000, true);
       jjtc000 = false;
-jjtn000.left = left;
+if(left instanceof KeyedField && right instanceof LogEntryField){
+            {if (true) throw new ParseException(String.format("Header or parameter \"%s\" can only be compared against a value, not field \"%s\".", left, right));}
+        }
+        jjtn000.left = left;
         jjtn000.right = right;
         jjtn000.booleanOperator = op;
     } catch (Throwable jjte000) {
@@ -343,7 +590,44 @@ if (jjtc000) {
     jjtree.openNodeScope(jjtn000);Token identifier;
     try {
       jj_consume_token(ALIAS_SYMBOL);
-      identifier = jj_consume_token(IDENTIFIER);
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case IDENTIFIER:{
+        identifier = jj_consume_token(IDENTIFIER);
+        break;
+        }
+      case GROUP:{
+        identifier = jj_consume_token(GROUP);
+        break;
+        }
+      case BY:{
+        identifier = jj_consume_token(BY);
+        break;
+        }
+      case AGG:{
+        identifier = jj_consume_token(AGG);
+        break;
+        }
+      case ORDER:{
+        identifier = jj_consume_token(ORDER);
+        break;
+        }
+      case LIMIT:{
+        identifier = jj_consume_token(LIMIT);
+        break;
+        }
+      case ASC:{
+        identifier = jj_consume_token(ASC);
+        break;
+        }
+      case DESC:{
+        identifier = jj_consume_token(DESC);
+        break;
+        }
+      default:
+        jj_la1[24] = jj_gen;
+        jj_consume_token(-1);
+        throw new ParseException();
+      }
 jjtree.closeNodeScope(jjtn000, true);
       jjtc000 = false;
 jjtn000.identifier = identifier.image;
@@ -379,7 +663,7 @@ if (jjtc000) {
         break;
         }
       default:
-        jj_la1[12] = jj_gen;
+        jj_la1[25] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -402,20 +686,21 @@ if (jjtc000) {
       break;
       }
     default:
-      jj_la1[13] = jj_gen;
+      jj_la1[26] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
 items.add(initial);
-    label_2:
+    label_4:
     while (true) {
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case ARRAY_SEPARATOR:{
-          break;
+        ;
+        break;
         }
       default:
-        jj_la1[14] = jj_gen;
-        break label_2;
+        jj_la1[27] = jj_gen;
+        break label_4;
       }
       jj_consume_token(ARRAY_SEPARATOR);
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
@@ -429,7 +714,7 @@ items.add(initial);
         break;
         }
       default:
-        jj_la1[15] = jj_gen;
+        jj_la1[28] = jj_gen;
         jj_consume_token(-1);
         throw new ParseException();
       }
@@ -471,6 +756,46 @@ field = LogEntryField.getByLabel(fieldGroup, identifier.image);
     throw new Error("Missing return statement in function");
 }
 
+//A field, or a single header or parameter looked up by name, e.g. Request.Header["Authorization"]
+  final public Object FieldReference() throws ParseException {LogEntryField field;
+    String key;
+    field = Identifier();
+    switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+    case ARRAY_START:{
+      jj_consume_token(ARRAY_START);
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case OPEN_SINGLE_QUOTE_STRING:
+      case OPEN_DOUBLE_QUOTE_STRING:{
+        key = String();
+        break;
+        }
+      default:
+        jj_la1[29] = jj_gen;
+{if (true) throw new ParseException("The name of a header or parameter must be a quoted string, e.g. Request.Header[\"Authorization\"].");}
+      }
+      switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
+      case ARRAY_END:{
+        jj_consume_token(ARRAY_END);
+        break;
+        }
+      default:
+        jj_la1[30] = jj_gen;
+{if (true) throw new ParseException("Missing closing bracket after the name of the header or parameter.");}
+      }
+if(!KeyedField.KEYED_FIELDS.contains(field)){
+                {if (true) throw new ParseException(String.format("Field \"%s\" cannot be looked up by name. Only headers and parameters can, e.g. Request.Header[\"Authorization\"] or Request.Param[\"id\"].", field));}
+            }
+            {if ("" != null) return new KeyedField(field, key);}
+      break;
+      }
+    default:
+      jj_la1[31] = jj_gen;
+      ;
+    }
+{if ("" != null) return field;}
+    throw new Error("Missing return statement in function");
+}
+
 //END IDENTIFIERS
 
 
@@ -490,16 +815,16 @@ field = LogEntryField.getByLabel(fieldGroup, identifier.image);
       break;
       }
     default:
-      jj_la1[16] = jj_gen;
+      jj_la1[32] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
 try{
-            Date date = LogProcessor.LOGGER_DATE_FORMAT.parse(t.image);
-            {if ("" != null) return date;}
-        }catch (Exception e){
-            {if (true) throw new ParseException("Invalid date format. Please use the format YYYY/MM/DD HH:MM:SS");}
-        }
+        Date date = LogProcessor.LOGGER_DATE_FORMAT.parse(t.image);
+        {if ("" != null) return date;}
+    }catch (Exception e){
+        {if (true) throw new ParseException("Invalid date format. Please use the format YYYY/MM/DD HH:MM:SS");}
+    }
     throw new Error("Missing return statement in function");
 }
 
@@ -519,7 +844,8 @@ try{
         break;
         }
       default:
-        jj_la1[17] = jj_gen;
+        jj_la1[33] = jj_gen;
+        ;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case CLOSE_SINGLE_QUOTE_STRING:{
@@ -527,7 +853,7 @@ try{
         break;
         }
       default:
-        jj_la1[18] = jj_gen;
+        jj_la1[34] = jj_gen;
 {if (true) throw new ParseException("Missing closing quote for string.");}
       }
       break;
@@ -540,7 +866,8 @@ try{
         break;
         }
       default:
-        jj_la1[19] = jj_gen;
+        jj_la1[35] = jj_gen;
+        ;
       }
       switch ((jj_ntk==-1)?jj_ntk_f():jj_ntk) {
       case CLOSE_DOUBLE_QUOTE_STRING:{
@@ -548,13 +875,13 @@ try{
         break;
         }
       default:
-        jj_la1[20] = jj_gen;
+        jj_la1[36] = jj_gen;
 {if (true) throw new ParseException("Missing closing quote for string.");}
       }
       break;
       }
     default:
-      jj_la1[21] = jj_gen;
+      jj_la1[37] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -574,7 +901,7 @@ if(t == null) {if ("" != null) return "";}
         break;
         }
       default:
-        jj_la1[22] = jj_gen;
+        jj_la1[38] = jj_gen;
 {if (true) throw new ParseException("Missing closing quote for regex string.");}
       }
       break;
@@ -588,13 +915,13 @@ if(t == null) {if ("" != null) return "";}
         break;
         }
       default:
-        jj_la1[23] = jj_gen;
+        jj_la1[39] = jj_gen;
 {if (true) throw new ParseException("Missing closing quote for regex string.");}
       }
       break;
       }
     default:
-      jj_la1[24] = jj_gen;
+      jj_la1[40] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -613,7 +940,7 @@ if(t == null) {if ("" != null) return "";}
       break;
       }
     default:
-      jj_la1[25] = jj_gen;
+      jj_la1[41] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -628,7 +955,8 @@ if(t == null) {if ("" != null) return "";}
       break;
       }
     default:
-      jj_la1[26] = jj_gen;
+      jj_la1[42] = jj_gen;
+      ;
     }
     t = jj_consume_token(BOOLEAN);
 {if ("" != null) return (inverse != null ^ java.lang.Boolean.parseBoolean(t.image));}
@@ -653,7 +981,7 @@ BooleanOperator EqualityOperator() throws ParseException {
       break;
       }
     default:
-      jj_la1[27] = jj_gen;
+      jj_la1[43] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -683,7 +1011,7 @@ BooleanOperator EqualityOperator() throws ParseException {
       break;
       }
     default:
-      jj_la1[28] = jj_gen;
+      jj_la1[44] = jj_gen;
       jj_consume_token(-1);
       throw new ParseException();
     }
@@ -756,301 +1084,344 @@ BooleanOperator EqualityOperator() throws ParseException {
     finally { jj_save(2, xla); }
   }
 
-  private boolean jj_3R_37()
+  private boolean jj_3R_33()
  {
-     return jj_scan_token(MATCHES);
- }
+    if (jj_3R_40()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_35()
+  private boolean jj_3R_24()
  {
-     return jj_scan_token(CONTAINS);
- }
+    if (jj_scan_token(INVERSE)) return true;
+    return false;
+  }
 
-  private boolean jj_3_3()
+  private boolean jj_3R_32()
  {
-     return jj_3R_8();
- }
+    if (jj_3R_39()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_43()
+  private boolean jj_3R_17()
  {
-     return jj_scan_token(LEQ);
- }
+    if (jj_3R_19()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_27()
+  private boolean jj_3R_9()
  {
-     return jj_3R_33();
- }
+    Token xsp;
+    xsp = jj_scanpos;
+    if (jj_3R_17()) {
+    jj_scanpos = xsp;
+    if (jj_3R_18()) return true;
+    }
+    return false;
+  }
 
-  private boolean jj_3R_42()
+  private boolean jj_3_1()
  {
-     return jj_scan_token(GEQ);
- }
+    if (jj_3R_5()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_11()
+  private boolean jj_3R_10()
+ {
+    if (jj_scan_token(IDENTIFIER)) return true;
+    if (jj_scan_token(DOT)) return true;
+    return false;
+  }
+
+  private boolean jj_3R_39()
  {
-     return jj_3R_14();
- }
+    if (jj_scan_token(IN)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_41()
+  private boolean jj_3R_21()
  {
-     return jj_scan_token(LT);
- }
+    if (jj_3R_24()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_5()
+  private boolean jj_3R_19()
  {
-     return jj_3R_13();
- }
+    Token xsp;
+    xsp = jj_scanpos;
+    if (jj_3R_21()) jj_scanpos = xsp;
+    if (jj_scan_token(LPAREN)) return true;
+    return false;
+  }
 
   private boolean jj_3R_40()
  {
-     return jj_scan_token(GT);
- }
+    if (jj_scan_token(MATCHES)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_34()
+  private boolean jj_3R_31()
  {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_40()) {
-    jj_scanpos = xsp;
-    if (jj_3R_41()) {
-    jj_scanpos = xsp;
-    if (jj_3R_42()) {
-    jj_scanpos = xsp;
-        return jj_3R_43();
-    }
-    }
-    }
+    if (jj_3R_38()) return true;
     return false;
   }
 
-  private boolean jj_3R_25()
+  private boolean jj_3R_38()
  {
-     return jj_3R_8();
- }
+    if (jj_scan_token(CONTAINS)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_24()
+  private boolean jj_3R_46()
+ {
+    if (jj_scan_token(LEQ)) return true;
+    return false;
+  }
+
+  private boolean jj_3R_45()
+ {
+    if (jj_scan_token(GEQ)) return true;
+    return false;
+  }
+
+  private boolean jj_3R_44()
+ {
+    if (jj_scan_token(LT)) return true;
+    return false;
+  }
+
+  private boolean jj_3R_43()
+ {
+    if (jj_scan_token(GT)) return true;
+    return false;
+  }
+
+  private boolean jj_3R_37()
  {
     Token xsp;
     xsp = jj_scanpos;
-    if (jj_3R_25()) {
+    if (jj_3R_43()) {
     jj_scanpos = xsp;
-    if (jj_3R_26()) return true;
-    }
-    xsp = jj_scanpos;
-    if (jj_3R_27()) {
-    jj_scanpos = xsp;
-    if (jj_3R_28()) {
+    if (jj_3R_44()) {
     jj_scanpos = xsp;
-    if (jj_3R_29()) {
-    jj_scanpos = xsp;
-    if (jj_3R_30()) {
+    if (jj_3R_45()) {
     jj_scanpos = xsp;
-    if (jj_3R_31()) {
-    jj_scanpos = xsp;
-        return jj_3R_32();
-    }
-    }
+    if (jj_3R_46()) return true;
     }
     }
     }
     return false;
   }
 
-  private boolean jj_3R_39()
+  private boolean jj_3R_42()
  {
-     return jj_scan_token(NEQ);
- }
+    if (jj_scan_token(NEQ)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_38()
+  private boolean jj_3R_41()
  {
-     return jj_scan_token(EQ);
- }
+    if (jj_scan_token(EQ)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_33()
+  private boolean jj_3R_36()
  {
     Token xsp;
     xsp = jj_scanpos;
-    if (jj_3R_38()) {
+    if (jj_3R_41()) {
     jj_scanpos = xsp;
-        return jj_3R_39();
+    if (jj_3R_42()) return true;
     }
     return false;
   }
 
-  private boolean jj_3R_16()
+  private boolean jj_3R_28()
  {
-     return jj_3R_18();
- }
+    return false;
+  }
 
-  private boolean jj_3R_10()
+  private boolean jj_3R_30()
  {
-     return jj_3R_13();
- }
+    if (jj_3R_37()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_23()
+  private boolean jj_3R_8()
  {
-     return jj_scan_token(ALIAS_SYMBOL);
- }
+    if (jj_3R_16()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_4()
+  private boolean jj_3_3()
  {
-     return jj_3R_12();
- }
+    if (jj_3R_10()) return true;
+    return false;
+  }
 
-  private boolean jj_3_2()
+  private boolean jj_3R_29()
  {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_4()) {
-    jj_scanpos = xsp;
-    if (jj_3R_5()) {
-    jj_scanpos = xsp;
-    if (jj_3R_6()) return true;
-    }
-    }
-     return jj_3R_7();
- }
+    if (jj_3R_36()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_9()
+  private boolean jj_3R_13()
  {
-     return jj_3R_12();
- }
+    if (jj_3R_16()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_21()
+  private boolean jj_3R_7()
+ {
+    if (jj_3R_15()) return true;
+    return false;
+  }
+
+  private boolean jj_3R_27()
+ {
+    if (jj_3R_35()) return true;
+    return false;
+  }
+
+  private boolean jj_3R_25()
  {
-     return jj_3R_24();
- }
+    if (jj_scan_token(ALIAS_SYMBOL)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_3()
+  private boolean jj_3R_26()
  {
     Token xsp;
     xsp = jj_scanpos;
-    if (jj_3R_9()) {
+    if (jj_3R_27()) {
     jj_scanpos = xsp;
-    if (jj_3R_10()) {
+    if (jj_3R_28()) return true;
+    }
+    xsp = jj_scanpos;
+    if (jj_3R_29()) {
     jj_scanpos = xsp;
-    if (jj_3R_11()) return true;
+    if (jj_3R_30()) {
+    jj_scanpos = xsp;
+    if (jj_3R_31()) {
+    jj_scanpos = xsp;
+    if (jj_3R_32()) {
+    jj_scanpos = xsp;
+    if (jj_3R_33()) {
+    jj_scanpos = xsp;
+    if (jj_3R_34()) return true;
+    }
+    }
+    }
     }
     }
-     return jj_3R_7();
- }
+    return false;
+  }
 
-  private boolean jj_3R_32()
+  private boolean jj_3R_35()
  {
+    if (jj_3R_10()) return true;
     return false;
   }
 
   private boolean jj_3R_18()
  {
-    Token xsp;
-    xsp = jj_scanpos;
-    if (jj_3R_20()) {
-    jj_scanpos = xsp;
-        return jj_3R_21();
-    }
+    if (jj_3R_20()) return true;
     return false;
   }
 
-  private boolean jj_3R_20()
- {
-     return jj_3R_23();
- }
-
-  private boolean jj_3R_31()
+  private boolean jj_3R_12()
  {
-     return jj_3R_37();
- }
+    if (jj_3R_15()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_30()
+  private boolean jj_3R_6()
  {
-     return jj_3R_36();
- }
+    if (jj_3R_14()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_15()
+  private boolean jj_3R_16()
  {
-     return jj_3R_17();
- }
+    if (jj_scan_token(XOR)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_7()
+  private boolean jj_3_2()
  {
     Token xsp;
     xsp = jj_scanpos;
-    if (jj_3R_15()) {
+    if (jj_3R_6()) {
+    jj_scanpos = xsp;
+    if (jj_3R_7()) {
     jj_scanpos = xsp;
-        return jj_3R_16();
+    if (jj_3R_8()) return true;
     }
+    }
+    if (jj_3R_9()) return true;
     return false;
   }
 
-  private boolean jj_3_1()
+  private boolean jj_3R_11()
  {
-     return jj_3R_3();
- }
+    if (jj_3R_14()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_19()
+  private boolean jj_3R_23()
  {
-     return jj_3R_22();
- }
+    if (jj_3R_26()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_17()
+  private boolean jj_3R_5()
  {
     Token xsp;
     xsp = jj_scanpos;
-    if (jj_3R_19()) jj_scanpos = xsp;
-     return jj_scan_token(LPAREN);
- }
+    if (jj_3R_11()) {
+    jj_scanpos = xsp;
+    if (jj_3R_12()) {
+    jj_scanpos = xsp;
+    if (jj_3R_13()) return true;
+    }
+    }
+    if (jj_3R_9()) return true;
+    return false;
+  }
 
-  private boolean jj_3R_29()
+  private boolean jj_3R_15()
  {
-     return jj_3R_35();
- }
+    if (jj_scan_token(OR)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_8()
+  private boolean jj_3R_34()
  {
-    if (jj_scan_token(IDENTIFIER)) return true;
-     return jj_scan_token(DOT);
- }
+    return false;
+  }
 
   private boolean jj_3R_14()
  {
-     return jj_scan_token(XOR);
- }
-
-  private boolean jj_3R_13()
- {
-     return jj_scan_token(OR);
- }
+    if (jj_scan_token(AND)) return true;
+    return false;
+  }
 
-  private boolean jj_3R_12()
+  private boolean jj_3R_20()
  {
-     return jj_scan_token(AND);
- }
+    Token xsp;
+    xsp = jj_scanpos;
+    if (jj_3R_22()) {
+    jj_scanpos = xsp;
+    if (jj_3R_23()) return true;
+    }
+    return false;
+  }
 
   private boolean jj_3R_22()
  {
-     return jj_scan_token(INVERSE);
- }
-
-  private boolean jj_3R_36()
- {
-     return jj_scan_token(IN);
- }
-
-  private boolean jj_3R_26()
- {
+    if (jj_3R_25()) return true;
     return false;
   }
 
-  private boolean jj_3R_28()
- {
-     return jj_3R_34();
- }
-
-  private boolean jj_3R_6()
- {
-     return jj_3R_14();
- }
-
   /** Generated Token Manager. */
   public FilterParserTokenManager token_source;
   SimpleCharStream jj_input_stream;
@@ -1062,7 +1433,7 @@ BooleanOperator EqualityOperator() throws ParseException {
   private Token jj_scanpos, jj_lastpos;
   private int jj_la;
   private int jj_gen;
-  final private int[] jj_la1 = new int[29];
+  final private int[] jj_la1 = new int[45];
   static private int[] jj_la1_0;
   static private int[] jj_la1_1;
   static {
@@ -1070,10 +1441,10 @@ BooleanOperator EqualityOperator() throws ParseException {
 	   jj_la1_init_1();
 	}
 	private static void jj_la1_init_0() {
-	   jj_la1_0 = new int[] {0x200000,0x100000,0x280000,0x8000000,0x700,0x700,0x800000,0x30804000,0x30804000,0x1000000,0x30030000,0x418fc,0x30236000,0x30004000,0x4000000,0x30004000,0x30000000,0x40000000,0x80000000,0x0,0x0,0x30000000,0x80000000,0x0,0x30000000,0x30000,0x200000,0xc,0xf0,};
+	   jj_la1_0 = new int[] {0x100000,0x0,0x80000,0x200000,0x0,0x4000000,0x40000000,0x8000000,0x100000,0x3000000,0x3000000,0x800000,0x10000000,0x8000000,0x14000000,0x0,0x700,0x700,0x40000000,0x40004000,0x40004000,0x80000000,0x30000,0x418fc,0x43f80000,0x10036000,0x4000,0x0,0x4000,0x0,0x0,0x80000000,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x30000,0x10000000,0xc,0xf0,};
 	}
 	private static void jj_la1_init_1() {
-	   jj_la1_1 = new int[] {0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x1,0x2,0x0,0x0,0x2,0x0,0x0,0x0,0x0,0x0,};
+	   jj_la1_1 = new int[] {0x0,0x2,0x0,0x0,0x2,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x0,0x4,0x0,0x0,0x0,0x18,0x18,0x0,0x18,0x0,0x0,0x18,0x18,0x2,0x18,0x18,0x1,0x0,0x18,0x20,0x40,0x80,0x100,0x18,0x40,0x100,0x18,0x0,0x0,0x0,0x0,};
 	}
   final private JJCalls[] jj_2_rtns = new JJCalls[3];
   private boolean jj_rescan = false;
@@ -1090,7 +1461,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1106,7 +1477,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 jj_ntk = -1;
 	 jjtree.reset();
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1117,7 +1488,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1137,7 +1508,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 jj_ntk = -1;
 	 jjtree.reset();
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1147,7 +1518,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 token = new Token();
 	 jj_ntk = -1;
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1158,7 +1529,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 	 jj_ntk = -1;
 	 jjtree.reset();
 	 jj_gen = 0;
-	 for (int i = 0; i < 29; i++) jj_la1[i] = -1;
+	 for (int i = 0; i < 45; i++) jj_la1[i] = -1;
 	 for (int i = 0; i < jj_2_rtns.length; i++) jj_2_rtns[i] = new JJCalls();
   }
 
@@ -1284,12 +1655,12 @@ BooleanOperator EqualityOperator() throws ParseException {
   /** Generate ParseException. */
   public ParseException generateParseException() {
 	 jj_expentries.clear();
-	 boolean[] la1tokens = new boolean[35];
+	 boolean[] la1tokens = new boolean[42];
 	 if (jj_kind >= 0) {
 	   la1tokens[jj_kind] = true;
 	   jj_kind = -1;
 	 }
-	 for (int i = 0; i < 29; i++) {
+	 for (int i = 0; i < 45; i++) {
 	   if (jj_la1[i] == jj_gen) {
 		 for (int j = 0; j < 32; j++) {
 		   if ((jj_la1_0[i] & (1<<j)) != 0) {
@@ -1301,7 +1672,7 @@ BooleanOperator EqualityOperator() throws ParseException {
 		 }
 	   }
 	 }
-	 for (int i = 0; i < 35; i++) {
+	 for (int i = 0; i < 42; i++) {
 	   if (la1tokens[i]) {
 		 jj_expentry = new int[1];
 		 jj_expentry[0] = i;
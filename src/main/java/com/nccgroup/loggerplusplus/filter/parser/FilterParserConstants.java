@@ -45,37 +45,51 @@ public interface FilterParserConstants {
   /** RegularExpression Id. */
   int MATCHES = 18;
   /** RegularExpression Id. */
-  int LPAREN = 19;
+  int GROUP = 19;
   /** RegularExpression Id. */
-  int RPAREN = 20;
+  int BY = 20;
   /** RegularExpression Id. */
-  int INVERSE = 21;
+  int AGG = 21;
   /** RegularExpression Id. */
-  int DOT = 22;
+  int ORDER = 22;
   /** RegularExpression Id. */
-  int IDENTIFIER = 23;
+  int LIMIT = 23;
   /** RegularExpression Id. */
-  int ARRAY_START = 24;
+  int ASC = 24;
   /** RegularExpression Id. */
-  int ARRAY_END = 25;
+  int DESC = 25;
   /** RegularExpression Id. */
-  int ARRAY_SEPARATOR = 26;
+  int LPAREN = 26;
   /** RegularExpression Id. */
-  int ALIAS_SYMBOL = 27;
+  int RPAREN = 27;
   /** RegularExpression Id. */
-  int OPEN_SINGLE_QUOTE_STRING = 28;
+  int INVERSE = 28;
   /** RegularExpression Id. */
-  int OPEN_DOUBLE_QUOTE_STRING = 29;
+  int DOT = 29;
   /** RegularExpression Id. */
-  int SINGLE_STRING_BODY = 30;
+  int IDENTIFIER = 30;
   /** RegularExpression Id. */
-  int CLOSE_SINGLE_QUOTE_STRING = 31;
+  int ARRAY_START = 31;
   /** RegularExpression Id. */
-  int DOUBLE_STRING_BODY = 32;
+  int ARRAY_END = 32;
   /** RegularExpression Id. */
-  int CLOSE_DOUBLE_QUOTE_STRING = 33;
+  int ARRAY_SEPARATOR = 33;
   /** RegularExpression Id. */
-  int UNKNOWN = 34;
+  int ALIAS_SYMBOL = 34;
+  /** RegularExpression Id. */
+  int OPEN_SINGLE_QUOTE_STRING = 35;
+  /** RegularExpression Id. */
+  int OPEN_DOUBLE_QUOTE_STRING = 36;
+  /** RegularExpression Id. */
+  int SINGLE_STRING_BODY = 37;
+  /** RegularExpression Id. */
+  int CLOSE_SINGLE_QUOTE_STRING = 38;
+  /** RegularExpression Id. */
+  int DOUBLE_STRING_BODY = 39;
+  /** RegularExpression Id. */
+  int CLOSE_DOUBLE_QUOTE_STRING = 40;
+  /** RegularExpression Id. */
+  int UNKNOWN = 41;
 
   /** Lexical state. */
   int DEFAULT = 0;
@@ -105,6 +119,13 @@ public interface FilterParserConstants {
     "<REGEXLITERAL_IN_FORWARD_SLASHES>",
     "<REGEX_IN_FORWARD_SLASHES>",
     "\"MATCHES\"",
+    "\"GROUP\"",
+    "\"BY\"",
+    "\"AGG\"",
+    "\"ORDER\"",
+    "\"LIMIT\"",
+    "\"ASC\"",
+    "\"DESC\"",
     "\"(\"",
     "\")\"",
     "<INVERSE>",
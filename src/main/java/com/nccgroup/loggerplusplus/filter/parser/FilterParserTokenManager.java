@@ -1,6 +1,26 @@
 /* FilterParserTokenManager.java */
 /* Generated By:JJTree&JavaCC: Do not edit this line. FilterParserTokenManager.java */
 package com.nccgroup.loggerplusplus.filter.parser;
+import com.nccgroup.loggerplusplus.filter.LogicalOperator;
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.filter.aggregate.Aggregate;
+import com.nccgroup.loggerplusplus.filter.aggregate.AggregateQuery;
+import com.nccgroup.loggerplusplus.filter.aggregate.TopQuery;
+import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.FieldGroup;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
+import com.nccgroup.loggerplusplus.logview.processor.LogProcessor;
+import static com.nccgroup.loggerplusplus.logentry.LogEntryField.getFieldsInGroup;
 
 /** Token Manager. */
 public class FilterParserTokenManager implements FilterParserConstants {
@@ -24,25 +44,25 @@ private int jjMoveStringLiteralDfa0_0(){
       case 33:
          return jjMoveStringLiteralDfa1_0(0x8L);
       case 34:
-         jjmatchedKind = 29;
+         jjmatchedKind = 36;
          return jjMoveNfa_0(0, 0);
       case 35:
-         jjmatchedKind = 27;
+         jjmatchedKind = 34;
          return jjMoveNfa_0(0, 0);
       case 39:
-         jjmatchedKind = 28;
+         jjmatchedKind = 35;
          return jjMoveNfa_0(0, 0);
       case 40:
-         jjmatchedKind = 19;
+         jjmatchedKind = 26;
          return jjMoveNfa_0(0, 0);
       case 41:
-         jjmatchedKind = 20;
+         jjmatchedKind = 27;
          return jjMoveNfa_0(0, 0);
       case 44:
-         jjmatchedKind = 26;
+         jjmatchedKind = 33;
          return jjMoveNfa_0(0, 0);
       case 46:
-         jjmatchedKind = 22;
+         jjmatchedKind = 29;
          return jjMoveNfa_0(0, 0);
       case 60:
          jjmatchedKind = 5;
@@ -50,24 +70,48 @@ private int jjMoveStringLiteralDfa0_0(){
       case 62:
          jjmatchedKind = 4;
          return jjMoveStringLiteralDfa1_0(0x40L);
+      case 65:
+         return jjMoveStringLiteralDfa1_0(0x1200000L);
+      case 66:
+         return jjMoveStringLiteralDfa1_0(0x100000L);
       case 67:
          return jjMoveStringLiteralDfa1_0(0x800L);
+      case 68:
+         return jjMoveStringLiteralDfa1_0(0x2000000L);
+      case 71:
+         return jjMoveStringLiteralDfa1_0(0x80000L);
       case 73:
          return jjMoveStringLiteralDfa1_0(0x1000L);
+      case 76:
+         return jjMoveStringLiteralDfa1_0(0x800000L);
       case 77:
          return jjMoveStringLiteralDfa1_0(0x40000L);
+      case 79:
+         return jjMoveStringLiteralDfa1_0(0x400000L);
       case 91:
-         jjmatchedKind = 24;
+         jjmatchedKind = 31;
          return jjMoveNfa_0(0, 0);
       case 93:
-         jjmatchedKind = 25;
+         jjmatchedKind = 32;
          return jjMoveNfa_0(0, 0);
+      case 97:
+         return jjMoveStringLiteralDfa1_0(0x1200000L);
+      case 98:
+         return jjMoveStringLiteralDfa1_0(0x100000L);
       case 99:
          return jjMoveStringLiteralDfa1_0(0x800L);
+      case 100:
+         return jjMoveStringLiteralDfa1_0(0x2000000L);
+      case 103:
+         return jjMoveStringLiteralDfa1_0(0x80000L);
       case 105:
          return jjMoveStringLiteralDfa1_0(0x1000L);
+      case 108:
+         return jjMoveStringLiteralDfa1_0(0x800000L);
       case 109:
          return jjMoveStringLiteralDfa1_0(0x40000L);
+      case 111:
+         return jjMoveStringLiteralDfa1_0(0x400000L);
       default :
          return jjMoveNfa_0(0, 0);
    }
@@ -98,6 +142,12 @@ private int jjMoveStringLiteralDfa1_0(long active0){
          break;
       case 65:
          return jjMoveStringLiteralDfa2_0(active0, 0x40000L);
+      case 69:
+         return jjMoveStringLiteralDfa2_0(active0, 0x2000000L);
+      case 71:
+         return jjMoveStringLiteralDfa2_0(active0, 0x200000L);
+      case 73:
+         return jjMoveStringLiteralDfa2_0(active0, 0x800000L);
       case 78:
          if ((active0 & 0x1000L) != 0L)
          {
@@ -107,8 +157,25 @@ private int jjMoveStringLiteralDfa1_0(long active0){
          break;
       case 79:
          return jjMoveStringLiteralDfa2_0(active0, 0x800L);
+      case 82:
+         return jjMoveStringLiteralDfa2_0(active0, 0x480000L);
+      case 83:
+         return jjMoveStringLiteralDfa2_0(active0, 0x1000000L);
+      case 89:
+         if ((active0 & 0x100000L) != 0L)
+         {
+            jjmatchedKind = 20;
+            jjmatchedPos = 1;
+         }
+         break;
       case 97:
          return jjMoveStringLiteralDfa2_0(active0, 0x40000L);
+      case 101:
+         return jjMoveStringLiteralDfa2_0(active0, 0x2000000L);
+      case 103:
+         return jjMoveStringLiteralDfa2_0(active0, 0x200000L);
+      case 105:
+         return jjMoveStringLiteralDfa2_0(active0, 0x800000L);
       case 110:
          if ((active0 & 0x1000L) != 0L)
          {
@@ -118,6 +185,17 @@ private int jjMoveStringLiteralDfa1_0(long active0){
          break;
       case 111:
          return jjMoveStringLiteralDfa2_0(active0, 0x800L);
+      case 114:
+         return jjMoveStringLiteralDfa2_0(active0, 0x480000L);
+      case 115:
+         return jjMoveStringLiteralDfa2_0(active0, 0x1000000L);
+      case 121:
+         if ((active0 & 0x100000L) != 0L)
+         {
+            jjmatchedKind = 20;
+            jjmatchedPos = 1;
+         }
+         break;
       default :
          break;
    }
@@ -132,12 +210,56 @@ private int jjMoveStringLiteralDfa2_0(long old0, long active0){
    }
    switch(curChar)
    {
+      case 67:
+         if ((active0 & 0x1000000L) != 0L)
+         {
+            jjmatchedKind = 24;
+            jjmatchedPos = 2;
+         }
+         break;
+      case 68:
+         return jjMoveStringLiteralDfa3_0(active0, 0x400000L);
+      case 71:
+         if ((active0 & 0x200000L) != 0L)
+         {
+            jjmatchedKind = 21;
+            jjmatchedPos = 2;
+         }
+         break;
+      case 77:
+         return jjMoveStringLiteralDfa3_0(active0, 0x800000L);
       case 78:
          return jjMoveStringLiteralDfa3_0(active0, 0x800L);
+      case 79:
+         return jjMoveStringLiteralDfa3_0(active0, 0x80000L);
+      case 83:
+         return jjMoveStringLiteralDfa3_0(active0, 0x2000000L);
       case 84:
          return jjMoveStringLiteralDfa3_0(active0, 0x40000L);
+      case 99:
+         if ((active0 & 0x1000000L) != 0L)
+         {
+            jjmatchedKind = 24;
+            jjmatchedPos = 2;
+         }
+         break;
+      case 100:
+         return jjMoveStringLiteralDfa3_0(active0, 0x400000L);
+      case 103:
+         if ((active0 & 0x200000L) != 0L)
+         {
+            jjmatchedKind = 21;
+            jjmatchedPos = 2;
+         }
+         break;
+      case 109:
+         return jjMoveStringLiteralDfa3_0(active0, 0x800000L);
       case 110:
          return jjMoveStringLiteralDfa3_0(active0, 0x800L);
+      case 111:
+         return jjMoveStringLiteralDfa3_0(active0, 0x80000L);
+      case 115:
+         return jjMoveStringLiteralDfa3_0(active0, 0x2000000L);
       case 116:
          return jjMoveStringLiteralDfa3_0(active0, 0x40000L);
       default :
@@ -155,13 +277,35 @@ private int jjMoveStringLiteralDfa3_0(long old0, long active0){
    switch(curChar)
    {
       case 67:
+         if ((active0 & 0x2000000L) != 0L)
+         {
+            jjmatchedKind = 25;
+            jjmatchedPos = 3;
+         }
          return jjMoveStringLiteralDfa4_0(active0, 0x40000L);
+      case 69:
+         return jjMoveStringLiteralDfa4_0(active0, 0x400000L);
+      case 73:
+         return jjMoveStringLiteralDfa4_0(active0, 0x800000L);
       case 84:
          return jjMoveStringLiteralDfa4_0(active0, 0x800L);
+      case 85:
+         return jjMoveStringLiteralDfa4_0(active0, 0x80000L);
       case 99:
+         if ((active0 & 0x2000000L) != 0L)
+         {
+            jjmatchedKind = 25;
+            jjmatchedPos = 3;
+         }
          return jjMoveStringLiteralDfa4_0(active0, 0x40000L);
+      case 101:
+         return jjMoveStringLiteralDfa4_0(active0, 0x400000L);
+      case 105:
+         return jjMoveStringLiteralDfa4_0(active0, 0x800000L);
       case 116:
          return jjMoveStringLiteralDfa4_0(active0, 0x800L);
+      case 117:
+         return jjMoveStringLiteralDfa4_0(active0, 0x80000L);
       default :
          break;
    }
@@ -180,10 +324,52 @@ private int jjMoveStringLiteralDfa4_0(long old0, long active0){
          return jjMoveStringLiteralDfa5_0(active0, 0x800L);
       case 72:
          return jjMoveStringLiteralDfa5_0(active0, 0x40000L);
+      case 80:
+         if ((active0 & 0x80000L) != 0L)
+         {
+            jjmatchedKind = 19;
+            jjmatchedPos = 4;
+         }
+         break;
+      case 82:
+         if ((active0 & 0x400000L) != 0L)
+         {
+            jjmatchedKind = 22;
+            jjmatchedPos = 4;
+         }
+         break;
+      case 84:
+         if ((active0 & 0x800000L) != 0L)
+         {
+            jjmatchedKind = 23;
+            jjmatchedPos = 4;
+         }
+         break;
       case 97:
          return jjMoveStringLiteralDfa5_0(active0, 0x800L);
       case 104:
          return jjMoveStringLiteralDfa5_0(active0, 0x40000L);
+      case 112:
+         if ((active0 & 0x80000L) != 0L)
+         {
+            jjmatchedKind = 19;
+            jjmatchedPos = 4;
+         }
+         break;
+      case 114:
+         if ((active0 & 0x400000L) != 0L)
+         {
+            jjmatchedKind = 22;
+            jjmatchedPos = 4;
+         }
+         break;
+      case 116:
+         if ((active0 & 0x800000L) != 0L)
+         {
+            jjmatchedKind = 23;
+            jjmatchedPos = 4;
+         }
+         break;
       default :
          break;
    }
@@ -310,8 +496,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                      { jjCheckNAdd(27); }
                   else if (curChar == 33)
                   {
-                     if (kind > 21)
-                        kind = 21;
+                     if (kind > 28)
+                        kind = 28;
                   }
                   else if (curChar == 47)
                      { jjCheckNAddTwoStates(40, 42); }
@@ -321,8 +507,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                      jjstateSet[jjnewStateCnt++] = 1;
                   if ((0x3ff000000000000L & l) != 0L)
                   {
-                     if (kind > 23)
-                        kind = 23;
+                     if (kind > 30)
+                        kind = 30;
                      { jjCheckNAdd(48); }
                   }
                   else if (curChar == 47)
@@ -405,14 +591,14 @@ private int jjMoveNfa_0(int startState, int curPos)
                      kind = 17;
                   break;
                case 44:
-                  if (curChar == 33 && kind > 21)
-                     kind = 21;
+                  if (curChar == 33 && kind > 28)
+                     kind = 28;
                   break;
                case 48:
                   if ((0x3ff000000000000L & l) == 0L)
                      break;
-                  if (kind > 23)
-                     kind = 23;
+                  if (kind > 30)
+                     kind = 30;
                   { jjCheckNAdd(48); }
                   break;
                default : break;
@@ -429,8 +615,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 0:
                   if ((0x7fffffe87fffffeL & l) != 0L)
                   {
-                     if (kind > 23)
-                        kind = 23;
+                     if (kind > 30)
+                        kind = 30;
                      { jjCheckNAdd(48); }
                   }
                   else if (curChar == 94)
@@ -575,8 +761,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                      { jjCheckNAddStates(3, 5); }
                   break;
                case 45:
-                  if ((0x10000000100000L & l) != 0L && kind > 21)
-                     kind = 21;
+                  if ((0x10000000100000L & l) != 0L && kind > 28)
+                     kind = 28;
                   break;
                case 46:
                   if ((0x800000008000L & l) != 0L)
@@ -589,8 +775,8 @@ private int jjMoveNfa_0(int startState, int curPos)
                case 48:
                   if ((0x7fffffe87fffffeL & l) == 0L)
                      break;
-                  if (kind > 23)
-                     kind = 23;
+                  if (kind > 30)
+                     kind = 30;
                   { jjCheckNAdd(48); }
                   break;
                default : break;
@@ -665,7 +851,7 @@ private int jjMoveStringLiteralDfa0_1(){
    switch(curChar)
    {
       case 39:
-         return jjStopAtPos(0, 31);
+         return jjStopAtPos(0, 38);
       default :
          return jjMoveNfa_1(3, 0);
    }
@@ -692,13 +878,13 @@ private int jjMoveNfa_1(int startState, int curPos)
                case 2:
                   if ((0xffffff7fffffffffL & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 37)
+                     kind = 37;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                case 1:
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 37)
+                     kind = 37;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -715,8 +901,8 @@ private int jjMoveNfa_1(int startState, int curPos)
                case 3:
                   if ((0xffffffffefffffffL & l) != 0L)
                   {
-                     if (kind > 30)
-                        kind = 30;
+                     if (kind > 37)
+                        kind = 37;
                      { jjCheckNAddTwoStates(0, 2); }
                   }
                   else if (curChar == 92)
@@ -727,15 +913,15 @@ private int jjMoveNfa_1(int startState, int curPos)
                      jjstateSet[jjnewStateCnt++] = 1;
                   break;
                case 1:
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 37)
+                     kind = 37;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                case 2:
                   if ((0xffffffffefffffffL & l) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 37)
+                     kind = 37;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -755,8 +941,8 @@ private int jjMoveNfa_1(int startState, int curPos)
                case 1:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 30)
-                     kind = 30;
+                  if (kind > 37)
+                     kind = 37;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -790,7 +976,7 @@ private int jjMoveStringLiteralDfa0_2(){
    switch(curChar)
    {
       case 34:
-         return jjStopAtPos(0, 33);
+         return jjStopAtPos(0, 40);
       default :
          return jjMoveNfa_2(3, 0);
    }
@@ -817,13 +1003,13 @@ private int jjMoveNfa_2(int startState, int curPos)
                case 2:
                   if ((0xfffffffbffffffffL & l) == 0L)
                      break;
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 39)
+                     kind = 39;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                case 1:
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 39)
+                     kind = 39;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -840,8 +1026,8 @@ private int jjMoveNfa_2(int startState, int curPos)
                case 3:
                   if ((0xffffffffefffffffL & l) != 0L)
                   {
-                     if (kind > 32)
-                        kind = 32;
+                     if (kind > 39)
+                        kind = 39;
                      { jjCheckNAddTwoStates(0, 2); }
                   }
                   else if (curChar == 92)
@@ -852,15 +1038,15 @@ private int jjMoveNfa_2(int startState, int curPos)
                      jjstateSet[jjnewStateCnt++] = 1;
                   break;
                case 1:
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 39)
+                     kind = 39;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                case 2:
                   if ((0xffffffffefffffffL & l) == 0L)
                      break;
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 39)
+                     kind = 39;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -880,8 +1066,8 @@ private int jjMoveNfa_2(int startState, int curPos)
                case 1:
                   if ((jjbitVec0[i2] & l2) == 0L)
                      break;
-                  if (kind > 32)
-                     kind = 32;
+                  if (kind > 39)
+                     kind = 39;
                   { jjCheckNAddTwoStates(0, 2); }
                   break;
                default : break;
@@ -905,8 +1091,9 @@ private int jjMoveNfa_2(int startState, int curPos)
 /** Token literal values. */
 public static final String[] jjstrLiteralImages = {
 "", null, null, "\41\75", "\76", "\74", "\76\75", "\74\75", null, null, null, 
-null, null, null, null, null, null, null, null, "\50", "\51", null, "\56", null, 
-"\133", "\135", "\54", "\43", "\47", "\42", null, "\47", null, "\42", null, };
+null, null, null, null, null, null, null, null, null, null, null, null, null, null, 
+null, "\50", "\51", null, "\56", null, "\133", "\135", "\54", "\43", "\47", "\42", 
+null, "\47", null, "\42", null, };
 protected Token jjFillToken()
 {
    final Token t;
@@ -921,7 +1108,9 @@ protected Token jjFillToken()
    beginColumn = input_stream.getBeginColumn();
    endLine = input_stream.getEndLine();
    endColumn = input_stream.getEndColumn();
-   t = Token.newToken(jjmatchedKind, curTokenImage);
+   t = Token.newToken(jjmatchedKind);
+   t.kind = jjmatchedKind;
+   t.image = curTokenImage;
 
    t.beginLine = beginLine;
    t.endLine = endLine;
@@ -968,27 +1157,27 @@ public Token getNextToken()
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_0();
-       if (jjmatchedPos == 0 && jjmatchedKind > 34)
+       if (jjmatchedPos == 0 && jjmatchedKind > 41)
        {
-          jjmatchedKind = 34;
+          jjmatchedKind = 41;
        }
        break;
      case 1:
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_1();
-       if (jjmatchedPos == 0 && jjmatchedKind > 34)
+       if (jjmatchedPos == 0 && jjmatchedKind > 41)
        {
-          jjmatchedKind = 34;
+          jjmatchedKind = 41;
        }
        break;
      case 2:
        jjmatchedKind = 0x7fffffff;
        jjmatchedPos = 0;
        curPos = jjMoveStringLiteralDfa0_2();
-       if (jjmatchedPos == 0 && jjmatchedKind > 34)
+       if (jjmatchedPos == 0 && jjmatchedKind > 41)
        {
-          jjmatchedKind = 34;
+          jjmatchedKind = 41;
        }
        break;
    }
@@ -1150,10 +1339,10 @@ public static final String[] lexStateNames = {
 /** Lex State array. */
 public static final int[] jjnewLexState = {
    -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 
-   -1, -1, -1, 1, 2, -1, 0, -1, 0, -1, 
+   -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1, 2, -1, 0, -1, 0, -1, 
 };
 static final long[] jjtoToken = {
-   0x7fffffffdL, 
+   0x3fffffffffdL, 
 };
 static final long[] jjtoSkip = {
    0x2L, 
@@ -2,6 +2,7 @@
 package com.nccgroup.loggerplusplus.filter.parser;
 
 import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.KeyedField;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
 
 import java.util.Date;
@@ -28,7 +29,8 @@ public class SanityCheckVisitor implements FilterParserVisitor{
     defaultVisit(node, visitorData);
 
     Class leftType, rightType;
-    leftType = (node.left instanceof LogEntryField) ? ((LogEntryField) node.left).getType() : node.left.getClass();
+    if(node.left instanceof KeyedField) leftType = String.class;
+    else leftType = (node.left instanceof LogEntryField) ? ((LogEntryField) node.left).getType() : node.left.getClass();
     rightType = (node.right instanceof LogEntryField) ? ((LogEntryField) node.right).getType() : node.right.getClass();
     if(leftType == null || rightType == null) return visitorData;
 
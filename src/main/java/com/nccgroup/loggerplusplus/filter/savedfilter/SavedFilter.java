@@ -11,6 +11,7 @@ public class SavedFilter {
     private String name;
     private LogFilter filter;
     private String filterString;
+    private boolean materialised;
 
     public SavedFilter(FilterLibraryController filterLibraryController, String name, String filterString) throws ParseException {
         this.name = name.replaceAll("[^a-zA-Z0-9_.]", "_");
@@ -44,6 +45,17 @@ public class SavedFilter {
         this.filterString = filterString;
     }
 
+    /**
+     * @return If the entries matching the filter are kept up to date as the log changes, so switching to it needs no evaluation.
+     */
+    public boolean isMaterialised() {
+        return materialised;
+    }
+
+    public void setMaterialised(boolean materialised) {
+        this.materialised = materialised;
+    }
+
     @Override
     public boolean equals(Object o) {
         if(o instanceof SavedFilter){
@@ -5,14 +5,13 @@ import com.nccgroup.loggerplusplus.LoggerPlusPlus;
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilter;
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilterListener;
 import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
-import com.nccgroup.loggerplusplus.preferences.PreferencesController;
+import com.nccgroup.loggerplusplus.filter.parser.ParseException;
 import com.nccgroup.loggerplusplus.util.Globals;
 import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
 
 import java.awt.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.UUID;
+import java.util.*;
+import java.util.List;
 
 public class FilterLibraryController {
 
@@ -23,14 +22,26 @@ public class FilterLibraryController {
     private final ArrayList<SavedFilter> savedFilters;
     private final HashMap<UUID, ColorFilter> colorFilters;
     private final ArrayList<ColorFilterListener> colorFilterListeners;
+    private final ArrayList<FilterRecompileListener> recompileListeners;
+    private final HashMap<String, Set<LogFilter>> aliasDependents;
 
-    public FilterLibraryController(LoggerPlusPlus loggerPlusPlus, PreferencesController preferencesController){
+    public FilterLibraryController(LoggerPlusPlus loggerPlusPlus, Preferences preferences){
         this.loggerPlusPlus = loggerPlusPlus;
-        this.preferences = preferencesController.getPreferences();
+        this.preferences = preferences;
         this.listeners = new ArrayList<>();
         this.colorFilterListeners = new ArrayList<>();
+        this.recompileListeners = new ArrayList<>();
         this.savedFilters = preferences.getSetting(Globals.PREF_SAVED_FILTERS);
         this.colorFilters = preferences.getSetting(Globals.PREF_COLOR_FILTERS);
+        this.aliasDependents = new HashMap<>();
+
+        //Filters loaded from preferences were compiled before the library existed.
+        for (SavedFilter savedFilter : savedFilters) {
+            if(savedFilter.getFilter() != null) registerAliasDependencies(savedFilter.getFilter());
+        }
+        for (ColorFilter colorFilter : colorFilters.values()) {
+            if(colorFilter.getFilter() != null) registerAliasDependencies(colorFilter.getFilter());
+        }
         this.panel = new FilterLibraryPanel(this);
     }
 
@@ -46,12 +57,14 @@ public class FilterLibraryController {
         return this.savedFilters;
     }
 
-    public void addFilter(SavedFilter savedFilter){
+    public void addFilter(SavedFilter savedFilter) throws ParseException {
+        if(savedFilter.getFilter() != null) checkForAliasCycle(savedFilter.getName(), savedFilter.getFilter());
         int index;
         synchronized (this.savedFilters) {
             this.savedFilters.add(savedFilter);
             index = this.savedFilters.size()-1;
         }
+        invalidateAlias(savedFilter.getName());
         for (FilterLibraryListener listener : this.listeners) {
             try{
                 listener.onFilterAdded(savedFilter, index);
@@ -68,6 +81,7 @@ public class FilterLibraryController {
             index = this.savedFilters.indexOf(filter);
             this.savedFilters.remove(index);
         }
+        invalidateAlias(filter.getName());
         for (FilterLibraryListener listener : this.listeners) {
             try{
                 listener.onFilterRemoved(filter, index);
@@ -78,6 +92,153 @@ public class FilterLibraryController {
         saveFilters();
     }
 
+    /**
+     * Rename a saved filter, recompiling any filters which referenced either the old or new name.
+     * @throws ParseException If the new name would make the saved filter reference itself.
+     */
+    public void renameFilter(SavedFilter savedFilter, String name) throws ParseException {
+        String oldName = savedFilter.getName();
+        savedFilter.setName(name);
+        if(savedFilter.getFilter() != null){
+            try {
+                checkForAliasCycle(savedFilter.getName(), savedFilter.getFilter());
+            }catch (ParseException e){
+                savedFilter.setName(oldName);
+                throw e;
+            }
+        }
+        invalidateAlias(oldName);
+        invalidateAlias(savedFilter.getName());
+        notifyFilterModified(savedFilter);
+        saveFilters();
+    }
+
+    /**
+     * Change the filter of a saved filter, recompiling any filters which reference it.
+     * If the new filter is invalid, the saved filter keeps the string but is left without a filter.
+     * @throws ParseException If the filter is invalid or would make the saved filter reference itself.
+     */
+    public void setSavedFilterString(SavedFilter savedFilter, String filterString) throws ParseException {
+        try {
+            LogFilter filter = new LogFilter(this, filterString);
+            checkForAliasCycle(savedFilter.getName(), filter);
+            savedFilter.setFilter(filter);
+        }catch (ParseException e){
+            savedFilter.setFilterString(filterString);
+            savedFilter.setFilter(null);
+            throw e;
+        }finally {
+            invalidateAlias(savedFilter.getName());
+            notifyFilterModified(savedFilter);
+            saveFilters();
+        }
+    }
+
+    /**
+     * Set whether the entries matching a saved filter are kept up to date as the log changes.
+     */
+    public void setMaterialised(SavedFilter savedFilter, boolean materialised){
+        if(savedFilter.isMaterialised() == materialised) return;
+        savedFilter.setMaterialised(materialised);
+        notifyFilterModified(savedFilter);
+        saveFilters();
+    }
+
+    private void notifyFilterModified(SavedFilter savedFilter){
+        int index = this.savedFilters.indexOf(savedFilter);
+        for (FilterLibraryListener listener : this.listeners) {
+            try{
+                listener.onFilterModified(savedFilter, index);
+            }catch (Exception e){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Record the aliases a filter references, so it can be recompiled when the saved filters they refer to change.
+     * Filters are held weakly, and need not be unregistered.
+     */
+    public void registerAliasDependencies(LogFilter filter){
+        synchronized (this.aliasDependents){
+            for (String alias : filter.getAliases()) {
+                this.aliasDependents.computeIfAbsent(alias, key -> Collections.newSetFromMap(new WeakHashMap<>())).add(filter);
+            }
+        }
+    }
+
+    /**
+     * Check that using a filter as the saved filter with the given name would not create a cycle of aliases.
+     */
+    public void checkForAliasCycle(String name, LogFilter filter) throws ParseException {
+        Deque<String> pending = new ArrayDeque<>(filter.getAliases());
+        Set<String> visited = new HashSet<>();
+        while (!pending.isEmpty()){
+            String alias = pending.pop();
+            if(alias.equalsIgnoreCase(name)){
+                throw new ParseException("Recursion detected in filter. Alias identifier: " + name);
+            }
+            if(!visited.add(alias)) continue;
+            for (SavedFilter savedFilter : this.savedFilters) {
+                if(savedFilter.getName().equalsIgnoreCase(alias) && savedFilter.getFilter() != null){
+                    pending.addAll(savedFilter.getFilter().getAliases());
+                }
+            }
+        }
+    }
+
+    /**
+     * Recompile the filters which reference an alias, directly or through other saved filters,
+     * and retest any color filters and saved filters among them.
+     * Other filters, such as the filter applied to the log table, are reapplied by the recompile listeners.
+     */
+    private void invalidateAlias(String alias){
+        Set<LogFilter> recompiled = Collections.newSetFromMap(new IdentityHashMap<>());
+        invalidateAlias(alias.toLowerCase(), recompiled, 0);
+
+        if(recompiled.isEmpty()) return;
+        for (ColorFilter colorFilter : new ArrayList<>(this.colorFilters.values())) {
+            if(recompiled.contains(colorFilter.getFilter())){
+                updateColorFilter(colorFilter);
+            }
+        }
+        for (SavedFilter savedFilter : new ArrayList<>(this.savedFilters)) {
+            if(recompiled.contains(savedFilter.getFilter())){
+                notifyFilterModified(savedFilter);
+            }
+        }
+        for (FilterRecompileListener listener : this.recompileListeners) {
+            try{
+                listener.onFiltersRecompiled(recompiled);
+            }catch (Exception e){
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void invalidateAlias(String alias, Set<LogFilter> recompiled, int depth){
+        //Cycles are rejected when saved filters change, but don't trust filters loaded from preferences.
+        if(depth > this.savedFilters.size()) return;
+
+        List<LogFilter> dependents;
+        synchronized (this.aliasDependents){
+            Set<LogFilter> filters = this.aliasDependents.get(alias);
+            if(filters == null) return;
+            dependents = new ArrayList<>(filters);
+        }
+
+        for (LogFilter dependent : dependents) {
+            dependent.recompile();
+            recompiled.add(dependent);
+            //Saved filters which were recompiled must have their own dependents recompiled too.
+            for (SavedFilter savedFilter : this.savedFilters) {
+                if(savedFilter.getFilter() == dependent){
+                    invalidateAlias(savedFilter.getName().toLowerCase(), recompiled, depth + 1);
+                }
+            }
+        }
+    }
+
     public void saveFilters(){
         this.preferences.setSetting(Globals.PREF_SAVED_FILTERS, savedFilters);
     }
@@ -90,6 +251,14 @@ public class FilterLibraryController {
         this.listeners.remove(listener);
     }
 
+    public void addFilterRecompileListener(FilterRecompileListener listener){
+        this.recompileListeners.add(listener);
+    }
+
+    public void removeFilterRecompileListener(FilterRecompileListener listener){
+        this.recompileListeners.remove(listener);
+    }
+
     public HashMap<UUID, ColorFilter> getColorFilters() {
         return colorFilters;
     }
@@ -17,13 +17,15 @@ import java.awt.event.MouseEvent;
 public class FilterLibraryPanel extends JPanel {
 
     private final FilterLibraryController libraryController;
+    private final FilterLibraryTableModel tableModel;
 
     public FilterLibraryPanel(FilterLibraryController libraryController){
         super(new BorderLayout());
 
         this.libraryController = libraryController;
 
-        JTable libraryTable = new JTable(new FilterLibraryTableModel(this.libraryController));
+        this.tableModel = new FilterLibraryTableModel(this.libraryController);
+        JTable libraryTable = new JTable(tableModel);
         libraryTable.setRowHeight(25);
         libraryTable.setFillsViewportHeight(true);
         libraryTable.setAutoResizeMode(JTable.AUTO_RESIZE_OFF);
@@ -31,8 +33,10 @@ public class FilterLibraryPanel extends JPanel {
         libraryTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
         ((JComponent) libraryTable.getDefaultRenderer(JButton.class)).setOpaque(true);
         libraryTable.getColumnModel().getColumn(1).setCellRenderer(new FilterRenderer());
-        libraryTable.getColumnModel().getColumn(2).setCellRenderer(new ButtonRenderer());
-        libraryTable.getColumnModel().getColumn(3).setCellRenderer(new ButtonRenderer());
+        libraryTable.getColumnModel().getColumn(2).setMaxWidth(100);
+        libraryTable.getColumnModel().getColumn(3).setMaxWidth(100);
+        libraryTable.getColumnModel().getColumn(4).setCellRenderer(new ButtonRenderer());
+        libraryTable.getColumnModel().getColumn(5).setCellRenderer(new ButtonRenderer());
 
         libraryTable.addMouseListener(new MouseAdapter() {
             @Override
@@ -71,4 +75,8 @@ public class FilterLibraryPanel extends JPanel {
         this.add(tableScrollPane, BorderLayout.CENTER);
         this.add(controlPanel, BorderLayout.SOUTH);
     }
+
+    public FilterLibraryTableModel getTableModel() {
+        return tableModel;
+    }
 }
@@ -2,25 +2,34 @@ package com.nccgroup.loggerplusplus.filterlibrary;
 
 import burp.BurpExtender;
 import com.nccgroup.loggerplusplus.LoggerPlusPlus;
-import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
 import com.nccgroup.loggerplusplus.filter.parser.ParseException;
 import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
+import com.nccgroup.loggerplusplus.logview.logtable.MatchCountListener;
+import com.nccgroup.loggerplusplus.logview.logtable.MaterialisedFilters;
 import com.nccgroup.loggerplusplus.util.userinterface.dialog.ColorFilterDialog;
 import com.nccgroup.loggerplusplus.util.MoreHelp;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
 
-public class FilterLibraryTableModel extends AbstractTableModel implements FilterLibraryListener {
+public class FilterLibraryTableModel extends AbstractTableModel implements FilterLibraryListener, MatchCountListener {
+
+    private static final int MATCHES_COLUMN = 3;
 
     private final FilterLibraryController controller;
+    //Saved filters whose counts have changed since the table was last updated.
+    private final Set<SavedFilter> changedCounts;
     JButton btnApplyFilter;
     JButton btnSetColorFilter;
-    private final String[] columnNames = {"Alias", "Snippet", "", ""};
+    private final String[] columnNames = {"Alias", "Snippet", "Materialised", "Matches", "", ""};
 
     public FilterLibraryTableModel(FilterLibraryController controller){
         this.controller = controller;
         this.controller.addFilterListener(this);
+        this.changedCounts = Collections.newSetFromMap(new IdentityHashMap<>());
         btnApplyFilter = new JButton("Set as LogFilter");
         btnSetColorFilter = new JButton("Use as Color LogFilter");
     }
@@ -45,12 +54,25 @@ public class FilterLibraryTableModel extends AbstractTableModel implements Filte
                 if(savedFilter.getFilter() == null) return savedFilter.getFilterString();
                 else return savedFilter.getFilter();
             }
-            case 2: return btnApplyFilter;
-            case 3: return btnSetColorFilter;
+            case 2: return savedFilter.isMaterialised();
+            case MATCHES_COLUMN: {
+                MaterialisedFilters materialisedFilters = controller.getLoggerPlusPlus().getLogViewController()
+                        .getLogTableController().getLogTableModel().getMaterialisedFilters();
+                return materialisedFilters.getMatchCount(savedFilter);
+            }
+            case 4: return btnApplyFilter;
+            case 5: return btnSetColorFilter;
         }
         return null;
     }
 
+    @Override
+    public Class<?> getColumnClass(int column) {
+        if(column == 2) return Boolean.class;
+        if(column == MATCHES_COLUMN) return Integer.class;
+        return Object.class;
+    }
+
     @Override
     public String getColumnName(int column) {
         return columnNames[column];
@@ -58,7 +80,7 @@ public class FilterLibraryTableModel extends AbstractTableModel implements Filte
 
     @Override
     public boolean isCellEditable(int rowIndex, int columnIndex) {
-        return columnIndex == 0 || columnIndex == 1;
+        return columnIndex == 0 || columnIndex == 1 || columnIndex == 2;
     }
 
     @Override
@@ -66,35 +88,40 @@ public class FilterLibraryTableModel extends AbstractTableModel implements Filte
         SavedFilter savedFilter = controller.getSavedFilters().get(row);
         if(savedFilter == null) return;
         if(column == 0) {
-            savedFilter.setName((String) value);
+            try {
+                controller.renameFilter(savedFilter, (String) value);
+            }catch (ParseException e){
+                JOptionPane.showMessageDialog(LoggerPlusPlus.instance.getMainViewController().getUiComponent(), e.getMessage(), "Alias Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
             if(!((String) value).equalsIgnoreCase(savedFilter.getName())){
                 JOptionPane.showMessageDialog(LoggerPlusPlus.instance.getMainViewController().getUiComponent(), "Alias names may only contain alphanumeric characters and the symbols period (.) and underscore (_)\n" +
                         "Invalid characters have been replaced with an underscore.", "Alias Error", JOptionPane.WARNING_MESSAGE);
             }
         }
+        if(column == 2){
+            controller.setMaterialised(savedFilter, (Boolean) value);
+        }
         if(column == 1){
             try{
-                savedFilter.setFilter(new LogFilter(LoggerPlusPlus.instance.getLibraryController(), (String) value));
+                controller.setSavedFilterString(savedFilter, (String) value);
             }catch (ParseException e){
                 //Not a valid filter...
-                savedFilter.setFilterString((String) value);
-                savedFilter.setFilter(null);
                 MoreHelp.showLargeOutputDialog("Filter Exception", "<html>" + e.getMessage().replaceAll("\n", "<br>") + "</html>");
 //                JOptionPane.showMessageDialog(LoggerPlusPlus.instance.getMainViewController().getUiComponent(), "<html><body style=\"max-height: 400px; max-width: 400px;\">" + e.getMessage().replaceAll("\n", "<br>") + "</html>", "Filter Exception", JOptionPane.ERROR_MESSAGE);
             }
         }
-        controller.saveFilters();
     }
 
     public void onClick(int row, int col) {
         if(row < 0 || row >= controller.getSavedFilters().size()) return;
         SavedFilter savedFilter = controller.getSavedFilters().get(row);
-        if(col == 2){
+        if(col == 4){
             controller.getLoggerPlusPlus().getLogViewController().getLogFilterController().setFilter(savedFilter.getFilterString());
             controller.getLoggerPlusPlus().getMainViewController().getTabbedPanel().setSelectedIndex(0);
             return;
         }
-        if(col == 3){
+        if(col == 5){
             controller.addColorFilter(savedFilter.getName(), savedFilter.getFilter());
             ColorFilterDialog dialog = new ColorFilterDialog(LoggerPlusPlus.instance.getLibraryController());
             dialog.setVisible(true);
@@ -122,4 +149,27 @@ public class FilterLibraryTableModel extends AbstractTableModel implements Filte
             this.fireTableRowsDeleted(index, index);
         });
     }
+
+    @Override
+    public void onMatchCountChanged(SavedFilter savedFilter) {
+        boolean scheduled;
+        synchronized (changedCounts) {
+            scheduled = !changedCounts.isEmpty();
+            changedCounts.add(savedFilter);
+        }
+        //Counts which change again before the table is updated are only updated once.
+        if (!scheduled) SwingUtilities.invokeLater(this::updateChangedCounts);
+    }
+
+    private void updateChangedCounts() {
+        Set<SavedFilter> changed;
+        synchronized (changedCounts) {
+            changed = Collections.newSetFromMap(new IdentityHashMap<>());
+            changed.addAll(changedCounts);
+            changedCounts.clear();
+        }
+        for (int row = 0; row < controller.getSavedFilters().size(); row++) {
+            if (changed.contains(controller.getSavedFilters().get(row))) fireTableCellUpdated(row, MATCHES_COLUMN);
+        }
+    }
 }
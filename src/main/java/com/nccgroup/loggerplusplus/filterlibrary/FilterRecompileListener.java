@@ -0,0 +1,13 @@
+package com.nccgroup.loggerplusplus.filterlibrary;
+
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+
+import java.util.Set;
+
+/**
+ * Notified when filters are recompiled because a saved filter they reference, directly or through
+ * other saved filters, has changed. Their cached results have been cleared, so they must be applied again.
+ */
+public interface FilterRecompileListener {
+    void onFiltersRecompiled(Set<LogFilter> filters);
+}
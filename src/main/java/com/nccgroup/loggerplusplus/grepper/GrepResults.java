@@ -1,6 +1,8 @@
 package com.nccgroup.loggerplusplus.grepper;
 
 import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.util.Latin1CharSequence;
+import com.nccgroup.loggerplusplus.util.RegexPrefilter;
 
 import java.util.ArrayList;
 import java.util.regex.Matcher;
@@ -8,13 +10,22 @@ import java.util.regex.Pattern;
 
 public class GrepResults {
     private final LogEntry entry;
+    private final RegexPrefilter prefilter;
     private int requestMatches = 0;
     private int responseMatches = 0;
     private ArrayList<Match> results;
 
 
     public GrepResults(Pattern pattern, LogEntry entry) {
+        this(pattern, RegexPrefilter.forPattern(pattern), entry);
+    }
+
+    /**
+     * @param prefilter Rejects messages the pattern can't match before running it, or null to always run it
+     */
+    public GrepResults(Pattern pattern, RegexPrefilter prefilter, LogEntry entry) {
         this.entry = entry;
+        this.prefilter = prefilter;
         this.results = new ArrayList<>();
 
         processEntry(pattern);
@@ -48,11 +59,14 @@ public class GrepResults {
     }
 
     private void processMatches(Pattern pattern, byte[] content, boolean isRequest){
-        final Matcher respMatcher = pattern.matcher(new String(content));
+        //Search the message in place, and only decode the text of the matches.
+        Latin1CharSequence message = new Latin1CharSequence(content);
+        if(prefilter != null && !prefilter.mayMatch(message)) return;
+        final Matcher respMatcher = pattern.matcher(message);
         while(respMatcher.find() && !Thread.currentThread().isInterrupted()){
             String[] groups = new String[respMatcher.groupCount()+1];
             for (int i = 0; i < groups.length; i++) {
-                groups[i] = respMatcher.group(i);
+                groups[i] = respMatcher.start(i) == -1 ? null : message.decode(respMatcher.start(i), respMatcher.end(i));
             }
 
             if(isRequest) {
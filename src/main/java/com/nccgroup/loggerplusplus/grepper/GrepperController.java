@@ -7,8 +7,10 @@ import com.nccgroup.loggerplusplus.logview.logtable.LogTableController;
 import com.nccgroup.loggerplusplus.preferences.PreferencesController;
 import com.nccgroup.loggerplusplus.util.Globals;
 import com.nccgroup.loggerplusplus.util.NamedThreadFactory;
+import com.nccgroup.loggerplusplus.util.RegexPrefilter;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -63,25 +65,26 @@ public class GrepperController {
         this.searchExecutor = Executors.newFixedThreadPool(searchThreads, new NamedThreadFactory("LPP-Grepper"));
 
         new Thread(() -> {
-            ArrayList<LogEntry> logEntries = new ArrayList<>(loggerPlusPlus.getLogViewController().getLogTableController().getLogTableModel().getData());
+            List<LogEntry> logEntries = loggerPlusPlus.getLogEntries();
             remainingEntries.getAndSet(logEntries.size());
 
             this.listeners.forEach(listener -> {
                 listener.onSearchStarted(pattern, logEntries.size());
             });
 
+            RegexPrefilter prefilter = RegexPrefilter.forPattern(pattern);
             for (LogEntry logEntry : logEntries) {
-                searchExecutor.submit(createProcessThread(logEntry, pattern, inScopeOnly));
+                searchExecutor.submit(createProcessThread(logEntry, pattern, prefilter, inScopeOnly));
             }
         }).start();
     }
 
-    private Runnable createProcessThread(final LogEntry logEntry, final Pattern pattern, final boolean inScopeOnly){
+    private Runnable createProcessThread(final LogEntry logEntry, final Pattern pattern, final RegexPrefilter prefilter, final boolean inScopeOnly){
         return () -> {
             if(Thread.currentThread().isInterrupted()) return;
             GrepResults grepResults = null;
             if (!inScopeOnly || LoggerPlusPlus.callbacks.isInScope(logEntry.url)) {
-                grepResults = new GrepResults(pattern, logEntry);
+                grepResults = new GrepResults(pattern, prefilter, logEntry);
             }
             for (GrepperListener listener : this.listeners) {
                 try {
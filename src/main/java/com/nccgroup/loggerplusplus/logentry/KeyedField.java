@@ -0,0 +1,61 @@
+package com.nccgroup.loggerplusplus.logentry;
+
+import org.apache.commons.text.StringEscapeUtils;
+
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A single named header or parameter of an entry, e.g. {@code Request.Header["Authorization"]} or
+ * {@code Request.Param["id"]}. Its value is the value of the first header or parameter with the name,
+ * or null if the entry has none, see {@link LogEntry#getKeyedValue(LogEntryField, String)}.
+ */
+public final class KeyedField {
+
+    /**
+     * The fields whose values can be looked up by name.
+     */
+    public static final Set<LogEntryField> KEYED_FIELDS = EnumSet.of(LogEntryField.REQUEST_HEADERS,
+            LogEntryField.RESPONSE_HEADERS, LogEntryField.PARAMETERS);
+
+    private final LogEntryField field;
+    private final String key;
+
+    public KeyedField(LogEntryField field, String key){
+        if(!KEYED_FIELDS.contains(field)) throw new IllegalArgumentException(field + " cannot be looked up by name.");
+        this.field = field;
+        this.key = key;
+    }
+
+    public LogEntryField getField() {
+        return field;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getValue(LogEntry entry){
+        return entry.getKeyedValue(field, key);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof KeyedField)) return false;
+        KeyedField other = (KeyedField) o;
+        return field == other.field && key.equals(other.key);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(field, key);
+    }
+
+    @Override
+    public String toString() {
+        String label = field == LogEntryField.PARAMETERS ? "Param" : "Header";
+        return field.getFullLabel(label) + "[\"" + StringEscapeUtils.escapeJava(key) + "\"]";
+    }
+}
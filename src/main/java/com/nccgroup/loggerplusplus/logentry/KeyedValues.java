@@ -0,0 +1,122 @@
+package com.nccgroup.loggerplusplus.logentry;
+
+import burp.IParameter;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact index of the headers or parameters of a message by name, built once when the message is processed
+ * so a single header or parameter can be looked up in constant time rather than by scanning them all.
+ *
+ * Names and values are held in parallel arrays, with an open addressing table of their positions.
+ * Where a name appears more than once, the first value is kept. Header names are matched ignoring case,
+ * parameter names exactly. An index is immutable once built.
+ */
+public final class KeyedValues {
+
+    public static final KeyedValues EMPTY = new KeyedValues(new String[0], new String[0], 0, false);
+
+    private final String[] keys;
+    private final String[] values;
+    private final int size;
+    private final boolean ignoreCase;
+    //Positions of the keys plus one, zero marking an empty slot.
+    private final int[] table;
+
+    private KeyedValues(String[] keys, String[] values, int size, boolean ignoreCase){
+        this.ignoreCase = ignoreCase;
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            int slot = findSlot(keys, keys[i]);
+            if(table[slot] != 0) continue;
+            keys[kept] = keys[i];
+            values[kept] = values[i];
+            table[slot] = ++kept;
+        }
+        this.keys = kept == keys.length ? keys : Arrays.copyOf(keys, kept);
+        this.values = kept == values.length ? values : Arrays.copyOf(values, kept);
+        this.size = kept;
+    }
+
+    /**
+     * Index the headers of a message, as "Name: value" lines following the request or status line.
+     */
+    public static KeyedValues ofHeaders(List<String> headers){
+        if(headers == null || headers.size() < 2) return EMPTY;
+        String[] keys = new String[headers.size() - 1];
+        String[] values = new String[keys.length];
+        int size = 0;
+        for (int i = 1; i < headers.size(); i++) {
+            String header = headers.get(i);
+            int colon = header.indexOf(':');
+            if(colon <= 0) continue;
+            int valueStart = colon + 1;
+            while (valueStart < header.length() && (header.charAt(valueStart) == ' ' || header.charAt(valueStart) == '\t')) valueStart++;
+            keys[size] = header.substring(0, colon).trim();
+            values[size] = header.substring(valueStart);
+            size++;
+        }
+        return size == 0 ? EMPTY : new KeyedValues(keys, values, size, true);
+    }
+
+    /**
+     * Index parameters by name, with their values as sent.
+     */
+    public static KeyedValues ofParameters(List<IParameter> parameters){
+        if(parameters == null || parameters.isEmpty()) return EMPTY;
+        String[] keys = new String[parameters.size()];
+        String[] values = new String[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = parameters.get(i).getName();
+            values[i] = parameters.get(i).getValue();
+        }
+        return new KeyedValues(keys, values, keys.length, false);
+    }
+
+    /**
+     * @return The value of the first header or parameter with the name, or null if there is none.
+     */
+    public String get(String key){
+        if(size == 0) return null;
+        int position = table[findSlot(keys, key)];
+        return position == 0 ? null : values[position - 1];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    //Find the slot holding the key, or the empty slot where it would go.
+    private int findSlot(String[] keys, String key){
+        int mask = table.length - 1;
+        int slot = hash(key) & mask;
+        while (table[slot] != 0 && !matches(keys[table[slot] - 1], key)){
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean matches(String key, String other){
+        return ignoreCase ? key.equalsIgnoreCase(other) : key.equals(other);
+    }
+
+    private int hash(String key){
+        if(!ignoreCase) return mix(key.hashCode());
+        int hash = 0;
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            //Fold case as equalsIgnoreCase does, without allocating a lowercase copy.
+            if(c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            else if(c > 127) c = Character.toLowerCase(Character.toUpperCase(c));
+            hash = 31 * hash + c;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash){
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -16,14 +16,20 @@ package com.nccgroup.loggerplusplus.logentry;
 import burp.*;
 import com.nccgroup.loggerplusplus.LoggerPlusPlus;
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilter;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
 import com.nccgroup.loggerplusplus.logview.processor.LogProcessor;
 import com.nccgroup.loggerplusplus.reflection.ReflectionController;
 import com.nccgroup.loggerplusplus.util.Globals;
+import com.nccgroup.loggerplusplus.util.Latin1CharSequence;
+import org.apache.commons.codec.binary.Hex;
 import org.apache.commons.codec.digest.DigestUtils;
 
 import java.net.URL;
+import java.security.MessageDigest;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
 
@@ -81,8 +87,16 @@ public class LogEntry {
 	private List<IParameter> tempParameters;
 	private List<String> parameters;
 	private List<String> reflectedParameters;
-
-	private LogEntry() {
+	// Headers and parameters by name, for filters on a single header or parameter.
+	private transient KeyedValues requestHeaderValues;
+	private transient KeyedValues responseHeaderValues;
+	private transient KeyedValues parameterValues;
+	transient int storePosition = -1;
+	transient int rowId = -1;
+	private final transient AtomicInteger version = new AtomicInteger();
+
+	// Package private so synthetic entries can be created without Burp, e.g. for benchmarks.
+	LogEntry() {
 		this.identifier = UUID.randomUUID();
 		this.matchingColorFilters = Collections.synchronizedList(new ArrayList<UUID>());
 	}
@@ -162,9 +176,10 @@ public class LogEntry {
 		String[] httpRequestTokens = requestHeaders.get(0).split(" ");
 		this.requestHttpVersion = httpRequestTokens[httpRequestTokens.length - 1];
 
-		this.tempParameters = tempAnalyzedReq.getParameters().stream()
-				.filter(iParameter -> iParameter.getType() != IParameter.PARAM_COOKIE).collect(Collectors.toList());
+		this.tempParameters = getParameters(tempAnalyzedReq);
 		this.parameters = tempParameters.stream().map(IParameter::getName).collect(Collectors.toList());
+		this.requestHeaderValues = KeyedValues.ofHeaders(requestHeaders);
+		this.parameterValues = KeyedValues.ofParameters(tempParameters);
 
 		this.url = tempAnalyzedReq.getUrl();
 		this.hostname = tempRequestResponseHttpService.getHost();
@@ -308,10 +323,9 @@ public class LogEntry {
 
 	private Status processResponse() {
 		reflectedParameters = new ArrayList<>();
-		IResponseInfo tempAnalyzedResp = LoggerPlusPlus.callbacks.getHelpers()
-				.analyzeResponse(requestResponse.getResponse());
-		String strFullResponse = new String(requestResponse.getResponse());
-		this.responseLength = requestResponse.getResponse().length - tempAnalyzedResp.getBodyOffset();
+		byte[] response = requestResponse.getResponse();
+		IResponseInfo tempAnalyzedResp = LoggerPlusPlus.callbacks.getHelpers().analyzeResponse(response);
+		this.responseLength = response.length - tempAnalyzedResp.getBodyOffset();
 
 		Map<String, List<String>> headers = tempAnalyzedResp.getHeaders().stream().filter(s -> s.contains(":"))
 				.collect(Collectors.toMap(s -> {
@@ -330,6 +344,7 @@ public class LogEntry {
 				}, () -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER)));
 
 		responseHeaders = tempAnalyzedResp.getHeaders();
+		responseHeaderValues = KeyedValues.ofHeaders(responseHeaders);
 		this.responseStatus = tempAnalyzedResp.getStatusCode();
 
 		// Extract HTTP Status message
@@ -348,13 +363,14 @@ public class LogEntry {
 			this.responseContentType = headers.get("content-type").get(0);
 		}
 
-		Matcher titleMatcher = Globals.HTML_TITLE_PATTERN.matcher(strFullResponse);
+		// Search the raw bytes for the title, and only decode the title itself.
+		Latin1CharSequence fullResponse = new Latin1CharSequence(response);
+		Matcher titleMatcher = Globals.HTML_TITLE_PATTERN.matcher(fullResponse);
 		if (titleMatcher.find()) {
-			this.title = titleMatcher.group(1);
+			this.title = fullResponse.decode(titleMatcher.start(1), titleMatcher.end(1));
 		}
 
-		String responseBody = new String(requestResponse.getResponse())
-				.substring(requestResponse.getResponse().length - responseLength);
+		String responseBody = getBody(response, responseLength).decode();
 
 		ReflectionController reflectionController = LoggerPlusPlus.instance.getReflectionController();
 		reflectedParameters = tempParameters.parallelStream()
@@ -389,6 +405,7 @@ public class LogEntry {
 		}
 
 		this.complete = true;
+		this.version.incrementAndGet();
 
 		return Status.PROCESSED;
 
@@ -467,150 +484,198 @@ public class LogEntry {
 
 	public void setComment(String comment) {
 		this.requestResponse.setComment(comment);
+		this.version.incrementAndGet();
 	}
 
-	public Object getValueByKey(LogEntryField columnName) {
+	/**
+	 * @return A unique id assigned when the entry is added to the table, or -1 if it has not been added.
+	 * Unlike the row index, the id does not change as other entries are added or removed.
+	 */
+	public int getRowId() {
+		return rowId;
+	}
+
+	/**
+	 * @return A counter increased whenever the entry changes after being added to the table, when its
+	 * response arrives or its comment is changed. Results computed from the entry are valid while it is unchanged.
+	 */
+	public int getVersion() {
+		return version.get();
+	}
 
+	public Object getValueByKey(LogEntryField columnName) {
+		Function<LogEntry, Object> accessor = FIELD_ACCESSORS.get(columnName);
+		if (accessor == null)
+			return "";
 		try {
-			switch (columnName) {
-				case PROXY_TOOL:
-				case REQUEST_TOOL:
-					return toolName;
-				case URL:
-					return this.url;
-				case PATH:
-					return this.url.getPath();
-				case QUERY:
-					return this.url.getQuery();
-				case STATUS:
-					return this.responseStatus;
-				case STATUS_TEXT:
-					return this.responseStatusText;
-				case RESPONSE_HTTP_VERSION:
-					return this.responseHttpVersion;
-				case PROTOCOL:
-					return this.protocol;
-				case HOSTNAME:
-					return this.hostname;
-				case HOST:
-					return this.host;
-				case MIME_TYPE:
-					return this.responseMimeType;
-				case RESPONSE_LENGTH:
-					return this.responseLength;
-				case PORT:
-					return this.targetPort;
-				case METHOD:
-					return this.method;
-				case REQUEST_TIME:
-					return this.requestDateTime;
-				case RESPONSE_TIME:
-					return this.responseDateTime;
-				case COMMENT:
-					return this.requestResponse.getComment();
-				case REQUEST_CONTENT_TYPE:
-					return this.requestContentType;
-				case REQUEST_HTTP_VERSION:
-					return this.requestHttpVersion;
-				case EXTENSION:
-					return this.urlExtension;
-				case REFERRER:
-					return this.referrerURL;
-				case PARAMETERS:
-					return this.parameters;
-				case PARAMETER_COUNT:
-					return this.parameters.size();
-				case HASGETPARAM:
-					return this.url.getQuery() != null;
-				case HASPOSTPARAM:
-					return this.hasBodyParam;
-				case HASCOOKIEPARAM:
-					return this.hasCookieParam;
-				case REQUEST_LENGTH:
-					return this.requestLength;
-				case RESPONSE_CONTENT_TYPE:
-					return this.responseContentType;
-				case INFERRED_TYPE:
-					return this.responseInferredMimeType;
-				case HAS_SET_COOKIES:
-					return this.hasSetCookies;
-				case HASPARAMS:
-					return this.params;
-				case TITLE:
-					return this.title;
-				case ISSSL:
-					return this.isSSL;
-				case NEW_COOKIES:
-					return this.newCookies;
-				case LISTENER_INTERFACE:
-					return this.listenerInterface;
-				case CLIENT_IP:
-					return this.clientIP;
-				case COMPLETE:
-					return this.complete;
-				case SENTCOOKIES:
-					return this.sentCookies;
-				case USES_COOKIE_JAR:
-					return this.usesCookieJar.toString();
-				// case REGEX1REQ:
-				// return this.regexAllReq[0];
-				// case REGEX2REQ:
-				// return this.regexAllReq[1];
-				// case REGEX3REQ:
-				// return this.regexAllReq[2];
-				// case REGEX4REQ:
-				// return this.regexAllReq[3];
-				// case REGEX5REQ:
-				// return this.regexAllReq[4];
-				// case REGEX1RESP:
-				// return this.regexAllResp[0];
-				// case REGEX2RESP:
-				// return this.regexAllResp[1];
-				// case REGEX3RESP:
-				// return this.regexAllResp[2];
-				// case REGEX4RESP:
-				// return this.regexAllResp[3];
-				// case REGEX5RESP:
-				// return this.regexAllResp[4];
-				case REFLECTED_PARAMS:
-					return reflectedParameters;
-				case REFLECTION_COUNT:
-					return reflectedParameters.size();
-				case REQUEST_BODY: // request
-					return new String(requestResponse.getRequest())
-							.substring(requestResponse.getRequest().length - requestLength);
-				case RESPONSE_BODY: // response
-					return new String(requestResponse.getResponse())
-							.substring(requestResponse.getResponse().length - responseLength);
-				case RTT:
-					return requestResponseDelay;
-				case REQUEST_HEADERS:
-					return requestHeaders != null ? requestHeaders : "";
-				case RESPONSE_HEADERS:
-					return responseHeaders != null ? responseHeaders : "";
-				case BASE64_REQUEST:
-					return Base64.getEncoder().encodeToString(requestResponse.getRequest());
-				case BASE64_RESPONSE:
-					return Base64.getEncoder().encodeToString(requestResponse.getResponse());
-				case RESPONSE_HASH: {
-					if (responseHash == null) {
-						responseHash = DigestUtils
-								.sha1Hex(((String) getValueByKey(LogEntryField.RESPONSE_BODY)).getBytes());
-					}
-					return responseHash;
-				}
-				default:
-					return "";
-			}
+			Object value = accessor.apply(this);
+			return value instanceof Latin1CharSequence ? ((Latin1CharSequence) value).decode() : value;
 		} catch (Exception e) {
 			return "";
 		}
 	}
 
+	/**
+	 * Look up a single header or parameter by name, see {@link KeyedField}.
+	 *
+	 * @param field The request or response headers, or the request parameters
+	 * @param key The name of the header, ignoring case, or of the parameter
+	 * @return The value of the first header or parameter with the name, or null if there is none.
+	 */
+	public String getKeyedValue(LogEntryField field, String key) {
+		KeyedValues values;
+		switch (field) {
+			case REQUEST_HEADERS: {
+				// Entries created without processing, e.g. imported, are indexed when first needed.
+				if (requestHeaderValues == null && requestHeaders != null)
+					requestHeaderValues = KeyedValues.ofHeaders(requestHeaders);
+				values = requestHeaderValues;
+				break;
+			}
+			case RESPONSE_HEADERS: {
+				if (responseHeaderValues == null && responseHeaders != null)
+					responseHeaderValues = KeyedValues.ofHeaders(responseHeaders);
+				values = responseHeaderValues;
+				break;
+			}
+			case PARAMETERS: {
+				// Parameter values aren't kept once processed, so are taken from the request again.
+				if (parameterValues == null && parameters != null && requestResponse != null && requestResponse.getRequest() != null)
+					parameterValues = KeyedValues.ofParameters(getParameters(LoggerPlusPlus.callbacks.getHelpers().analyzeRequest(requestResponse)));
+				values = parameterValues;
+				break;
+			}
+			default:
+				return null;
+		}
+		return values != null ? values.get(key) : null;
+	}
+
+	// The parameters of a request, excluding cookies.
+	private static List<IParameter> getParameters(IRequestInfo requestInfo) {
+		return requestInfo.getParameters().stream()
+				.filter(iParameter -> iParameter.getType() != IParameter.PARAM_COOKIE).collect(Collectors.toList());
+	}
+
+	/**
+	 * Get an accessor for a field which can be resolved once and then applied to many entries,
+	 * avoiding the lookup performed by {@link #getValueByKey(LogEntryField)} on every call.
+	 * Values are identical to those returned by {@link #getValueByKey(LogEntryField)}, except that the
+	 * request and response bodies are given as a {@link Latin1CharSequence} over the message rather than decoded,
+	 * so filters can search them without copying.
+	 *
+	 * @param field The field to access
+	 * @return A function returning the value of the field for a given entry
+	 */
+	public static Function<LogEntry, Object> getFieldAccessor(LogEntryField field) {
+		Function<LogEntry, Object> accessor = FIELD_ACCESSORS.get(field);
+		if (accessor == null)
+			return entry -> "";
+		return entry -> {
+			try {
+				return accessor.apply(entry);
+			} catch (Exception e) {
+				return "";
+			}
+		};
+	}
+
+	/**
+	 * The fields which may change when the response for an entry is processed.
+	 */
+	public static final Set<LogEntryField> RESPONSE_FIELDS;
+
+	private static final EnumMap<LogEntryField, Function<LogEntry, Object>> FIELD_ACCESSORS = new EnumMap<>(LogEntryField.class);
+	static {
+		FIELD_ACCESSORS.put(LogEntryField.PROXY_TOOL, entry -> entry.toolName);
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_TOOL, entry -> entry.toolName);
+		FIELD_ACCESSORS.put(LogEntryField.URL, entry -> entry.url);
+		FIELD_ACCESSORS.put(LogEntryField.PATH, entry -> entry.url.getPath());
+		FIELD_ACCESSORS.put(LogEntryField.QUERY, entry -> entry.url.getQuery());
+		FIELD_ACCESSORS.put(LogEntryField.STATUS, entry -> entry.responseStatus);
+		FIELD_ACCESSORS.put(LogEntryField.STATUS_TEXT, entry -> entry.responseStatusText);
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_HTTP_VERSION, entry -> entry.responseHttpVersion);
+		FIELD_ACCESSORS.put(LogEntryField.PROTOCOL, entry -> entry.protocol);
+		FIELD_ACCESSORS.put(LogEntryField.HOSTNAME, entry -> entry.hostname);
+		FIELD_ACCESSORS.put(LogEntryField.HOST, entry -> entry.host);
+		FIELD_ACCESSORS.put(LogEntryField.MIME_TYPE, entry -> entry.responseMimeType);
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_LENGTH, entry -> entry.responseLength);
+		FIELD_ACCESSORS.put(LogEntryField.PORT, entry -> entry.targetPort);
+		FIELD_ACCESSORS.put(LogEntryField.METHOD, entry -> entry.method);
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_TIME, entry -> entry.requestDateTime);
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_TIME, entry -> entry.responseDateTime);
+		FIELD_ACCESSORS.put(LogEntryField.COMMENT, entry -> entry.requestResponse.getComment());
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_CONTENT_TYPE, entry -> entry.requestContentType);
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_HTTP_VERSION, entry -> entry.requestHttpVersion);
+		FIELD_ACCESSORS.put(LogEntryField.EXTENSION, entry -> entry.urlExtension);
+		FIELD_ACCESSORS.put(LogEntryField.REFERRER, entry -> entry.referrerURL);
+		FIELD_ACCESSORS.put(LogEntryField.PARAMETERS, entry -> entry.parameters);
+		FIELD_ACCESSORS.put(LogEntryField.PARAMETER_COUNT, entry -> entry.parameters.size());
+		FIELD_ACCESSORS.put(LogEntryField.HASGETPARAM, entry -> entry.url.getQuery() != null);
+		FIELD_ACCESSORS.put(LogEntryField.HASPOSTPARAM, entry -> entry.hasBodyParam);
+		FIELD_ACCESSORS.put(LogEntryField.HASCOOKIEPARAM, entry -> entry.hasCookieParam);
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_LENGTH, entry -> entry.requestLength);
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_CONTENT_TYPE, entry -> entry.responseContentType);
+		FIELD_ACCESSORS.put(LogEntryField.INFERRED_TYPE, entry -> entry.responseInferredMimeType);
+		FIELD_ACCESSORS.put(LogEntryField.HAS_SET_COOKIES, entry -> entry.hasSetCookies);
+		FIELD_ACCESSORS.put(LogEntryField.HASPARAMS, entry -> entry.params);
+		FIELD_ACCESSORS.put(LogEntryField.TITLE, entry -> entry.title);
+		FIELD_ACCESSORS.put(LogEntryField.ISSSL, entry -> entry.isSSL);
+		FIELD_ACCESSORS.put(LogEntryField.NEW_COOKIES, entry -> entry.newCookies);
+		FIELD_ACCESSORS.put(LogEntryField.LISTENER_INTERFACE, entry -> entry.listenerInterface);
+		FIELD_ACCESSORS.put(LogEntryField.CLIENT_IP, entry -> entry.clientIP);
+		FIELD_ACCESSORS.put(LogEntryField.COMPLETE, entry -> entry.complete);
+		FIELD_ACCESSORS.put(LogEntryField.SENTCOOKIES, entry -> entry.sentCookies);
+		FIELD_ACCESSORS.put(LogEntryField.USES_COOKIE_JAR, entry -> entry.usesCookieJar.toString());
+		FIELD_ACCESSORS.put(LogEntryField.REFLECTED_PARAMS, entry -> entry.reflectedParameters);
+		FIELD_ACCESSORS.put(LogEntryField.REFLECTION_COUNT, entry -> entry.reflectedParameters.size());
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_BODY, entry -> getBody(entry.requestResponse.getRequest(), entry.requestLength));
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_BODY, entry -> getBody(entry.requestResponse.getResponse(), entry.responseLength));
+		FIELD_ACCESSORS.put(LogEntryField.RTT, entry -> entry.requestResponseDelay);
+		FIELD_ACCESSORS.put(LogEntryField.REQUEST_HEADERS, entry -> entry.requestHeaders != null ? entry.requestHeaders : "");
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_HEADERS, entry -> entry.responseHeaders != null ? entry.responseHeaders : "");
+		FIELD_ACCESSORS.put(LogEntryField.BASE64_REQUEST, entry -> Base64.getEncoder().encodeToString(entry.requestResponse.getRequest()));
+		FIELD_ACCESSORS.put(LogEntryField.BASE64_RESPONSE, entry -> Base64.getEncoder().encodeToString(entry.requestResponse.getResponse()));
+		FIELD_ACCESSORS.put(LogEntryField.RESPONSE_HASH, entry -> {
+			if (entry.responseHash == null) {
+				Latin1CharSequence body = getBody(entry.requestResponse.getResponse(), entry.responseLength);
+				MessageDigest digest = DigestUtils.getSha1Digest();
+				digest.update(body.getBytes(), body.getOffset(), body.length());
+				entry.responseHash = Hex.encodeHexString(digest.digest());
+			}
+			return entry.responseHash;
+		});
+
+		EnumSet<LogEntryField> responseFields = EnumSet.of(LogEntryField.COMPLETE, LogEntryField.COMMENT);
+		for (LogEntryField field : LogEntryField.values()) {
+			if (field.getFieldGroup() == FieldGroup.RESPONSE)
+				responseFields.add(field);
+		}
+		RESPONSE_FIELDS = Collections.unmodifiableSet(responseFields);
+	}
+
+	/**
+	 * @return A view of the last bodyLength bytes of the message.
+	 */
+	private static Latin1CharSequence getBody(byte[] message, int bodyLength) {
+		return new Latin1CharSequence(message, message.length - bodyLength, bodyLength);
+	}
+
 	public List<UUID> getMatchingColorFilters() {
 		return matchingColorFilters;
 	}
 
+	/**
+	 * Replace the color filters the entry matches, e.g. after testing it against every enabled filter at once.
+	 * @param colorFilters The UUIDs of the matching filters
+	 */
+	public void setMatchingColorFilters(Collection<UUID> colorFilters) {
+		synchronized (matchingColorFilters) {
+			matchingColorFilters.clear();
+			matchingColorFilters.addAll(colorFilters);
+		}
+	}
+
 	public enum CookieJarStatus {
 		YES("Yes"), NO("No"), PARTIALLY("Partially");
 
@@ -627,33 +692,29 @@ public class LogEntry {
 	}
 
 	/**
-	 * TODO CLEAN UP
+	 * Test the entry against a color filter, using the result cached by the filter if the entry hasn't changed since.
 	 * 
 	 * @param colorFilter
-	 * @param retest
+	 * @param budget Limits the time spent testing the entry, or null to test it however long it takes.
+	 *               An entry which runs out of time doesn't match.
 	 * @return If the list of matching color filters was updated
 	 */
-	public boolean testColorFilter(ColorFilter colorFilter, boolean retest) {
+	public boolean testColorFilter(ColorFilter colorFilter, EvaluationBudget budget) {
 		if (!colorFilter.isEnabled() || colorFilter.getFilter() == null) {
 			return this.getMatchingColorFilters().remove(colorFilter.getUUID());
 		}
 
-		// If we don't already know if the color filter matches (e.g. haven't checked it
-		// before)
-		if (!this.matchingColorFilters.contains(colorFilter.getUUID())) {
-			if (colorFilter.getFilter().matches(this)) {
-				this.matchingColorFilters.add(colorFilter.getUUID());
-				return true;
-			} else {
+		boolean matches = colorFilter.getFilter().matchesCached(this, budget);
+		synchronized (matchingColorFilters) {
+			if (matches == this.matchingColorFilters.contains(colorFilter.getUUID())) {
 				return false;
 			}
-		} else if (retest) { // Or if we are forcing a retest (e.g. filter was updated)
-			if (!colorFilter.getFilter().matches(this)) {
+			if (matches) {
+				this.matchingColorFilters.add(colorFilter.getUUID());
+			} else {
 				this.matchingColorFilters.remove(colorFilter.getUUID());
 			}
 			return true;
-		} else {
-			return false;
 		}
 	}
 
@@ -31,18 +31,18 @@ public enum LogEntryField {
     USES_COOKIE_JAR(FieldGroup.REQUEST, String.class, "Compares the cookies with the cookie jar to see if any of them are in use.", "UsesCookieJar", "CookieJar"),
     HOSTNAME(FieldGroup.REQUEST, String.class, "The hostname component of the requested URL.", "Hostname"),
     HOST(FieldGroup.REQUEST, String.class, "The protocol and hostname of the requested URL.", "Host"),
-    PORT(FieldGroup.REQUEST, Short.class, "The port the request was sent to.", "Port"),
+    PORT(FieldGroup.REQUEST, Integer.class, "The port the request was sent to.", "Port"),
     REQUEST_CONTENT_TYPE(FieldGroup.REQUEST, String.class, "The content-type header sent to the server.", "ContentType", "Content_Type"),
-    REQUEST_HTTP_VERSION(FieldGroup.REQUEST, Short.class, "The HTTP version sent in the request.", "RequestHttpVersion", "RequestHttpVersion"),
+    REQUEST_HTTP_VERSION(FieldGroup.REQUEST, String.class, "The HTTP version sent in the request.", "RequestHttpVersion", "RequestHttpVersion"),
     EXTENSION(FieldGroup.REQUEST, String.class, "The URL extension used in the request.", "Extension"),
     REFERRER(FieldGroup.REQUEST, String.class, "The referrer header value of the request.", "Referrer"),
     HASPARAMS(FieldGroup.REQUEST, Boolean.class, "Did the request contain parameters?", "HasParams"),
     HASGETPARAM(FieldGroup.REQUEST, Boolean.class, "Did the request contain get parameters?", "HasGetParam", "HasGetParams", "HasQueryString"),
     HASPOSTPARAM(FieldGroup.REQUEST, Boolean.class, "Did the request contain post parameters?", "HasPostParam", "HasPayload", "Payload"),
     HASCOOKIEPARAM(FieldGroup.REQUEST, Boolean.class, "Did the request contain cookies?", "HasSentCookies"),
-    SENTCOOKIES(FieldGroup.REQUEST, Boolean.class, "The value of the cookies header sent to the server.", "CookieString", "SentCookies", "Cookies"),
+    SENTCOOKIES(FieldGroup.REQUEST, String.class, "The value of the cookies header sent to the server.", "CookieString", "SentCookies", "Cookies"),
     PARAMETER_COUNT(FieldGroup.REQUEST, Integer.class, "The number of parameters in the request.", "ParameterCount", "ParamCount"),
-    PARAMETERS(FieldGroup.REQUEST, String.class, "The parameters in the request.", "Parameters", "Params"),
+    PARAMETERS(FieldGroup.REQUEST, String.class, "The parameters in the request.", "Parameters", "Params", "Param"),
 
     //Response
     BASE64_RESPONSE(FieldGroup.RESPONSE, String.class, "The entire response encoded in Base64", "AsBase64"),
@@ -52,8 +52,8 @@ public enum LogEntryField {
     RESPONSE_TIME(FieldGroup.RESPONSE, Date.class, "Date and time of receiving the response (as received by L++).", "Time"),
     RESPONSE_LENGTH(FieldGroup.RESPONSE, Integer.class, "The length of the received response.", "Length"),
     STATUS(FieldGroup.RESPONSE, Short.class, "The status code received in the response.", "Status", "StatusCode"),
-    STATUS_TEXT(FieldGroup.RESPONSE, Short.class, "The status text received in the response.", "StatusText", "StatusText"),
-    RESPONSE_HTTP_VERSION(FieldGroup.RESPONSE, Short.class, "The HTTP version received in the response.", "ResponseHttpVersion", "ResponseHttpVersion"),
+    STATUS_TEXT(FieldGroup.RESPONSE, String.class, "The status text received in the response.", "StatusText", "StatusText"),
+    RESPONSE_HTTP_VERSION(FieldGroup.RESPONSE, String.class, "The HTTP version received in the response.", "ResponseHttpVersion", "ResponseHttpVersion"),
     RTT(FieldGroup.RESPONSE, Integer.class, "The round trip time (as calculated by L++, not 100% accurate).", "RTT", "TimeTaken"),
     TITLE(FieldGroup.RESPONSE, String.class, "The HTTP response title.", "Title"),
     RESPONSE_CONTENT_TYPE(FieldGroup.RESPONSE, String.class, "The content-type header sent by the server.", "ContentType", "Content_Type"),
@@ -0,0 +1,216 @@
+package com.nccgroup.loggerplusplus.logentry;
+
+import java.util.*;
+
+/**
+ * Append-mostly storage for log entries with epoch based snapshot reads.
+ *
+ * Entries are held in fixed size chunks addressed by an ever increasing position.
+ * Every mutation publishes a new immutable {@link Snapshot} (an epoch) describing the visible range,
+ * so readers never lock the writer and never copy the entries. A slot is written once before the
+ * epoch which exposes it is published, and chunks which are evicted are only dropped from the
+ * directory of the next epoch, leaving any older snapshots still in use to keep them reachable.
+ *
+ * Writes must be made from a single thread at a time (in practice the EDT via the table model).
+ */
+public class LogEntryStore {
+
+    private static final int CHUNK_SHIFT = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final Object writeLock = new Object();
+    private volatile Snapshot current;
+    private long epochCounter;
+    private int nextRowId;
+
+    public LogEntryStore(){
+        this.current = new Snapshot(new LogEntry[0][], 0, 0, 0, 0);
+    }
+
+    /**
+     * @return A consistent view of the store as of now. The view is never modified by later writes.
+     */
+    public Snapshot snapshot(){
+        return current;
+    }
+
+    public int size(){
+        return current.size();
+    }
+
+    public LogEntry get(int row){
+        return current.get(row);
+    }
+
+    public int indexOf(LogEntry entry){
+        //Positions are maintained for the current epoch, so there is no need to fall back to a scan.
+        return current.positionIndexOf(entry);
+    }
+
+    /**
+     * Append an entry to the end of the store.
+     * @param entry The entry to add
+     * @return The row index of the new entry
+     */
+    public int add(LogEntry entry){
+        synchronized (writeLock) {
+            Snapshot snapshot = current;
+            LogEntry[][] chunks = snapshot.chunks;
+            int position = snapshot.end;
+            int chunkIndex = (position >>> CHUNK_SHIFT) - snapshot.baseChunk;
+            if (chunkIndex == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunks.length + 1);
+                chunks[chunkIndex] = new LogEntry[CHUNK_SIZE];
+            }
+            chunks[chunkIndex][position & CHUNK_MASK] = entry;
+            entry.storePosition = position;
+            entry.rowId = nextRowId++;
+            publish(chunks, snapshot.baseChunk, snapshot.start, position + 1);
+            return position - snapshot.start;
+        }
+    }
+
+    /**
+     * Remove the oldest entries from the store.
+     * @param count The number of entries to remove from the start of the store
+     */
+    public void evictOldest(int count){
+        synchronized (writeLock) {
+            Snapshot snapshot = current;
+            count = Math.min(count, snapshot.size());
+            if (count <= 0) return;
+            int start = snapshot.start + count;
+            for (int position = snapshot.start; position < start; position++) {
+                snapshot.getAtPosition(position).storePosition = -1;
+            }
+
+            //Drop any chunks which are now entirely before the visible range.
+            int droppedChunks = (start >>> CHUNK_SHIFT) - snapshot.baseChunk;
+            LogEntry[][] chunks = snapshot.chunks;
+            if (droppedChunks > 0) {
+                chunks = Arrays.copyOfRange(chunks, droppedChunks, chunks.length);
+            }
+            publish(chunks, snapshot.baseChunk + droppedChunks, start, snapshot.end);
+        }
+    }
+
+    /**
+     * Remove arbitrary entries from the store. The remaining entries are copied into a new epoch,
+     * so this is an O(n) operation and should only be used for user initiated removals.
+     * @param entries The entries to remove
+     * @return The row indices the entries occupied before removal, in descending order
+     */
+    public int[] removeAll(Collection<LogEntry> entries){
+        synchronized (writeLock) {
+            Snapshot snapshot = current;
+            int[] removedRows = entries.stream().mapToInt(snapshot::positionIndexOf)
+                    .filter(row -> row >= 0).distinct().sorted().toArray();
+            if (removedRows.length == 0) return removedRows;
+
+            int remaining = snapshot.size() - removedRows.length;
+            LogEntry[][] chunks = new LogEntry[(remaining + CHUNK_MASK) >>> CHUNK_SHIFT][];
+            for (int i = 0; i < chunks.length; i++) {
+                chunks[i] = new LogEntry[CHUNK_SIZE];
+            }
+
+            int position = 0, nextRemoved = 0;
+            for (int row = 0; row < snapshot.size(); row++) {
+                LogEntry entry = snapshot.get(row);
+                if (nextRemoved < removedRows.length && removedRows[nextRemoved] == row) {
+                    entry.storePosition = -1;
+                    nextRemoved++;
+                    continue;
+                }
+                chunks[position >>> CHUNK_SHIFT][position & CHUNK_MASK] = entry;
+                entry.storePosition = position;
+                position++;
+            }
+            publish(chunks, 0, 0, position);
+
+            //Reverse so callers can notify listeners of each removal in turn.
+            for (int i = 0; i < removedRows.length / 2; i++) {
+                int tmp = removedRows[i];
+                removedRows[i] = removedRows[removedRows.length - 1 - i];
+                removedRows[removedRows.length - 1 - i] = tmp;
+            }
+            return removedRows;
+        }
+    }
+
+    public void clear(){
+        synchronized (writeLock) {
+            for (LogEntry entry : current) {
+                entry.storePosition = -1;
+            }
+            publish(new LogEntry[0][], 0, 0, 0);
+        }
+    }
+
+    private void publish(LogEntry[][] chunks, int baseChunk, int start, int end){
+        current = new Snapshot(chunks, baseChunk, start, end, ++epochCounter);
+    }
+
+    /**
+     * An immutable, consistent view of the store at a given epoch.
+     */
+    public static class Snapshot extends AbstractList<LogEntry> implements RandomAccess {
+        private final LogEntry[][] chunks;
+        private final int baseChunk;
+        private final int start;
+        private final int end;
+        private final long epoch;
+
+        private Snapshot(LogEntry[][] chunks, int baseChunk, int start, int end, long epoch){
+            this.chunks = chunks;
+            this.baseChunk = baseChunk;
+            this.start = start;
+            this.end = end;
+            this.epoch = epoch;
+        }
+
+        public long getEpoch() {
+            return epoch;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public LogEntry get(int row) {
+            if (row < 0 || row >= end - start)
+                throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size());
+            return getAtPosition(start + row);
+        }
+
+        private LogEntry getAtPosition(int position){
+            return chunks[(position >>> CHUNK_SHIFT) - baseChunk][position & CHUNK_MASK];
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            if (!(o instanceof LogEntry)) return -1;
+            int index = positionIndexOf((LogEntry) o);
+            //The entry may have been moved by a later epoch, in which case scan this one.
+            return index != -1 ? index : super.indexOf(o);
+        }
+
+        /**
+         * Find an entry by the position recorded for it, without falling back to a scan.
+         * Positions are only maintained for the current epoch, so older snapshots may not find entries which have moved.
+         * @return The row of the entry, or -1 if it is not at its recorded position in this snapshot
+         */
+        public int positionIndexOf(LogEntry entry){
+            int position = entry.storePosition;
+            if (position < start || position >= end || getAtPosition(position) != entry) return -1;
+            return position - start;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return indexOf(o) != -1;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An index over the values of a single field, keyed by row id.
+ *
+ * Not thread safe, access is synchronized by the {@link LogEntryIndex}.
+ */
+public abstract class FieldIndex {
+
+    protected final LogEntryField field;
+    protected final Function<LogEntry, Object> accessor;
+
+    protected FieldIndex(LogEntryField field){
+        this.field = field;
+        this.accessor = LogEntry.getFieldAccessor(field);
+    }
+
+    public LogEntryField getField() {
+        return field;
+    }
+
+    abstract void add(int rowId, LogEntry entry);
+
+    /**
+     * Remove a row using its current value. Only valid while the value is unchanged since it was added.
+     */
+    void remove(int rowId, LogEntry entry){
+        removeRow(rowId);
+    }
+
+    /**
+     * Index a row again after its value has changed.
+     */
+    void update(int rowId, LogEntry entry){
+        removeRow(rowId);
+        add(rowId, entry);
+    }
+
+    /**
+     * Remove a row without knowing the value it was added with.
+     */
+    abstract void removeRow(int rowId);
+
+    /**
+     * Remove all rows with a lower row id.
+     */
+    abstract void removeBelow(int rowId);
+
+    abstract void clear();
+
+    /**
+     * @return The approximate number of values tested by a lookup
+     */
+    abstract int getLookupCost();
+
+    /**
+     * Find the rows which match a comparison against the field.
+     * @param test Tests a value of the field against the comparison
+     * @return The rows which match and may match, or null if the index can't narrow them down.
+     */
+    abstract RowBounds lookup(BooleanOperator op, Object constant, Predicate<Object> test);
+}
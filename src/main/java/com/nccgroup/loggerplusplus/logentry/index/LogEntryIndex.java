@@ -0,0 +1,177 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.FieldGroup;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+import com.nccgroup.loggerplusplus.util.NamedThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Secondary indexes over the entries of the log table, keyed by {@link LogEntry#getRowId() row id}.
+ * Metadata fields have a {@link TokenIndex}, numeric and time fields a {@link RangeIndex}, and the bodies
+ * an optional {@link TrigramIndex} built in the background.
+ * Kept up to date by the table model as entries are added, updated and removed, and used to
+ * find the rows a filter may match without testing every entry.
+ *
+ * Request fields are fixed once an entry is added, so only response fields are indexed again on update.
+ */
+public class LogEntryIndex {
+
+    //Evicted rows are masked out of lookups, and only removed from the postings in batches.
+    private static final int COMPACT_INTERVAL = 4096;
+    //Lookups testing more than this fraction of the entries are left to a scan, which costs about the same.
+    private static final int MAX_LOOKUP_COST_RATIO = 8;
+
+    private final EnumMap<LogEntryField, FieldIndex> fieldIndexes;
+    private final List<TrigramIndex> bodyIndexes;
+    private final ExecutorService bodyIndexExecutor;
+    private final CompressedBitmap rows;
+    private int lowestRowId;
+    private int compactedRowId;
+
+    public LogEntryIndex(){
+        this.fieldIndexes = new EnumMap<>(LogEntryField.class);
+        this.rows = new CompressedBitmap();
+        for (LogEntryField field : new LogEntryField[]{LogEntryField.HOST, LogEntryField.HOSTNAME, LogEntryField.METHOD,
+                LogEntryField.EXTENSION, LogEntryField.MIME_TYPE, LogEntryField.INFERRED_TYPE, LogEntryField.STATUS_TEXT}) {
+            fieldIndexes.put(field, new TokenIndex(field, null, null));
+        }
+        fieldIndexes.put(LogEntryField.PATH, new TokenIndex(LogEntryField.PATH, value -> {
+            List<String> segments = new ArrayList<>();
+            for (String segment : String.valueOf(value).split("/")) {
+                if(!segment.isEmpty()) segments.add(segment);
+            }
+            return segments;
+        }, "/"));
+        //Parameter names are compared as the string form of the list, e.g. "[id, name]".
+        fieldIndexes.put(LogEntryField.PARAMETERS, new TokenIndex(LogEntryField.PARAMETERS,
+                value -> value instanceof Collection ? (Collection<?>) value : Collections.singleton(value), "[], "));
+        for (LogEntryField field : new LogEntryField[]{LogEntryField.REQUEST_TIME, LogEntryField.RESPONSE_TIME, LogEntryField.STATUS,
+                LogEntryField.RESPONSE_LENGTH, LogEntryField.REQUEST_LENGTH, LogEntryField.RTT, LogEntryField.PARAMETER_COUNT}) {
+            fieldIndexes.put(field, new RangeIndex(field));
+        }
+
+        this.bodyIndexExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("LPP-BodyIndex"));
+        this.bodyIndexes = Arrays.asList(
+                new TrigramIndex(LogEntryField.REQUEST_BODY, entry -> entry.requestResponse.getRequest(), this, bodyIndexExecutor),
+                new TrigramIndex(LogEntryField.RESPONSE_BODY, entry -> entry.requestResponse.getResponse(), this, bodyIndexExecutor));
+        for (TrigramIndex bodyIndex : bodyIndexes) {
+            fieldIndexes.put(bodyIndex.getField(), bodyIndex);
+        }
+    }
+
+    /**
+     * Set the memory the body indexes may use, shared between the request and response bodies.
+     * Entries already in the table are indexed in the background.
+     * @param bytes The approximate memory limit, or 0 to disable the body indexes
+     * @param entries The entries currently in the table
+     */
+    public synchronized void setBodyIndexMemoryLimit(long bytes, Collection<LogEntry> entries){
+        for (TrigramIndex bodyIndex : bodyIndexes) {
+            boolean wasEnabled = bodyIndex.isEnabled();
+            bodyIndex.setMemoryLimit(bytes / bodyIndexes.size());
+            if(wasEnabled || !bodyIndex.isEnabled()) continue;
+            for (LogEntry entry : entries) {
+                int rowId = entry.getRowId();
+                if(rowId >= lowestRowId && rows.contains(rowId)) bodyIndex.add(rowId, entry);
+            }
+        }
+    }
+
+    public void shutdown(){
+        bodyIndexExecutor.shutdownNow();
+    }
+
+    public synchronized void add(LogEntry entry){
+        int rowId = entry.getRowId();
+        if(rowId < 0) return;
+        rows.add(rowId);
+        for (FieldIndex index : fieldIndexes.values()) {
+            index.add(rowId, entry);
+        }
+    }
+
+    public synchronized void update(LogEntry entry, Set<LogEntryField> changedFields){
+        int rowId = entry.getRowId();
+        if(rowId < lowestRowId) return;
+        for (FieldIndex index : fieldIndexes.values()) {
+            if(isMutable(index.getField()) && changedFields.contains(index.getField())){
+                index.update(rowId, entry);
+            }
+        }
+    }
+
+    public synchronized void remove(Collection<LogEntry> entries){
+        for (LogEntry entry : entries) {
+            int rowId = entry.getRowId();
+            if(rowId < lowestRowId) continue;
+            rows.remove(rowId);
+            for (FieldIndex index : fieldIndexes.values()) {
+                if(isMutable(index.getField())) index.removeRow(rowId);
+                else index.remove(rowId, entry);
+            }
+        }
+    }
+
+    /**
+     * Forget rows which have been evicted from the table.
+     * @param rowId The row id of the oldest entry remaining
+     */
+    public synchronized void removeBelow(int rowId){
+        if(rowId <= lowestRowId) return;
+        lowestRowId = rowId;
+        if(lowestRowId - compactedRowId >= COMPACT_INTERVAL){
+            rows.removeBelow(lowestRowId);
+            for (FieldIndex index : fieldIndexes.values()) {
+                index.removeBelow(lowestRowId);
+            }
+            compactedRowId = lowestRowId;
+        }
+    }
+
+    public synchronized void clear(){
+        rows.clear();
+        for (FieldIndex index : fieldIndexes.values()) {
+            index.clear();
+        }
+    }
+
+    public boolean isIndexed(LogEntryField field){
+        return fieldIndexes.containsKey(field);
+    }
+
+    /**
+     * @return A new bitmap of the row ids of every entry in the table
+     */
+    public synchronized CompressedBitmap getRows(){
+        CompressedBitmap rows = this.rows.copy();
+        if(compactedRowId < lowestRowId) rows.removeBelow(lowestRowId);
+        return rows;
+    }
+
+    /**
+     * Find the rows which match a comparison of a field against a constant.
+     * @param test Tests a value of the field against the comparison
+     * @return The rows which match and may match, or null if the field is not indexed or the index can't narrow them down.
+     */
+    public synchronized RowBounds lookup(LogEntryField field, BooleanOperator op, Object constant, Predicate<Object> test){
+        FieldIndex index = fieldIndexes.get(field);
+        if(index == null || index.getLookupCost() > rows.getCardinality() / MAX_LOOKUP_COST_RATIO) return null;
+        RowBounds bounds = index.lookup(op, constant, test);
+        if(bounds != null && compactedRowId < lowestRowId){
+            bounds.getMatches().removeBelow(lowestRowId);
+            bounds.getCandidates().removeBelow(lowestRowId);
+        }
+        return bounds;
+    }
+
+    private static boolean isMutable(LogEntryField field){
+        return field.getFieldGroup() == FieldGroup.RESPONSE;
+    }
+}
@@ -0,0 +1,274 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * An index of the numeric or time values of a field, answering range comparisons.
+ *
+ * Rows are grouped into buckets of consecutive row ids, each recording the minimum and maximum of its values.
+ * Once a bucket is full its values are packed with their offsets into a single sorted run of longs.
+ * A range is answered by skipping buckets which lie entirely outside it, taking every row of buckets which lie
+ * entirely within it, and binary searching the run of the rest. Since entries arrive roughly in time order,
+ * ranges over times usually touch only a handful of buckets.
+ *
+ * Times are indexed by the second, as filters compare them. Values which can't be indexed (e.g. a missing
+ * response time) are always returned as candidates which may match, leaving the filter to decide.
+ */
+public class RangeIndex extends FieldIndex {
+
+    private static final int BUCKET_SHIFT = 10;
+    private static final int BUCKET_SIZE = 1 << BUCKET_SHIFT;
+    private static final int OFFSET_MASK = BUCKET_SIZE - 1;
+    //Keys are packed above their offset in a long, so must fit in the remaining bits.
+    private static final long MAX_KEY = Long.MAX_VALUE >> BUCKET_SHIFT;
+    private static final long MIN_KEY = Long.MIN_VALUE >> BUCKET_SHIFT;
+    private static final long UNKEYED = Long.MIN_VALUE;
+
+    private final boolean temporal;
+    private final List<Bucket> buckets;
+    private int firstBucket;
+
+    RangeIndex(LogEntryField field){
+        super(field);
+        this.temporal = field.getType() == Date.class;
+        this.buckets = new ArrayList<>();
+    }
+
+    private long toKey(Object value){
+        long key;
+        if(temporal){
+            if(!(value instanceof Date)) return UNKEYED;
+            key = Math.floorDiv(((Date) value).getTime(), 1000L);
+        }else{
+            if(!(value instanceof Integer || value instanceof Short || value instanceof Long || value instanceof Byte)) return UNKEYED;
+            key = ((Number) value).longValue();
+        }
+        return key < MIN_KEY || key > MAX_KEY ? UNKEYED : key;
+    }
+
+    private Bucket getBucket(int rowId){
+        int index = (rowId >>> BUCKET_SHIFT) - firstBucket;
+        return index >= 0 && index < buckets.size() ? buckets.get(index) : null;
+    }
+
+    @Override
+    void add(int rowId, LogEntry entry){
+        int bucketIndex = rowId >>> BUCKET_SHIFT;
+        if(buckets.isEmpty()) firstBucket = bucketIndex;
+        if(bucketIndex < firstBucket) return;
+        while (firstBucket + buckets.size() <= bucketIndex){
+            if(!buckets.isEmpty()) buckets.get(buckets.size() - 1).seal();
+            buckets.add(new Bucket());
+        }
+        buckets.get(bucketIndex - firstBucket).put(rowId & OFFSET_MASK, toKey(accessor.apply(entry)));
+    }
+
+    @Override
+    void removeRow(int rowId){
+        Bucket bucket = getBucket(rowId);
+        if(bucket != null) bucket.remove(rowId & OFFSET_MASK);
+    }
+
+    @Override
+    void removeBelow(int rowId){
+        int dropped = Math.min((rowId >>> BUCKET_SHIFT) - firstBucket, buckets.size());
+        if(dropped > 0){
+            buckets.subList(0, dropped).clear();
+            firstBucket += dropped;
+        }
+        Bucket bucket = getBucket(rowId);
+        if(bucket != null) bucket.removeBelow(rowId & OFFSET_MASK);
+    }
+
+    @Override
+    void clear(){
+        buckets.clear();
+    }
+
+    @Override
+    int getLookupCost() {
+        return buckets.size();
+    }
+
+    @Override
+    RowBounds lookup(BooleanOperator op, Object constant, Predicate<Object> test){
+        long[] range = toRange(op, constant);
+        if(range == null) return null;
+
+        CompressedBitmap matches = new CompressedBitmap();
+        CompressedBitmap unkeyed = new CompressedBitmap();
+        BitSet bucketMatches = new BitSet(BUCKET_SIZE);
+        for (int i = 0; i < buckets.size(); i++) {
+            Bucket bucket = buckets.get(i);
+            int base = (firstBucket + i) << BUCKET_SHIFT;
+            bucketMatches.clear();
+            bucket.collect(range[0], range[1], bucketMatches);
+            addAll(matches, base, bucketMatches);
+            addAll(unkeyed, base, bucket.unkeyed);
+        }
+        return new RowBounds(matches, unkeyed.isEmpty() ? matches : CompressedBitmap.or(matches, unkeyed));
+    }
+
+    private static void addAll(CompressedBitmap rows, int base, BitSet offsets){
+        for (int offset = offsets.nextSetBit(0); offset >= 0; offset = offsets.nextSetBit(offset + 1)) {
+            rows.add(base + offset);
+        }
+    }
+
+    /**
+     * Convert a comparison to the inclusive range of keys which satisfy it.
+     * @return The lowest and highest matching keys, or null if the comparison is not a range over this field
+     */
+    private long[] toRange(BooleanOperator op, Object constant){
+        BigDecimal value;
+        if(temporal && constant instanceof Date){
+            value = BigDecimal.valueOf(Math.floorDiv(((Date) constant).getTime(), 1000L));
+        }else if(!temporal && constant instanceof Number){
+            try {
+                value = new BigDecimal(String.valueOf(constant));
+            }catch (NumberFormatException e){
+                return null;
+            }
+        }else{
+            return null;
+        }
+
+        //Keys are whole numbers, so round fractional bounds inwards.
+        BigDecimal floor = value.setScale(0, RoundingMode.FLOOR);
+        BigDecimal ceiling = value.setScale(0, RoundingMode.CEILING);
+        BigDecimal low, high;
+        switch (op){
+            case EQUAL: low = ceiling; high = floor; break;
+            case GREATER_THAN: low = floor.add(BigDecimal.ONE); high = null; break;
+            case GREATER_THAN_EQUAL: low = ceiling; high = null; break;
+            case LESS_THAN: low = null; high = ceiling.subtract(BigDecimal.ONE); break;
+            case LESS_THAN_EQUAL: low = null; high = floor; break;
+            default: return null;
+        }
+        return new long[]{clamp(low, MIN_KEY), clamp(high, MAX_KEY)};
+    }
+
+    private static long clamp(BigDecimal bound, long unbounded){
+        if(bound == null) return unbounded;
+        if(bound.compareTo(BigDecimal.valueOf(MAX_KEY)) > 0) return MAX_KEY;
+        if(bound.compareTo(BigDecimal.valueOf(MIN_KEY)) < 0) return MIN_KEY;
+        return bound.longValue();
+    }
+
+    private static long pack(long key, int offset){
+        return (key << BUCKET_SHIFT) | offset;
+    }
+
+    private static class Bucket {
+        private final BitSet unkeyed;
+        //Keys by offset while the bucket is filling, null once sealed.
+        private long[] keys;
+        private BitSet keyed;
+        private long min, max;
+        //Keys packed with their offsets in ascending order, once the bucket is full.
+        private long[] run;
+        private int runLength;
+
+        private Bucket(){
+            this.unkeyed = new BitSet();
+            this.keys = new long[BUCKET_SIZE];
+            this.keyed = new BitSet(BUCKET_SIZE);
+            this.min = Long.MAX_VALUE;
+            this.max = Long.MIN_VALUE;
+        }
+
+        private void seal(){
+            if(run != null) return;
+            run = new long[keyed.cardinality()];
+            for (int offset = keyed.nextSetBit(0); offset >= 0; offset = keyed.nextSetBit(offset + 1)) {
+                run[runLength++] = pack(keys[offset], offset);
+            }
+            Arrays.sort(run);
+            keys = null;
+            keyed = null;
+        }
+
+        private void put(int offset, long key){
+            remove(offset);
+            if(key == UNKEYED){
+                unkeyed.set(offset);
+            }else if(run == null){
+                keys[offset] = key;
+                keyed.set(offset);
+                //Bounds only widen while filling, which is safe as they are only used to skip the bucket.
+                min = Math.min(min, key);
+                max = Math.max(max, key);
+            }else{
+                long packed = pack(key, offset);
+                int index = -Arrays.binarySearch(run, 0, runLength, packed) - 1;
+                if(runLength == run.length) run = Arrays.copyOf(run, Math.max(8, runLength * 2));
+                System.arraycopy(run, index, run, index + 1, runLength - index);
+                run[index] = packed;
+                runLength++;
+            }
+        }
+
+        private void remove(int offset){
+            unkeyed.clear(offset);
+            if(run == null){
+                keyed.clear(offset);
+                return;
+            }
+            for (int i = 0; i < runLength; i++) {
+                if((run[i] & OFFSET_MASK) == offset){
+                    System.arraycopy(run, i + 1, run, i, runLength - i - 1);
+                    runLength--;
+                    return;
+                }
+            }
+        }
+
+        private void removeBelow(int offset){
+            unkeyed.clear(0, offset);
+            if(run == null){
+                keyed.clear(0, offset);
+                return;
+            }
+            int retained = 0;
+            for (int i = 0; i < runLength; i++) {
+                if((run[i] & OFFSET_MASK) >= offset) run[retained++] = run[i];
+            }
+            runLength = retained;
+        }
+
+        /**
+         * Set the offsets of the rows whose key lies in the range.
+         */
+        private void collect(long low, long high, BitSet matches){
+            if(low > high) return;
+            if(run == null){
+                if(max < low || min > high) return;
+                if(low <= min && max <= high){
+                    matches.or(keyed);
+                    return;
+                }
+                for (int offset = keyed.nextSetBit(0); offset >= 0; offset = keyed.nextSetBit(offset + 1)) {
+                    if(keys[offset] >= low && keys[offset] <= high) matches.set(offset);
+                }
+                return;
+            }
+
+            long from = pack(low, 0);
+            long to = pack(high, OFFSET_MASK);
+            if(runLength == 0 || run[runLength - 1] < from || run[0] > to) return;
+            int index = Arrays.binarySearch(run, 0, runLength, from);
+            if(index < 0) index = -index - 1;
+            for (; index < runLength && run[index] <= to; index++) {
+                matches.set((int) (run[index] & OFFSET_MASK));
+            }
+        }
+    }
+}
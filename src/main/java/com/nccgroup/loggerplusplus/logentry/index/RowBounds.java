@@ -0,0 +1,89 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+/**
+ * The rows matching part of a filter, as far as the indexes can tell.
+ *
+ * Holds the rows which certainly match and the rows which may match, a superset of the former.
+ * Rows which may match but aren't certain to must be tested against the filter itself.
+ * Bounds are immutable, operations always return new bounds and never modify their bitmaps.
+ */
+public class RowBounds {
+
+    private final CompressedBitmap matches;
+    private final CompressedBitmap candidates;
+
+    public RowBounds(CompressedBitmap matches, CompressedBitmap candidates){
+        this.matches = matches;
+        this.candidates = candidates;
+    }
+
+    public static RowBounds exact(CompressedBitmap rows){
+        return new RowBounds(rows, rows);
+    }
+
+    /**
+     * @param rows Every row in the table
+     */
+    public static RowBounds unknown(CompressedBitmap rows){
+        return new RowBounds(new CompressedBitmap(), rows);
+    }
+
+    /**
+     * @return The row ids which certainly match
+     */
+    public CompressedBitmap getMatches() {
+        return matches;
+    }
+
+    /**
+     * @return The row ids which may match
+     */
+    public CompressedBitmap getCandidates() {
+        return candidates;
+    }
+
+    /**
+     * @return The row ids which may match but must be tested to be sure
+     */
+    public CompressedBitmap getResidual() {
+        return CompressedBitmap.andNot(candidates, matches);
+    }
+
+    public boolean isExact() {
+        return matches == candidates || matches.getCardinality() == candidates.getCardinality();
+    }
+
+    public RowBounds and(RowBounds other){
+        return new RowBounds(CompressedBitmap.and(matches, other.matches), CompressedBitmap.and(candidates, other.candidates));
+    }
+
+    public RowBounds or(RowBounds other){
+        return new RowBounds(CompressedBitmap.or(matches, other.matches), CompressedBitmap.or(candidates, other.candidates));
+    }
+
+    /**
+     * A row certainly matches if it certainly matches one side and can't match the other,
+     * and may match unless it certainly matches both sides or can't match either.
+     */
+    public RowBounds xor(RowBounds other){
+        CompressedBitmap xorMatches = CompressedBitmap.or(CompressedBitmap.andNot(matches, other.candidates),
+                CompressedBitmap.andNot(other.matches, candidates));
+        CompressedBitmap xorCandidates = CompressedBitmap.andNot(CompressedBitmap.or(candidates, other.candidates),
+                CompressedBitmap.and(matches, other.matches));
+        return new RowBounds(xorMatches, xorCandidates);
+    }
+
+    /**
+     * @param rows Every row in the table
+     */
+    public RowBounds not(CompressedBitmap rows){
+        return new RowBounds(CompressedBitmap.andNot(rows, candidates), CompressedBitmap.andNot(rows, matches));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RowBounds[matches=%d, candidates=%d]", matches.getCardinality(), candidates.getCardinality());
+    }
+}
@@ -0,0 +1,108 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * An inverted index from the values of a field to the rows which hold them.
+ *
+ * Single valued fields are indexed by their whole value, so any comparison against the field can be
+ * answered exactly by testing each distinct value rather than each entry. Multi valued fields are indexed
+ * by the tokens making up their value, such as the segments of a path, so can only answer CONTAINS
+ * for substrings which could not span more than one token.
+ */
+public class TokenIndex extends FieldIndex {
+
+    private final Function<Object, Collection<?>> tokenizer;
+    private final String separators;
+    private final Map<Object, CompressedBitmap> postings;
+
+    /**
+     * @param tokenizer Splits the value of the field into tokens, or null to index the whole value
+     * @param separators The characters which separate tokens in the string form of the value
+     */
+    TokenIndex(LogEntryField field, Function<Object, Collection<?>> tokenizer, String separators){
+        super(field);
+        this.tokenizer = tokenizer;
+        this.separators = separators;
+        this.postings = new HashMap<>();
+    }
+
+    public boolean isSingleValued() {
+        return tokenizer == null;
+    }
+
+    @Override
+    int getLookupCost() {
+        return postings.size();
+    }
+
+    private Collection<?> getTokens(LogEntry entry){
+        Object value = accessor.apply(entry);
+        return tokenizer == null ? Collections.singleton(value) : tokenizer.apply(value);
+    }
+
+    @Override
+    void add(int rowId, LogEntry entry){
+        for (Object token : getTokens(entry)) {
+            postings.computeIfAbsent(token, key -> new CompressedBitmap()).add(rowId);
+        }
+    }
+
+    @Override
+    void remove(int rowId, LogEntry entry){
+        for (Object token : getTokens(entry)) {
+            CompressedBitmap rows = postings.get(token);
+            if(rows == null) continue;
+            rows.remove(rowId);
+            if(rows.isEmpty()) postings.remove(token);
+        }
+    }
+
+    //Checks every token, so prefer remove where the value is known.
+    @Override
+    void removeRow(int rowId){
+        postings.values().removeIf(rows -> {
+            rows.remove(rowId);
+            return rows.isEmpty();
+        });
+    }
+
+    @Override
+    void removeBelow(int rowId){
+        postings.values().removeIf(rows -> {
+            rows.removeBelow(rowId);
+            return rows.isEmpty();
+        });
+    }
+
+    @Override
+    void clear(){
+        postings.clear();
+    }
+
+    @Override
+    RowBounds lookup(BooleanOperator op, Object constant, Predicate<Object> test){
+        if(tokenizer != null){
+            if(op != BooleanOperator.CONTAINS || !(constant instanceof String)) return null;
+            String needle = (String) constant;
+            if(needle.isEmpty()) return null;
+            for (int i = 0; i < separators.length(); i++) {
+                if(needle.indexOf(separators.charAt(i)) != -1) return null;
+            }
+        }
+
+        List<CompressedBitmap> matching = new ArrayList<>();
+        for (Map.Entry<Object, CompressedBitmap> posting : postings.entrySet()) {
+            if(test.test(posting.getKey())) matching.add(posting.getValue());
+        }
+        CompressedBitmap rows = CompressedBitmap.or(matching);
+        return tokenizer == null ? RowBounds.exact(rows) : new RowBounds(new CompressedBitmap(), rows);
+    }
+}
@@ -0,0 +1,285 @@
+package com.nccgroup.loggerplusplus.logentry.index;
+
+import com.nccgroup.loggerplusplus.filter.BooleanOperator;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+import com.nccgroup.loggerplusplus.util.RegexPrefilter;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * A posting index from the trigrams of a message to the rows which contain them, used to narrow down
+ * the rows which may match a CONTAINS or regex comparison against a body before running the exact match.
+ * The literals a regex requires are found by its {@link RegexPrefilter}.
+ *
+ * Trigrams are taken from the raw bytes of the whole message, folding ASCII letters to lower case,
+ * so the rows found are always a superset of those whose body contains the string.
+ * Messages are indexed in the background, and rows which have not been indexed yet, or which could not be
+ * indexed within the memory limit, are always returned as candidates.
+ *
+ * Rows are only added to the postings, so a response which changes keeps its old trigrams until the
+ * postings are compacted. This only widens the candidates.
+ */
+public class TrigramIndex extends FieldIndex {
+
+    //Only trigrams of ASCII bytes are indexed, 7 bits per byte.
+    private static final int TRIGRAM_MASK = (1 << 21) - 1;
+    //Approximate size of a posting list holding a single row, including its map entry.
+    private static final int POSTING_OVERHEAD = 128;
+    //Messages waiting to be indexed beyond this are left unindexed rather than queued.
+    private static final int MAX_PENDING = 10000;
+    private static final ThreadLocal<long[]> SEEN = ThreadLocal.withInitial(() -> new long[(TRIGRAM_MASK + 1) / 64]);
+
+    private final Function<LogEntry, byte[]> content;
+    private final Object lock;
+    private final Executor executor;
+    private final Map<Integer, CompressedBitmap> postings;
+    //Rows which are waiting to be indexed or could not be indexed, and so may contain anything.
+    private final CompressedBitmap unindexed;
+    private final CompressedBitmap removed;
+    private long memoryLimit;
+    private long estimatedMemory;
+    private int pending;
+    private int generation;
+    private int lowestRowId;
+
+    /**
+     * @param content The bytes of the message containing the field
+     * @param lock The lock the index is accessed under, held while applying the results of background indexing
+     * @param executor Runs the indexing of each message
+     */
+    TrigramIndex(LogEntryField field, Function<LogEntry, byte[]> content, Object lock, Executor executor){
+        super(field);
+        this.content = content;
+        this.lock = lock;
+        this.executor = executor;
+        this.postings = new HashMap<>();
+        this.unindexed = new CompressedBitmap();
+        this.removed = new CompressedBitmap();
+    }
+
+    /**
+     * @param bytes The approximate memory the postings may use, or 0 to disable the index
+     */
+    void setMemoryLimit(long bytes){
+        if(bytes <= 0) clear();
+        this.memoryLimit = Math.max(bytes, 0);
+    }
+
+    boolean isEnabled(){
+        return memoryLimit > 0;
+    }
+
+    @Override
+    int getLookupCost() {
+        //A lookup only intersects the postings of the trigrams in the constant.
+        return 0;
+    }
+
+    @Override
+    void add(int rowId, LogEntry entry){
+        if(!isEnabled()) return;
+        unindexed.add(rowId);
+        if(estimatedMemory >= memoryLimit || pending >= MAX_PENDING) return;
+
+        int generation = this.generation;
+        pending++;
+        try {
+            executor.execute(() -> index(rowId, entry, generation));
+        }catch (RejectedExecutionException e){
+            pending--;
+        }
+    }
+
+    private void index(int rowId, LogEntry entry, int generation){
+        int[] trigrams;
+        try {
+            trigrams = extractTrigrams(content.apply(entry));
+        }catch (Exception e){
+            trigrams = null;
+        }
+
+        synchronized (lock){
+            if(generation != this.generation) return;
+            pending--;
+            if(trigrams == null || rowId < lowestRowId || removed.contains(rowId)) return;
+            for (int trigram : trigrams) {
+                CompressedBitmap rows = postings.get(trigram);
+                if(rows == null){
+                    rows = new CompressedBitmap();
+                    postings.put(trigram, rows);
+                    estimatedMemory += POSTING_OVERHEAD;
+                }
+                rows.add(rowId);
+            }
+            estimatedMemory += 2L * trigrams.length;
+            unindexed.remove(rowId);
+        }
+    }
+
+    @Override
+    void update(int rowId, LogEntry entry){
+        //Index the new message alongside the old, the stale trigrams are dropped when compacted.
+        add(rowId, entry);
+    }
+
+    @Override
+    void removeRow(int rowId){
+        if(!isEnabled()) return;
+        removed.add(rowId);
+        unindexed.remove(rowId);
+    }
+
+    @Override
+    void removeBelow(int rowId){
+        lowestRowId = rowId;
+        unindexed.removeBelow(rowId);
+        removed.removeBelow(rowId);
+        estimatedMemory = 0;
+        Iterator<Map.Entry<Integer, CompressedBitmap>> iterator = postings.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, CompressedBitmap> posting = iterator.next();
+            CompressedBitmap rows = posting.getValue();
+            rows.removeBelow(rowId);
+            if(!removed.isEmpty()){
+                rows = CompressedBitmap.andNot(rows, removed);
+                posting.setValue(rows);
+            }
+            if(rows.isEmpty()){
+                iterator.remove();
+            }else{
+                estimatedMemory += POSTING_OVERHEAD + 2L * rows.getCardinality();
+            }
+        }
+    }
+
+    @Override
+    void clear(){
+        postings.clear();
+        unindexed.clear();
+        removed.clear();
+        estimatedMemory = 0;
+        pending = 0;
+        generation++;
+    }
+
+    @Override
+    RowBounds lookup(BooleanOperator op, Object constant, Predicate<Object> test){
+        if(!isEnabled()) return null;
+        List<List<String>> clauses = getRequiredLiterals(op, constant);
+        if(clauses == null) return null;
+
+        //Every match contains one of the literals of each clause, and so all the trigrams of that literal.
+        CompressedBitmap candidates = null;
+        for (List<String> clause : clauses) {
+            List<int[]> alternatives = new ArrayList<>();
+            for (String literal : clause) {
+                int[] trigrams = getTrigrams(literal);
+                if(trigrams.length == 0){
+                    alternatives = null;
+                    break;
+                }
+                alternatives.add(trigrams);
+            }
+            if(alternatives == null) continue;
+
+            List<CompressedBitmap> matching = new ArrayList<>();
+            for (int[] trigrams : alternatives) {
+                matching.add(lookupAll(trigrams));
+            }
+            CompressedBitmap rows = CompressedBitmap.or(matching);
+            candidates = candidates == null ? rows : CompressedBitmap.and(candidates, rows);
+            if(candidates.isEmpty()) break;
+        }
+        if(candidates == null) return null;
+
+        candidates = CompressedBitmap.or(candidates, unindexed);
+        if(!removed.isEmpty()) candidates = CompressedBitmap.andNot(candidates, removed);
+        return new RowBounds(new CompressedBitmap(), candidates);
+    }
+
+    //The rows holding every one of the trigrams.
+    private CompressedBitmap lookupAll(int[] trigrams){
+        CompressedBitmap rows = null;
+        for (int trigram : trigrams) {
+            CompressedBitmap posting = postings.get(trigram);
+            if(posting == null) return new CompressedBitmap();
+            rows = rows == null ? posting.copy() : CompressedBitmap.and(rows, posting);
+            if(rows.isEmpty()) break;
+        }
+        return rows;
+    }
+
+    /**
+     * @return Clauses of literals, one of each of which any value matching the comparison must contain,
+     * or null if they can't be determined.
+     */
+    private static List<List<String>> getRequiredLiterals(BooleanOperator op, Object constant){
+        //Equality is left out, as equalsIgnoreCase also folds some non-ASCII characters to ASCII.
+        if(op == BooleanOperator.CONTAINS && constant instanceof String){
+            return Collections.singletonList(Collections.singletonList(((String) constant).toLowerCase()));
+        }
+        if((op == BooleanOperator.EQUAL || op == BooleanOperator.MATCHES) && constant instanceof Pattern){
+            RegexPrefilter prefilter = RegexPrefilter.forPattern((Pattern) constant);
+            return prefilter != null ? prefilter.getRequiredLiterals() : null;
+        }
+        return null;
+    }
+
+    //The trigrams of the runs of ASCII characters in the literal, with letters folded to lower case.
+    private static int[] getTrigrams(String literal){
+        Set<Integer> trigrams = new HashSet<>();
+        int trigram = 0, run = 0;
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if(c >= 0x80){
+                run = 0;
+                continue;
+            }
+            if(c >= 'A' && c <= 'Z') c += 'a' - 'A';
+            trigram = ((trigram << 7) | c) & TRIGRAM_MASK;
+            if(++run >= 3) trigrams.add(trigram);
+        }
+        return trigrams.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return The distinct trigrams of ASCII bytes in the message with letters folded to lower case.
+     * Bodies are compared one character per byte, so no other byte can match an ASCII character.
+     */
+    static int[] extractTrigrams(byte[] bytes){
+        if(bytes == null) return new int[0];
+        long[] seen = SEEN.get();
+        int[] trigrams = new int[256];
+        int count = 0, trigram = 0, run = 0;
+        try {
+            for (int i = 0; i < bytes.length; i++) {
+                int b = bytes[i] & 0xFF;
+                if(b >= 0x80){
+                    run = 0;
+                    continue;
+                }
+                if(b >= 'A' && b <= 'Z') b += 'a' - 'A';
+                trigram = ((trigram << 7) | b) & TRIGRAM_MASK;
+                if(++run >= 3 && (seen[trigram >>> 6] & (1L << trigram)) == 0){
+                    seen[trigram >>> 6] |= 1L << trigram;
+                    if(count == trigrams.length) trigrams = Arrays.copyOf(trigrams, count * 2);
+                    trigrams[count++] = trigram;
+                }
+            }
+        }finally {
+            for (int j = 0; j < count; j++) {
+                seen[trigrams[j] >>> 6] = 0;
+            }
+        }
+        trigrams = Arrays.copyOf(trigrams, count);
+        Arrays.sort(trigrams);
+        return trigrams;
+    }
+}
@@ -2,5 +2,7 @@ package com.nccgroup.loggerplusplus.logview;
 
 public interface LogTableFilterStatusListener {
     void onFilteringStart();
+    void onFilteringProgress(int evaluatedRows, int totalRows);
     void onFilteringFinish();
+    void onFilteringTimedOut(int timedOutRows);
 }
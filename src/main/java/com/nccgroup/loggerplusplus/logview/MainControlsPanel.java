@@ -27,10 +27,65 @@ public class MainControlsPanel extends JPanel {
         gbc.weightx = 99.0;
         this.add(logFilterController.getFilterField(), gbc);
 
+        final JProgressBar filterProgressBar = new JProgressBar();
+        filterProgressBar.setStringPainted(true);
+        filterProgressBar.setVisible(false);
+
+        final JLabel timeoutWarning = new JLabel();
+        timeoutWarning.setForeground(new Color(221, 70, 57));
+        timeoutWarning.setToolTipText("<html>The filter took too long to test these entries, so they are not shown.<br>" +
+                "The time limits can be changed in the preferences.</html>");
+        timeoutWarning.setVisible(false);
+        logFilterController.getLogViewController().getLogTableController().getLogTable()
+                .addFilterStatusListener(new LogTableFilterStatusListener() {
+            @Override
+            public void onFilteringStart() {
+                filterProgressBar.setValue(0);
+                filterProgressBar.setVisible(true);
+                revalidate();
+            }
+
+            @Override
+            public void onFilteringProgress(int evaluatedRows, int totalRows) {
+                filterProgressBar.setMaximum(totalRows);
+                filterProgressBar.setValue(evaluatedRows);
+                filterProgressBar.setString(String.format("Filtering %d / %d", evaluatedRows, totalRows));
+            }
+
+            @Override
+            public void onFilteringFinish() {
+                filterProgressBar.setVisible(false);
+                revalidate();
+            }
+
+            @Override
+            public void onFilteringTimedOut(int timedOutRows) {
+                timeoutWarning.setText(String.format(" %d %s timed out ", timedOutRows, timedOutRows == 1 ? "entry" : "entries"));
+                timeoutWarning.setVisible(timedOutRows > 0);
+                revalidate();
+            }
+        });
+
+        gbc.gridx = 2;
+        gbc.weightx = 0;
+        this.add(filterProgressBar, gbc);
+
+        gbc.gridx = 3;
+        gbc.weightx = 0;
+        this.add(timeoutWarning, gbc);
+
+        final JButton explainButton = new JButton("Explain");
+        explainButton.setToolTipText("Show how the filter will be evaluated, and profile it against the logged entries.");
+        explainButton.addActionListener(actionEvent -> logFilterController.explainFilter());
+
+        gbc.gridx = 4;
+        gbc.weightx = 0;
+        this.add(explainButton, gbc);
+
         final JButton colorFilterButton = new JButton("Colorize");
         colorFilterButton.addActionListener(actionEvent -> new ColorFilterDialog(LoggerPlusPlus.instance.getLibraryController()).setVisible(true));
 
-        gbc.gridx = 3;
+        gbc.gridx = 5;
         gbc.weightx = 0;
         this.add(colorFilterButton, gbc);
 
@@ -38,7 +93,7 @@ public class MainControlsPanel extends JPanel {
         clearLogsButton.addActionListener(actionEvent ->
                 logFilterController.getLogViewController().getLogTableController().reset());
 
-        gbc.gridx = 4;
+        gbc.gridx = 6;
         gbc.weightx = 0;
         this.add(clearLogsButton, gbc);
     }
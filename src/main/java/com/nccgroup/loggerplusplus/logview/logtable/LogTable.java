@@ -9,6 +9,7 @@ import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilter;
 import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
 import com.nccgroup.loggerplusplus.logentry.LogEntry;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logview.LogTableFilterStatusListener;
 import com.nccgroup.loggerplusplus.logview.MultipleLogEntryMenu;
 import com.nccgroup.loggerplusplus.logview.SingleLogEntryMenu;
 import com.nccgroup.loggerplusplus.logview.entryviewer.RequestViewerController;
@@ -20,7 +21,6 @@ import javax.swing.event.RowSorterEvent;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.table.TableCellRenderer;
-import javax.swing.table.TableRowSorter;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
@@ -33,7 +33,7 @@ public class LogTable extends JTable
 {
     private final LogTableController controller;
     private final Preferences preferences;
-    private final TableRowSorter<LogTableModel> sorter;
+    private final LogTableRowSorter sorter;
 
     LogTable(LogTableController controller)
     {
@@ -47,9 +47,8 @@ public class LogTable extends JTable
         this.setDefaultRenderer(Boolean.class, new BooleanRenderer()); //Fix grey checkbox background
         ((JComponent) this.getDefaultRenderer(Boolean.class)).setOpaque(true); // to remove the white background of the checkboxes!
 
-        this.sorter = new TableRowSorter<>(this.getModel());
+        this.sorter = new LogTableRowSorter(this.getModel());
         this.sorter.setMaxSortKeys(1);
-        this.sorter.setSortsOnUpdates(true);
         this.setRowSorter(this.sorter);
 
         this.sorter.addRowSorterListener(rowSorterEvent -> {
@@ -208,14 +207,77 @@ public class LogTable extends JTable
 
 
     public LogFilter getCurrentFilter(){
-        return (LogFilter) this.sorter.getRowFilter();
+        return this.sorter.getRowFilter();
     }
 
     public void setFilter(LogFilter filter){
+        LogFilter previous = getCurrentFilter();
+        if(filter != null){
+            LogFilter materialised = getModel().getMaterialisedFilters().getEquivalent(filter);
+            if(materialised != null){
+                //The matching entries are already known.
+                filter.seedFrom(materialised);
+            }else{
+                //If the new filter only narrows the previous one, rows it rejected need not be tested again.
+                filter.narrowFrom(previous);
+            }
+        }
+        getModel().removeActiveFilter(previous);
+        getModel().addActiveFilter(filter);
         this.sorter.setRowFilter(filter);
         ((JScrollPane) this.getParent().getParent()).getVerticalScrollBar().setValue(0);
     }
 
+    /**
+     * Stop applying a filter which is still being applied in the background, keeping the rows currently shown.
+     */
+    public void cancelFilterUpdate(){
+        LogFilter pending = getCurrentFilter();
+        if(this.sorter.cancelFilter()){
+            getModel().removeActiveFilter(pending);
+            getModel().addActiveFilter(getCurrentFilter());
+        }
+    }
+
+    /**
+     * Apply the current filter again if it was recompiled, as the rows shown were found with its previous definition.
+     */
+    public void onFiltersRecompiled(Set<LogFilter> filters){
+        SwingUtilities.invokeLater(() -> this.sorter.refilter(filters));
+    }
+
+    /**
+     * Select an entry and scroll to it, if it is shown by the current filter.
+     * @return True if the entry was selected.
+     */
+    public boolean selectEntry(LogEntry entry){
+        int modelRow = getModel().getData().indexOf(entry);
+        int viewRow = modelRow == -1 ? -1 : convertRowIndexToView(modelRow);
+        if(viewRow == -1) return false;
+        setRowSelectionInterval(viewRow, viewRow);
+        scrollRectToVisible(getCellRect(viewRow, 0, true));
+        return true;
+    }
+
+    /**
+     * Set the time limits on testing entries against the filter, see {@link LogTableRowSorter#setEvaluationTimeouts}.
+     */
+    public void setFilterTimeouts(long entryMillis, long queryMillis){
+        this.sorter.setEvaluationTimeouts(entryMillis, queryMillis);
+    }
+
+    public void addFilterStatusListener(LogTableFilterStatusListener listener){
+        this.sorter.addFilterStatusListener(listener);
+    }
+
+    public void removeFilterStatusListener(LogTableFilterStatusListener listener){
+        this.sorter.removeFilterStatusListener(listener);
+    }
+
+    public void shutdown(){
+        this.sorter.shutdown();
+    }
+
     @Override
     public LogTableModel getModel(){
         return (LogTableModel) super.getModel();
@@ -33,6 +33,7 @@ public class LogTableColumn extends TableColumn implements Comparable<LogTableCo
 	private boolean readOnly;
 	private String description;
 	private String defaultVisibleName;
+	private SortKeyExtractor sortKeyExtractor;
 
 	@Override
 	public void setPreferredWidth(int width){
@@ -88,6 +89,16 @@ public class LogTableColumn extends TableColumn implements Comparable<LogTableCo
 		return defaultVisibleName;
 	}
 
+	/**
+	 * @return Reduces the values of the column to primitive keys to sort rows by.
+	 */
+	public SortKeyExtractor getSortKeyExtractor() {
+		if (sortKeyExtractor == null || sortKeyExtractor.getField() != getIdentifier()) {
+			sortKeyExtractor = SortKeyExtractor.forField(getIdentifier());
+		}
+		return sortKeyExtractor;
+	}
+
 
 	@Override
 	public Object getHeaderValue() {
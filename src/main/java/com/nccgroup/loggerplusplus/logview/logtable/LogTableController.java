@@ -1,6 +1,7 @@
 package com.nccgroup.loggerplusplus.logview.logtable;
 
 import com.coreyd97.BurpExtenderUtilities.Preferences;
+import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
 import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryController;
 import com.nccgroup.loggerplusplus.logview.LogViewController;
 import com.nccgroup.loggerplusplus.util.Globals;
@@ -26,6 +27,36 @@ public class LogTableController {
         this.logTable = new LogTable(this);
 
         this.filterLibraryController.addColorFilterListener(logTableModel);
+        this.filterLibraryController.addFilterListener(logTableModel.getMaterialisedFilters());
+        this.filterLibraryController.addFilterRecompileListener(logTable::onFiltersRecompiled);
+        //The library shows the number of entries matching each materialised filter.
+        logTableModel.getMaterialisedFilters().addMatchCountListener(filterLibraryController.getFilterLibraryPanel().getTableModel());
+        for (SavedFilter savedFilter : filterLibraryController.getSavedFilters()) {
+            logTableModel.getMaterialisedFilters().update(savedFilter);
+        }
+
+        updateBodyIndexMemoryLimit();
+        updateFilterTimeouts();
+        this.preferences.addSettingListener((source, settingName, newValue) -> {
+            if (Globals.PREF_BODY_INDEX_MEMORY.equals(settingName)) {
+                updateBodyIndexMemoryLimit();
+            } else if (Globals.PREF_FILTER_ENTRY_TIMEOUT.equals(settingName) || Globals.PREF_FILTER_QUERY_TIMEOUT.equals(settingName)) {
+                updateFilterTimeouts();
+            }
+        });
+    }
+
+    private void updateFilterTimeouts(){
+        int entryTimeout = preferences.getSetting(Globals.PREF_FILTER_ENTRY_TIMEOUT);
+        int queryTimeout = preferences.getSetting(Globals.PREF_FILTER_QUERY_TIMEOUT);
+        logTable.setFilterTimeouts(entryTimeout, queryTimeout);
+        logTableModel.getMaterialisedFilters().setEvaluationTimeouts(entryTimeout, queryTimeout);
+        logTableModel.setEvaluationTimeouts(entryTimeout, queryTimeout);
+    }
+
+    private void updateBodyIndexMemoryLimit(){
+        int megabytes = preferences.getSetting(Globals.PREF_BODY_INDEX_MEMORY);
+        logTableModel.setBodyIndexMemoryLimit(megabytes * 1024L * 1024L);
     }
 
     public LogViewController getLogViewController() {
@@ -57,6 +88,11 @@ public class LogTableController {
         logTableModel.reset();
     }
 
+    public void shutdown(){
+        logTable.shutdown();
+        logTableModel.shutdown();
+    }
+
     public int getMaximumEntries(){
         return preferences.getSetting(Globals.PREF_MAXIMUM_ENTRIES);
     }
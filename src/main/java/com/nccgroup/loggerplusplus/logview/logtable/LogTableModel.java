@@ -2,25 +2,45 @@ package com.nccgroup.loggerplusplus.logview.logtable;
 
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilter;
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilterListener;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
 import com.nccgroup.loggerplusplus.logentry.LogEntry;
 import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+import com.nccgroup.loggerplusplus.logentry.LogEntryStore;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
 import com.nccgroup.loggerplusplus.logview.processor.LogProcessor;
 
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /* Extending AbstractTableModel to design the logTable behaviour based on the array list */
 public class LogTableModel extends AbstractTableModel implements ColorFilterListener {
 
     private final LogTableController controller;
-    private final List<LogEntry> entries;
+    private final LogEntryStore entries;
+    private final LogEntryIndex index;
+    private final List<LogFilter> activeFilters;
+    //The filters of the color filters, whose cached results are kept up to date so they needn't be retested.
+    private final Map<UUID, LogFilter> colorFilterResults;
+    private final MaterialisedFilters materialisedFilters;
     private LogTableColumnModel columnModel;
+    private volatile long entryTimeoutMillis;
+    private volatile long queryTimeoutMillis;
 
     public LogTableModel(LogTableController controller, LogTableColumnModel columnModel) {
         this.controller = controller;
         this.columnModel = columnModel;
-        this.entries = Collections.synchronizedList(new ArrayList<>());
+        this.entries = new LogEntryStore();
+        this.index = new LogEntryIndex();
+        this.activeFilters = new CopyOnWriteArrayList<>();
+        this.colorFilterResults = new ConcurrentHashMap<>();
+        this.materialisedFilters = new MaterialisedFilters(this);
+        this.entryTimeoutMillis = 250;
+        this.queryTimeoutMillis = 5000;
     }
 
     @Override
@@ -43,14 +63,33 @@ public class LogTableModel extends AbstractTableModel implements ColorFilterList
         LogEntry logEntry = entries.get(rowModelIndex);
         if (this.columnModel.getColumn(columnModelIndex).getIdentifier() == LogEntryField.COMMENT) {
             logEntry.setComment(String.valueOf(value));
+            notifyFiltersOfUpdate(logEntry, Collections.singleton(LogEntryField.COMMENT));
         }
         fireTableCellUpdated(rowModelIndex, columnModelIndex);
     }
 
     @Override
     public Class<?> getColumnClass(int columnModelIndex) {
-        Object val = getValueAt(0, columnModelIndex);
-        return val == null ? Object.class : val.getClass();
+        if (columnModelIndex == 0) return Integer.class;
+        Class<?> type = getColumnField(columnModelIndex).getType();
+        //Dates are shown formatted, see getValueAt
+        return Date.class.isAssignableFrom(type) ? String.class : type;
+    }
+
+    /**
+     * @return The field shown in the column
+     */
+    public LogEntryField getColumnField(int columnModelIndex) {
+        return (LogEntryField) this.columnModel.getColumn(columnModelIndex).getIdentifier();
+    }
+
+    /**
+     * @return Reduces the values of the column to primitive keys to sort rows by
+     */
+    public SortKeyExtractor getColumnSortKeyExtractor(int columnModelIndex) {
+        //The first column always shows the row number, see getValueAt
+        if (columnModelIndex == 0) return SortKeyExtractor.ROW_NUMBER;
+        return ((LogTableColumn) this.columnModel.getColumn(columnModelIndex)).getSortKeyExtractor();
     }
 
     private int getMaxEntries() {
@@ -61,36 +100,81 @@ public class LogTableModel extends AbstractTableModel implements ColorFilterList
         removeLogEntries(Arrays.asList(logEntry));
     }
 
-    public void removeLogEntries(List<LogEntry> logEntry) {
-        synchronized (entries) {
+    public synchronized void removeLogEntries(List<LogEntry> logEntry) {
+        //Rows are returned in descending order, so each event is valid after those before it.
+        for (int row : entries.removeAll(logEntry)) {
+            this.fireTableRowsDeleted(row, row);
+        }
+        index.remove(logEntry);
+        forEachCachedFilter(filter -> {
             for (LogEntry entry : logEntry) {
-                int index = entries.indexOf(entry);
-                removeEntryAtRow(index);
+                filter.getMatchCache().invalidate(entry.getRowId());
             }
-        }
+        });
+        materialisedFilters.onEntriesRemoved();
     }
 
     public synchronized void removeEntryAtRow(int row) {
-        entries.remove(row);
-        this.fireTableRowsDeleted(row, row);
+        removeLogEntry(entries.get(row));
     }
 
     public synchronized void addEntry(LogEntry logEntry) {
-        int index = entries.size();
-        entries.add(logEntry);
-        this.fireTableRowsInserted(index, index);
+        int row = entries.add(logEntry);
+        index.add(logEntry);
+        materialisedFilters.onEntryChanged(logEntry);
+        this.fireTableRowsInserted(row, row);
 
         int excess = Math.max(entries.size() - controller.getMaximumEntries(), 0);
-        for (int excessIndex = 0; excessIndex < excess; excessIndex++) {
-            removeEntryAtRow(0); // Always remove the oldest entry
+        if (excess > 0) {
+            entries.evictOldest(excess); // Always remove the oldest entries
+            this.fireTableRowsDeleted(0, excess - 1);
+        }
+        if (excess > 0 && entries.size() > 0) {
+            int oldestRowId = entries.get(0).getRowId();
+            index.removeBelow(oldestRowId);
+            forEachCachedFilter(filter -> filter.getMatchCache().removeBelow(oldestRowId));
+            materialisedFilters.onEntriesRemoved();
         }
     }
 
     public synchronized void updateEntry(LogEntry logEntry) {
+        updateEntry(logEntry, EnumSet.allOf(LogEntryField.class));
+    }
+
+    /**
+     * Notify listeners that an entry has changed.
+     * @param changedFields The fields which may have changed. Filters which don't read them keep their cached result for the entry.
+     */
+    public synchronized void updateEntry(LogEntry logEntry, Set<LogEntryField> changedFields) {
         int index = entries.indexOf(logEntry);
+        if (index == -1) return; //Entry has since been removed from the table
+        this.index.update(logEntry, changedFields);
+        notifyFiltersOfUpdate(logEntry, changedFields);
         fireTableRowsUpdated(index, index);
     }
 
+    private void notifyFiltersOfUpdate(LogEntry logEntry, Set<LogEntryField> changedFields) {
+        forEachCachedFilter(filter -> filter.onEntryUpdated(logEntry, changedFields));
+        materialisedFilters.onEntryChanged(logEntry);
+    }
+
+    private void forEachCachedFilter(Consumer<LogFilter> action) {
+        activeFilters.forEach(action);
+        colorFilterResults.values().forEach(action);
+        materialisedFilters.getFilters().forEach(action);
+    }
+
+    /**
+     * Register a filter applied to the table, so its cached results are kept up to date as entries change.
+     */
+    public void addActiveFilter(LogFilter filter) {
+        if (filter != null && !activeFilters.contains(filter)) activeFilters.add(filter);
+    }
+
+    public void removeActiveFilter(LogFilter filter) {
+        if (filter != null) activeFilters.remove(filter);
+    }
+
     @Override
     public Object getValueAt(int rowIndex, int colModelIndex) {
         if (rowIndex >= entries.size())
@@ -109,66 +193,122 @@ public class LogTableModel extends AbstractTableModel implements ColorFilterList
         return value;
     }
 
-    public List<LogEntry> getData() {
-        return this.entries;
+    /**
+     * @return A snapshot of the entries currently in the table. The snapshot will not change as entries are
+     * added or removed, so can be safely iterated from background threads.
+     */
+    public LogEntryStore.Snapshot getData() {
+        return this.entries.snapshot();
     }
 
     public LogEntry getRow(int row) {
         return this.entries.get(row);
     }
 
+    /**
+     * @return The secondary indexes over the entries in the table
+     */
+    public LogEntryIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * @param bytes The approximate memory the body indexes may use, or 0 to disable them
+     */
+    public void setBodyIndexMemoryLimit(long bytes) {
+        this.index.setBodyIndexMemoryLimit(bytes, this.entries.snapshot());
+    }
+
+    /**
+     * Set the time limits on testing entries against the color filters, see {@link EvaluationBudget}.
+     */
+    public void setEvaluationTimeouts(long entryMillis, long queryMillis) {
+        this.entryTimeoutMillis = entryMillis;
+        this.queryTimeoutMillis = queryMillis;
+    }
+
+    /**
+     * @return The views of the saved filters whose matching entries are kept up to date
+     */
+    public MaterialisedFilters getMaterialisedFilters() {
+        return this.materialisedFilters;
+    }
+
+    public void shutdown() {
+        this.materialisedFilters.shutdown();
+        this.index.shutdown();
+    }
+
     public void reset() {
         this.entries.clear();
+        this.index.clear();
+        forEachCachedFilter(filter -> filter.getMatchCache().clear());
+        materialisedFilters.onEntriesRemoved();
         this.fireTableDataChanged();
     }
 
     // FilterListeners
     @Override
     public void onFilterChange(final ColorFilter filter) {
-        createFilterTestingWorker(filter, filter.shouldRetest()).execute();
+        trackColorFilter(filter);
+        createFilterTestingWorker(filter).execute();
     }
 
     @Override
     public void onFilterAdd(final ColorFilter filter) {
         if (!filter.isEnabled() || filter.getFilter() == null)
             return;
-        createFilterTestingWorker(filter, false);
+        trackColorFilter(filter);
+        createFilterTestingWorker(filter).execute();
     }
 
     @Override
     public void onFilterRemove(final ColorFilter filter) {
+        colorFilterResults.remove(filter.getUUID());
         if (!filter.isEnabled() || filter.getFilter() == null)
             return;
-        new SwingWorker<Void, Integer>() {
+        new SwingWorker<Void, LogEntry>() {
             @Override
             protected Void doInBackground() {
-                for (int i = 0; i < entries.size(); i++) {
-                    boolean wasPresent = entries.get(i).matchingColorFilters.remove(filter.getUUID());
+                for (LogEntry entry : entries.snapshot()) {
+                    boolean wasPresent = entry.matchingColorFilters.remove(filter.getUUID());
                     if (wasPresent) {
-                        publish(i);
+                        publish(entry);
                     }
                 }
                 return null;
             }
 
             @Override
-            protected void process(List<Integer> rows) {
-                for (Integer row : rows) {
-                    fireTableRowsUpdated(row, row);
-                }
+            protected void process(List<LogEntry> updatedEntries) {
+                fireEntriesUpdated(updatedEntries);
             }
         }.execute();
     }
 
-    private SwingWorker<Void, Integer> createFilterTestingWorker(final ColorFilter filter, boolean retestExisting) {
-        return new SwingWorker<Void, Integer>() {
+    /**
+     * Keep the results of the color filter's filter up to date, so changes to its colors, priority or whether it is
+     * enabled don't retest any entries. If the filter itself was changed, its results are seeded from the previous filter where possible.
+     */
+    private void trackColorFilter(ColorFilter colorFilter) {
+        LogFilter filter = colorFilter.getFilter();
+        LogFilter previous = filter == null ? colorFilterResults.remove(colorFilter.getUUID())
+                : colorFilterResults.put(colorFilter.getUUID(), filter);
+        if (filter != null && previous != filter) {
+            filter.narrowFrom(previous);
+        }
+    }
+
+    private SwingWorker<Void, LogEntry> createFilterTestingWorker(final ColorFilter filter) {
+        return new SwingWorker<Void, LogEntry>() {
 
             @Override
             protected Void doInBackground() {
-                for (int i = 0; i < entries.size(); i++) {
-                    boolean testResultChanged = entries.get(i).testColorFilter(filter, retestExisting);
+                EvaluationBudget budget = new EvaluationBudget(entryTimeoutMillis, queryTimeoutMillis);
+                for (LogEntry entry : entries.snapshot()) {
+                    boolean testResultChanged = entry.testColorFilter(filter, budget);
                     if (testResultChanged) {
-                        publish(i);
+                        publish(entry);
                     }
                 }
 
@@ -176,11 +316,19 @@ public class LogTableModel extends AbstractTableModel implements ColorFilterList
             }
 
             @Override
-            protected void process(List<Integer> updatedRows) {
-                for (Integer row : updatedRows) {
-                    fireTableRowsUpdated(row, row);
-                }
+            protected void process(List<LogEntry> updatedEntries) {
+                fireEntriesUpdated(updatedEntries);
             }
         };
     }
+
+    //Rows may have moved since the entries were published, so look them up again on the EDT.
+    private void fireEntriesUpdated(List<LogEntry> updatedEntries) {
+        for (LogEntry entry : updatedEntries) {
+            int row = entries.indexOf(entry);
+            if (row != -1) {
+                fireTableRowsUpdated(row, row);
+            }
+        }
+    }
 }
\ No newline at end of file
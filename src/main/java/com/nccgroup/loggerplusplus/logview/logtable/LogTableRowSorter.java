@@ -0,0 +1,1141 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import com.nccgroup.loggerplusplus.filter.compiled.BitmapQueryExecutor;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryStore;
+import com.nccgroup.loggerplusplus.logentry.index.RowBounds;
+import com.nccgroup.loggerplusplus.logview.LogTableFilterStatusListener;
+import com.nccgroup.loggerplusplus.util.CompressedBitmap;
+
+import javax.swing.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntBinaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Filters and sorts the log table without blocking the event dispatch thread.
+ *
+ * Setting a filter or sort order starts a pass over a snapshot of the entries on a fork/join pool.
+ * The snapshot is split into chunks which are filtered and sorted in parallel, newest first, then merged into a
+ * view to model mapping which is swapped in on the EDT. Until then the table keeps showing the previous mapping,
+ * except for slow passes, where the chunks completed so far are merged and shown every {@link #PUBLISH_INTERVAL_MS}ms.
+ * Rows inserted, deleted or updated meanwhile are applied to the mapping shown, and reconciled with
+ * the result of the pass when it is swapped in. Rows the indexes of the model can decide for the filter
+ * are not tested, see {@link BitmapQueryExecutor}.
+ *
+ * Rows are sorted by primitive keys taken from the values of the sort columns, see {@link SortKeyExtractor},
+ * held column-wise and compared without reading the entries again. Columns of values such as strings are keyed by
+ * their rank in a {@link SortKeyDictionary} of the values in the column, built before any rows are sorted.
+ * The keys found by a pass are kept with the mapping shown, so rows inserted or updated later are merged
+ * into the view by binary search against the keys of the rows already shown.
+ *
+ * The mapping shown is held in buffers with room to grow, and rows are held by their position, their model row
+ * offset by the number of rows deleted from the start of the model since the mapping was built. Appending,
+ * evicting the oldest rows and updating rows are applied in place, only moving the rows of the view after
+ * or before the row changed, whichever are fewer. JTable treats rows inserted into or deleted from the model as a
+ * change to the view itself, so these are applied without firing a change of the whole sorter.
+ *
+ * Entries are tested within an {@link EvaluationBudget}, so a filter which takes too long on some entries,
+ * e.g. a regex which backtracks catastrophically, leaves them out rather than stalling the pass or the EDT.
+ * The number of entries left out is reported to the status listeners.
+ */
+public class LogTableRowSorter extends RowSorter<LogTableModel> {
+
+    //Rows per chunk claimed by a worker, and rows tested between checks for cancellation.
+    private static final int CHUNK_SIZE = 4096;
+    private static final int BATCH_SIZE = 256;
+    private static final long PUBLISH_INTERVAL_MS = 100;
+
+    private final LogTableModel model;
+    private final ForkJoinPool pool;
+    private final BitmapQueryExecutor queryExecutor;
+    private final Set<LogEntry> updatedDuringPass;
+    private final List<LogTableFilterStatusListener> statusListeners;
+    private List<SortKey> sortKeys;
+    private int maxSortKeys;
+    private LogFilter rowFilter;
+    private long entryTimeoutMillis;
+    private long queryTimeoutMillis;
+    private int reportedTimeouts;
+
+    //The filter and sort order the rows shown were built with.
+    private LogFilter displayedFilter;
+    private SortSpec displayedSort;
+    //Null while every row is shown in model order. The positions of the rows shown are held in viewToModel[viewStart, viewEnd).
+    private int[] viewToModel;
+    private int viewStart;
+    private int viewEnd;
+    //Indexed by position, the index in viewToModel of the row, or -1 if it is not shown.
+    private int[] modelToView;
+    //The number of rows deleted from the start of the model since the mapping was built, added to model rows to give their position.
+    private int rowOffset;
+    //The sort keys of the rows shown, indexed by position. Null if they are not sorted.
+    private RowKeys displayedKeys;
+    private int modelRowCount;
+    private FilterPass pendingPass;
+
+    public LogTableRowSorter(LogTableModel model){
+        this.model = model;
+        this.pool = new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1), forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(String.format("LPP-RowSorter-Thread-%d", thread.getPoolIndex()));
+            return thread;
+        }, null, false);
+        this.queryExecutor = new BitmapQueryExecutor(model.getIndex());
+        this.updatedDuringPass = Collections.newSetFromMap(new IdentityHashMap<>());
+        this.statusListeners = new ArrayList<>();
+        this.sortKeys = Collections.emptyList();
+        this.maxSortKeys = 3;
+        this.entryTimeoutMillis = 250;
+        this.queryTimeoutMillis = 5000;
+        this.modelRowCount = model.getRowCount();
+    }
+
+    @Override
+    public LogTableModel getModel() {
+        return model;
+    }
+
+    public LogFilter getRowFilter() {
+        return rowFilter;
+    }
+
+    /**
+     * Set the filter for the table. The rows shown are updated once the filter has been applied in the background.
+     */
+    public void setRowFilter(LogFilter filter) {
+        this.rowFilter = filter;
+        refresh();
+    }
+
+    /**
+     * Apply the filter again if it is among the given filters, which have been recompiled.
+     * The rows shown were found by its previous definition, so are replaced once it has been applied in the background.
+     */
+    public void refilter(Set<LogFilter> filters) {
+        if (filters.contains(rowFilter) || filters.contains(displayedFilter)) refresh();
+    }
+
+    /**
+     * Abandon applying a new filter, going back to the filter the rows shown were built with.
+     * @return True if a new filter was being applied.
+     */
+    public boolean cancelFilter() {
+        if (pendingPass == null || pendingPass.filter == pendingPass.previousFilter) return false;
+        LogFilter previousFilter = pendingPass.previousFilter;
+        boolean shown = pendingPass.shown;
+        cancelPass();
+        rowFilter = previousFilter;
+        //If partial results were shown, the rows for the previous filter must be found again.
+        if (shown || !Objects.equals(createSortSpec(), displayedSort)) refresh();
+        return true;
+    }
+
+    /**
+     * Set the time limits on testing entries against the filter, applied from the next pass.
+     * @param entryMillis The longest a single entry may take
+     * @param queryMillis The total time entries may spend timing out before the rest of a pass is given up on
+     */
+    public void setEvaluationTimeouts(long entryMillis, long queryMillis) {
+        this.entryTimeoutMillis = entryMillis;
+        this.queryTimeoutMillis = queryMillis;
+    }
+
+    private EvaluationBudget createBudget() {
+        return new EvaluationBudget(entryTimeoutMillis, queryTimeoutMillis);
+    }
+
+    public void addFilterStatusListener(LogTableFilterStatusListener listener) {
+        statusListeners.add(listener);
+    }
+
+    public void removeFilterStatusListener(LogTableFilterStatusListener listener) {
+        statusListeners.remove(listener);
+    }
+
+    public void setMaxSortKeys(int maxSortKeys) {
+        if (maxSortKeys < 1) throw new IllegalArgumentException("Invalid max");
+        this.maxSortKeys = maxSortKeys;
+    }
+
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        List<SortKey> keys = new ArrayList<>(sortKeys);
+        int index;
+        for (index = keys.size() - 1; index >= 0; index--) {
+            if (keys.get(index).getColumn() == column) break;
+        }
+        if (index == 0) {
+            SortOrder order = keys.get(0).getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+            keys.set(0, new SortKey(column, order));
+        } else {
+            if (index != -1) keys.remove(index);
+            keys.add(0, new SortKey(column, SortOrder.ASCENDING));
+        }
+        if (keys.size() > maxSortKeys) keys = keys.subList(0, maxSortKeys);
+        setSortKeys(keys);
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> old = sortKeys;
+        if (keys != null && !keys.isEmpty()) {
+            for (SortKey key : keys) {
+                if (key == null) throw new IllegalArgumentException("Invalid SortKey");
+                checkColumn(key.getColumn());
+            }
+            sortKeys = Collections.unmodifiableList(new ArrayList<>(keys));
+        } else {
+            sortKeys = Collections.emptyList();
+        }
+        if (!sortKeys.equals(old)) {
+            fireSortOrderChanged();
+            refresh();
+        }
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= model.getColumnCount())
+            throw new IllegalArgumentException("Invalid column: " + column);
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= getViewRowCount()) throw new IndexOutOfBoundsException("Invalid index: " + index);
+        return viewToModel == null ? index : viewToModel[viewStart + index] - rowOffset;
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= modelRowCount) throw new IndexOutOfBoundsException("Invalid index: " + index);
+        if (modelToView == null) return index;
+        int viewIndex = modelToView[index + rowOffset];
+        return viewIndex == -1 ? -1 : viewIndex - viewStart;
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? modelRowCount : viewEnd - viewStart;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return modelRowCount;
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        allRowsChanged();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        int[] previous = getViewToModelAsInts();
+        modelRowCount = model.getRowCount();
+        //The rows shown no longer correspond to the model, so show none until they have been filtered again.
+        if (viewToModel != null) {
+            setMapping(displayedFilter, displayedSort, displayedSort == null ? null : new RowKeys(displayedSort, modelRowCount, false), new int[0]);
+        }
+        fireRowSorterChanged(previous);
+        refresh();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (viewToModel == null) {
+            modelRowCount += count;
+            return;
+        }
+
+        if (firstRow == modelRowCount) {
+            //Rows are appended, so no row already shown moves in the model.
+            modelRowCount += count;
+            int positions = rowOffset + modelRowCount;
+            if (positions > modelToView.length) {
+                modelToView = Arrays.copyOf(modelToView, Math.max(positions, modelToView.length + (modelToView.length >> 1)));
+            }
+            Arrays.fill(modelToView, positions - count, positions, -1);
+            if (displayedKeys != null) displayedKeys.insertRows(positions - count, count);
+            for (int row : matchingRows(displayedFilter, firstRow, endRow + 1)) {
+                int position = row + rowOffset;
+                if (displayedKeys != null) displayedKeys.compute(model.getRow(row), position);
+                insertAt(findInsertIndex(position), position);
+            }
+            reportTimeouts();
+            return;
+        }
+
+        compact();
+        int[] view = getViewToModelAsInts();
+        for (int i = 0; i < view.length; i++) {
+            if (view[i] >= firstRow) view[i] += count;
+        }
+        modelRowCount += count;
+        if (displayedKeys != null) displayedKeys.insertRows(firstRow, count);
+        setViewToModel(insertRows(view, matchingRows(displayedFilter, firstRow, endRow + 1), displayedKeys));
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        int count = endRow - firstRow + 1;
+        if (viewToModel == null) {
+            modelRowCount -= count;
+            return;
+        }
+
+        if (firstRow == 0) {
+            //The oldest rows are evicted, so rather than renumber the rest, the rows after them are offset.
+            for (int position = rowOffset; position < rowOffset + count; position++) {
+                int index = modelToView[position];
+                if (index != -1) removeAt(index);
+            }
+            rowOffset += count;
+            modelRowCount -= count;
+            //Renumber once as many rows have been evicted as remain, so each row is renumbered a constant number of times.
+            if (rowOffset > modelRowCount) compact();
+            return;
+        }
+
+        compact();
+        int[] previous = getViewToModelAsInts();
+        int[] view = new int[previous.length];
+        int size = 0;
+        for (int row : previous) {
+            if (row < firstRow) view[size++] = row;
+            else if (row > endRow) view[size++] = row - count;
+        }
+        modelRowCount -= count;
+        if (displayedKeys != null) displayedKeys.deleteRows(firstRow, count);
+        setViewToModel(Arrays.copyOf(view, size));
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        if (pendingPass != null) {
+            for (int row = firstRow; row <= endRow; row++) {
+                updatedDuringPass.add(model.getRow(row));
+            }
+        }
+        if (viewToModel == null) return;
+
+        boolean moved = false;
+        EvaluationBudget budget = createBudget();
+        for (int row = firstRow; row <= endRow; row++) {
+            moved |= retestRow(row, budget);
+        }
+        reportTimeouts();
+        //JTable keeps the selection across changes to the model itself, so the previous mapping isn't needed.
+        if (moved) fireRowSorterChanged(null);
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        rowsUpdated(firstRow, endRow);
+    }
+
+    /**
+     * Stop any pass in progress and release the threads used for filtering.
+     */
+    public void shutdown() {
+        cancelPass();
+        pool.shutdownNow();
+    }
+
+    private void refresh() {
+        cancelPass();
+        SortSpec sort = createSortSpec();
+        if (rowFilter == null && sort == null) {
+            if (viewToModel != null) {
+                int[] previous = getViewToModelAsInts();
+                setMapping(null, null, null, null);
+                fireRowSorterChanged(previous);
+            }
+            return;
+        }
+
+        //Take the snapshot under the lock of the model, so every row in the snapshot has been indexed.
+        //The indexes are looked up by the pass, off the EDT, as that may run the filter's comparisons against every indexed value.
+        LogEntryStore.Snapshot snapshot;
+        synchronized (model) {
+            snapshot = model.getData();
+        }
+        FilterPass pass = new FilterPass(snapshot, rowFilter, sort, displayedFilter, createBudget());
+        pendingPass = pass;
+        pass.start();
+    }
+
+    private void cancelPass() {
+        if (pendingPass != null) {
+            pendingPass.cancelled = true;
+            pendingPass.budget.cancel();
+            finishProgress(pendingPass);
+            pendingPass = null;
+        }
+        updatedDuringPass.clear();
+    }
+
+    private void finishProgress(FilterPass pass) {
+        if (!pass.reportingProgress) return;
+        pass.reportingProgress = false;
+        for (LogTableFilterStatusListener listener : statusListeners) {
+            listener.onFilteringFinish();
+        }
+    }
+
+    private SortSpec createSortSpec() {
+        List<SortKey> keys = new ArrayList<>();
+        for (SortKey key : sortKeys) {
+            if (key.getSortOrder() != SortOrder.UNSORTED) keys.add(key);
+        }
+        if (keys.isEmpty()) return null;
+
+        int[] columns = new int[keys.size()];
+        SortKeyExtractor[] extractors = new SortKeyExtractor[keys.size()];
+        boolean[] descending = new boolean[keys.size()];
+        for (int i = 0; i < keys.size(); i++) {
+            columns[i] = keys.get(i).getColumn();
+            extractors[i] = model.getColumnSortKeyExtractor(columns[i]);
+            descending[i] = keys.get(i).getSortOrder() == SortOrder.DESCENDING;
+        }
+        return new SortSpec(columns, extractors, descending);
+    }
+
+    //Called on the EDT with the rows found so far by a slow pass.
+    private void publish(FilterPass pass, int[] rows, int evaluatedRows) {
+        if (pass != pendingPass) return; //Superseded or cancelled
+        if (rows != null) {
+            show(pass, rows, false);
+            pass.shown = true;
+        }
+
+        if (!pass.reportingProgress) {
+            if (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - pass.started) < PUBLISH_INTERVAL_MS) return;
+            pass.reportingProgress = true;
+            for (LogTableFilterStatusListener listener : statusListeners) {
+                listener.onFilteringStart();
+            }
+        }
+        for (LogTableFilterStatusListener listener : statusListeners) {
+            listener.onFilteringProgress(evaluatedRows, pass.snapshot.size());
+        }
+    }
+
+    //Called on the EDT once a pass has completed.
+    private void complete(FilterPass pass, int[] rows) {
+        if (pass != pendingPass) return; //Superseded or cancelled
+        pendingPass = null;
+        show(pass, rows, true);
+        updatedDuringPass.clear();
+        finishProgress(pass);
+    }
+
+    private void show(FilterPass pass, int[] rows, boolean complete) {
+        int[] previous = getViewToModelAsInts();
+        LogEntryStore.Snapshot current = model.getData();
+        RowKeys keys = pass.keys;
+        if (current.getEpoch() != pass.snapshot.getEpoch()) {
+            keys = pass.sort == null ? null : pass.keys.emptyCopy(current.size());
+            rows = reconcile(pass, rows, current, keys);
+        } else if (keys != null && !complete) {
+            //The workers are still filling in the keys of the pass.
+            keys = pass.keys.copyRows(rows, current.size());
+        } else if (keys != null) {
+            //The workers have finished, so values can now be added to its dictionaries.
+            keys.frozen = false;
+        }
+        setMapping(pass.filter, pass.sort, keys, rows);
+
+        //Entries which changed while the pass was running may have been tested before the change.
+        if (!updatedDuringPass.isEmpty()) {
+            retestRows(updatedDuringPass.stream().mapToInt(current::positionIndexOf).filter(row -> row >= 0).toArray());
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    /**
+     * Map rows of the snapshot a pass was run over to rows of the current model,
+     * and add any entries which have been added since.
+     * @param keys Filled with the sort keys of the rows by their current row, or null if the pass is not sorted
+     */
+    private int[] reconcile(FilterPass pass, int[] rows, LogEntryStore.Snapshot current, RowKeys keys) {
+        int[] mapped = new int[rows.length];
+        int size = 0;
+        for (int row : rows) {
+            int currentRow = current.positionIndexOf(pass.snapshot.get(row));
+            if (currentRow != -1) {
+                mapped[size++] = currentRow;
+                if (keys != null) keys.copyRow(pass.keys, row, currentRow);
+            }
+        }
+        mapped = Arrays.copyOf(mapped, size);
+
+        //Row ids increase along the store, so entries added since the snapshot are all at the end.
+        int lastRowId = pass.snapshot.isEmpty() ? -1 : pass.snapshot.get(pass.snapshot.size() - 1).getRowId();
+        int low = 0, high = current.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (current.get(mid).getRowId() <= lastRowId) low = mid + 1;
+            else high = mid;
+        }
+        return insertRows(mapped, matchingRows(pass.filter, low, current.size()), keys);
+    }
+
+    //Test rows again after they have changed, moving them to their new position in the view.
+    private void retestRows(int[] rows) {
+        if (viewToModel == null || rows.length == 0) return;
+        compact();
+        boolean[] changed = new boolean[viewToModel.length];
+        for (int row : rows) {
+            int index = modelToView[row];
+            if (index != -1) changed[index] = true;
+        }
+        int[] view = new int[viewEnd - viewStart];
+        int size = 0;
+        for (int i = viewStart; i < viewEnd; i++) {
+            if (!changed[i]) view[size++] = viewToModel[i];
+        }
+
+        rows = rows.clone();
+        Arrays.sort(rows);
+        int[] matching = new int[rows.length];
+        int matches = 0;
+        EvaluationBudget budget = createBudget();
+        for (int row : rows) {
+            if (displayedFilter == null || displayedFilter.matchesCached(model.getRow(row), budget)) matching[matches++] = row;
+        }
+        setViewToModel(insertRows(Arrays.copyOf(view, size), Arrays.copyOf(matching, matches), displayedKeys));
+    }
+
+    /**
+     * Test a row again after it has changed, moving it to its new position in the view.
+     * @return True if the row was added to, removed from or moved in the view
+     */
+    private boolean retestRow(int row, EvaluationBudget budget) {
+        int position = row + rowOffset;
+        int index = modelToView[position];
+        LogEntry entry = model.getRow(row);
+        if (displayedFilter != null && !displayedFilter.matchesCached(entry, budget)) {
+            if (index == -1) return false;
+            removeAt(index);
+            return true;
+        }
+
+        if (displayedKeys != null) displayedKeys.compute(entry, position);
+        if (index != -1) {
+            //The row stays where it is if it is still in order with its neighbours.
+            boolean afterPrevious = index == viewStart || comparePositions(viewToModel[index - 1], position) < 0;
+            boolean beforeNext = index == viewEnd - 1 || comparePositions(position, viewToModel[index + 1]) < 0;
+            if (afterPrevious && beforeNext) return false;
+            removeAt(index);
+        }
+        insertAt(findInsertIndex(position), position);
+        return true;
+    }
+
+    private int[] matchingRows(LogFilter filter, int from, int to) {
+        int[] rows = new int[to - from];
+        int size = 0;
+        EvaluationBudget budget = createBudget();
+        for (int row = from; row < to; row++) {
+            if (filter == null || filter.matchesCached(model.getRow(row), budget)) rows[size++] = row;
+        }
+        return Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * Merge model rows into a view, keeping it in order.
+     * @param newRows The rows to insert, in ascending order
+     * @param keys The sort keys of the rows in the view, to which those of the new rows are added. Null if the view is not sorted.
+     * @return The new view, or the same view if there were no rows to insert
+     */
+    private int[] insertRows(int[] view, int[] newRows, RowKeys keys) {
+        if (newRows.length == 0) return view;
+        IntBinaryOperator comparator = Integer::compare;
+        if (keys != null) {
+            for (int row : newRows) {
+                keys.compute(model.getRow(row), row);
+            }
+            comparator = keys::compare;
+            sortRows(newRows, comparator);
+        }
+
+        int[] result = new int[view.length + newRows.length];
+        int copied = 0, size = 0;
+        for (int newRow : newRows) {
+            int low = copied, high = view.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (comparator.applyAsInt(view[mid], newRow) < 0) low = mid + 1;
+                else high = mid;
+            }
+            System.arraycopy(view, copied, result, size, low - copied);
+            size += low - copied;
+            copied = low;
+            result[size++] = newRow;
+        }
+        System.arraycopy(view, copied, result, size, view.length - copied);
+        return result;
+    }
+
+    private void setMapping(LogFilter filter, SortSpec sort, RowKeys keys, int[] view) {
+        this.displayedFilter = filter;
+        this.displayedSort = sort;
+        this.displayedKeys = keys;
+        if (view == null) {
+            this.viewToModel = null;
+            this.modelToView = null;
+            this.rowOffset = 0;
+            reportTimeouts();
+        } else {
+            setViewToModel(view);
+        }
+    }
+
+    //Replace the view with the given model rows. The keys shown, if any, must be indexed by model row.
+    private void setViewToModel(int[] view) {
+        int[] inverse = new int[modelRowCount];
+        Arrays.fill(inverse, -1);
+        for (int i = 0; i < view.length; i++) {
+            inverse[view[i]] = i;
+        }
+        this.viewToModel = view;
+        this.viewStart = 0;
+        this.viewEnd = view.length;
+        this.modelToView = inverse;
+        this.rowOffset = 0;
+        reportTimeouts();
+    }
+
+    private int comparePositions(int a, int b) {
+        return displayedKeys == null ? Integer.compare(a, b) : displayedKeys.compare(a, b);
+    }
+
+    //The index in viewToModel at which the row at the position belongs.
+    private int findInsertIndex(int position) {
+        int low = viewStart, high = viewEnd;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (comparePositions(viewToModel[mid], position) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    //Insert a position into the view before the given index, moving whichever of the rows before or after it are fewer.
+    private void insertAt(int index, int position) {
+        boolean moveAfter = viewEnd - index <= index - viewStart;
+        if (moveAfter ? viewEnd == viewToModel.length : viewStart == 0) index += makeRoom();
+        if (moveAfter) {
+            System.arraycopy(viewToModel, index, viewToModel, index + 1, viewEnd - index);
+            viewEnd++;
+            viewToModel[index] = position;
+            updateModelToView(index, viewEnd);
+        } else {
+            System.arraycopy(viewToModel, viewStart, viewToModel, viewStart - 1, index - viewStart);
+            viewStart--;
+            viewToModel[--index] = position;
+            updateModelToView(viewStart, index + 1);
+        }
+    }
+
+    //Remove the row at the index from the view, moving whichever of the rows before or after it are fewer.
+    private void removeAt(int index) {
+        modelToView[viewToModel[index]] = -1;
+        if (index - viewStart < viewEnd - index - 1) {
+            System.arraycopy(viewToModel, viewStart, viewToModel, viewStart + 1, index - viewStart);
+            viewStart++;
+            updateModelToView(viewStart, index + 1);
+        } else {
+            System.arraycopy(viewToModel, index + 1, viewToModel, index, viewEnd - index - 1);
+            viewEnd--;
+            updateModelToView(index, viewEnd);
+        }
+    }
+
+    /**
+     * Centre the view in its buffer so there is room at both ends, first growing the buffer if it is mostly full.
+     * @return How far the rows of the view were moved
+     */
+    private int makeRoom() {
+        int size = viewEnd - viewStart;
+        int free = viewToModel.length - size;
+        int[] buffer = free < Math.max(2, viewToModel.length >> 2) ? new int[size + (size >> 1) + 16] : viewToModel;
+        int start = (buffer.length - size) / 2;
+        System.arraycopy(viewToModel, viewStart, buffer, start, size);
+        int moved = start - viewStart;
+        viewToModel = buffer;
+        viewStart = start;
+        viewEnd = start + size;
+        updateModelToView(viewStart, viewEnd);
+        return moved;
+    }
+
+    private void updateModelToView(int from, int to) {
+        for (int i = from; i < to; i++) {
+            modelToView[viewToModel[i]] = i;
+        }
+    }
+
+    //Renumber the positions of the rows shown to their model rows, dropping those of the rows deleted from the start of the model.
+    private void compact() {
+        if (viewToModel == null || rowOffset == 0) return;
+        for (int i = viewStart; i < viewEnd; i++) {
+            viewToModel[i] -= rowOffset;
+        }
+        System.arraycopy(modelToView, rowOffset, modelToView, 0, modelRowCount);
+        if (displayedKeys != null) displayedKeys.deleteRows(0, rowOffset);
+        rowOffset = 0;
+    }
+
+    //Tell the listeners how many entries the filter shown left out because they took too long, if it has changed.
+    private void reportTimeouts() {
+        int timedOut = displayedFilter == null ? 0 : displayedFilter.getTimedOutCount();
+        if (timedOut == reportedTimeouts) return;
+        reportedTimeouts = timedOut;
+        for (LogTableFilterStatusListener listener : statusListeners) {
+            listener.onFilteringTimedOut(timedOut);
+        }
+    }
+
+    //The model rows of the view, in a new array.
+    private int[] getViewToModelAsInts() {
+        if (viewToModel != null) {
+            int[] rows = Arrays.copyOfRange(viewToModel, viewStart, viewEnd);
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] -= rowOffset;
+            }
+            return rows;
+        }
+        int[] identity = new int[modelRowCount];
+        for (int i = 0; i < identity.length; i++) {
+            identity[i] = i;
+        }
+        return identity;
+    }
+
+    /**
+     * Sort rows with a stable merge sort.
+     */
+    private static void sortRows(int[] rows, IntBinaryOperator comparator) {
+        mergeSort(rows.clone(), rows, 0, rows.length, comparator);
+    }
+
+    //Sorts src[from, to) into dest. Both arrays must hold the same values in the range.
+    private static void mergeSort(int[] src, int[] dest, int from, int to, IntBinaryOperator comparator) {
+        if (to - from < 16) {
+            for (int i = from + 1; i < to; i++) {
+                int row = dest[i], j = i;
+                for (; j > from && comparator.applyAsInt(dest[j - 1], row) > 0; j--) {
+                    dest[j] = dest[j - 1];
+                }
+                dest[j] = row;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dest, src, from, mid, comparator);
+        mergeSort(dest, src, mid, to, comparator);
+        for (int i = from, left = from, right = mid; i < to; i++) {
+            if (right >= to || (left < mid && comparator.applyAsInt(src[left], src[right]) <= 0)) dest[i] = src[left++];
+            else dest[i] = src[right++];
+        }
+    }
+
+    private static class SortSpec {
+        private final int[] columns;
+        private final SortKeyExtractor[] extractors;
+        private final boolean[] descending;
+
+        private SortSpec(int[] columns, SortKeyExtractor[] extractors, boolean[] descending) {
+            this.columns = columns;
+            this.extractors = extractors;
+            this.descending = descending;
+        }
+
+        private int getKeyCount() {
+            return columns.length;
+        }
+
+        private boolean isRanked() {
+            for (SortKeyExtractor extractor : extractors) {
+                if (extractor.isRanked()) return true;
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SortSpec)) return false;
+            SortSpec other = (SortSpec) o;
+            return Arrays.equals(columns, other.columns) && Arrays.equals(descending, other.descending);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(columns) + Arrays.hashCode(descending);
+        }
+    }
+
+    /**
+     * The sort keys of model rows, held column-wise so rows are compared without reading their entries.
+     * Only the keys of the rows which have been computed are valid, those of the rows in the view for the mapping shown.
+     * Rows are compared by their keys in turn, then by their position in the model.
+     */
+    private static class RowKeys {
+        private final SortSpec sort;
+        //The dictionaries of the ranked keys, null for the others.
+        private final SortKeyDictionary[] dictionaries;
+        //Indexed by sort key, then model row.
+        private long[][] keys;
+        private int rowCount;
+        //While a pass is computing keys its dictionaries are only read, values not in them sharing keys with their neighbours.
+        private boolean frozen;
+
+        private RowKeys(SortSpec sort, int rowCount, boolean frozen) {
+            this.sort = sort;
+            this.dictionaries = new SortKeyDictionary[sort.getKeyCount()];
+            for (int key = 0; key < dictionaries.length; key++) {
+                if (sort.extractors[key].isRanked()) dictionaries[key] = new SortKeyDictionary(Collections.emptySet());
+            }
+            this.keys = new long[sort.getKeyCount()][rowCount];
+            this.rowCount = rowCount;
+            this.frozen = frozen;
+        }
+
+        //Keys for the given number of rows, none yet computed, ranking values in copies of these dictionaries.
+        private RowKeys emptyCopy(int rowCount) {
+            RowKeys copy = new RowKeys(sort, rowCount, false);
+            for (int key = 0; key < dictionaries.length; key++) {
+                if (dictionaries[key] != null) copy.dictionaries[key] = dictionaries[key].copy();
+            }
+            return copy;
+        }
+
+        private void compute(LogEntry entry, int row) {
+            for (int key = 0; key < keys.length; key++) {
+                SortKeyExtractor extractor = sort.extractors[key];
+                keys[key][row] = extractor.isRanked() ? rank(key, extractor.getRankedValue(entry)) : extractor.getKey(entry);
+            }
+        }
+
+        private long rank(int key, String value) {
+            if (value == null) return SortKeyExtractor.NULL_KEY;
+            SortKeyDictionary dictionary = dictionaries[key];
+            if (frozen) return dictionary.getKey(value);
+            long rank = dictionary.add(value);
+            if (rank == SortKeyDictionary.NO_ROOM) {
+                dictionaries[key] = dictionary = dictionary.rebuild(keys[key], rowCount);
+                rank = dictionary.add(value);
+            }
+            return rank;
+        }
+
+        private void copyRow(RowKeys from, int fromRow, int row) {
+            for (int key = 0; key < keys.length; key++) {
+                keys[key][row] = from.keys[key][fromRow];
+            }
+        }
+
+        //Copy the keys of the given rows only.
+        private RowKeys copyRows(int[] rows, int rowCount) {
+            RowKeys copy = emptyCopy(rowCount);
+            for (int row : rows) {
+                copy.copyRow(this, row, row);
+            }
+            return copy;
+        }
+
+        //Make room for rows inserted into the model, moving the keys of the rows after them.
+        private void insertRows(int firstRow, int count) {
+            int newCount = rowCount + count;
+            for (int key = 0; key < keys.length; key++) {
+                long[] column = keys[key];
+                //Rows are usually appended, so leave room for more.
+                if (newCount > column.length) column = Arrays.copyOf(column, Math.max(newCount, column.length + (column.length >> 1)));
+                System.arraycopy(column, firstRow, column, firstRow + count, rowCount - firstRow);
+                keys[key] = column;
+            }
+            rowCount = newCount;
+        }
+
+        private void deleteRows(int firstRow, int count) {
+            for (long[] column : keys) {
+                System.arraycopy(column, firstRow + count, column, firstRow, rowCount - firstRow - count);
+            }
+            rowCount -= count;
+        }
+
+        private int compare(int a, int b) {
+            for (int key = 0; key < keys.length; key++) {
+                int result = Long.compare(keys[key][a], keys[key][b]);
+                if (result != 0) return sort.descending[key] ? -result : result;
+            }
+            return Integer.compare(a, b);
+        }
+    }
+
+    /**
+     * Filters and sorts a snapshot of the entries on the pool.
+     * Workers claim chunks from the newest end of the snapshot, so the most recent rows are found first.
+     */
+    private class FilterPass implements Runnable {
+        private final LogEntryStore.Snapshot snapshot;
+        private final LogFilter filter;
+        //Row ids of the entries which certainly match the filter, and of those which must be tested.
+        //Null without a filter, and set before the workers start.
+        private CompressedBitmap matches;
+        private CompressedBitmap residual;
+        private final SortSpec sort;
+        private final LogFilter previousFilter;
+        private final EvaluationBudget budget;
+        private final RowKeys keys;
+        private final int[][] chunkResults;
+        private final AtomicInteger nextChunk;
+        private final AtomicInteger completedChunks;
+        private final AtomicInteger evaluatedRows;
+        private final Queue<Integer> unpublishedChunks;
+        private final ReentrantLock publishLock;
+        private final long started;
+        private volatile long lastPublished;
+        private volatile boolean cancelled;
+        //Guarded by publishLock
+        private int[] published;
+        //Only accessed on the EDT
+        private boolean shown;
+        private boolean reportingProgress;
+
+        private FilterPass(LogEntryStore.Snapshot snapshot, LogFilter filter,
+                           SortSpec sort, LogFilter previousFilter, EvaluationBudget budget) {
+            this.snapshot = snapshot;
+            this.filter = filter;
+            this.sort = sort;
+            this.previousFilter = previousFilter;
+            this.budget = budget;
+            this.keys = sort == null ? null : new RowKeys(sort, snapshot.size(), true);
+            this.chunkResults = new int[(snapshot.size() + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+            this.nextChunk = new AtomicInteger(chunkResults.length - 1);
+            this.completedChunks = new AtomicInteger();
+            this.evaluatedRows = new AtomicInteger();
+            this.unpublishedChunks = new ConcurrentLinkedQueue<>();
+            this.publishLock = new ReentrantLock();
+            this.started = System.nanoTime();
+            this.lastPublished = started;
+            this.published = new int[0];
+        }
+
+        private void start() {
+            if (chunkResults.length == 0) {
+                complete(this, new int[0]);
+                return;
+            }
+            pool.execute(() -> {
+                try {
+                    planBounds();
+                    //Rank the values of the snapshot before any rows are sorted by them.
+                    if (sort != null && sort.isRanked()) buildDictionaries();
+                    startWorkers();
+                } catch (CancellationException e) {
+                    //A newer pass has replaced this one.
+                } catch (Exception e) {
+                    fail(e);
+                }
+            });
+        }
+
+        /**
+         * Find the rows the indexes can decide for the filter. The indexes may have changed since the snapshot was taken,
+         * but only by adding rows the pass doesn't look at, removing rows which are dropped when it is shown, and updating
+         * rows which are tested again when it is shown as the pass is already pending.
+         */
+        private void planBounds() {
+            if (filter == null) return;
+            RowBounds bounds = queryExecutor.plan(filter.getCompiled(), budget);
+            if (cancelled) throw new CancellationException();
+            matches = bounds.getMatches();
+            residual = bounds.getResidual();
+        }
+
+        private void startWorkers() {
+            int workers = Math.min(pool.getParallelism(), chunkResults.length);
+            for (int i = 0; i < workers; i++) {
+                pool.execute(this);
+            }
+        }
+
+        private void buildDictionaries() {
+            for (int key = 0; key < sort.getKeyCount(); key++) {
+                SortKeyExtractor extractor = sort.extractors[key];
+                if (!extractor.isRanked()) continue;
+                Set<String> values = IntStream.range(0, snapshot.size()).parallel().mapToObj(row -> {
+                    if (cancelled) throw new CancellationException();
+                    return extractor.getRankedValue(snapshot.get(row));
+                }).filter(Objects::nonNull).collect(Collectors.toSet());
+                keys.dictionaries[key] = new SortKeyDictionary(values);
+            }
+        }
+
+        private void fail(Exception e) {
+            e.printStackTrace();
+            cancelled = true;
+            budget.cancel();
+            SwingUtilities.invokeLater(() -> {
+                if (pendingPass == this) cancelPass();
+            });
+        }
+
+        @Override
+        public void run() {
+            try {
+                int chunk;
+                while ((chunk = nextChunk.getAndDecrement()) >= 0) {
+                    int from = chunk * CHUNK_SIZE;
+                    chunkResults[chunk] = filterChunk(from, Math.min(from + CHUNK_SIZE, snapshot.size()));
+                    unpublishedChunks.add(chunk);
+                    int completed = completedChunks.incrementAndGet();
+                    if (completed == chunkResults.length) {
+                        int[] rows = new MergeTask(this, 0, chunkResults.length).invoke();
+                        SwingUtilities.invokeLater(() -> complete(this, rows));
+                        return;
+                    }
+                    //Show the newest rows as soon as they are found.
+                    publishIfDue(completed == 1);
+                }
+            } catch (CancellationException e) {
+                //A newer pass has replaced this one.
+            } catch (Exception e) {
+                fail(e);
+            }
+        }
+
+        private int[] filterChunk(int from, int to) {
+            int[] rows = new int[to - from];
+            int first = rows.length;
+            LogEntry[] batch = new LogEntry[BATCH_SIZE];
+            int[] batchRows = new int[BATCH_SIZE];
+            boolean[] results = new boolean[BATCH_SIZE];
+            //The entries of the batch which the indexes couldn't decide, and their index in the batch.
+            LogEntry[] tested = new LogEntry[BATCH_SIZE];
+            int[] testedIndices = new int[BATCH_SIZE];
+            boolean[] testedResults = new boolean[BATCH_SIZE];
+            for (int end = to; end > from; end -= BATCH_SIZE) {
+                if (cancelled) throw new CancellationException();
+                int start = Math.max(from, end - BATCH_SIZE);
+                int count = 0, testedCount = 0;
+                for (int row = start; row < end; row++) {
+                    LogEntry entry = snapshot.get(row);
+                    boolean matched = filter == null || matches.contains(entry.getRowId());
+                    if (!matched) {
+                        if (!residual.contains(entry.getRowId())) continue;
+                        tested[testedCount] = entry;
+                        testedIndices[testedCount++] = count;
+                    }
+                    batch[count] = entry;
+                    batchRows[count] = row;
+                    results[count++] = matched;
+                }
+                if (testedCount > 0) {
+                    filter.matchesCached(tested, testedCount, testedResults, budget);
+                    for (int i = 0; i < testedCount; i++) {
+                        results[testedIndices[i]] = testedResults[i];
+                    }
+                }
+
+                for (int i = count - 1; i >= 0; i--) {
+                    if (!results[i]) continue;
+                    int row = batchRows[i];
+                    if (keys != null) keys.compute(batch[i], row);
+                    rows[--first] = row;
+                }
+                evaluatedRows.addAndGet(end - start);
+                publishIfDue(false);
+            }
+            rows = Arrays.copyOfRange(rows, first, rows.length);
+            if (sort != null) sortRows(rows, this::compare);
+            return rows;
+        }
+
+        /**
+         * Merge the chunks completed since the last update into the rows found so far, and pass them to the EDT.
+         * Only one thread publishes at a time, and at most once per interval unless forced.
+         */
+        private void publishIfDue(boolean force) {
+            if (!force && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastPublished) < PUBLISH_INTERVAL_MS) return;
+            if (!publishLock.tryLock()) return;
+            try {
+                lastPublished = System.nanoTime();
+                int[] rows = null;
+                if (!unpublishedChunks.isEmpty()) {
+                    List<int[]> chunks = new ArrayList<>();
+                    chunks.add(published);
+                    Integer chunk;
+                    while ((chunk = unpublishedChunks.poll()) != null) {
+                        chunks.add(chunkResults[chunk]);
+                    }
+                    //Merge in pairs so each row is copied a logarithmic number of times.
+                    while (chunks.size() > 1) {
+                        List<int[]> merged = new ArrayList<>();
+                        for (int i = 0; i < chunks.size(); i += 2) {
+                            merged.add(i + 1 < chunks.size() ? merge(chunks.get(i), chunks.get(i + 1)) : chunks.get(i));
+                        }
+                        chunks = merged;
+                    }
+                    published = rows = chunks.get(0);
+                }
+                int[] publishedRows = rows;
+                int evaluated = evaluatedRows.get();
+                SwingUtilities.invokeLater(() -> publish(this, publishedRows, evaluated));
+            } finally {
+                publishLock.unlock();
+            }
+        }
+
+        private int compare(int a, int b) {
+            return keys == null ? Integer.compare(a, b) : keys.compare(a, b);
+        }
+
+        private int[] merge(int[] left, int[] right) {
+            if (cancelled) throw new CancellationException();
+            int[] result = new int[left.length + right.length];
+            for (int i = 0, l = 0, r = 0; i < result.length; i++) {
+                if (r >= right.length || (l < left.length && compare(left[l], right[r]) <= 0)) result[i] = left[l++];
+                else result[i] = right[r++];
+            }
+            return result;
+        }
+    }
+
+    private static class MergeTask extends RecursiveTask<int[]> {
+        private final FilterPass pass;
+        private final int from;
+        private final int to;
+
+        private MergeTask(FilterPass pass, int from, int to) {
+            this.pass = pass;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (to - from == 1) return pass.chunkResults[from];
+            int mid = (from + to) >>> 1;
+            MergeTask left = new MergeTask(pass, from, mid);
+            left.fork();
+            int[] right = new MergeTask(pass, mid, to).compute();
+            return pass.merge(left.join(), right);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
+
+/**
+ * Notified from the background thread of {@link MaterialisedFilters} when the number of entries
+ * matching a materialised saved filter has changed.
+ */
+public interface MatchCountListener {
+    void onMatchCountChanged(SavedFilter savedFilter);
+}
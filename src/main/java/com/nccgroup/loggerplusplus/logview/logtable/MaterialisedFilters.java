@@ -0,0 +1,212 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.filter.savedfilter.SavedFilter;
+import com.nccgroup.loggerplusplus.filterlibrary.FilterLibraryListener;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryStore;
+import com.nccgroup.loggerplusplus.util.NamedThreadFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the entries matching each materialised saved filter up to date as entries are added, updated and removed.
+ *
+ * The members of a view are the cached results of its filter, kept complete by testing entries on a background
+ * thread as they arrive or change, and by the table model discarding results for entries it removes.
+ * Switching the table to a materialised filter, or to its alias, seeds the new filter from the view
+ * so no entries need testing.
+ */
+public class MaterialisedFilters implements FilterLibraryListener {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final LogTableModel model;
+    private final ExecutorService executor;
+    private final Queue<LogEntry> pendingEntries;
+    private final AtomicBoolean drainScheduled;
+    private final List<MatchCountListener> matchCountListeners;
+    //The counts listeners were last told of, only used from the background thread.
+    private final Map<SavedFilter, Integer> notifiedCounts;
+    //Replaced rather than modified, so it can be read from the background thread without locking.
+    private volatile Map<SavedFilter, LogFilter> views;
+    private volatile long entryTimeoutMillis;
+    private volatile long queryTimeoutMillis;
+
+    public MaterialisedFilters(LogTableModel model){
+        this.model = model;
+        this.executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("LPP-MaterialisedFilters"));
+        this.pendingEntries = new ConcurrentLinkedQueue<>();
+        this.drainScheduled = new AtomicBoolean();
+        this.matchCountListeners = new CopyOnWriteArrayList<>();
+        this.notifiedCounts = new IdentityHashMap<>();
+        this.views = Collections.emptyMap();
+        this.entryTimeoutMillis = 250;
+        this.queryTimeoutMillis = 5000;
+    }
+
+    /**
+     * Start or stop maintaining the view of a saved filter, depending on whether it is materialised.
+     * A view whose filter has changed or been recompiled is brought up to date in the background.
+     */
+    public synchronized void update(SavedFilter savedFilter){
+        Map<SavedFilter, LogFilter> views = new IdentityHashMap<>(this.views);
+        LogFilter filter = savedFilter.getFilter();
+        if(savedFilter.isMaterialised() && filter != null){
+            LogFilter previous = views.put(savedFilter, filter);
+            if(previous != filter) filter.narrowFrom(previous);
+            this.views = views;
+            executor.execute(() -> populate(filter));
+        }else if(views.remove(savedFilter) != null){
+            this.views = views;
+        }
+    }
+
+    private synchronized void remove(SavedFilter savedFilter){
+        if(!views.containsKey(savedFilter)) return;
+        Map<SavedFilter, LogFilter> views = new IdentityHashMap<>(this.views);
+        views.remove(savedFilter);
+        this.views = views;
+    }
+
+    /**
+     * @return The filters of the materialised saved filters.
+     */
+    public Collection<LogFilter> getFilters(){
+        return views.values();
+    }
+
+    /**
+     * @return The number of entries matching a saved filter, or null if it isn't materialised.
+     */
+    public Integer getMatchCount(SavedFilter savedFilter){
+        LogFilter filter = views.get(savedFilter);
+        return filter == null ? null : filter.getMatchCache().getMatchCount();
+    }
+
+    /**
+     * @return The filter of a materialised view matching exactly the same entries as the given filter,
+     * either the same filter or the alias of the saved filter, or null if there is none.
+     */
+    public LogFilter getEquivalent(LogFilter filter){
+        String filterString = filter.toString();
+        for (Map.Entry<SavedFilter, LogFilter> view : views.entrySet()) {
+            if(filterString.equalsIgnoreCase("#" + view.getKey().getName())
+                    || filterString.equals(view.getValue().toString())){
+                return view.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Test an entry which has been added or changed against the views in the background.
+     */
+    void onEntryChanged(LogEntry entry){
+        if(views.isEmpty()) return;
+        pendingEntries.add(entry);
+        scheduleDrain();
+    }
+
+    /**
+     * Tell the listeners of the new counts of the views once entries have been removed from the table,
+     * after the model has discarded the results of the views for them.
+     */
+    void onEntriesRemoved(){
+        if(views.isEmpty()) return;
+        scheduleDrain();
+    }
+
+    //Draining notifies the listeners of the counts, so removals are coalesced with any entries waiting to be tested.
+    private void scheduleDrain(){
+        if(drainScheduled.compareAndSet(false, true)){
+            executor.execute(this::drainPendingEntries);
+        }
+    }
+
+    public void addMatchCountListener(MatchCountListener listener){
+        matchCountListeners.add(listener);
+    }
+
+    public void removeMatchCountListener(MatchCountListener listener){
+        matchCountListeners.remove(listener);
+    }
+
+    /**
+     * Set the time limits on testing entries, see {@link EvaluationBudget}.
+     */
+    public void setEvaluationTimeouts(long entryMillis, long queryMillis){
+        this.entryTimeoutMillis = entryMillis;
+        this.queryTimeoutMillis = queryMillis;
+    }
+
+    public void shutdown(){
+        executor.shutdownNow();
+    }
+
+    private void drainPendingEntries(){
+        drainScheduled.set(false);
+        EvaluationBudget budget = new EvaluationBudget(entryTimeoutMillis, queryTimeoutMillis);
+        LogEntry entry;
+        while ((entry = pendingEntries.poll()) != null){
+            //Skip entries removed from the table while they were waiting.
+            if(model.getData().positionIndexOf(entry) == -1) continue;
+            for (LogFilter filter : views.values()) {
+                filter.matchesCached(entry, budget);
+            }
+        }
+        notifyMatchCounts();
+    }
+
+    //Test every entry the view doesn't already have a result for.
+    private void populate(LogFilter filter){
+        EvaluationBudget budget = new EvaluationBudget(entryTimeoutMillis, queryTimeoutMillis);
+        LogEntryStore.Snapshot snapshot = model.getData();
+        LogEntry[] batch = new LogEntry[BATCH_SIZE];
+        boolean[] results = new boolean[BATCH_SIZE];
+        for (int start = 0; start < snapshot.size(); start += BATCH_SIZE) {
+            //Stop if the view was removed or its filter replaced in the meantime.
+            if(!views.containsValue(filter) || Thread.currentThread().isInterrupted()) return;
+            int count = Math.min(BATCH_SIZE, snapshot.size() - start);
+            for (int i = 0; i < count; i++) {
+                batch[i] = snapshot.get(start + i);
+            }
+            filter.matchesCached(batch, count, results, budget);
+        }
+        notifyMatchCounts();
+    }
+
+    //Tell listeners of the views whose counts have changed since they were last told, once for all the entries tested.
+    private void notifyMatchCounts(){
+        Map<SavedFilter, LogFilter> views = this.views;
+        notifiedCounts.keySet().retainAll(views.keySet());
+        for (Map.Entry<SavedFilter, LogFilter> view : views.entrySet()) {
+            Integer count = view.getValue().getMatchCache().getMatchCount();
+            if(count.equals(notifiedCounts.put(view.getKey(), count))) continue;
+            for (MatchCountListener listener : matchCountListeners) {
+                listener.onMatchCountChanged(view.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void onFilterAdded(SavedFilter savedFilter, int index) {
+        update(savedFilter);
+    }
+
+    @Override
+    public void onFilterRemoved(SavedFilter savedFilter, int index) {
+        remove(savedFilter);
+    }
+
+    @Override
+    public void onFilterModified(SavedFilter savedFilter, int index) {
+        update(savedFilter);
+    }
+}
@@ -0,0 +1,162 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.*;
+
+/**
+ * Ranks the distinct values of a column, so they can be sorted as primitive longs.
+ * Values are ranked in the order of the default locale's {@link Collator}, as a table sorts strings by default.
+ *
+ * A dictionary is built from the values in the log when a sort starts, with their ranks spaced apart so that values
+ * seen afterwards can be ranked between their neighbours without changing the rank of any other value. Once there is
+ * no room left between two neighbours, the dictionary is rebuilt with its values spread out again.
+ * A dictionary may be read by several threads at once, but must only be added to while nothing else uses it.
+ */
+final class SortKeyDictionary {
+
+    //The ranks of the values a dictionary is built with are this many bits apart.
+    private static final int SPACING_BITS = 20;
+    private static final long SPACING = 1L << SPACING_BITS;
+    static final long NO_ROOM = Long.MIN_VALUE + 1;
+
+    //Collators aren't thread safe, so each thread compares values with its own.
+    private static final ThreadLocal<Collator> COLLATOR = ThreadLocal.withInitial(Collator::getInstance);
+    private static final Comparator<String> ORDER = (a, b) -> COLLATOR.get().compare(a, b);
+
+    //The distinct values the dictionary was built with, in order.
+    private final String[] values;
+    //The position of each of those values, so values already in the dictionary are found without comparing them.
+    private final Map<String, Integer> positions;
+    //Values added since, with their ranks.
+    private final TreeMap<String, Long> added;
+
+    SortKeyDictionary(Collection<String> values) {
+        this(sorted(values), new TreeMap<>(ORDER));
+    }
+
+    private SortKeyDictionary(String[] values, TreeMap<String, Long> added) {
+        this.values = values;
+        this.positions = new HashMap<>(values.length * 2);
+        for (int i = 0; i < values.length; i++) {
+            positions.put(values[i], i);
+        }
+        this.added = added;
+    }
+
+    private SortKeyDictionary(SortKeyDictionary dictionary) {
+        this.values = dictionary.values;
+        this.positions = dictionary.positions;
+        this.added = new TreeMap<>(dictionary.added);
+    }
+
+    //The distinct values in order, collating each value once rather than on every comparison.
+    private static String[] sorted(Collection<String> values) {
+        Collator collator = COLLATOR.get();
+        CollationKey[] keys = new CollationKey[values.size()];
+        int count = 0;
+        for (String value : values) {
+            keys[count++] = collator.getCollationKey(value);
+        }
+        Arrays.sort(keys, 0, count);
+        List<String> sorted = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || keys[i].compareTo(keys[i - 1]) != 0) sorted.add(keys[i].getSourceString());
+        }
+        return sorted.toArray(new String[0]);
+    }
+
+    /**
+     * @return A dictionary of the same values, which can be added to independently of this one.
+     */
+    SortKeyDictionary copy() {
+        return new SortKeyDictionary(this);
+    }
+
+    /**
+     * @return The rank of the value, or if it is not in the dictionary, a key between the ranks of its neighbours.
+     * Values not in the dictionary may share a key.
+     */
+    long getKey(String value) {
+        Integer position = positions.get(value);
+        if (position != null) return rankOf(position);
+        int index = Arrays.binarySearch(values, value, ORDER);
+        if (index >= 0) return rankOf(index);
+        Long rank = added.get(value);
+        if (rank != null) return rank;
+        long[] neighbours = getNeighbours(value, -index - 1);
+        long key = between(neighbours);
+        return key == NO_ROOM ? neighbours[0] : key;
+    }
+
+    /**
+     * Add a value to the dictionary, if it is not already in it.
+     * @return The rank of the value, or {@link #NO_ROOM} if the dictionary must be rebuilt to make room for it.
+     */
+    long add(String value) {
+        Integer position = positions.get(value);
+        if (position != null) return rankOf(position);
+        int index = Arrays.binarySearch(values, value, ORDER);
+        if (index >= 0) return rankOf(index);
+        Long rank = added.get(value);
+        if (rank != null) return rank;
+        rank = between(getNeighbours(value, -index - 1));
+        if (rank != NO_ROOM) added.put(value, rank);
+        return rank;
+    }
+
+    /**
+     * Build a dictionary of the same values spread out again, and remap keys taken from this dictionary to it.
+     * @param keys Keys taken from this dictionary, which are replaced in place
+     * @param count The number of keys
+     */
+    SortKeyDictionary rebuild(long[] keys, int count) {
+        String[] merged = new String[values.length + added.size()];
+        long[] ranks = new long[merged.length];
+        int index = 0, size = 0;
+        for (Map.Entry<String, Long> entry : added.entrySet()) {
+            while (index < values.length && ORDER.compare(values[index], entry.getKey()) < 0) {
+                ranks[size] = rankOf(index);
+                merged[size++] = values[index++];
+            }
+            ranks[size] = entry.getValue();
+            merged[size++] = entry.getKey();
+        }
+        while (index < values.length) {
+            ranks[size] = rankOf(index);
+            merged[size++] = values[index++];
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (keys[i] == SortKeyExtractor.NULL_KEY) continue;
+            int position = Arrays.binarySearch(ranks, keys[i]);
+            //Keys of values which were never added fall between the ranks of their neighbours.
+            keys[i] = position >= 0 ? rankOf(position) : rankOf(-position - 1) - SPACING / 2;
+        }
+        return new SortKeyDictionary(merged, new TreeMap<>(ORDER));
+    }
+
+    private static long rankOf(int index) {
+        return (long) index << SPACING_BITS;
+    }
+
+    //The ranks of the values either side of one not in the dictionary, or MIN_VALUE or MAX_VALUE if there are none.
+    private long[] getNeighbours(String value, int insertion) {
+        long lower = insertion > 0 ? rankOf(insertion - 1) : Long.MIN_VALUE;
+        long upper = insertion < values.length ? rankOf(insertion) : Long.MAX_VALUE;
+        Map.Entry<String, Long> lowerAdded = added.lowerEntry(value);
+        if (lowerAdded != null) lower = Math.max(lower, lowerAdded.getValue());
+        Map.Entry<String, Long> upperAdded = added.higherEntry(value);
+        if (upperAdded != null) upper = Math.min(upper, upperAdded.getValue());
+        return new long[]{lower, upper};
+    }
+
+    private static long between(long[] neighbours) {
+        long lower = neighbours[0], upper = neighbours[1];
+        if (lower == Long.MIN_VALUE && upper == Long.MAX_VALUE) return 0;
+        if (lower == Long.MIN_VALUE) return upper - SPACING;
+        if (upper == Long.MAX_VALUE) return lower + SPACING;
+        if (upper - lower > 1) return lower + (upper - lower) / 2;
+        return NO_ROOM;
+    }
+}
@@ -0,0 +1,78 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import java.util.Date;
+
+/**
+ * Reduces the values of a column to primitive long keys which sort in the same order as the values,
+ * so rows can be sorted over arrays of keys rather than by comparing the values of their entries.
+ *
+ * Numbers, dates and booleans are their own keys. Other values are compared as strings, and are keyed
+ * by their rank in a {@link SortKeyDictionary} of the values in the column. Missing values sort first.
+ */
+public final class SortKeyExtractor {
+
+    public static final long NULL_KEY = Long.MIN_VALUE;
+
+    //The row number shown in the first column, which follows the row id as rows are kept in row id order.
+    public static final SortKeyExtractor ROW_NUMBER = new SortKeyExtractor(LogEntryField.NUMBER, Kind.ROW_ID);
+
+    private enum Kind {ROW_ID, NUMBER, DATE, BOOLEAN, RANKED}
+
+    private final LogEntryField field;
+    private final Kind kind;
+
+    private SortKeyExtractor(LogEntryField field, Kind kind) {
+        this.field = field;
+        this.kind = kind;
+    }
+
+    public static SortKeyExtractor forField(LogEntryField field) {
+        if (field == LogEntryField.NUMBER) return ROW_NUMBER;
+        Class<?> type = field.getType();
+        if (Number.class.isAssignableFrom(type)) return new SortKeyExtractor(field, Kind.NUMBER);
+        if (Date.class.isAssignableFrom(type)) return new SortKeyExtractor(field, Kind.DATE);
+        if (Boolean.class.isAssignableFrom(type)) return new SortKeyExtractor(field, Kind.BOOLEAN);
+        return new SortKeyExtractor(field, Kind.RANKED);
+    }
+
+    public LogEntryField getField() {
+        return field;
+    }
+
+    /**
+     * @return True if the keys are ranks in a dictionary of the values, see {@link #getRankedValue(LogEntry)}.
+     */
+    public boolean isRanked() {
+        return kind == Kind.RANKED;
+    }
+
+    /**
+     * @return The key of the entry, for a column which is not ranked.
+     */
+    public long getKey(LogEntry entry) {
+        if (kind == Kind.ROW_ID) return entry.getRowId();
+        Object value = entry.getValueByKey(field);
+        switch (kind) {
+            case NUMBER: return value instanceof Number ? ((Number) value).longValue() : NULL_KEY;
+            case DATE: return value instanceof Date ? ((Date) value).getTime() : NULL_KEY;
+            case BOOLEAN: return value instanceof Boolean ? (((Boolean) value) ? 1 : 0) : NULL_KEY;
+            default: throw new IllegalStateException(field + " is ranked.");
+        }
+    }
+
+    /**
+     * @return The value of the entry to be ranked, for a ranked column, or null if it has none.
+     */
+    public String getRankedValue(LogEntry entry) {
+        Object value = entry.getValueByKey(field);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "SortKeyExtractor[" + field + ", " + kind + "]";
+    }
+}
@@ -5,6 +5,10 @@ import com.coreyd97.BurpExtenderUtilities.Preferences;
 import com.nccgroup.loggerplusplus.LoggerPlusPlus;
 import com.nccgroup.loggerplusplus.exports.ExportController;
 import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilter;
+import com.nccgroup.loggerplusplus.filter.colorfilter.ColorFilterListener;
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledFilterSet;
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
 import com.nccgroup.loggerplusplus.logentry.LogEntry;
 import com.nccgroup.loggerplusplus.logentry.Status;
 import com.nccgroup.loggerplusplus.logview.logtable.LogTableController;
@@ -21,7 +25,7 @@ import static com.nccgroup.loggerplusplus.util.Globals.*;
 /**
  * Created by corey on 07/09/17.
  */
-public class LogProcessor implements IHttpListener {
+public class LogProcessor implements IHttpListener, ColorFilterListener {
     public static final SimpleDateFormat LOGGER_DATE_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
     public static final SimpleDateFormat SERVER_DATE_FORMAT = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz");
 
@@ -35,6 +39,8 @@ public class LogProcessor implements IHttpListener {
     private final PausableThreadPoolExecutor entryProcessExecutor;
     private final PausableThreadPoolExecutor entryImportExecutor;
     private final ScheduledExecutorService cleanupExecutor;
+    //The enabled color filters as a single plan, built when first needed after any color filter changes.
+    private volatile CompiledFilterSet<UUID> colorFilterSet;
     private final String instanceIdentifier = String.format("%02d", (int)Math.floor((Math.random()*100)));
 
     /**
@@ -61,6 +67,7 @@ public class LogProcessor implements IHttpListener {
         this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("LPP-LogManager-Cleanup"));
         this.cleanupExecutor.scheduleAtFixedRate(new AbandonedRequestCleanupRunnable(),30, 30, TimeUnit.SECONDS);
 
+        this.loggerPlusPlus.getLibraryController().addColorFilterListener(this);
         LoggerPlusPlus.callbacks.registerHttpListener(this);
 //        LoggerPlusPlus.callbacks.registerProxyListener(this);
     }
@@ -205,15 +212,62 @@ public class LogProcessor implements IHttpListener {
                 if (logEntry.getStatus() == Status.IGNORED) return null; //Don't care about entry
 
                 //Check against color filters
-                HashMap<UUID, ColorFilter> colorFilters = preferences.getSetting(PREF_COLOR_FILTERS);
-                for (ColorFilter colorFilter : colorFilters.values()) {
-                    logEntry.testColorFilter(colorFilter, true);
-                }
+                logEntry.setMatchingColorFilters(getColorFilterSet().getMatches(logEntry, createEvaluationBudget()));
             }
         }
         return logEntry;
     }
 
+    /**
+     * @return Limits on the time spent testing an entry against the color filters, see {@link EvaluationBudget}.
+     */
+    private EvaluationBudget createEvaluationBudget(){
+        int entryTimeout = preferences.getSetting(PREF_FILTER_ENTRY_TIMEOUT);
+        int queryTimeout = preferences.getSetting(PREF_FILTER_QUERY_TIMEOUT);
+        return new EvaluationBudget(entryTimeout, queryTimeout);
+    }
+
+    /**
+     * @return The enabled color filters merged into a single plan, rebuilt after they have changed.
+     */
+    private CompiledFilterSet<UUID> getColorFilterSet(){
+        CompiledFilterSet<UUID> colorFilterSet = this.colorFilterSet;
+        return colorFilterSet != null ? colorFilterSet : buildColorFilterSet();
+    }
+
+    //Synchronized with invalidation, so a change made while the plan is built isn't lost.
+    private synchronized CompiledFilterSet<UUID> buildColorFilterSet(){
+        if (this.colorFilterSet != null) return this.colorFilterSet;
+        HashMap<UUID, ColorFilter> colorFilters = preferences.getSetting(PREF_COLOR_FILTERS);
+        Map<UUID, CompiledNode> enabledFilters = new LinkedHashMap<>();
+        for (ColorFilter colorFilter : colorFilters.values()) {
+            if (colorFilter.isEnabled() && colorFilter.getFilter() != null) {
+                enabledFilters.put(colorFilter.getUUID(), colorFilter.getFilter().getCompiled());
+            }
+        }
+        this.colorFilterSet = new CompiledFilterSet<>(enabledFilters);
+        return this.colorFilterSet;
+    }
+
+    private synchronized void invalidateColorFilterSet(){
+        this.colorFilterSet = null;
+    }
+
+    @Override
+    public void onFilterChange(ColorFilter filter) {
+        invalidateColorFilterSet();
+    }
+
+    @Override
+    public void onFilterAdd(ColorFilter filter) {
+        invalidateColorFilterSet();
+    }
+
+    @Override
+    public void onFilterRemove(ColorFilter filter) {
+        invalidateColorFilterSet();
+    }
+
     private RunnableFuture<LogEntry> createEntryUpdateRunnable(final Future<LogEntry> processingFuture,
                                                               final IHttpRequestResponse requestResponse,
                                                               final Date arrivalTime){
@@ -287,7 +341,7 @@ public class LogProcessor implements IHttpListener {
     void updateExistingEntry(LogEntry logEntry){
         exportController.exportUpdatedEntry(logEntry);
         SwingUtilities.invokeLater(() -> {
-            logTableController.getLogTableModel().updateEntry(logEntry);
+            logTableController.getLogTableModel().updateEntry(logEntry, LogEntry.RESPONSE_FIELDS);
         });
     }
 
@@ -332,7 +386,7 @@ public class LogProcessor implements IHttpListener {
                             if (timeNow - entryTime > responseTimeout) {
                                 iter.remove();
                                 LogProcessorHelper.extractAndRemoveUUIDFromRequestResponseComment(instanceIdentifier, logEntry.requestResponse);
-                                logEntry.requestResponse.setComment("Timed Out " + logEntry.requestResponse.getComment());
+                                logEntry.setComment("Timed Out " + logEntry.requestResponse.getComment());
                                 removedUUIDs.add(abandonedEntry.getKey());
                             }
                         }
@@ -76,6 +76,9 @@ public class LoggerPreferenceFactory extends PreferenceFactory {
         prefs.registerSetting(PREF_RESPONSE_TIMEOUT, Integer.class, 60);
         prefs.registerSetting(PREF_MAXIMUM_ENTRIES, Integer.class, 1000000);
         prefs.registerSetting(PREF_SEARCH_THREADS, Integer.class, 5);
+        prefs.registerSetting(PREF_BODY_INDEX_MEMORY, Integer.class, 0);
+        prefs.registerSetting(PREF_FILTER_ENTRY_TIMEOUT, Integer.class, 250);
+        prefs.registerSetting(PREF_FILTER_QUERY_TIMEOUT, Integer.class, 5000);
         prefs.registerSetting(PREF_AUTO_IMPORT_PROXY_HISTORY, Boolean.class, false);
         prefs.registerSetting(PREF_LOG_OTHER_LIVE, Boolean.class, true);
         prefs.registerSetting(PREF_ELASTIC_ADDRESS, String.class, "127.0.0.1");
@@ -176,6 +176,24 @@ public class PreferencesPanel extends JScrollPane {
         ((SpinnerNumberModel) spnSearchThreads.getModel()).setMaximum(50);
         ((SpinnerNumberModel) spnSearchThreads.getModel()).setStepSize(1);
 
+        JSpinner spnBodyIndexMemory = otherPanel.addPreferenceComponent(preferences, PREF_BODY_INDEX_MEMORY,
+                "Body Index Memory (MB, 0 to disable): ");
+        ((SpinnerNumberModel) spnBodyIndexMemory.getModel()).setMinimum(0);
+        ((SpinnerNumberModel) spnBodyIndexMemory.getModel()).setMaximum(65536);
+        ((SpinnerNumberModel) spnBodyIndexMemory.getModel()).setStepSize(16);
+
+        JSpinner spnFilterEntryTimeout = otherPanel.addPreferenceComponent(preferences, PREF_FILTER_ENTRY_TIMEOUT,
+                "Filter Timeout Per Entry (ms): ");
+        ((SpinnerNumberModel) spnFilterEntryTimeout.getModel()).setMinimum(10);
+        ((SpinnerNumberModel) spnFilterEntryTimeout.getModel()).setMaximum(60000);
+        ((SpinnerNumberModel) spnFilterEntryTimeout.getModel()).setStepSize(50);
+
+        JSpinner spnFilterQueryTimeout = otherPanel.addPreferenceComponent(preferences, PREF_FILTER_QUERY_TIMEOUT,
+                "Filter Timeout Per Query (ms): ");
+        ((SpinnerNumberModel) spnFilterQueryTimeout.getModel()).setMinimum(100);
+        ((SpinnerNumberModel) spnFilterQueryTimeout.getModel()).setMaximum(600000);
+        ((SpinnerNumberModel) spnFilterQueryTimeout.getModel()).setStepSize(1000);
+
         ComponentGroup savedFilterSharing = new ComponentGroup(Orientation.VERTICAL, "Saved Filter Sharing");
         savedFilterSharing.add(new JButton(new AbstractAction("Import Saved Filters") {
             @Override
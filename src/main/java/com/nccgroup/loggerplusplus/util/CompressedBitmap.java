@@ -0,0 +1,484 @@
+package com.nccgroup.loggerplusplus.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative integers, in the style of a Roaring bitmap.
+ *
+ * Values are partitioned by their high 16 bits into containers. Sparse containers hold a sorted array
+ * of their low 16 bits, dense containers a fixed 8KB bitmap, so ids which are clustered
+ * (as row ids are) take far less space than a plain bitset over the full range.
+ *
+ * Not thread safe, callers must synchronize access themselves.
+ */
+public class CompressedBitmap {
+
+    //Beyond this an array container is larger than a bitmap container.
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1024;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public CompressedBitmap(){
+        this.keys = new char[4];
+        this.containers = new Container[4];
+    }
+
+    private CompressedBitmap(char[] keys, Container[] containers, int size){
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static CompressedBitmap of(int... values){
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    public void add(int value){
+        char key = (char) (value >>> 16);
+        int index = indexOfKey(key);
+        if(index >= 0){
+            containers[index] = containers[index].add((char) value);
+        }else{
+            index = -index - 1;
+            insertContainer(index, key, new ArrayContainer());
+            containers[index] = containers[index].add((char) value);
+        }
+    }
+
+    public void remove(int value){
+        int index = indexOfKey((char) (value >>> 16));
+        if(index < 0) return;
+        Container container = containers[index].remove((char) value);
+        if(container.getCardinality() == 0){
+            removeContainer(index);
+        }else{
+            containers[index] = container;
+        }
+    }
+
+    public boolean contains(int value){
+        int index = indexOfKey((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * Remove all values less than the given value. Used to release ids which can no longer be referenced.
+     */
+    public void removeBelow(int value){
+        char key = (char) (value >>> 16);
+        int index = indexOfKey(key);
+        int firstRetained = index >= 0 ? index : -index - 1;
+        if(firstRetained > 0){
+            System.arraycopy(keys, firstRetained, keys, 0, size - firstRetained);
+            System.arraycopy(containers, firstRetained, containers, 0, size - firstRetained);
+            Arrays.fill(containers, size - firstRetained, size, null);
+            size -= firstRetained;
+        }
+        if(index >= 0){
+            //Clear the remaining values from the first container.
+            Container container = containers[0].removeBelow((char) value);
+            if(container.getCardinality() == 0) removeContainer(0);
+            else containers[0] = container;
+        }
+    }
+
+    public void clear(){
+        this.keys = new char[4];
+        this.containers = new Container[4];
+        this.size = 0;
+    }
+
+    public int getCardinality(){
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].getCardinality();
+        }
+        return cardinality;
+    }
+
+    public boolean isEmpty(){
+        return size == 0;
+    }
+
+    /**
+     * Call the consumer with each value in the bitmap, in ascending order.
+     */
+    public void forEach(IntConsumer consumer){
+        for (int i = 0; i < size; i++) {
+            containers[i].forEach(keys[i] << 16, consumer);
+        }
+    }
+
+    public int[] toArray(){
+        int[] values = new int[getCardinality()];
+        int[] position = {0};
+        forEach(value -> values[position[0]++] = value);
+        return values;
+    }
+
+    public CompressedBitmap copy(){
+        Container[] copied = new Container[containers.length];
+        for (int i = 0; i < size; i++) {
+            copied[i] = containers[i].copy();
+        }
+        return new CompressedBitmap(Arrays.copyOf(keys, keys.length), copied, size);
+    }
+
+    public static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b){
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < a.size && j < b.size){
+            if(a.keys[i] < b.keys[j]) i++;
+            else if(a.keys[i] > b.keys[j]) j++;
+            else {
+                Container container = a.containers[i].and(b.containers[j]);
+                if(container.getCardinality() > 0) result.appendContainer(a.keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b){
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < a.size || j < b.size){
+            if(j == b.size || (i < a.size && a.keys[i] < b.keys[j])){
+                result.appendContainer(a.keys[i], a.containers[i].copy());
+                i++;
+            }else if(i == a.size || a.keys[i] > b.keys[j]){
+                result.appendContainer(b.keys[j], b.containers[j].copy());
+                j++;
+            }else{
+                result.appendContainer(a.keys[i], a.containers[i].or(b.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return The union of the bitmaps, as a new bitmap.
+     */
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps){
+        if(bitmaps.isEmpty()) return new CompressedBitmap();
+        if(bitmaps.size() == 1) return bitmaps.get(0).copy();
+        //Union in pairs so each value is copied a logarithmic number of times.
+        List<CompressedBitmap> remaining = bitmaps;
+        while (remaining.size() > 1){
+            List<CompressedBitmap> merged = new ArrayList<>();
+            for (int i = 0; i < remaining.size(); i += 2) {
+                merged.add(i + 1 < remaining.size() ? or(remaining.get(i), remaining.get(i + 1)) : remaining.get(i));
+            }
+            remaining = merged;
+        }
+        return remaining.get(0);
+    }
+
+    public static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b){
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0, j = 0;
+        while (i < a.size){
+            if(j == b.size || a.keys[i] < b.keys[j]){
+                result.appendContainer(a.keys[i], a.containers[i].copy());
+                i++;
+            }else if(a.keys[i] > b.keys[j]){
+                j++;
+            }else{
+                Container container = a.containers[i].andNot(b.containers[j]);
+                if(container.getCardinality() > 0) result.appendContainer(a.keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(!(o instanceof CompressedBitmap)) return false;
+        return Arrays.equals(toArray(), ((CompressedBitmap) o).toArray());
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedBitmap[cardinality=" + getCardinality() + ", containers=" + size + "]";
+    }
+
+    private int indexOfKey(char key){
+        //Ids are mostly appended, so check the last container first.
+        if(size > 0 && keys[size - 1] == key) return size - 1;
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Container container){
+        if(size == keys.length){
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container){
+        insertContainer(size, key, container);
+    }
+
+    private void removeContainer(int index){
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private static abstract class Container {
+        abstract Container add(char value);
+        abstract Container remove(char value);
+        abstract Container removeBelow(char value);
+        abstract boolean contains(char value);
+        abstract int getCardinality();
+        abstract void forEach(int high, IntConsumer consumer);
+        abstract Container copy();
+        abstract long[] toWords();
+
+        Container and(Container other){
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) words[i] &= otherWords[i];
+            return fromWords(words);
+        }
+
+        Container or(Container other){
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) words[i] |= otherWords[i];
+            return fromWords(words);
+        }
+
+        Container andNot(Container other){
+            long[] words = toWords();
+            long[] otherWords = other.toWords();
+            for (int i = 0; i < BITMAP_WORDS; i++) words[i] &= ~otherWords[i];
+            return fromWords(words);
+        }
+
+        static Container fromWords(long[] words){
+            int cardinality = 0;
+            for (long word : words) cardinality += Long.bitCount(word);
+            BitmapContainer bitmap = new BitmapContainer(words, cardinality);
+            return cardinality <= ARRAY_MAX_SIZE ? bitmap.toArrayContainer() : bitmap;
+        }
+    }
+
+    private static class ArrayContainer extends Container {
+        private char[] values;
+        private int cardinality;
+
+        ArrayContainer(){
+            this(new char[8], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality){
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            //Values are usually appended in order.
+            int index = cardinality > 0 && values[cardinality - 1] < value
+                    ? -cardinality - 1 : Arrays.binarySearch(values, 0, cardinality, value);
+            if(index >= 0) return this;
+            if(cardinality == ARRAY_MAX_SIZE) return toBitmapContainer().add(value);
+
+            index = -index - 1;
+            if(cardinality == values.length){
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_MAX_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if(index < 0) return this;
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        Container removeBelow(char value) {
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if(index < 0) index = -index - 1;
+            System.arraycopy(values, index, values, 0, cardinality - index);
+            cardinality -= index;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) {
+                consumer.accept(high | values[i]);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, values.length), cardinality);
+        }
+
+        @Override
+        long[] toWords() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            return words;
+        }
+
+        @Override
+        Container and(Container other) {
+            if(!(other instanceof ArrayContainer)) return other.and(this);
+            ArrayContainer array = (ArrayContainer) other;
+            char[] result = new char[Math.min(cardinality, array.cardinality)];
+            int count = 0, i = 0, j = 0;
+            while (i < cardinality && j < array.cardinality){
+                if(values[i] < array.values[j]) i++;
+                else if(values[i] > array.values[j]) j++;
+                else {
+                    result[count++] = values[i];
+                    i++;
+                    j++;
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        private BitmapContainer toBitmapContainer(){
+            return new BitmapContainer(toWords(), cardinality);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+        private final long[] words;
+        private int cardinality;
+
+        BitmapContainer(long[] words, int cardinality){
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            if(before != after){
+                words[value >>> 6] = after;
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if(before != after){
+                words[value >>> 6] = after;
+                cardinality--;
+                if(cardinality <= ARRAY_MAX_SIZE) return toArrayContainer();
+            }
+            return this;
+        }
+
+        @Override
+        Container removeBelow(char value) {
+            int word = value >>> 6;
+            for (int i = 0; i < word; i++) {
+                cardinality -= Long.bitCount(words[i]);
+                words[i] = 0;
+            }
+            long cleared = words[word] & ((1L << value) - 1);
+            cardinality -= Long.bitCount(cleared);
+            words[word] &= ~cleared;
+            return cardinality <= ARRAY_MAX_SIZE ? toArrayContainer() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int getCardinality() {
+            return cardinality;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0){
+                    consumer.accept(high | (i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(Arrays.copyOf(words, BITMAP_WORDS), cardinality);
+        }
+
+        @Override
+        long[] toWords() {
+            return Arrays.copyOf(words, BITMAP_WORDS);
+        }
+
+        ArrayContainer toArrayContainer(){
+            char[] values = new char[Math.max(cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0){
+                    values[count++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, count);
+        }
+    }
+}
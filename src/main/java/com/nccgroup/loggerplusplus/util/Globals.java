@@ -45,6 +45,9 @@ public class Globals {
     public static final String PREF_LAYOUT = "layout";
     public static final String PREF_MESSAGE_VIEW_LAYOUT = "msgviewlayout";
     public static final String PREF_SEARCH_THREADS = "searchthreads";
+    public static final String PREF_BODY_INDEX_MEMORY = "bodyIndexMemory";
+    public static final String PREF_FILTER_ENTRY_TIMEOUT = "filterEntryTimeout";
+    public static final String PREF_FILTER_QUERY_TIMEOUT = "filterQueryTimeout";
     public static final String PREF_AUTO_IMPORT_PROXY_HISTORY = "autoimportproxyhistory";
     public static final String PREF_ELASTIC_ADDRESS = "esAddress";
     public static final String PREF_ELASTIC_PORT = "esPort";
@@ -0,0 +1,98 @@
+package com.nccgroup.loggerplusplus.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A HyperLogLog sketch, estimating the number of distinct values in a stream in a fixed amount of memory.
+ *
+ * Each value is hashed, the first bits of the hash choosing a register and the rest giving a rank,
+ * the position of the first set bit. Each register keeps the highest rank seen, from which the number of
+ * distinct values is estimated to within about {@code 1.04 / sqrt(2^precision)}. Sketches of the same precision
+ * can be merged. A sketch is not thread safe.
+ *
+ * See Flajolet et al., "HyperLogLog: the analysis of a near-optimal cardinality estimation algorithm".
+ */
+public class HyperLogLog {
+
+    public static final int DEFAULT_PRECISION = 12;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(){
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * @param precision The number of bits choosing a register, between 4 and 18
+     */
+    public HyperLogLog(int precision){
+        if(precision < 4 || precision > 18) throw new IllegalArgumentException("Precision must be between 4 and 18: " + precision);
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(Object value){
+        add(hash(value));
+    }
+
+    /**
+     * @param hash A well distributed 64 bit hash of the value, see {@link #hash(Object)}
+     */
+    public void add(long hash){
+        int register = (int) (hash >>> (64 - precision));
+        //The guard bit bounds the rank when the remaining bits are all zero.
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if(rank > registers[register]) registers[register] = rank;
+    }
+
+    /**
+     * Add the values counted by another sketch to this one.
+     */
+    public void merge(HyperLogLog other){
+        if(other.precision != precision) throw new IllegalArgumentException("Cannot merge sketches of different precision");
+        for (int i = 0; i < registers.length; i++) {
+            if(other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+    }
+
+    /**
+     * @return The estimated number of distinct values added.
+     */
+    public long cardinality(){
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if(register == 0) empty++;
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        //Few distinct values leave many registers empty, where linear counting is more accurate.
+        if(estimate <= 2.5 * m && empty > 0){
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return A 64 bit hash of the value, FNV-1a over its string form with a finalising mix so every bit is
+     * well distributed.
+     */
+    public static long hash(Object value){
+        long hash = 0xcbf29ce484222325L;
+        if(value != null){
+            for (byte b : value.toString().getBytes(StandardCharsets.UTF_8)) {
+                hash ^= b & 0xFF;
+                hash *= 0x100000001b3L;
+            }
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
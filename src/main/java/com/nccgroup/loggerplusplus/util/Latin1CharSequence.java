@@ -0,0 +1,84 @@
+package com.nccgroup.loggerplusplus.util;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A read only view of a range of bytes as characters, one character per byte as in ISO-8859-1.
+ *
+ * Lets message bodies be searched with {@link java.util.regex.Pattern#matcher(CharSequence)} and similar
+ * without decoding and copying the message, and since each character is at the same index as its byte,
+ * positions found in the view are also positions in the message.
+ */
+public final class Latin1CharSequence implements CharSequence {
+
+    private final byte[] bytes;
+    private final int offset;
+    private final int length;
+
+    public Latin1CharSequence(byte[] bytes){
+        this(bytes, 0, bytes.length);
+    }
+
+    public Latin1CharSequence(byte[] bytes, int offset, int length){
+        if(offset < 0 || length < 0 || offset > bytes.length - length){
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length + " out of bounds for length " + bytes.length);
+        }
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if(index < 0 || index >= length) throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        return (char) (bytes[offset + index] & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if(start < 0 || start > end || end > length){
+            throw new IndexOutOfBoundsException("Range " + start + "-" + end + " out of bounds for length " + length);
+        }
+        return new Latin1CharSequence(bytes, offset + start, end - start);
+    }
+
+    /**
+     * Decode part of the view with the default charset, as the rest of the extension shows message content.
+     * @param start The index of the first character, which is also the index of its byte
+     * @param end The index after the last character
+     */
+    public String decode(int start, int end){
+        if(start < 0 || start > end || end > length){
+            throw new IndexOutOfBoundsException("Range " + start + "-" + end + " out of bounds for length " + length);
+        }
+        return new String(bytes, offset + start, end - start);
+    }
+
+    /**
+     * @return The whole view decoded with the default charset.
+     */
+    public String decode(){
+        return decode(0, length);
+    }
+
+    /**
+     * @return The characters of the view, one per byte.
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+    }
+}
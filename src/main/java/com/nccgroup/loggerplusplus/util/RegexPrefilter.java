@@ -0,0 +1,525 @@
+package com.nccgroup.loggerplusplus.util;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * A cheap test which rejects most text a regex cannot match, before running the regex itself.
+ *
+ * The pattern is broken down into its required factors, literal strings which any match must contain.
+ * These are kept as clauses, each of which is a set of alternatives, e.g. {@code (foo|bar)baz.*qux} requires
+ * one of {@code foobaz} or {@code barbaz}, and {@code qux}. Text can only match if it contains an alternative
+ * from every clause, which is checked with a Boyer-Moore-Horspool scan for each alternative.
+ *
+ * ASCII letters are compared ignoring case, so the test never rejects text the pattern could match.
+ * Patterns using features which could match a literal other than as written (e.g. {@link Pattern#UNICODE_CASE})
+ * have no prefilter.
+ */
+public final class RegexPrefilter {
+
+    //Limits on the alternatives tracked for a part of the pattern, beyond which only its clauses are kept.
+    private static final int MAX_ALTERNATIVES = 16;
+    private static final int MAX_CLASS_SIZE = 4;
+
+    private final List<List<String>> clauses;
+    private final Needle[][] needles;
+
+    private RegexPrefilter(List<List<String>> clauses){
+        this.clauses = clauses;
+        this.needles = new Needle[clauses.size()][];
+        for (int i = 0; i < clauses.size(); i++) {
+            needles[i] = clauses.get(i).stream().map(Needle::new).toArray(Needle[]::new);
+        }
+    }
+
+    /**
+     * @return A prefilter for the pattern, or null if no literals are required by every match.
+     */
+    public static RegexPrefilter forPattern(Pattern pattern){
+        int flags = pattern.flags();
+        if((flags & (Pattern.UNICODE_CASE | Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) return null;
+        List<Set<String>> clauses;
+        if((flags & Pattern.LITERAL) != 0){
+            clauses = Collections.singletonList(Collections.singleton(foldCase(pattern.pattern())));
+        }else{
+            try {
+                Parser parser = new Parser(pattern.pattern());
+                clauses = parser.parse().getClauses();
+            }catch (Unsupported e){
+                return null;
+            }
+        }
+
+        List<List<String>> required = new ArrayList<>();
+        for (Set<String> clause : clauses) {
+            if(clause.isEmpty() || clause.contains("")) continue;
+            required.add(new ArrayList<>(clause));
+        }
+        return required.isEmpty() ? null : new RegexPrefilter(required);
+    }
+
+    /**
+     * @return The clauses of literals required by any match, with ASCII letters in lower case.
+     * Every match contains at least one literal from each clause.
+     */
+    public List<List<String>> getRequiredLiterals() {
+        return clauses;
+    }
+
+    /**
+     * @return False if the pattern can't match anywhere in the text.
+     */
+    public boolean mayMatch(CharSequence text){
+        for (Needle[] clause : needles) {
+            if(!containsAny(clause, text)) return false;
+        }
+        return true;
+    }
+
+    private static boolean containsAny(Needle[] clause, CharSequence text){
+        for (Needle needle : clause) {
+            if(needle.indexOf(text) != -1) return true;
+        }
+        return false;
+    }
+
+    private static char foldCase(char c){
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String foldCase(String value){
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * A literal to search for ignoring the case of ASCII letters, using Boyer-Moore-Horspool.
+     */
+    private static class Needle {
+        private final char[] chars;
+        //Shifts for each ASCII character at the end of the window, and for any other character.
+        private final int[] shifts;
+        private final int otherShift;
+
+        Needle(String literal){
+            this.chars = literal.toCharArray();
+            int last = chars.length - 1;
+            this.shifts = new int[128];
+            int otherShift = chars.length;
+            Arrays.fill(shifts, chars.length);
+            for (int i = 0; i < last; i++) {
+                char c = chars[i];
+                if(c < 0x80){
+                    shifts[c] = last - i;
+                    if(c >= 'a' && c <= 'z') shifts[c - ('a' - 'A')] = last - i;
+                }else{
+                    otherShift = last - i;
+                }
+            }
+            this.otherShift = Math.max(otherShift, 1);
+        }
+
+        int indexOf(CharSequence text){
+            int length = chars.length;
+            if(length == 0) return 0;
+            int last = length - 1;
+            int end = text.length() - length;
+            int i = 0;
+            while (i <= end) {
+                int j = last;
+                while (j >= 0 && foldCase(text.charAt(i + j)) == chars[j]) j--;
+                if(j < 0) return i;
+                char c = text.charAt(i + last);
+                i += c < 0x80 ? shifts[c] : otherShift;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * What is known about the text matched by part of a pattern.
+     * Either the complete set of strings it can match, or clauses of literals every match contains.
+     */
+    private static class Info {
+        private final Set<String> exact;
+        private final List<Set<String>> clauses;
+
+        private Info(Set<String> exact, List<Set<String>> clauses){
+            this.exact = exact;
+            this.clauses = clauses;
+        }
+
+        static Info exact(String... strings){
+            return new Info(new LinkedHashSet<>(Arrays.asList(strings)), Collections.emptyList());
+        }
+
+        static Info exact(Set<String> strings){
+            return new Info(strings, Collections.emptyList());
+        }
+
+        static Info unknown(){
+            return new Info(null, Collections.emptyList());
+        }
+
+        static Info required(List<Set<String>> clauses){
+            return new Info(null, clauses);
+        }
+
+        List<Set<String>> getClauses(){
+            if(exact == null) return clauses;
+            return exact.contains("") ? Collections.emptyList() : Collections.singletonList(exact);
+        }
+
+        Info concat(Info other){
+            if(exact != null && other.exact != null && exact.size() * other.exact.size() <= MAX_ALTERNATIVES){
+                Set<String> product = new LinkedHashSet<>();
+                for (String left : exact) {
+                    for (String right : other.exact) {
+                        product.add(left + right);
+                    }
+                }
+                return exact(product);
+            }
+            List<Set<String>> combined = new ArrayList<>(getClauses());
+            combined.addAll(other.getClauses());
+            return required(combined);
+        }
+
+        Info alternate(Info other){
+            if(exact != null && other.exact != null){
+                Set<String> union = new LinkedHashSet<>(exact);
+                union.addAll(other.exact);
+                if(union.size() <= MAX_ALTERNATIVES) return exact(union);
+            }
+            //Either side may match, so only a clause made of one clause from each side is still required.
+            Set<String> left = getBestClause(), right = other.getBestClause();
+            if(left == null || right == null) return unknown();
+            Set<String> union = new LinkedHashSet<>(left);
+            union.addAll(right);
+            return union.size() <= MAX_ALTERNATIVES ? required(Collections.singletonList(union)) : unknown();
+        }
+
+        //The clause whose shortest literal is longest, as the most selective.
+        private Set<String> getBestClause(){
+            Set<String> best = null;
+            int bestLength = 0;
+            for (Set<String> clause : getClauses()) {
+                int shortest = clause.stream().mapToInt(String::length).min().orElse(0);
+                if(shortest > bestLength){
+                    best = clause;
+                    bestLength = shortest;
+                }
+            }
+            return best;
+        }
+
+        //The part may match any number of times, but at least once.
+        Info atLeastOnce(){
+            return required(getClauses());
+        }
+
+        //The part may not match at all.
+        Info optional(){
+            if(exact != null && exact.size() < MAX_ALTERNATIVES){
+                Set<String> strings = new LinkedHashSet<>(exact);
+                strings.add("");
+                return exact(strings);
+            }
+            return unknown();
+        }
+    }
+
+    /**
+     * Thrown by the parser to give up on a pattern it can't be sure of, in which case there is no prefilter.
+     */
+    private static class Unsupported extends RuntimeException {
+        private Unsupported(){
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A recursive descent parser over the syntax of {@link Pattern}, working out the {@link Info} for each part.
+     * Throws {@link Unsupported} for anything it doesn't understand well enough to be sure of.
+     */
+    private static class Parser {
+        private final String regex;
+        private int position;
+
+        Parser(String regex){
+            this.regex = regex;
+        }
+
+        Info parse(){
+            Info info = parseAlternation();
+            if(position != regex.length()) throw new Unsupported();
+            return info;
+        }
+
+        private boolean more(){
+            return position < regex.length();
+        }
+
+        private char peek(){
+            return regex.charAt(position);
+        }
+
+        private Info parseAlternation(){
+            Info info = parseConcatenation();
+            while (more() && peek() == '|') {
+                position++;
+                info = info.alternate(parseConcatenation());
+            }
+            return info;
+        }
+
+        private Info parseConcatenation(){
+            //Consecutive exact parts are joined into a run, so literals after e.g. ".*" are kept whole.
+            Info info = Info.exact("");
+            Info run = Info.exact("");
+            while (more() && peek() != '|' && peek() != ')') {
+                Info part = parseRepetition();
+                if(part.exact == null){
+                    info = info.concat(run).concat(part);
+                    run = Info.exact("");
+                }else if(run.exact.size() * part.exact.size() <= MAX_ALTERNATIVES){
+                    run = run.concat(part);
+                }else{
+                    info = info.concat(run);
+                    run = part;
+                }
+            }
+            return info.concat(run);
+        }
+
+        private Info parseRepetition(){
+            Info atom = parseAtom();
+            if(!more()) return atom;
+            char c = peek();
+            Info result;
+            if(c == '*'){
+                position++;
+                result = Info.unknown();
+            }else if(c == '+'){
+                position++;
+                result = atom.atLeastOnce();
+            }else if(c == '?'){
+                position++;
+                result = atom.optional();
+            }else if(c == '{'){
+                int close = regex.indexOf('}', position);
+                if(close == -1) throw new Unsupported();
+                String bounds = regex.substring(position + 1, close);
+                position = close + 1;
+                int minimum = Integer.parseInt(bounds.split(",", -1)[0].trim());
+                if(minimum == 0) result = bounds.equals("0,1") ? atom.optional() : Info.unknown();
+                else if(bounds.equals("1")) result = atom;
+                else result = atom.atLeastOnce();
+            }else{
+                return atom;
+            }
+            //Lazy and possessive quantifiers match the same strings.
+            if(more() && (peek() == '?' || peek() == '+')) position++;
+            return result;
+        }
+
+        private Info parseAtom(){
+            char c = regex.charAt(position++);
+            switch (c){
+                case '(': return parseGroup();
+                case '[': return parseClass();
+                case '.': return Info.unknown();
+                case '^':
+                case '$': return Info.exact("");
+                case '\\': return parseEscape();
+                default: return Info.exact(String.valueOf(foldCase(c)));
+            }
+        }
+
+        private Info parseGroup(){
+            boolean zeroWidth = false;
+            if(more() && peek() == '?'){
+                position++;
+                if(!more()) throw new Unsupported();
+                char kind = regex.charAt(position++);
+                if(kind == '=' || kind == '!'){
+                    zeroWidth = true;
+                }else if(kind == '<' && more() && (peek() == '=' || peek() == '!')){
+                    position++;
+                    zeroWidth = true;
+                }else if(kind == '<'){
+                    int close = regex.indexOf('>', position);
+                    if(close == -1) throw new Unsupported();
+                    position = close + 1;
+                }else if(kind != ':' && kind != '>'){
+                    //Inline flags, either for the rest of the group "(?i)" or for a new group "(?i:...)".
+                    position--;
+                    boolean enabling = true;
+                    while (more() && peek() != ')' && peek() != ':') {
+                        char flag = regex.charAt(position++);
+                        if(flag == '-') enabling = false;
+                        else if(enabling && (flag == 'u' || flag == 'x' || flag == 'U')) throw new Unsupported();
+                        else if("idmsuxU".indexOf(flag) == -1) throw new Unsupported();
+                    }
+                    if(!more()) throw new Unsupported();
+                    if(regex.charAt(position++) == ')') return Info.exact("");
+                }
+            }
+            Info inner = parseAlternation();
+            if(!more() || regex.charAt(position++) != ')') throw new Unsupported();
+            return zeroWidth ? Info.exact("") : inner;
+        }
+
+        private Info parseClass(){
+            boolean negated = more() && peek() == '^';
+            if(negated) position++;
+            Set<String> chars = new LinkedHashSet<>();
+            boolean simple = !negated;
+            boolean first = true;
+            while (true) {
+                if(!more()) throw new Unsupported();
+                char c = regex.charAt(position++);
+                if(c == ']' && !first) break;
+                first = false;
+                if(c == '[' || (c == '&' && more() && peek() == '&')){
+                    //Unions and intersections of classes, find the end without trying to follow them.
+                    skipNestedClass(c == '[' ? 1 : 0);
+                    return Info.unknown();
+                }
+                char literal;
+                if(c == '\\'){
+                    if(!more()) throw new Unsupported();
+                    char escaped = regex.charAt(position++);
+                    if(escaped == 'Q') throw new Unsupported();
+                    if(Character.isLetterOrDigit(escaped)){
+                        //Character class escapes, e.g. \d or \p{Alpha}, whose braces can't contain brackets.
+                        if(more() && peek() == '{') position = regex.indexOf('}', position) + 1;
+                        if(position == 0) throw new Unsupported();
+                        simple = false;
+                        continue;
+                    }
+                    literal = escaped;
+                }else{
+                    literal = c;
+                }
+                if(more() && peek() == '-' && position + 1 < regex.length() && regex.charAt(position + 1) != ']'){
+                    //A range, only listed out if small.
+                    position++;
+                    char end = regex.charAt(position++);
+                    if(end == '\\' || end == '[') throw new Unsupported();
+                    if(end - literal >= MAX_CLASS_SIZE) simple = false;
+                    for (char member = literal; simple && member <= end; member++) {
+                        chars.add(String.valueOf(foldCase(member)));
+                    }
+                    continue;
+                }
+                chars.add(String.valueOf(foldCase(literal)));
+            }
+            return simple && !chars.isEmpty() && chars.size() <= MAX_CLASS_SIZE ? Info.exact(chars) : Info.unknown();
+        }
+
+        private void skipNestedClass(int depth){
+            depth++;
+            while (depth > 0) {
+                if(!more()) throw new Unsupported();
+                char c = regex.charAt(position++);
+                if(c == '\\'){
+                    if(more() && peek() == 'Q') throw new Unsupported();
+                    position++;
+                }else if(c == '['){
+                    depth++;
+                    if(more() && peek() == '^') position++;
+                    if(more() && peek() == ']') position++;
+                }else if(c == ']'){
+                    depth--;
+                }
+            }
+        }
+
+        private Info parseEscape(){
+            if(!more()) throw new Unsupported();
+            char c = regex.charAt(position++);
+            if(!Character.isLetterOrDigit(c)) return Info.exact(String.valueOf(c));
+            switch (c){
+                case 't': return literal('\t');
+                case 'n': return literal('\n');
+                case 'r': return literal('\r');
+                case 'f': return literal('\f');
+                case 'a': return literal('\u0007');
+                case 'e': return literal('\u001B');
+                case 'b': case 'B': case 'A': case 'G': case 'Z': case 'z':
+                    return Info.exact("");
+                case 'd': case 'D': case 's': case 'S': case 'w': case 'W':
+                case 'h': case 'H': case 'v': case 'V': case 'R': case 'X':
+                    return Info.unknown();
+                case 'p': case 'P': {
+                    if(more() && peek() == '{'){
+                        int close = regex.indexOf('}', position);
+                        if(close == -1) throw new Unsupported();
+                        position = close + 1;
+                    }else{
+                        position++;
+                    }
+                    return Info.unknown();
+                }
+                case 'k': {
+                    int close = regex.indexOf('>', position);
+                    if(close == -1) throw new Unsupported();
+                    position = close + 1;
+                    return Info.unknown();
+                }
+                case 'Q': {
+                    int end = regex.indexOf("\\E", position);
+                    String quoted = regex.substring(position, end == -1 ? regex.length() : end);
+                    position = end == -1 ? regex.length() : end + 2;
+                    return Info.exact(foldCase(quoted));
+                }
+                case 'x': {
+                    if(more() && peek() == '{'){
+                        int close = regex.indexOf('}', position);
+                        if(close == -1) throw new Unsupported();
+                        int codePoint = Integer.parseInt(regex.substring(position + 1, close), 16);
+                        position = close + 1;
+                        return Info.exact(foldCase(new String(Character.toChars(codePoint))));
+                    }
+                    return literal(parseHex(2));
+                }
+                case 'u': return literal(parseHex(4));
+                case 'c': {
+                    if(!more()) throw new Unsupported();
+                    return literal((char) (regex.charAt(position++) ^ 64));
+                }
+                case '0': {
+                    int value = 0, digits = 0;
+                    while (more() && digits < 3 && peek() >= '0' && peek() <= '7' && value * 8 + (peek() - '0') <= 0377) {
+                        value = value * 8 + (regex.charAt(position++) - '0');
+                        digits++;
+                    }
+                    if(digits == 0) throw new Unsupported();
+                    return literal((char) value);
+                }
+                default:
+                    if(c >= '1' && c <= '9'){
+                        //A back reference, its group is already accounted for.
+                        while (more() && Character.isDigit(peek())) position++;
+                        return Info.unknown();
+                    }
+                    throw new Unsupported();
+            }
+        }
+
+        private char parseHex(int digits){
+            if(position + digits > regex.length()) throw new Unsupported();
+            char value = (char) Integer.parseInt(regex.substring(position, position + digits), 16);
+            position += digits;
+            return value;
+        }
+
+        private Info literal(char c){
+            return Info.exact(String.valueOf(foldCase(c)));
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.nccgroup.loggerplusplus.util;
+
+/**
+ * A merging t-digest, estimating quantiles of a stream of values in a fixed amount of memory.
+ *
+ * Values are buffered and periodically merged into a sorted list of centroids, each the mean and count of a run
+ * of nearby values. Centroids near the median may hold many values, while those near the extremes hold few,
+ * so the tails used by high percentiles stay accurate. Two digests can be merged, letting a stream be
+ * summarised in parts. A digest is not thread safe.
+ *
+ * See Dunning and Ertl, "Computing Extremely Accurate Quantiles Using t-Digests".
+ */
+public class TDigest {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private final double compression;
+    private double[] means;
+    private double[] counts;
+    private int centroids;
+    private double[] bufferedValues;
+    private double[] bufferedCounts;
+    private int buffered;
+    private double totalCount;
+    private double min;
+    private double max;
+
+    public TDigest(){
+        this(DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param compression Bounds the number of centroids kept, higher values are more accurate but use more memory
+     */
+    public TDigest(double compression){
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) + 1;
+        this.means = new double[capacity];
+        this.counts = new double[capacity];
+        this.bufferedValues = new double[capacity * 5];
+        this.bufferedCounts = new double[capacity * 5];
+        this.min = Double.POSITIVE_INFINITY;
+        this.max = Double.NEGATIVE_INFINITY;
+    }
+
+    public void add(double value){
+        add(value, 1);
+    }
+
+    private void add(double value, double count){
+        if(Double.isNaN(value)) return;
+        if(buffered == bufferedValues.length) compress();
+        bufferedValues[buffered] = value;
+        bufferedCounts[buffered] = count;
+        buffered++;
+        totalCount += count;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Add the values summarised by another digest to this one.
+     */
+    public void merge(TDigest other){
+        other.compress();
+        for (int i = 0; i < other.centroids; i++) {
+            add(other.means[i], other.counts[i]);
+        }
+        //The extremes of the other digest may not be the means of its centroids.
+        if(other.totalCount > 0){
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+    }
+
+    /**
+     * @return The number of values added.
+     */
+    public long size(){
+        return (long) totalCount;
+    }
+
+    /**
+     * @param q The quantile to estimate, between 0 and 1
+     * @return The estimated value at the quantile, or NaN if no values have been added.
+     */
+    public double quantile(double q){
+        if(q < 0 || q > 1) throw new IllegalArgumentException("Quantile must be between 0 and 1: " + q);
+        compress();
+        if(centroids == 0) return Double.NaN;
+        if(centroids == 1) return means[0];
+
+        //Each centroid is taken to be centred on its mean, with half its values either side.
+        double index = q * totalCount;
+        if(index < counts[0] / 2){
+            return interpolate(min, means[0], index / (counts[0] / 2));
+        }
+        double seen = counts[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double gap = (counts[i] + counts[i + 1]) / 2;
+            if(seen + gap > index){
+                return interpolate(means[i], means[i + 1], (index - seen) / gap);
+            }
+            seen += gap;
+        }
+        double last = counts[centroids - 1] / 2;
+        return interpolate(means[centroids - 1], max, Math.min(1, (index - seen) / last));
+    }
+
+    private static double interpolate(double from, double to, double fraction){
+        return from + (to - from) * fraction;
+    }
+
+    //Merge the buffered values and existing centroids into a new list of centroids.
+    private void compress(){
+        if(buffered == 0) return;
+
+        int total = centroids + buffered;
+        double[] values = new double[total];
+        double[] weights = new double[total];
+        System.arraycopy(means, 0, values, 0, centroids);
+        System.arraycopy(counts, 0, weights, 0, centroids);
+        System.arraycopy(bufferedValues, 0, values, centroids, buffered);
+        System.arraycopy(bufferedCounts, 0, weights, centroids, buffered);
+        sort(values, weights, 0, total - 1);
+        buffered = 0;
+
+        double[] newMeans = new double[Math.max(means.length, total)];
+        double[] newCounts = new double[newMeans.length];
+        int merged = 0;
+        newMeans[0] = values[0];
+        newCounts[0] = weights[0];
+        double seen = 0;
+        double limit = totalCount * quantileAt(scale(0) + 1);
+        for (int i = 1; i < total; i++) {
+            if(seen + newCounts[merged] + weights[i] <= limit){
+                //Fold the value into the current centroid.
+                newCounts[merged] += weights[i];
+                newMeans[merged] += (values[i] - newMeans[merged]) * weights[i] / newCounts[merged];
+            }else{
+                seen += newCounts[merged];
+                merged++;
+                newMeans[merged] = values[i];
+                newCounts[merged] = weights[i];
+                limit = totalCount * quantileAt(scale(seen / totalCount) + 1);
+            }
+        }
+        this.means = newMeans;
+        this.counts = newCounts;
+        this.centroids = merged + 1;
+    }
+
+    //The k1 scale function, mapping a quantile to the index of the centroid covering it.
+    private double scale(double q){
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    private double quantileAt(double k){
+        if(k >= compression / 4) return 1;
+        return (Math.sin(k * 2 * Math.PI / compression) + 1) / 2;
+    }
+
+    //Sort values, keeping their weights alongside.
+    private static void sort(double[] values, double[] weights, int low, int high){
+        while (low < high){
+            if(high - low < 16){
+                for (int i = low + 1; i <= high; i++) {
+                    double value = values[i], weight = weights[i];
+                    int j = i - 1;
+                    while (j >= low && values[j] > value){
+                        values[j + 1] = values[j];
+                        weights[j + 1] = weights[j];
+                        j--;
+                    }
+                    values[j + 1] = value;
+                    weights[j + 1] = weight;
+                }
+                return;
+            }
+            double pivot = values[(low + high) >>> 1];
+            int i = low, j = high;
+            while (i <= j){
+                while (values[i] < pivot) i++;
+                while (values[j] > pivot) j--;
+                if(i <= j){
+                    double value = values[i];
+                    values[i] = values[j];
+                    values[j] = value;
+                    double weight = weights[i];
+                    weights[i] = weights[j];
+                    weights[j] = weight;
+                    i++;
+                    j--;
+                }
+            }
+            //Recurse into the smaller side, loop over the larger.
+            if(j - low < high - i){
+                sort(values, weights, low, j);
+                low = i;
+            }else{
+                sort(values, weights, i, high);
+                high = j;
+            }
+        }
+    }
+}
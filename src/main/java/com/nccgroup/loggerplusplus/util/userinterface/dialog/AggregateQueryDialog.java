@@ -0,0 +1,228 @@
+package com.nccgroup.loggerplusplus.util.userinterface.dialog;
+
+import com.nccgroup.loggerplusplus.filter.aggregate.Aggregate;
+import com.nccgroup.loggerplusplus.filter.aggregate.AggregateQuery;
+import com.nccgroup.loggerplusplus.filter.aggregate.AggregateResults;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logview.logtable.LogTableModel;
+import com.nccgroup.loggerplusplus.util.NamedThreadFactory;
+
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Shows the results of an aggregate query, kept up to date as entries are added to the log and receive responses.
+ *
+ * The results are built and updated on a background thread, and shown at most every {@link #PUBLISH_INTERVAL_MS}ms.
+ */
+public class AggregateQueryDialog extends JDialog {
+
+    private static final int PUBLISH_INTERVAL_MS = 500;
+
+    private final AggregateQuery query;
+    private final LogFilter filter;
+    private final LogTableModel model;
+    private final Supplier<EvaluationBudget> budgets;
+    private final ExecutorService executor;
+    private final AtomicBoolean changed;
+    private final TableModelListener modelListener;
+    private final Timer publishTimer;
+    private final ResultsTableModel tableModel;
+    private final JLabel statusLabel;
+    //Only accessed from the executor. The budget is that of the last full run, cancelled if it's run again.
+    private AggregateResults results;
+    private EvaluationBudget budget;
+
+    /**
+     * @param filter The compiled filter of the query, or null if it aggregates every entry
+     * @param budgets Supplies the time limits on testing entries against the filter
+     */
+    public AggregateQueryDialog(Frame owner, AggregateQuery query, LogFilter filter, LogTableModel model,
+                                Supplier<EvaluationBudget> budgets){
+        super(owner, "Aggregate Query", false);
+        this.query = query;
+        this.filter = filter;
+        this.model = model;
+        this.budgets = budgets;
+        this.executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("LPP-AggregateQuery"));
+        this.changed = new AtomicBoolean();
+        this.tableModel = new ResultsTableModel();
+        this.statusLabel = new JLabel("Running query...");
+        this.results = new AggregateResults(query, filter);
+        this.budget = budgets.get();
+        this.modelListener = this::onModelChanged;
+        this.publishTimer = new Timer(PUBLISH_INTERVAL_MS, e -> {
+            if(changed.getAndSet(false)) executor.execute(this::publish);
+        });
+
+        buildDialog();
+        pack();
+        setLocationRelativeTo(owner);
+
+        //Listen before taking the snapshot, so no entries are missed in between.
+        model.addTableModelListener(modelListener);
+        refresh();
+        publishTimer.start();
+    }
+
+    private void buildDialog(){
+        this.setLayout(new BorderLayout());
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JPanel header = new JPanel(new GridLayout(0, 1));
+        header.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        header.add(new JLabel("Query: " + query));
+        header.add(statusLabel);
+        this.add(header, BorderLayout.NORTH);
+
+        JTable table = new JTable(tableModel);
+        table.setAutoCreateRowSorter(true);
+        JScrollPane tableScroller = new JScrollPane(table);
+        tableScroller.setPreferredSize(new Dimension(800, 350));
+        this.add(tableScroller, BorderLayout.CENTER);
+
+        JLabel note = new JLabel("Entries removed from the log stay in the results until the query is refreshed.");
+        note.setBorder(BorderFactory.createEmptyBorder(0, 5, 0, 5));
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel footer = new JPanel(new BorderLayout());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(refreshButton);
+        buttons.add(closeButton);
+        footer.add(note, BorderLayout.CENTER);
+        footer.add(buttons, BorderLayout.EAST);
+        this.add(footer, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Run the query again over the entries currently in the log.
+     */
+    private void refresh(){
+        executor.execute(() -> {
+            budget.cancel();
+            budget = budgets.get();
+            results = AggregateResults.execute(query, filter, model.getData(), budget);
+            publish();
+        });
+    }
+
+    //Called while the model is locked, so the rows of the event are still valid.
+    private void onModelChanged(TableModelEvent event){
+        if(event.getFirstRow() == TableModelEvent.HEADER_ROW || event.getLastRow() == Integer.MAX_VALUE){
+            //The whole log changed, e.g. it was cleared.
+            refresh();
+            return;
+        }
+        switch (event.getType()){
+            case TableModelEvent.INSERT: {
+                List<LogEntry> entries = getEntries(event);
+                executor.execute(() -> {
+                    EvaluationBudget batchBudget = budgets.get();
+                    for (LogEntry entry : entries) results.add(entry, batchBudget);
+                    changed.set(true);
+                });
+                break;
+            }
+            case TableModelEvent.UPDATE: {
+                List<LogEntry> entries = getEntries(event);
+                executor.execute(() -> {
+                    EvaluationBudget batchBudget = budgets.get();
+                    for (LogEntry entry : entries) results.update(entry, batchBudget);
+                    changed.set(true);
+                });
+                break;
+            }
+            case TableModelEvent.DELETE: {
+                int oldestRowId = model.getRowCount() > 0 ? model.getRow(0).getRowId() : Integer.MAX_VALUE;
+                executor.execute(() -> {
+                    results.removePendingBelow(oldestRowId);
+                    changed.set(true);
+                });
+                break;
+            }
+        }
+    }
+
+    private List<LogEntry> getEntries(TableModelEvent event){
+        List<LogEntry> entries = new ArrayList<>();
+        for (int row = event.getFirstRow(); row <= event.getLastRow() && row < model.getRowCount(); row++) {
+            entries.add(model.getRow(row));
+        }
+        return entries;
+    }
+
+    private void publish(){
+        List<Object[]> rows = results.getRows();
+        String status = String.format("%d entries aggregated into %d groups, %d awaiting a response.",
+                results.getMatchedCount(), rows.size(), results.getPendingCount());
+        if(results.getTimedOutCount() > 0){
+            status += String.format(" %d entries took too long to test against the filter and were left out.", results.getTimedOutCount());
+        }
+        String finalStatus = status;
+        SwingUtilities.invokeLater(() -> {
+            statusLabel.setText(finalStatus);
+            tableModel.setRows(rows);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        model.removeTableModelListener(modelListener);
+        publishTimer.stop();
+        executor.shutdownNow();
+        super.dispose();
+    }
+
+    private class ResultsTableModel extends AbstractTableModel {
+        private final List<String> columns = query.getColumnNames();
+        private List<Object[]> rows = Collections.emptyList();
+
+        private void setRows(List<Object[]> rows){
+            this.rows = rows;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.size();
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columns.get(column);
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            int groupByCount = query.getGroupBy().size();
+            if(column < groupByCount) return query.getGroupBy().get(column).getType();
+            Aggregate aggregate = query.getAggregates().get(column - groupByCount);
+            return aggregate.getResultType();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.nccgroup.loggerplusplus.util.userinterface.dialog;
+
+import com.nccgroup.loggerplusplus.filter.compiled.CompiledNode;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.compiled.FilterProfile;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.index.LogEntryIndex;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.DefaultTableCellRenderer;
+import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Supplier;
+
+/**
+ * Shows the plan of a filter, and profiles it against the entries in the log.
+ */
+public class FilterProfileDialog extends JDialog {
+
+    private static final String[] COLUMNS = {"Node", "Est. Cost", "Index Matches", "To Test",
+            "Evaluations", "Match Rate", "Time (ms)", "Time %", "Timeouts"};
+    private static final int PROGRESS_INTERVAL = 256;
+
+    private final CompiledNode filter;
+    private final LogEntryIndex index;
+    private final Supplier<List<LogEntry>> entries;
+    private final Supplier<EvaluationBudget> budgets;
+    private final ProfileTableModel tableModel;
+    private final JLabel summaryLabel;
+    private final JProgressBar progressBar;
+    private final JButton profileButton;
+    private FilterProfile profile;
+    private SwingWorker<FilterProfile, Integer> worker;
+
+    /**
+     * @param entries Supplies the entries to profile the filter against
+     * @param budgets Supplies the time limits for a profiling run
+     */
+    public FilterProfileDialog(Frame owner, String filterString, CompiledNode filter, LogEntryIndex index,
+                               Supplier<List<LogEntry>> entries, Supplier<EvaluationBudget> budgets){
+        super(owner, "Explain Filter", false);
+        this.filter = filter;
+        this.index = index;
+        this.entries = entries;
+        this.budgets = budgets;
+        this.tableModel = new ProfileTableModel();
+        this.summaryLabel = new JLabel();
+        this.progressBar = new JProgressBar();
+        this.profileButton = new JButton("Profile");
+
+        buildDialog(filterString);
+        planFilter();
+        pack();
+        setLocationRelativeTo(owner);
+    }
+
+    private void buildDialog(String filterString){
+        this.setLayout(new BorderLayout());
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JPanel header = new JPanel(new GridLayout(0, 1));
+        header.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        header.add(new JLabel("Filter: " + filterString));
+        header.add(summaryLabel);
+        this.add(header, BorderLayout.NORTH);
+
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(0).setPreferredWidth(350);
+        DefaultTableCellRenderer rightRenderer = new DefaultTableCellRenderer();
+        rightRenderer.setHorizontalAlignment(SwingConstants.RIGHT);
+        for (int i = 1; i < COLUMNS.length; i++) {
+            table.getColumnModel().getColumn(i).setCellRenderer(rightRenderer);
+        }
+        JScrollPane tableScroller = new JScrollPane(table);
+        tableScroller.setPreferredSize(new Dimension(950, 300));
+        this.add(tableScroller, BorderLayout.CENTER);
+
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        profileButton.addActionListener(e -> {
+            if(worker != null) worker.cancel(true);
+            else startProfiling();
+        });
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel footer = new JPanel(new BorderLayout());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(profileButton);
+        buttons.add(closeButton);
+        footer.add(progressBar, BorderLayout.CENTER);
+        footer.add(buttons, BorderLayout.EAST);
+        this.add(footer, BorderLayout.SOUTH);
+    }
+
+    //Look up the indexes for the plan in the background, as that may run the filter against every indexed value.
+    private void planFilter(){
+        EvaluationBudget budget = budgets.get();
+        summaryLabel.setText("Looking up the indexes...");
+        profileButton.setEnabled(false);
+        worker = new SwingWorker<FilterProfile, Integer>() {
+            @Override
+            protected FilterProfile doInBackground() {
+                return new FilterProfile(filter, index, budget);
+            }
+
+            @Override
+            protected void done() {
+                worker = null;
+                profileButton.setEnabled(true);
+                try {
+                    setProfile(get());
+                }catch (CancellationException e){
+                    //The dialog was closed.
+                }catch (Exception e){
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void setProfile(FilterProfile profile){
+        this.profile = profile;
+        FilterProfile.Node root = profile.getRoot();
+        String summary = root.isBounded() ? String.format("%d rows in the table, %d matched by the indexes, %d to test.",
+                profile.getTotalRows(), root.getIndexMatches(), root.getIndexResidual())
+                : String.format("%d rows in the table, the indexes timed out so all are tested.", profile.getTotalRows());
+        if(profile.getProfiledEntries() > 0){
+            summary += String.format(" Profiled %d entries in %.1fms, %d matched.", profile.getProfiledEntries(),
+                    root.getNanos() / 1e6, root.getMatches());
+        }
+        summaryLabel.setText(summary);
+        tableModel.fireTableDataChanged();
+    }
+
+    private void startProfiling(){
+        List<LogEntry> entries = this.entries.get();
+        EvaluationBudget budget = budgets.get();
+        progressBar.setMaximum(entries.size());
+        progressBar.setValue(0);
+        progressBar.setVisible(true);
+        profileButton.setText("Cancel");
+
+        worker = new SwingWorker<FilterProfile, Integer>() {
+            @Override
+            protected FilterProfile doInBackground() {
+                FilterProfile profile = new FilterProfile(filter, index, budget);
+                for (int i = 0; i < entries.size(); i++) {
+                    if(isCancelled()) break;
+                    profile.profile(entries.get(i), budget);
+                    if(i % PROGRESS_INTERVAL == 0) publish(i);
+                }
+                return profile;
+            }
+
+            @Override
+            protected void process(List<Integer> chunks) {
+                int evaluated = chunks.get(chunks.size() - 1);
+                progressBar.setValue(evaluated);
+                progressBar.setString(String.format("Profiling %d / %d", evaluated, entries.size()));
+            }
+
+            @Override
+            protected void done() {
+                worker = null;
+                progressBar.setVisible(false);
+                profileButton.setText("Profile");
+                try {
+                    setProfile(get());
+                }catch (CancellationException e){
+                    //Stopped by the user, leave the previous results.
+                }catch (Exception e){
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    @Override
+    public void dispose() {
+        if(worker != null) worker.cancel(true);
+        super.dispose();
+    }
+
+    private class ProfileTableModel extends AbstractTableModel {
+
+        @Override
+        public int getRowCount() {
+            return profile == null ? 0 : profile.getNodes().size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMNS[column];
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            FilterProfile.Node node = profile.getNodes().get(row);
+            boolean profiled = profile.getProfiledEntries() > 0;
+            switch (column){
+                case 0: {
+                    StringBuilder indent = new StringBuilder();
+                    for (int i = 0; i < node.getDepth(); i++) indent.append("    ");
+                    return indent + node.getDescription();
+                }
+                case 1: return String.format("%.1f", node.getCost());
+                case 2: return node.isBounded() ? node.getIndexMatches() : "unbounded";
+                case 3: return node.isBounded() ? node.getIndexResidual() : "unbounded";
+                case 4: return profiled ? node.getEvaluations() : "";
+                case 5: {
+                    if(!profiled || node.getEvaluations() == 0) return "";
+                    return String.format("%.1f%%", 100.0 * node.getMatches() / node.getEvaluations());
+                }
+                case 6: return profiled ? String.format("%.2f", node.getNanos() / 1e6) : "";
+                case 7: {
+                    long total = profile.getRoot().getNanos();
+                    if(!profiled || total == 0) return "";
+                    return String.format("%.1f%%", 100.0 * node.getNanos() / total);
+                }
+                case 8: return profiled ? node.getTimeouts() : "";
+                default: return "";
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.nccgroup.loggerplusplus.util.userinterface.dialog;
+
+import com.nccgroup.loggerplusplus.filter.aggregate.TopQuery;
+import com.nccgroup.loggerplusplus.filter.aggregate.TopResults;
+import com.nccgroup.loggerplusplus.filter.compiled.EvaluationBudget;
+import com.nccgroup.loggerplusplus.filter.logfilter.LogFilter;
+import com.nccgroup.loggerplusplus.logentry.LogEntry;
+import com.nccgroup.loggerplusplus.logentry.LogEntryField;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Shows the results of a top query, the entries first in the order of a field.
+ * Double clicking a result selects its entry in the log table.
+ */
+public class TopQueryDialog extends JDialog {
+
+    //Shown alongside the field ordered by, to identify each entry.
+    private static final LogEntryField[] CONTEXT_FIELDS = {LogEntryField.METHOD, LogEntryField.HOSTNAME,
+            LogEntryField.PATH, LogEntryField.STATUS};
+
+    private final TopQuery query;
+    private final LogFilter filter;
+    private final Supplier<List<LogEntry>> entries;
+    private final Supplier<EvaluationBudget> budgets;
+    private final List<LogEntryField> columns;
+    private final ResultsTableModel tableModel;
+    private final JLabel statusLabel;
+    private final JButton refreshButton;
+    private SwingWorker<TopResults, Void> worker;
+    private EvaluationBudget budget;
+
+    /**
+     * @param filter The compiled filter of the query, or null if it includes every entry
+     * @param entries Supplies the entries of the log
+     * @param budgets Supplies the time limits on testing entries against the filter
+     * @param onSelect Called with an entry when its result is double clicked
+     */
+    public TopQueryDialog(Frame owner, TopQuery query, LogFilter filter, Supplier<List<LogEntry>> entries,
+                          Supplier<EvaluationBudget> budgets, Consumer<LogEntry> onSelect){
+        super(owner, "Top Query", false);
+        this.query = query;
+        this.filter = filter;
+        this.entries = entries;
+        this.budgets = budgets;
+        this.columns = new ArrayList<>();
+        this.columns.add(query.getOrderBy());
+        for (LogEntryField field : CONTEXT_FIELDS) {
+            if(field != query.getOrderBy()) this.columns.add(field);
+        }
+        this.tableModel = new ResultsTableModel();
+        this.statusLabel = new JLabel();
+        this.refreshButton = new JButton("Refresh");
+
+        buildDialog(onSelect);
+        pack();
+        setLocationRelativeTo(owner);
+        refresh();
+    }
+
+    private void buildDialog(Consumer<LogEntry> onSelect){
+        this.setLayout(new BorderLayout());
+        this.setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JPanel header = new JPanel(new GridLayout(0, 1));
+        header.setBorder(BorderFactory.createEmptyBorder(5, 5, 5, 5));
+        header.add(new JLabel("Query: " + query));
+        header.add(statusLabel);
+        this.add(header, BorderLayout.NORTH);
+
+        JTable table = new JTable(tableModel);
+        table.getColumnModel().getColumn(0).setMaxWidth(60);
+        table.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int row = table.rowAtPoint(e.getPoint());
+                if(e.getClickCount() == 2 && row != -1){
+                    onSelect.accept(tableModel.results.get(row));
+                }
+            }
+        });
+        JScrollPane tableScroller = new JScrollPane(table);
+        tableScroller.setPreferredSize(new Dimension(800, 350));
+        this.add(tableScroller, BorderLayout.CENTER);
+
+        refreshButton.addActionListener(e -> refresh());
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(refreshButton);
+        buttons.add(closeButton);
+        this.add(buttons, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Run the query again over the entries currently in the log.
+     */
+    private void refresh(){
+        if(worker != null) return;
+        List<LogEntry> entries = this.entries.get();
+        EvaluationBudget budget = this.budget = budgets.get();
+        statusLabel.setText(String.format("Searching %d entries...", entries.size()));
+        refreshButton.setEnabled(false);
+
+        worker = new SwingWorker<TopResults, Void>() {
+            @Override
+            protected TopResults doInBackground() {
+                return TopResults.execute(query, filter, entries, budget);
+            }
+
+            @Override
+            protected void done() {
+                worker = null;
+                refreshButton.setEnabled(true);
+                try {
+                    TopResults results = get();
+                    String status = String.format("Top %d of %d matching entries, from %d in the log.",
+                            results.getEntries().size(), results.getMatchedCount(), entries.size());
+                    if(results.getTimedOutCount() > 0){
+                        status += String.format(" %d entries took too long to test against the filter and were left out.", results.getTimedOutCount());
+                    }
+                    statusLabel.setText(status);
+                    tableModel.setResults(results.getEntries());
+                }catch (CancellationException e){
+                    //Closed while searching.
+                }catch (Exception e){
+                    statusLabel.setText("The query failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    @Override
+    public void dispose() {
+        if(worker != null){
+            //Stop testing the remaining entries, the search itself can't be interrupted.
+            budget.cancel();
+            worker.cancel(true);
+        }
+        super.dispose();
+    }
+
+    private class ResultsTableModel extends AbstractTableModel {
+        private List<LogEntry> results = Collections.emptyList();
+
+        private void setResults(List<LogEntry> results){
+            this.results = results;
+            fireTableDataChanged();
+        }
+
+        @Override
+        public int getRowCount() {
+            return results.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columns.size() + 1;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "#" : columns.get(column - 1).getFullLabel();
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            if(column == 0) return row + 1;
+            Object value = results.get(row).getValueByKey(columns.get(column - 1));
+            return value instanceof CharSequence ? value.toString() : value;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.nccgroup.loggerplusplus.logentry;
+
+import burp.IParameter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class KeyedValuesTest {
+
+    @Test
+    public void empty(){
+        assertSame(KeyedValues.EMPTY, KeyedValues.ofHeaders(null));
+        assertSame(KeyedValues.EMPTY, KeyedValues.ofHeaders(Collections.singletonList("GET / HTTP/1.1")));
+        assertSame(KeyedValues.EMPTY, KeyedValues.ofParameters(Collections.emptyList()));
+        assertNull(KeyedValues.EMPTY.get("Host"));
+    }
+
+    @Test
+    public void headersIgnoreCase(){
+        KeyedValues headers = KeyedValues.ofHeaders(Arrays.asList(
+                "GET / HTTP/1.1",
+                "Host: example.com",
+                "Content-Type:\ttext/html",
+                "X-Empty:",
+                "not a header",
+                "\u00c4\u00d6-Header: unicode"));
+        assertEquals(4, headers.size());
+        assertEquals("example.com", headers.get("host"));
+        assertEquals("example.com", headers.get("HOST"));
+        assertEquals("text/html", headers.get("content-TYPE"));
+        assertEquals("", headers.get("x-empty"));
+        assertEquals("unicode", headers.get("\u00e4\u00f6-header"));
+        assertNull(headers.get("not a header"));
+        assertNull(headers.get("Hos"));
+    }
+
+    @Test
+    public void firstValueIsKept(){
+        KeyedValues headers = KeyedValues.ofHeaders(Arrays.asList(
+                "HTTP/1.1 200 OK", "Set-Cookie: a=1", "set-cookie: b=2", "SET-COOKIE: c=3"));
+        assertEquals(1, headers.size());
+        assertEquals("a=1", headers.get("Set-Cookie"));
+
+        KeyedValues parameters = KeyedValues.ofParameters(Arrays.asList(
+                parameter("id", "1"), parameter("ID", "2"), parameter("id", "3")));
+        assertEquals(2, parameters.size());
+        assertEquals("1", parameters.get("id"));
+        assertEquals("2", parameters.get("ID"));
+    }
+
+    @Test
+    public void parametersMatchExactly(){
+        KeyedValues parameters = KeyedValues.ofParameters(Arrays.asList(parameter("token", "abc"), parameter("Page", "2")));
+        assertEquals("abc", parameters.get("token"));
+        assertNull(parameters.get("Token"));
+        assertEquals("2", parameters.get("Page"));
+        assertNull(parameters.get("page"));
+    }
+
+    @Test
+    public void growsWithTheNumberOfKeys(){
+        for (int count : new int[]{1, 2, 3, 7, 8, 9, 100, 1000, 5000}) {
+            List<String> headers = new ArrayList<>();
+            List<IParameter> parameters = new ArrayList<>();
+            headers.add("GET / HTTP/1.1");
+            for (int i = 0; i < count; i++) {
+                headers.add("X-Header-" + i + ": " + i);
+                parameters.add(parameter("p" + i, String.valueOf(i)));
+            }
+            KeyedValues headerValues = KeyedValues.ofHeaders(headers);
+            KeyedValues parameterValues = KeyedValues.ofParameters(parameters);
+            assertEquals(count, headerValues.size());
+            assertEquals(count, parameterValues.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals(scan(headers, "x-header-" + i), headerValues.get("x-header-" + i));
+                assertEquals(String.valueOf(i), parameterValues.get("p" + i));
+            }
+            assertNull(headerValues.get("X-Header-" + count));
+            assertNull(parameterValues.get("p" + count));
+        }
+    }
+
+    //The value of the first header with the name, found the way the log did before headers were indexed.
+    private static String scan(List<String> headers, String name){
+        for (String header : headers.subList(1, headers.size())) {
+            int colon = header.indexOf(':');
+            if(colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase(name)){
+                return header.substring(colon + 1).trim();
+            }
+        }
+        return null;
+    }
+
+    private static IParameter parameter(String name, String value){
+        return new IParameter() {
+            @Override public byte getType() { return IParameter.PARAM_URL; }
+            @Override public String getName() { return name; }
+            @Override public String getValue() { return value; }
+            @Override public int getNameStart() { return -1; }
+            @Override public int getNameEnd() { return -1; }
+            @Override public int getValueStart() { return -1; }
+            @Override public int getValueEnd() { return -1; }
+        };
+    }
+}
@@ -0,0 +1,110 @@
+package com.nccgroup.loggerplusplus.logview.logtable;
+
+import org.junit.Test;
+
+import java.text.Collator;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SortKeyDictionaryTest {
+
+    private static final Comparator<String> ORDER = Collator.getInstance()::compare;
+
+    @Test
+    public void ranksFollowCollationOrder(){
+        List<String> values = Arrays.asList("banana", "Apple", "apple", "cherry", "\u00e9clair", "10", "9", "", "apple");
+        SortKeyDictionary dictionary = new SortKeyDictionary(values);
+        assertOrdered(dictionary, values);
+    }
+
+    @Test
+    public void addedValuesRankBetweenTheirNeighbours(){
+        SortKeyDictionary dictionary = new SortKeyDictionary(Arrays.asList("b", "d", "f"));
+        List<String> all = new ArrayList<>(Arrays.asList("b", "d", "f"));
+        for (String value : new String[]{"a", "c", "e", "g", "cc", "ca", "0", "z"}) {
+            long key = dictionary.getKey(value);
+            long rank = dictionary.add(value);
+            assertNotEquals(SortKeyDictionary.NO_ROOM, rank);
+            assertEquals(key, rank);
+            assertEquals(rank, dictionary.add(value));
+            all.add(value);
+            assertOrdered(dictionary, all);
+        }
+    }
+
+    @Test
+    public void copiesAreIndependent(){
+        SortKeyDictionary dictionary = new SortKeyDictionary(Arrays.asList("a", "c"));
+        SortKeyDictionary copy = dictionary.copy();
+        long rank = copy.add("b");
+        dictionary.add("bb");
+        assertEquals(rank, copy.getKey("b"));
+        assertOrdered(copy, Arrays.asList("a", "b", "c"));
+        assertOrdered(dictionary, Arrays.asList("a", "bb", "c"));
+    }
+
+    @Test
+    public void rebuildKeepsTheOrderOfKeys(){
+        Random random = new Random(5);
+        SortKeyDictionary dictionary = new SortKeyDictionary(Arrays.asList("a", "b"));
+        TreeSet<String> values = new TreeSet<>(ORDER);
+        values.addAll(Arrays.asList("a", "b"));
+        List<String> column = new ArrayList<>();
+        int rebuilds = 0;
+
+        //Keep adding values between "a" and "b" until there is no room left, so the dictionary must be rebuilt.
+        String between = "a";
+        for (int i = 0; i < 200; i++) {
+            between = random.nextBoolean() ? between + "a" : "a" + (char) ('a' + random.nextInt(26)) + i;
+            if(dictionary.add(between) == SortKeyDictionary.NO_ROOM){
+                long[] keys = keysOf(dictionary, column);
+                keys = Arrays.copyOf(keys, keys.length + 1);
+                keys[keys.length - 1] = SortKeyExtractor.NULL_KEY;
+                SortKeyDictionary rebuilt = dictionary.rebuild(keys, keys.length);
+
+                //Keys remapped in place match the ranks of the rebuilt dictionary, and nulls are left alone.
+                assertEquals(SortKeyExtractor.NULL_KEY, keys[keys.length - 1]);
+                assertArrayEquals(keysOf(rebuilt, column), Arrays.copyOf(keys, column.size()));
+                assertOrdered(rebuilt, values);
+                dictionary = rebuilt;
+                rebuilds++;
+                assertNotEquals(SortKeyDictionary.NO_ROOM, dictionary.add(between));
+            }
+            values.add(between);
+            column.add(between);
+            column.add(random.nextBoolean() ? "a" : "b");
+        }
+        assertOrdered(dictionary, values);
+        assertTrue("The dictionary was never rebuilt", rebuilds > 0);
+    }
+
+    @Test
+    public void unaddedValuesKeepTheirPlaceAcrossRebuild(){
+        SortKeyDictionary dictionary = new SortKeyDictionary(Arrays.asList("a", "c", "e"));
+        dictionary.add("d");
+        long[] keys = {dictionary.getKey("b"), dictionary.getKey("a"), dictionary.getKey("d"), dictionary.getKey("f")};
+        SortKeyDictionary rebuilt = dictionary.rebuild(keys, keys.length);
+        assertTrue(keys[1] < keys[0] && keys[0] < rebuilt.getKey("c"));
+        assertEquals(rebuilt.getKey("d"), keys[2]);
+        assertTrue(keys[3] > rebuilt.getKey("e"));
+    }
+
+    private static long[] keysOf(SortKeyDictionary dictionary, List<String> column){
+        long[] keys = new long[column.size()];
+        for (int i = 0; i < keys.length; i++) keys[i] = dictionary.getKey(column.get(i));
+        return keys;
+    }
+
+    //Keys of the values compare as the values do.
+    private static void assertOrdered(SortKeyDictionary dictionary, Collection<String> values){
+        List<String> list = new ArrayList<>(values);
+        for (String a : list) {
+            for (String b : list) {
+                int expected = Integer.signum(ORDER.compare(a, b));
+                int actual = Long.signum(Long.compare(dictionary.getKey(a), dictionary.getKey(b)));
+                assertEquals(a + " vs " + b, expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.nccgroup.loggerplusplus.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class CompressedBitmapTest {
+
+    private final Random random = new Random(31);
+
+    @Test
+    public void addAndRemoveAcrossContainerTypes(){
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> reference = new TreeSet<>();
+        //Fill one container past the array limit so it becomes a bitmap, then empty it back into an array.
+        for (int i = 0; i < 6000; i++) {
+            int value = random.nextInt(8000);
+            bitmap.add(value);
+            reference.add(value);
+            assertSame(reference, bitmap);
+        }
+        for (int i = 0; i < 6000; i++) {
+            int value = random.nextInt(8000);
+            bitmap.remove(value);
+            reference.remove(value);
+        }
+        assertSame(reference, bitmap);
+        for (Integer value : new TreeSet<>(reference)) {
+            bitmap.remove(value);
+            reference.remove(value);
+        }
+        assertSame(reference, bitmap);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void setOperations(){
+        for (int round = 0; round < 50; round++) {
+            TreeSet<Integer> a = randomSet(), b = randomSet();
+            CompressedBitmap left = toBitmap(a), right = toBitmap(b);
+
+            TreeSet<Integer> and = new TreeSet<>(a);
+            and.retainAll(b);
+            assertSame(and, CompressedBitmap.and(left, right));
+
+            TreeSet<Integer> or = new TreeSet<>(a);
+            or.addAll(b);
+            assertSame(or, CompressedBitmap.or(left, right));
+            assertSame(or, CompressedBitmap.or(java.util.Arrays.asList(left, right)));
+
+            TreeSet<Integer> andNot = new TreeSet<>(a);
+            andNot.removeAll(b);
+            assertSame(andNot, CompressedBitmap.andNot(left, right));
+
+            //The operands are left as they were.
+            assertSame(a, left);
+            assertSame(b, right);
+        }
+    }
+
+    @Test
+    public void removeBelow(){
+        for (int round = 0; round < 50; round++) {
+            TreeSet<Integer> reference = randomSet();
+            CompressedBitmap bitmap = toBitmap(reference);
+            int bound = random.nextInt(4 << 16);
+            bitmap.removeBelow(bound);
+            reference.headSet(bound).clear();
+            assertSame(reference, bitmap);
+        }
+    }
+
+    @Test
+    public void copyIsIndependent(){
+        TreeSet<Integer> reference = randomSet();
+        CompressedBitmap bitmap = toBitmap(reference);
+        CompressedBitmap copy = bitmap.copy();
+        assertEquals(bitmap, copy);
+        copy.add(Integer.MAX_VALUE);
+        copy.removeBelow(1 << 16);
+        assertSame(reference, bitmap);
+    }
+
+    //Sets mixing sparse and dense runs in a few containers, so operations meet both container types.
+    private TreeSet<Integer> randomSet(){
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int container = 0; container < 4; container++) {
+            int base = container << 16;
+            switch (random.nextInt(4)) {
+                case 0:
+                    break;
+                case 1:
+                    for (int i = 0; i < 100; i++) values.add(base + random.nextInt(1 << 16));
+                    break;
+                case 2:
+                    for (int i = 0; i < 5000; i++) values.add(base + random.nextInt(1 << 16));
+                    break;
+                default:
+                    //Dense enough that an intersection or difference can fall either side of the array limit.
+                    int start = random.nextInt(1 << 15);
+                    for (int i = start; i < start + 4096 + random.nextInt(200) - 100; i++) values.add(base + i);
+            }
+        }
+        return values;
+    }
+
+    private static CompressedBitmap toBitmap(TreeSet<Integer> values){
+        CompressedBitmap bitmap = new CompressedBitmap();
+        values.forEach(bitmap::add);
+        return bitmap;
+    }
+
+    private static void assertSame(TreeSet<Integer> expected, CompressedBitmap actual){
+        assertEquals(expected.size(), actual.getCardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), actual.toArray());
+        for (Integer value : expected) {
+            assertTrue(actual.contains(value));
+        }
+        assertEquals(toBitmap(expected), actual);
+        assertEquals(toBitmap(expected).hashCode(), actual.hashCode());
+    }
+}
@@ -0,0 +1,62 @@
+package com.nccgroup.loggerplusplus.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HyperLogLogTest {
+
+    @Test
+    public void empty(){
+        assertEquals(0, new HyperLogLog().cardinality());
+    }
+
+    @Test
+    public void smallCardinalitiesAreNearlyExact(){
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 1; i <= 200; i++) {
+            sketch.add("value" + i);
+            assertEquals(i, sketch.cardinality(), Math.max(1, i * 0.02));
+        }
+    }
+
+    @Test
+    public void duplicatesAreNotCounted(){
+        HyperLogLog sketch = new HyperLogLog();
+        for (int repeat = 0; repeat < 10; repeat++) {
+            for (int i = 0; i < 1000; i++) sketch.add("value" + i);
+        }
+        assertEquals(1000, sketch.cardinality(), 1000 * errorBound(HyperLogLog.DEFAULT_PRECISION));
+    }
+
+    @Test
+    public void errorWithinBounds(){
+        for (int precision : new int[]{8, 12, 14}) {
+            for (int cardinality : new int[]{1000, 10000, 100000, 1000000}) {
+                HyperLogLog sketch = new HyperLogLog(precision);
+                for (int i = 0; i < cardinality; i++) sketch.add("/path/" + i + "?id=" + precision);
+                assertEquals("Precision " + precision + ", cardinality " + cardinality,
+                        cardinality, sketch.cardinality(), cardinality * errorBound(precision));
+            }
+        }
+    }
+
+    @Test
+    public void mergeCountsTheUnion(){
+        HyperLogLog left = new HyperLogLog(), right = new HyperLogLog();
+        for (int i = 0; i < 60000; i++) left.add("id=" + i);
+        for (int i = 40000; i < 100000; i++) right.add("id=" + i);
+        left.merge(right);
+        assertEquals(100000, left.cardinality(), 100000 * errorBound(HyperLogLog.DEFAULT_PRECISION));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsPrecisionOutOfRange(){
+        new HyperLogLog(3);
+    }
+
+    //Four standard errors either side, as the estimate is least accurate just past the switch from linear counting.
+    private static double errorBound(int precision){
+        return 4 * 1.04 / Math.sqrt(1 << precision);
+    }
+}
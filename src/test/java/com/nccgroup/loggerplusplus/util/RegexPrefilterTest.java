@@ -0,0 +1,145 @@
+package com.nccgroup.loggerplusplus.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class RegexPrefilterTest {
+
+    private static final String ALPHABET = "abcfoxyzqFOXBAR.-_ \n1";
+
+    @Test
+    public void alternation(){
+        assertSound("(foo|bar)baz", "foobaz", "xbarbazx");
+        assertSound("foo|bar", "foo", "bar", "xxbarxx");
+        assertSound("a(b|cd|)e", "abe", "acde", "ae");
+        assertRejects("(foo|bar)baz", "foobar", "bazfoo");
+    }
+
+    @Test
+    public void optionalAndStarGroups(){
+        assertSound("foo(bar)?baz", "foobaz", "foobarbaz");
+        assertSound("foo(bar)*baz", "foobaz", "foobarbarbaz");
+        assertSound("(ab)+c", "abc", "ababc");
+        assertSound("x(ab){2,3}y", "xababy", "xabababy");
+        assertSound("foo.*bar", "foobar", "foo and bar");
+        assertSound("fo?o+x", "fox", "foooox");
+        assertRejects("foo.*bar", "foo", "bar");
+    }
+
+    @Test
+    public void characterClasses(){
+        assertSound("[ab]x[0-9]", "ax1", "bx9");
+        assertSound("[^a]foo", "xfoo", "1foo");
+        assertSound("\\d+foo\\w", "1foox", "12foo_");
+        assertSound("fo[o-q]x", "foox", "fopx", "foqx");
+        assertSound("[a-z&&[^b]]oo", "aoo", "coo");
+        assertSound("\\p{Alpha}ox", "fox", "Box");
+    }
+
+    @Test
+    public void caseInsensitive(){
+        assertSound("(?i)foo", "foo", "FOO", "fOo");
+        assertSound("(?i:bar)baz", "BARbaz", "barbaz");
+        assertSound("foo(?i)bar", "fooBAR");
+        assertSound("(?-i)foo", "foo");
+        assertNotNull(RegexPrefilter.forPattern(Pattern.compile("FOO")));
+        assertTrue(RegexPrefilter.forPattern(Pattern.compile("FOO")).mayMatch("foo"));
+        assertTrue(RegexPrefilter.forPattern(Pattern.compile("foo", Pattern.CASE_INSENSITIVE)).mayMatch("FOO"));
+    }
+
+    @Test
+    public void escapes(){
+        assertSound("foo\\.bar", "foo.bar");
+        assertSound("a\\+b", "a+b");
+        assertSound("\\Qa.b*c\\E", "a.b*c");
+        assertSound("x\\Qa.b", "xa.b");
+        assertSound("\\x41B\\u0043", "ABC");
+        assertSound("\\tfoo\\n", "\tfoo\n");
+        assertSound("\\0101bc", "Abc");
+        assertSound("(foo)\\1", "foofoo");
+        assertSound("(?<n>ab)\\k<n>", "abab");
+        assertSound("foo\\bbar|foo\\Bx", "foox");
+        assertRejects("foo\\.bar", "foobar");
+    }
+
+    @Test
+    public void lookarounds(){
+        assertSound("foo(?=bar)", "foobar");
+        assertSound("foo(?!bar)", "foo", "foobaz");
+        assertSound("(?<=bar)foo", "barfoo");
+        assertSound("(?<!bar)foo", "foo", "xfoo");
+        assertSound("(?>foo|fo)o", "fooo");
+        assertSound("(?:foo)+x", "foox", "foofoox");
+    }
+
+    @Test
+    public void literalFlag(){
+        assertSound(Pattern.compile("a.b(", Pattern.LITERAL), "a.b(");
+        assertRejects(Pattern.compile("a.b(", Pattern.LITERAL), "axb(");
+    }
+
+    /**
+     * Checks the prefilter accepts every sample the pattern finds, and every random string over a small alphabet
+     * it finds.
+     */
+    private static void assertSound(String regex, String... samples){
+        assertSound(Pattern.compile(regex), samples);
+    }
+
+    private static void assertSound(Pattern pattern, String... samples){
+        RegexPrefilter prefilter = RegexPrefilter.forPattern(pattern);
+        if(prefilter == null) return;
+        for (String sample : samples) {
+            assertTrue(pattern + " should find " + sample, pattern.matcher(sample).find());
+            assertTrue(pattern + " rejected " + sample, prefilter.mayMatch(sample));
+            String padded = "zz" + sample + "zz";
+            if(pattern.matcher(padded).find()) {
+                assertTrue(pattern + " rejected " + padded, prefilter.mayMatch(padded));
+            }
+        }
+
+        Random random = new Random(pattern.pattern().hashCode());
+        for (int i = 0; i < 20000; i++) {
+            String text = randomText(random, samples);
+            Matcher matcher = pattern.matcher(text);
+            if(matcher.find()){
+                assertTrue(pattern + " rejected " + text, prefilter.mayMatch(text));
+            }
+        }
+    }
+
+    private static void assertRejects(String regex, String... samples){
+        assertRejects(Pattern.compile(regex), samples);
+    }
+
+    private static void assertRejects(Pattern pattern, String... samples){
+        RegexPrefilter prefilter = RegexPrefilter.forPattern(pattern);
+        assertNotNull(pattern + " has no prefilter", prefilter);
+        for (String sample : samples) {
+            assertFalse(pattern + " should not find " + sample, pattern.matcher(sample).find());
+            assertFalse(pattern + " accepted " + sample, prefilter.mayMatch(sample));
+        }
+    }
+
+    //Random text built from the samples and single characters, so that a good share of it matches.
+    private static String randomText(Random random, String[] samples){
+        StringBuilder text = new StringBuilder();
+        int parts = 1 + random.nextInt(6);
+        for (int i = 0; i < parts; i++) {
+            if(samples.length > 0 && random.nextInt(3) == 0){
+                String sample = samples[random.nextInt(samples.length)];
+                int from = random.nextInt(sample.length() + 1);
+                int to = from + random.nextInt(sample.length() - from + 1);
+                text.append(sample, from, to);
+            }else{
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return text.toString();
+    }
+}
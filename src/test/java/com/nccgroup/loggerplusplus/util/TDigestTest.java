@@ -0,0 +1,101 @@
+package com.nccgroup.loggerplusplus.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TDigestTest {
+
+    private static final double[] QUANTILES = {0, 0.001, 0.01, 0.1, 0.25, 0.5, 0.75, 0.9, 0.95, 0.99, 0.999, 1};
+
+    @Test
+    public void empty(){
+        assertTrue(Double.isNaN(new TDigest().quantile(0.5)));
+        assertEquals(0, new TDigest().size());
+    }
+
+    @Test
+    public void extremesAreExact(){
+        TDigest digest = new TDigest();
+        Random random = new Random(1);
+        double[] values = random.doubles(50000).map(value -> value * 1000 - 500).toArray();
+        for (double value : values) digest.add(value);
+        Arrays.sort(values);
+        assertEquals(values[0], digest.quantile(0), 0);
+        assertEquals(values[values.length - 1], digest.quantile(1), 0);
+    }
+
+    @Test
+    public void uniform(){
+        Random random = new Random(2);
+        assertQuantiles(random.doubles(100000).toArray());
+    }
+
+    @Test
+    public void skewed(){
+        //Response times are mostly small with a long tail.
+        Random random = new Random(3);
+        assertQuantiles(random.doubles(100000).map(value -> Math.exp(random.nextGaussian() * 2)).toArray());
+    }
+
+    @Test
+    public void sortedInput(){
+        double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) values[i] = i;
+        assertQuantiles(values);
+    }
+
+    @Test
+    public void merged(){
+        Random random = new Random(4);
+        double[] values = random.doubles(100000).map(value -> value * value).toArray();
+        TDigest merged = new TDigest();
+        for (int part = 0; part < 10; part++) {
+            TDigest digest = new TDigest();
+            for (int i = part * 10000; i < (part + 1) * 10000; i++) digest.add(values[i]);
+            merged.merge(digest);
+        }
+        assertEquals(values.length, merged.size());
+        Arrays.sort(values);
+        //Merging summarises summaries, so is allowed twice the error.
+        assertQuantiles(merged, values, 2);
+    }
+
+    private static void assertQuantiles(double[] values){
+        TDigest digest = new TDigest();
+        for (double value : values) digest.add(value);
+        assertEquals(values.length, digest.size());
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        assertQuantiles(digest, sorted, 1);
+    }
+
+    //Compares by rank, the fraction of the data below the estimate, which is what a t-digest bounds.
+    private static void assertQuantiles(TDigest digest, double[] sorted, double slack){
+        for (double q : QUANTILES) {
+            double estimate = digest.quantile(q);
+            double rank = rankOf(sorted, estimate);
+            //Errors are smallest at the tails, scaling with q(1 - q).
+            double tolerance = slack * (0.001 + 0.04 * q * (1 - q));
+            assertEquals("Rank of quantile " + q, q, rank, tolerance);
+        }
+    }
+
+    private static double rankOf(double[] sorted, double value){
+        int below = 0, at = 0;
+        int index = Arrays.binarySearch(sorted, value);
+        if(index < 0){
+            below = -index - 1;
+        }else{
+            int low = index, high = index;
+            while (low > 0 && sorted[low - 1] == value) low--;
+            while (high < sorted.length - 1 && sorted[high + 1] == value) high++;
+            below = low;
+            at = high - low + 1;
+        }
+        return (below + at / 2.0) / sorted.length;
+    }
+}